@@ -17,10 +17,13 @@
 package com.digitalpetri.opcua.sdk.client;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -33,6 +36,7 @@ import com.digitalpetri.opcua.sdk.client.api.nodes.attached.UaVariableNode;
 import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
 import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaSubscription;
 import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaSubscriptionManager.SubscriptionListener;
+import com.digitalpetri.opcua.sdk.client.nodes.BrowseCrawler;
 import com.digitalpetri.opcua.sdk.server.OpcUaServer;
 import com.digitalpetri.opcua.sdk.server.api.config.OpcUaServerConfig;
 import com.digitalpetri.opcua.sdk.server.identity.UsernameIdentityValidator;
@@ -183,6 +187,33 @@ public class OpcUaClientIT {
         assertNotNull(currentTimeNode.readValueAttribute().get());
     }
 
+    @Test
+    public void testReadManyValues() throws Exception {
+        logger.info("testReadManyValues()");
+
+        // more than any reasonable MaxNodesPerRead, so the read is split if the server advertises a limit
+        List<NodeId> nodeIds = Collections.nCopies(10000, Identifiers.Server_ServerStatus_CurrentTime);
+
+        List<DataValue> values = client.readValues(0.0, TimestampsToReturn.Neither, nodeIds).get();
+
+        assertEquals(values.size(), nodeIds.size());
+        values.forEach(v -> assertTrue(v.getStatusCode().isGood()));
+    }
+
+    @Test
+    public void testBrowseCrawler() throws Exception {
+        logger.info("testBrowseCrawler()");
+
+        Set<NodeId> browsed = ConcurrentHashMap.newKeySet();
+
+        long count = new BrowseCrawler(client)
+            .crawl(Identifiers.ObjectsFolder, (nodeId, references) -> browsed.add(nodeId))
+            .get();
+
+        assertEquals(count, browsed.size());
+        assertTrue(browsed.contains(Identifiers.Server));
+    }
+
     @Test
     public void testWrite() throws Exception {
         logger.info("testWrite()");
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.digitalpetri.opcua.stack.core.Stack;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Coalesces concurrent single operations into batches that are each sent as a single request.
+ * <p>
+ * Operations are collected for up to {@code window} milliseconds, or until {@code maxBatchSize} operations have been
+ * collected, and are then sent together. Only operations submitted with equal keys are combined.
+ * <p>
+ * A window of 0 sends a batch as soon as the executor gets to it, combining only the operations that arrived
+ * concurrently.
+ *
+ * @param <K> the type of key operations must share to be combined.
+ * @param <Q> the type of a single operation.
+ * @param <R> the type of the result of a single operation.
+ */
+public abstract class AbstractCoalescer<K, Q, R> {
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Map<K, Batch<K, Q, R>> batches = Maps.newHashMap();
+
+    private final AtomicLong batchCount = new AtomicLong(0L);
+    private final AtomicLong operationCount = new AtomicLong(0L);
+    private final AtomicLong largestBatchSize = new AtomicLong(0L);
+    private final AtomicLong totalWaitNanos = new AtomicLong(0L);
+
+    private final ExecutorService executor;
+    private final long window;
+    private final int maxBatchSize;
+
+    /**
+     * @param executor     the {@link ExecutorService} batches are sent from when there is no window.
+     * @param window       the time, in milliseconds, to wait for more operations before sending a batch.
+     * @param maxBatchSize the number of operations that causes a batch to be sent immediately.
+     */
+    protected AbstractCoalescer(ExecutorService executor, long window, int maxBatchSize) {
+        this.executor = executor;
+        this.window = window;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    /**
+     * Send a batch of operations.
+     *
+     * @param key        the key shared by every operation in the batch.
+     * @param operations the operations to send.
+     * @return a {@link CompletableFuture} containing the results, in the same order as {@code operations}.
+     */
+    protected abstract CompletableFuture<R[]> send(K key, List<Q> operations);
+
+    /**
+     * Submit an operation, sharing a request with any other operations submitted with an equal key during the same
+     * window.
+     *
+     * @param key       the key the operation must share with others to be combined with them.
+     * @param operation the operation.
+     * @return a {@link CompletableFuture} containing the result of the operation.
+     */
+    protected CompletableFuture<R> submit(K key, Q operation) {
+        Pending<Q, R> pending = new Pending<>(operation);
+
+        Batch<K, Q, R> full = null;
+
+        synchronized (batches) {
+            Batch<K, Q, R> batch = batches.get(key);
+
+            if (batch == null) {
+                batch = new Batch<>(key);
+                batches.put(key, batch);
+
+                Batch<K, Q, R> scheduled = batch;
+
+                if (window > 0) {
+                    Stack.sharedScheduledExecutor().schedule(
+                            () -> flush(scheduled), window, TimeUnit.MILLISECONDS);
+                } else {
+                    executor.execute(() -> flush(scheduled));
+                }
+            }
+
+            batch.pending.add(pending);
+
+            if (batch.pending.size() >= maxBatchSize) {
+                batches.remove(key);
+                full = batch;
+            }
+        }
+
+        if (full != null) dispatch(full);
+
+        return pending.future;
+    }
+
+    /**
+     * @return the number of batches sent.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return the number of operations sent, across all batches.
+     */
+    public long getOperationCount() {
+        return operationCount.get();
+    }
+
+    /**
+     * @return the number of operations in the largest batch sent.
+     */
+    public long getLargestBatchSize() {
+        return largestBatchSize.get();
+    }
+
+    /**
+     * @return the average number of operations per batch.
+     */
+    public double getAverageBatchSize() {
+        long batches = batchCount.get();
+
+        return batches == 0 ? 0.0 : (double) operationCount.get() / batches;
+    }
+
+    /**
+     * @param unit the {@link TimeUnit} of the returned value.
+     * @return the average time an operation waited for its batch to be sent.
+     */
+    public double getAverageWaitTime(TimeUnit unit) {
+        long operations = operationCount.get();
+
+        return operations == 0 ? 0.0 :
+                (double) unit.convert(totalWaitNanos.get(), TimeUnit.NANOSECONDS) / operations;
+    }
+
+    private void flush(Batch<K, Q, R> batch) {
+        synchronized (batches) {
+            if (batches.get(batch.key) != batch) {
+                // Already sent because it filled up.
+                return;
+            }
+
+            batches.remove(batch.key);
+        }
+
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch<K, Q, R> batch) {
+        List<Pending<Q, R>> pending = batch.pending;
+
+        long now = System.nanoTime();
+        long waitNanos = pending.stream().mapToLong(p -> now - p.enqueuedNanos).sum();
+
+        batchCount.incrementAndGet();
+        operationCount.addAndGet(pending.size());
+        totalWaitNanos.addAndGet(waitNanos);
+        largestBatchSize.accumulateAndGet(pending.size(), Math::max);
+
+        logger.trace("Sending {} coalesced operations, key={}", pending.size(), batch.key);
+
+        List<Q> operations = pending.stream()
+                .map(p -> p.operation)
+                .collect(Collectors.toList());
+
+        CompletableFuture<R[]> future;
+
+        try {
+            future = send(batch.key, operations);
+        } catch (Throwable t) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(t);
+        }
+
+        future.whenComplete((results, ex) -> {
+            if (ex != null) {
+                pending.forEach(p -> p.future.completeExceptionally(ex));
+            } else if (results == null || results.length < pending.size()) {
+                UaException failure = new UaException(StatusCodes.Bad_UnexpectedError,
+                        String.format("expected %d results, received %d",
+                                pending.size(), results == null ? 0 : results.length));
+
+                pending.forEach(p -> p.future.completeExceptionally(failure));
+            } else {
+                for (int i = 0; i < pending.size(); i++) {
+                    pending.get(i).future.complete(results[i]);
+                }
+            }
+        });
+    }
+
+    private static class Pending<Q, R> {
+        final CompletableFuture<R> future = new CompletableFuture<>();
+        final long enqueuedNanos = System.nanoTime();
+
+        final Q operation;
+
+        Pending(Q operation) {
+            this.operation = operation;
+        }
+    }
+
+    private static class Batch<K, Q, R> {
+        final List<Pending<Q, R>> pending = newArrayList();
+
+        final K key;
+
+        Batch(K key) {
+            this.key = key;
+        }
+    }
+
+}
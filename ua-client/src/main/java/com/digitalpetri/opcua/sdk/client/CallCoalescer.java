@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import com.digitalpetri.opcua.sdk.client.api.services.MethodServices;
+import com.digitalpetri.opcua.stack.core.types.structured.CallMethodRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.CallMethodResult;
+import com.digitalpetri.opcua.stack.core.types.structured.CallResponse;
+
+/**
+ * Coalesces concurrent single method calls into a single {@link com.digitalpetri.opcua.stack.core.types.structured.CallRequest}.
+ * <p>
+ * Calls are collected for up to {@code window} milliseconds, or until {@code maxBatchSize} calls have been collected,
+ * and are then sent together. A window of 0 sends a batch as soon as the executor gets to it, combining only the calls
+ * that arrived concurrently.
+ * <p>
+ * Batches are sent as soon as they are ready, without waiting for earlier batches to complete, so calls made
+ * concurrently are not guaranteed to reach the server in any particular order. Batches larger than the server's
+ * MaxNodesPerMethodCall are split by {@link MethodServices#call(List)}.
+ */
+public class CallCoalescer extends AbstractCoalescer<Void, CallMethodRequest, CallMethodResult> {
+
+    private final MethodServices methodServices;
+
+    /**
+     * @param methodServices the {@link MethodServices} used to send the coalesced calls.
+     * @param executor       the {@link ExecutorService} batches are sent from when there is no window.
+     * @param window         the time, in milliseconds, to wait for more calls before sending a batch.
+     * @param maxBatchSize   the number of calls that causes a batch to be sent immediately.
+     */
+    public CallCoalescer(MethodServices methodServices,
+                         ExecutorService executor,
+                         long window,
+                         int maxBatchSize) {
+
+        super(executor, window, maxBatchSize);
+
+        this.methodServices = methodServices;
+    }
+
+    /**
+     * Call a method, sharing a {@link com.digitalpetri.opcua.stack.core.types.structured.CallRequest} with any other
+     * calls submitted during the same window.
+     *
+     * @param request the {@link CallMethodRequest} describing the method to invoke.
+     * @return a {@link CompletableFuture} containing the {@link CallMethodResult}.
+     */
+    public CompletableFuture<CallMethodResult> call(CallMethodRequest request) {
+        // Every call shares the one batch.
+        return submit(null, request);
+    }
+
+    /**
+     * @return the number of calls sent, across all batches.
+     */
+    public long getCallCount() {
+        return getOperationCount();
+    }
+
+    @Override
+    protected CompletableFuture<CallMethodResult[]> send(Void key, List<CallMethodRequest> requests) {
+        return methodServices.call(requests).thenApply(CallResponse::getResults);
+    }
+
+}
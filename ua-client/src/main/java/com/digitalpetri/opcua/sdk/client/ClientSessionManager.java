@@ -30,9 +30,12 @@ import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import com.codepoetics.protonpack.StreamUtils;
+import com.digitalpetri.opcua.sdk.client.api.OperationLimits;
+import com.digitalpetri.opcua.sdk.client.api.UaSession;
 import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaSubscription;
 import com.digitalpetri.opcua.sdk.client.subscriptions.OpcUaSubscriptionManager;
 import com.digitalpetri.opcua.stack.client.UaTcpStackClient;
+import com.digitalpetri.opcua.stack.core.AttributeId;
 import com.digitalpetri.opcua.stack.core.StatusCodes;
 import com.digitalpetri.opcua.stack.core.UaException;
 import com.digitalpetri.opcua.stack.core.channel.ClientSecureChannel;
@@ -41,8 +44,10 @@ import com.digitalpetri.opcua.stack.core.security.SecurityPolicy;
 import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
 import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
 import com.digitalpetri.opcua.stack.core.types.builtin.ExtensionObject;
+import com.digitalpetri.opcua.stack.core.types.builtin.QualifiedName;
 import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
 import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
 import com.digitalpetri.opcua.stack.core.types.structured.ActivateSessionRequest;
 import com.digitalpetri.opcua.stack.core.types.structured.ActivateSessionResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.CloseSessionRequest;
@@ -50,6 +55,9 @@ import com.digitalpetri.opcua.stack.core.types.structured.CloseSessionResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.CreateSessionRequest;
 import com.digitalpetri.opcua.stack.core.types.structured.CreateSessionResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.EndpointDescription;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
 import com.digitalpetri.opcua.stack.core.types.structured.RequestHeader;
 import com.digitalpetri.opcua.stack.core.types.structured.SignatureData;
 import com.digitalpetri.opcua.stack.core.types.structured.SignedSoftwareCertificate;
@@ -133,6 +141,25 @@ class ClientSessionManager {
         listeners.remove(listener);
     }
 
+    /**
+     * @return the current session if it is active, otherwise {@code null}.
+     */
+    OpcUaSession getActiveSession() {
+        State currentState = state.get();
+
+        return (currentState instanceof Active) ? ((Active) currentState).session : null;
+    }
+
+    /**
+     * @return a completed future holding the current session if it is active, otherwise {@code null}. The same future
+     * is returned for as long as the session stays active.
+     */
+    CompletableFuture<UaSession> getActiveSessionFuture() {
+        State currentState = state.get();
+
+        return (currentState instanceof Active) ? ((Active) currentState).uaSessionFuture : null;
+    }
+
     CompletableFuture<OpcUaSession> getSession() {
         State currentState = state.get();
 
@@ -388,24 +415,28 @@ class ClientSessionManager {
 
                 session.setServerNonce(asr.getServerNonce());
 
-                OpcUaSubscriptionManager subscriptionManager = client.getSubscriptionManager();
-                int subscriptionCount = subscriptionManager.getSubscriptions().size();
-                boolean transferNeeded = subscriptionCount > 0;
+                readOperationLimits(session).whenCompleteAsync((limits, ex2) -> {
+                    session.setOperationLimits(limits);
 
-                logger.debug(
-                    "subscriptionCount={}, transferNeeded={}",
-                    subscriptionCount, transferNeeded);
+                    OpcUaSubscriptionManager subscriptionManager = client.getSubscriptionManager();
+                    int subscriptionCount = subscriptionManager.getSubscriptions().size();
+                    boolean transferNeeded = subscriptionCount > 0;
 
-                if (transferNeeded) {
-                    Transferring transferringState = new Transferring(sessionFuture);
+                    logger.debug(
+                        "subscriptionCount={}, transferNeeded={}",
+                        subscriptionCount, transferNeeded);
 
-                    if (state.compareAndSet(activatingState, transferringState)) {
-                        transferSubscriptions(transferringState, session);
+                    if (transferNeeded) {
+                        Transferring transferringState = new Transferring(sessionFuture);
+
+                        if (state.compareAndSet(activatingState, transferringState)) {
+                            transferSubscriptions(transferringState, session);
+                        }
+                    } else {
+                        state.compareAndSet(activatingState, new Active(session, sessionFuture));
+                        sessionFuture.complete(session);
                     }
-                } else {
-                    state.compareAndSet(activatingState, new Active(session, sessionFuture));
-                    sessionFuture.complete(session);
-                }
+                });
             } else {
                 logger.debug("ActivateSession failed: {}", ex.getMessage(), ex);
 
@@ -475,6 +506,7 @@ class ClientSessionManager {
                 );
 
                 newSession.setServerNonce(asr.getServerNonce());
+                newSession.setOperationLimits(previousSession.getOperationLimits());
 
                 state.compareAndSet(reactivatingState, new Active(newSession, sessionFuture));
 
@@ -517,6 +549,42 @@ class ClientSessionManager {
         });
     }
 
+    /**
+     * Read the OperationLimits advertised by the server.
+     * <p>
+     * The returned future never fails; {@link OperationLimits#NONE} is used if the limits could not be read.
+     */
+    private CompletableFuture<OperationLimits> readOperationLimits(OpcUaSession session) {
+        UaTcpStackClient stackClient = client.getStackClient();
+
+        ReadValueId[] readValueIds = OperationLimits.NODE_IDS.stream()
+            .map(nodeId -> new ReadValueId(nodeId, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE))
+            .toArray(ReadValueId[]::new);
+
+        ReadRequest request = new ReadRequest(
+            client.newRequestHeader(session.getAuthenticationToken()),
+            0.0,
+            TimestampsToReturn.Neither,
+            readValueIds
+        );
+
+        logger.debug("Reading OperationLimits...");
+
+        return stackClient.<ReadResponse>sendRequest(request)
+            .thenApply(response -> {
+                OperationLimits limits = OperationLimits.fromValues(Arrays.asList(response.getResults()));
+
+                logger.debug("Read {}", limits);
+
+                return limits;
+            })
+            .exceptionally(ex -> {
+                logger.debug("Reading OperationLimits failed: {}", ex.getMessage(), ex);
+
+                return OperationLimits.NONE;
+            });
+    }
+
     private void transferSubscriptions(Transferring transferringState, OpcUaSession session) {
         UaTcpStackClient stackClient = client.getStackClient();
         OpcUaSubscriptionManager subscriptionManager = client.getSubscriptionManager();
@@ -751,10 +819,12 @@ class ClientSessionManager {
     private class Active implements State {
         final OpcUaSession session;
         final CompletableFuture<OpcUaSession> sessionFuture;
+        final CompletableFuture<UaSession> uaSessionFuture;
 
         Active(OpcUaSession session, CompletableFuture<OpcUaSession> sessionFuture) {
             this.session = session;
             this.sessionFuture = sessionFuture;
+            this.uaSessionFuture = CompletableFuture.completedFuture(session);
         }
     }
 
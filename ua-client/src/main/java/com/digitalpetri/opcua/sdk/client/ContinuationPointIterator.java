@@ -0,0 +1,257 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.UaRuntimeException;
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Iterates over the pages of a service that returns its results a page at a time, following continuation points as
+ * it goes.
+ * <p>
+ * The next page is requested while the current one is being consumed, but no more than {@code maxPages} pages are
+ * ever buffered or in flight at once, so memory use is bounded regardless of the size of the result.
+ * <p>
+ * Closing the iterator before it is exhausted releases the server's continuation point.
+ * <p>
+ * Subclasses provide the service calls and must call {@link #start()} once they are fully constructed.
+ *
+ * @param <T> the type of a page.
+ */
+public abstract class ContinuationPointIterator<T> implements Iterator<T>, AutoCloseable {
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ArrayDeque<T> pages = new ArrayDeque<>();
+
+    private ByteString continuationPoint = ByteString.NULL_VALUE;
+    private boolean fetching = true;
+    private boolean finished = false;
+    private boolean closed = false;
+    private Throwable failure;
+
+    private final int maxPages;
+
+    /**
+     * @param maxPages the maximum number of pages buffered or in flight at once.
+     */
+    protected ContinuationPointIterator(int maxPages) {
+        this.maxPages = Math.max(1, maxPages);
+    }
+
+    /**
+     * Request a page.
+     *
+     * @param continuationPoint the continuation point returned with the previous page, or
+     *                          {@link ByteString#NULL_VALUE} for the first page.
+     * @return a {@link CompletableFuture} containing the {@link Page}. Completing it exceptionally fails the iterator.
+     */
+    protected abstract CompletableFuture<Page<T>> fetch(ByteString continuationPoint);
+
+    /**
+     * Release a continuation point that won't be followed.
+     *
+     * @param continuationPoint the continuation point to release.
+     * @return a {@link CompletableFuture} that completes when the continuation point has been released.
+     */
+    protected abstract CompletableFuture<?> release(ByteString continuationPoint);
+
+    /**
+     * Request the first page.
+     */
+    protected final void start() {
+        request(ByteString.NULL_VALUE);
+    }
+
+    /**
+     * Block until the next page is available or the iteration is complete.
+     *
+     * @return {@code true} if there is another page.
+     * @throws UaRuntimeException if a request failed.
+     */
+    @Override
+    public boolean hasNext() {
+        synchronized (pages) {
+            while (pages.isEmpty() && !finished && !closed) {
+                try {
+                    pages.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UaRuntimeException(StatusCodes.Bad_RequestCancelledByClient, e);
+                }
+            }
+
+            if (!pages.isEmpty()) return true;
+
+            if (failure != null) {
+                throw new UaRuntimeException(
+                        failure instanceof UaException ?
+                                ((UaException) failure).getStatusCode().getValue() :
+                                StatusCodes.Bad_UnexpectedError,
+                        failure);
+            }
+
+            return false;
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+
+        T page;
+        ByteString next = null;
+
+        synchronized (pages) {
+            page = pages.poll();
+
+            if (shouldFetch()) {
+                fetching = true;
+                next = continuationPoint;
+            }
+        }
+
+        if (next != null) request(next);
+
+        return page;
+    }
+
+    /**
+     * Stop iterating. Buffered pages are discarded and the continuation point, if any, is released.
+     */
+    @Override
+    public void close() {
+        ByteString release = null;
+
+        synchronized (pages) {
+            if (closed) return;
+
+            closed = true;
+            pages.clear();
+
+            if (!finished && !fetching) {
+                release = continuationPoint;
+            }
+
+            pages.notifyAll();
+        }
+
+        // If a fetch is in flight its continuation point is released when it completes.
+        if (release != null) releaseQuietly(release);
+    }
+
+    private boolean shouldFetch() {
+        return !finished && !fetching && !closed && pages.size() < maxPages;
+    }
+
+    private void request(ByteString cp) {
+        CompletableFuture<Page<T>> future;
+
+        try {
+            future = fetch(cp);
+        } catch (Throwable t) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(t);
+        }
+
+        future.whenComplete(this::onPage);
+    }
+
+    private void onPage(Page<T> page, Throwable ex) {
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+
+        if (ex == null && page == null) {
+            ex = new UaException(StatusCodes.Bad_UnexpectedError, "no page");
+        }
+
+        ByteString next = null;
+        ByteString release = null;
+
+        synchronized (pages) {
+            fetching = false;
+
+            if (ex != null) {
+                failure = ex;
+                finished = true;
+            } else {
+                continuationPoint = page.continuationPoint;
+                finished = continuationPoint.isNull();
+
+                if (closed) {
+                    if (!finished) release = continuationPoint;
+                } else {
+                    pages.add(page.items);
+
+                    if (shouldFetch()) {
+                        fetching = true;
+                        next = continuationPoint;
+                    }
+                }
+            }
+
+            pages.notifyAll();
+        }
+
+        if (next != null) request(next);
+        if (release != null) releaseQuietly(release);
+    }
+
+    private void releaseQuietly(ByteString cp) {
+        CompletableFuture<?> future;
+
+        try {
+            future = release(cp);
+        } catch (Throwable t) {
+            logger.debug("Releasing continuation point failed: {}", t.getMessage(), t);
+            return;
+        }
+
+        future.whenComplete((r, ex) -> {
+            if (ex != null) logger.debug("Releasing continuation point failed: {}", ex.getMessage(), ex);
+        });
+    }
+
+    /**
+     * A page and the continuation point, if any, to request the next page with.
+     */
+    protected static final class Page<T> {
+        final T items;
+        final ByteString continuationPoint;
+
+        /**
+         * @param items             the contents of the page.
+         * @param continuationPoint the continuation point returned with the page. Null means there are no more pages.
+         */
+        public Page(T items, ByteString continuationPoint) {
+            this.items = items;
+            this.continuationPoint = continuationPoint != null ? continuationPoint : ByteString.NULL_VALUE;
+        }
+    }
+
+}
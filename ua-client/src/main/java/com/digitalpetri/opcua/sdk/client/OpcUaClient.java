@@ -16,8 +16,15 @@
 
 package com.digitalpetri.opcua.sdk.client;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
 
 import com.digitalpetri.opcua.sdk.client.api.ServiceFaultListener;
 import com.digitalpetri.opcua.sdk.client.api.UaClient;
@@ -25,36 +32,60 @@ import com.digitalpetri.opcua.sdk.client.api.UaSession;
 import com.digitalpetri.opcua.sdk.client.api.config.OpcUaClientConfig;
 import com.digitalpetri.opcua.sdk.client.api.nodes.AddressSpace;
 import com.digitalpetri.opcua.sdk.client.api.nodes.NodeCache;
+import com.digitalpetri.opcua.sdk.client.methods.MethodMetadataCache;
+import com.digitalpetri.opcua.sdk.client.nodes.BrowsePathCache;
 import com.digitalpetri.opcua.sdk.client.nodes.DefaultAddressSpace;
 import com.digitalpetri.opcua.sdk.client.nodes.DefaultNodeCache;
 import com.digitalpetri.opcua.sdk.client.subscriptions.OpcUaSubscriptionManager;
 import com.digitalpetri.opcua.stack.client.UaTcpStackClient;
+import com.digitalpetri.opcua.stack.core.AttributeId;
 import com.digitalpetri.opcua.stack.core.UaServiceFaultException;
 import com.digitalpetri.opcua.stack.core.serialization.UaRequestMessage;
 import com.digitalpetri.opcua.stack.core.serialization.UaResponseMessage;
 import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
 import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
+import com.digitalpetri.opcua.stack.core.types.builtin.DiagnosticInfo;
 import com.digitalpetri.opcua.stack.core.types.builtin.ExtensionObject;
 import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.QualifiedName;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
 import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UByte;
 import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
 import com.digitalpetri.opcua.stack.core.types.enumerated.MonitoringMode;
 import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.AddNodesItem;
+import com.digitalpetri.opcua.stack.core.types.structured.AddNodesRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.AddNodesResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.AddNodesResult;
+import com.digitalpetri.opcua.stack.core.types.structured.AddReferencesItem;
+import com.digitalpetri.opcua.stack.core.types.structured.AddReferencesRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.AddReferencesResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.BrowseDescription;
 import com.digitalpetri.opcua.stack.core.types.structured.BrowseNextRequest;
 import com.digitalpetri.opcua.stack.core.types.structured.BrowseNextResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.BrowsePath;
 import com.digitalpetri.opcua.stack.core.types.structured.BrowseRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowsePathResult;
 import com.digitalpetri.opcua.stack.core.types.structured.BrowseResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowseResult;
 import com.digitalpetri.opcua.stack.core.types.structured.CallMethodRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.CallMethodResult;
 import com.digitalpetri.opcua.stack.core.types.structured.CallRequest;
 import com.digitalpetri.opcua.stack.core.types.structured.CallResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ContentFilter;
 import com.digitalpetri.opcua.stack.core.types.structured.CreateMonitoredItemsRequest;
 import com.digitalpetri.opcua.stack.core.types.structured.CreateMonitoredItemsResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.CreateSubscriptionRequest;
 import com.digitalpetri.opcua.stack.core.types.structured.CreateSubscriptionResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.DeleteMonitoredItemsRequest;
 import com.digitalpetri.opcua.stack.core.types.structured.DeleteMonitoredItemsResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.DeleteNodesItem;
+import com.digitalpetri.opcua.stack.core.types.structured.DeleteNodesRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.DeleteNodesResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.DeleteReferencesItem;
+import com.digitalpetri.opcua.stack.core.types.structured.DeleteReferencesRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.DeleteReferencesResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.DeleteSubscriptionsRequest;
 import com.digitalpetri.opcua.stack.core.types.structured.DeleteSubscriptionsResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadDetails;
@@ -70,8 +101,13 @@ import com.digitalpetri.opcua.stack.core.types.structured.ModifySubscriptionRequ
 import com.digitalpetri.opcua.stack.core.types.structured.ModifySubscriptionResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
 import com.digitalpetri.opcua.stack.core.types.structured.MonitoredItemModifyRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.NodeTypeDescription;
 import com.digitalpetri.opcua.stack.core.types.structured.PublishRequest;
 import com.digitalpetri.opcua.stack.core.types.structured.PublishResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.QueryFirstRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.QueryFirstResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.QueryNextRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.QueryNextResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.ReadRequest;
 import com.digitalpetri.opcua.stack.core.types.structured.ReadResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
@@ -98,13 +134,16 @@ import com.digitalpetri.opcua.stack.core.types.structured.ViewDescription;
 import com.digitalpetri.opcua.stack.core.types.structured.WriteRequest;
 import com.digitalpetri.opcua.stack.core.types.structured.WriteResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.WriteValue;
+import com.digitalpetri.opcua.stack.core.util.AsyncSemaphore;
 import com.digitalpetri.opcua.stack.core.util.ExecutionQueue;
 import com.digitalpetri.opcua.stack.core.util.LongSequence;
+import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
 import static com.digitalpetri.opcua.stack.core.util.ConversionUtil.a;
+import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Lists.newCopyOnWriteArrayList;
 
 public class OpcUaClient implements UaClient {
@@ -118,7 +157,15 @@ public class OpcUaClient implements UaClient {
 
     private final AddressSpace addressSpace;
     private final NodeCache nodeCache = new DefaultNodeCache();
+    private final BrowsePathCache browsePathCache;
+    private final MethodMetadataCache methodMetadataCache;
     private final OpcUaSubscriptionManager subscriptionManager;
+    private final ReadCoalescer readCoalescer;
+    private final CallCoalescer callCoalescer;
+    private final SingleFlightReader singleFlightReader;
+    private final RequestWindow requestWindow;
+    private final RegisteredNodeCache registeredNodeCache;
+    private final WriteBehindQueue writeBehindQueue;
 
     private final UaTcpStackClient stackClient;
     private final ClientSessionManager sessionManager;
@@ -135,7 +182,58 @@ public class OpcUaClient implements UaClient {
         faultNotificationQueue = new ExecutionQueue(config.getExecutor());
 
         addressSpace = new DefaultAddressSpace(this);
+        browsePathCache = new BrowsePathCache(this);
+        methodMetadataCache = new MethodMetadataCache(this);
         subscriptionManager = new OpcUaSubscriptionManager(this);
+
+        if (config.getMaxCoalescedReads().intValue() > 0) {
+            readCoalescer = new ReadCoalescer(
+                    this,
+                    config.getExecutor(),
+                    config.getReadCoalescingWindow().longValue(),
+                    config.getMaxCoalescedReads().intValue());
+        } else {
+            readCoalescer = null;
+        }
+
+        if (config.getMaxCoalescedCalls().intValue() > 0) {
+            callCoalescer = new CallCoalescer(
+                    this,
+                    config.getExecutor(),
+                    config.getCallCoalescingWindow().longValue(),
+                    config.getMaxCoalescedCalls().intValue());
+        } else {
+            callCoalescer = null;
+        }
+
+        singleFlightReader = config.isReadDeduplicationEnabled() ? new SingleFlightReader() : null;
+
+        if (config.getMaxInFlightRequests().intValue() > 0) {
+            requestWindow = new RequestWindow(
+                    config.getMaxInFlightRequests().intValue(),
+                    config.getMaxQueuedRequests().intValue(),
+                    config.getRequestOverflowPolicy());
+        } else {
+            requestWindow = null;
+        }
+
+        if (config.getRegisterNodesThreshold().longValue() > 0) {
+            registeredNodeCache = new RegisteredNodeCache(
+                    this,
+                    config.getRegisterNodesThreshold().longValue(),
+                    config.getMaxRegisteredNodes().intValue(),
+                    RegisteredNodeCache.DEFAULT_INTERVAL);
+
+            sessionManager.addListener(registeredNodeCache);
+        } else {
+            registeredNodeCache = null;
+        }
+
+        if (config.getWriteBehindInterval().longValue() > 0) {
+            writeBehindQueue = new WriteBehindQueue(this, config.getWriteBehindInterval().longValue());
+        } else {
+            writeBehindQueue = null;
+        }
     }
 
     @Override
@@ -157,6 +255,58 @@ public class OpcUaClient implements UaClient {
         return addressSpace;
     }
 
+    /**
+     * @return the {@link BrowsePathCache} for resolving browse paths without a round trip each time.
+     */
+    public BrowsePathCache getBrowsePathCache() {
+        return browsePathCache;
+    }
+
+    /**
+     * @return the {@link MethodMetadataCache} for calling methods with locally checked arguments.
+     */
+    public MethodMetadataCache getMethodMetadataCache() {
+        return methodMetadataCache;
+    }
+
+    /**
+     * @return the {@link ReadCoalescer} single-attribute reads are routed through, if read coalescing is enabled.
+     */
+    public Optional<ReadCoalescer> getReadCoalescer() {
+        return Optional.ofNullable(readCoalescer);
+    }
+
+    /**
+     * @return the {@link CallCoalescer} single method calls are routed through, if call coalescing is enabled.
+     */
+    public Optional<CallCoalescer> getCallCoalescer() {
+        return Optional.ofNullable(callCoalescer);
+    }
+
+    /**
+     * @return the {@link SingleFlightReader} identical concurrent reads are shared through, if read deduplication is
+     * enabled.
+     */
+    public Optional<SingleFlightReader> getSingleFlightReader() {
+        return Optional.ofNullable(singleFlightReader);
+    }
+
+    /**
+     * @return the {@link RequestWindow} limiting requests in flight, if a maximum number of in-flight requests is
+     * configured.
+     */
+    public Optional<RequestWindow> getRequestWindow() {
+        return Optional.ofNullable(requestWindow);
+    }
+
+    /**
+     * @return the {@link RegisteredNodeCache} registering frequently used NodeIds, if automatic node registration is
+     * enabled.
+     */
+    public Optional<RegisteredNodeCache> getRegisteredNodeCache() {
+        return Optional.ofNullable(registeredNodeCache);
+    }
+
     /**
      * Build a new {@link RequestHeader} using a null authentication token.
      *
@@ -190,8 +340,20 @@ public class OpcUaClient implements UaClient {
         return uint(requestHandles.getAndIncrement());
     }
 
+    /**
+     * @return the {@link WriteBehindQueue} writes made through {@link #writeValues(List, List)} are queued in, if a
+     * write-behind interval is configured.
+     */
+    public Optional<WriteBehindQueue> getWriteBehindQueue() {
+        return Optional.ofNullable(writeBehindQueue);
+    }
+
     @Override
     public CompletableFuture<UaClient> connect() {
+        if (registeredNodeCache != null) {
+            registeredNodeCache.startup();
+        }
+
         return stackClient.connect().thenCompose(
                 c -> getSession().thenApply(s -> OpcUaClient.this));
     }
@@ -203,8 +365,16 @@ public class OpcUaClient implements UaClient {
         // will initiate reconnection and re-activation.
         subscriptionManager.clearSubscriptions();
 
-        return sessionManager
-            .closeSession()
+        if (registeredNodeCache != null) {
+            registeredNodeCache.shutdown();
+        }
+
+        CompletableFuture<Void> flushed = writeBehindQueue != null ?
+                writeBehindQueue.flush() :
+                CompletableFuture.completedFuture(null);
+
+        return flushed
+            .thenCompose(v -> sessionManager.closeSession())
             .thenCompose(v -> stackClient.disconnect())
             .thenApply(c -> (UaClient) OpcUaClient.this)
             .exceptionally(ex -> OpcUaClient.this);
@@ -220,35 +390,113 @@ public class OpcUaClient implements UaClient {
                                                 TimestampsToReturn timestampsToReturn,
                                                 List<ReadValueId> readValueIds) {
 
-        return getSession().thenCompose(session -> {
-            ReadRequest request = new ReadRequest(
-                    newRequestHeader(session.getAuthenticationToken()),
-                    maxAge,
-                    timestampsToReturn,
-                    a(readValueIds, ReadValueId.class));
-
-            return sendRequest(request);
+        return withSession(session -> {
+            UInteger limit = session.getOperationLimits().getMaxNodesPerRead();
+
+            List<ReadValueId> nodesToRead = registeredNodeCache != null ?
+                    registeredNodeCache.substituteReads(session, readValueIds) :
+                    readValueIds;
+
+            return sendChunked(nodesToRead, limit, chunk -> {
+                ReadRequest request = new ReadRequest(
+                        newRequestHeader(session.getAuthenticationToken()),
+                        maxAge,
+                        timestampsToReturn,
+                        a(chunk, ReadValueId.class));
+
+                return sendRequest(request);
+            }, (chunks, responses) -> new ReadResponse(
+                    responses.get(0).getResponseHeader(),
+                    concat(responses, ReadResponse::getResults, DataValue[]::new),
+                    diagnosticInfos(chunks, responses, ReadResponse::getDiagnosticInfos)));
         });
     }
 
     @Override
-    public CompletableFuture<WriteResponse> write(List<WriteValue> writeValues) {
-        return getSession().thenCompose(session -> {
-            WriteRequest request = new WriteRequest(
-                    newRequestHeader(session.getAuthenticationToken()),
-                    a(writeValues, WriteValue.class));
+    public CompletableFuture<DataValue> read(double maxAge,
+                                             TimestampsToReturn timestampsToReturn,
+                                             ReadValueId readValueId) {
+
+        if (singleFlightReader != null) {
+            return singleFlightReader.read(maxAge, timestampsToReturn, readValueId,
+                    id -> readSingle(maxAge, timestampsToReturn, id));
+        } else {
+            return readSingle(maxAge, timestampsToReturn, readValueId);
+        }
+    }
 
-            return sendRequest(request);
+    @Override
+    public CompletableFuture<List<DataValue>> readValues(double maxAge,
+                                                         TimestampsToReturn timestampsToReturn,
+                                                         List<NodeId> nodeIds) {
+
+        if (singleFlightReader != null) {
+            List<ReadValueId> readValueIds = nodeIds.stream()
+                    .map(nodeId -> new ReadValueId(nodeId, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE))
+                    .collect(Collectors.toList());
+
+            return singleFlightReader.read(maxAge, timestampsToReturn, readValueIds,
+                    ids -> read(maxAge, timestampsToReturn, ids).thenApply(r -> newArrayList(r.getResults())));
+        } else {
+            return UaClient.super.readValues(maxAge, timestampsToReturn, nodeIds);
+        }
+    }
+
+    private CompletableFuture<DataValue> readSingle(double maxAge,
+                                                    TimestampsToReturn timestampsToReturn,
+                                                    ReadValueId readValueId) {
+
+        if (readCoalescer != null) {
+            return readCoalescer.read(maxAge, timestampsToReturn, readValueId);
+        } else {
+            return UaClient.super.read(maxAge, timestampsToReturn, readValueId);
+        }
+    }
+
+    @Override
+    public CompletableFuture<WriteResponse> write(List<WriteValue> writeValues) {
+        return withSession(session -> {
+            UInteger limit = session.getOperationLimits().getMaxNodesPerWrite();
+
+            List<WriteValue> nodesToWrite = registeredNodeCache != null ?
+                    registeredNodeCache.substituteWrites(session, writeValues) :
+                    writeValues;
+
+            return sendChunked(nodesToWrite, limit, chunk -> {
+                WriteRequest request = new WriteRequest(
+                        newRequestHeader(session.getAuthenticationToken()),
+                        a(chunk, WriteValue.class));
+
+                return sendRequest(request);
+            }, (chunks, responses) -> new WriteResponse(
+                    responses.get(0).getResponseHeader(),
+                    concat(responses, WriteResponse::getResults, StatusCode[]::new),
+                    diagnosticInfos(chunks, responses, WriteResponse::getDiagnosticInfos)));
         });
     }
 
+    @Override
+    public CompletableFuture<List<StatusCode>> writeValues(List<NodeId> nodeIds, List<DataValue> values) {
+        if (writeBehindQueue != null && nodeIds.size() == values.size()) {
+            List<WriteValue> writeValues = newArrayList();
+
+            for (int i = 0; i < nodeIds.size(); i++) {
+                writeValues.add(new WriteValue(nodeIds.get(i), AttributeId.Value.uid(), null, values.get(i)));
+            }
+
+            return writeBehindQueue.write(writeValues);
+        } else {
+            return UaClient.super.writeValues(nodeIds, values);
+        }
+    }
+
     @Override
     public CompletableFuture<HistoryReadResponse> historyRead(HistoryReadDetails historyReadDetails,
                                                               TimestampsToReturn timestampsToReturn,
                                                               boolean releaseContinuationPoints,
                                                               List<HistoryReadValueId> nodesToRead) {
 
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             HistoryReadRequest request = new HistoryReadRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     ExtensionObject.encode(historyReadDetails),
@@ -262,7 +510,7 @@ public class OpcUaClient implements UaClient {
 
     @Override
     public CompletableFuture<HistoryUpdateResponse> historyUpdate(List<HistoryUpdateDetails> historyUpdateDetails) {
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             ExtensionObject[] details = historyUpdateDetails.stream()
                     .map(ExtensionObject::encode)
                     .toArray(ExtensionObject[]::new);
@@ -280,14 +528,21 @@ public class OpcUaClient implements UaClient {
                                                     UInteger maxReferencesPerNode,
                                                     List<BrowseDescription> nodesToBrowse) {
 
-        return getSession().thenCompose(session -> {
-            BrowseRequest request = new BrowseRequest(
-                    newRequestHeader(session.getAuthenticationToken()),
-                    viewDescription,
-                    maxReferencesPerNode,
-                    a(nodesToBrowse, BrowseDescription.class));
-
-            return sendRequest(request);
+        return withSession(session -> {
+            UInteger limit = session.getOperationLimits().getMaxNodesPerBrowse();
+
+            return sendChunked(nodesToBrowse, limit, chunk -> {
+                BrowseRequest request = new BrowseRequest(
+                        newRequestHeader(session.getAuthenticationToken()),
+                        viewDescription,
+                        maxReferencesPerNode,
+                        a(chunk, BrowseDescription.class));
+
+                return sendRequest(request);
+            }, (chunks, responses) -> new BrowseResponse(
+                    responses.get(0).getResponseHeader(),
+                    concat(responses, BrowseResponse::getResults, BrowseResult[]::new),
+                    diagnosticInfos(chunks, responses, BrowseResponse::getDiagnosticInfos)));
         });
     }
 
@@ -295,7 +550,7 @@ public class OpcUaClient implements UaClient {
     public CompletableFuture<BrowseNextResponse> browseNext(boolean releaseContinuationPoints,
                                                             List<ByteString> continuationPoints) {
 
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             BrowseNextRequest request = new BrowseNextRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     releaseContinuationPoints,
@@ -307,48 +562,190 @@ public class OpcUaClient implements UaClient {
 
     @Override
     public CompletableFuture<TranslateBrowsePathsToNodeIdsResponse> translateBrowsePaths(List<BrowsePath> browsePaths) {
-        return getSession().thenCompose(session -> {
-            TranslateBrowsePathsToNodeIdsRequest request = new TranslateBrowsePathsToNodeIdsRequest(
-                    newRequestHeader(session.getAuthenticationToken()),
-                    a(browsePaths, BrowsePath.class));
-
-            return sendRequest(request);
+        return withSession(session -> {
+            UInteger limit = session.getOperationLimits().getMaxNodesPerTranslateBrowsePathsToNodeIds();
+
+            return sendChunked(browsePaths, limit, chunk -> {
+                TranslateBrowsePathsToNodeIdsRequest request = new TranslateBrowsePathsToNodeIdsRequest(
+                        newRequestHeader(session.getAuthenticationToken()),
+                        a(chunk, BrowsePath.class));
+
+                return sendRequest(request);
+            }, (chunks, responses) -> new TranslateBrowsePathsToNodeIdsResponse(
+                    responses.get(0).getResponseHeader(),
+                    concat(responses, TranslateBrowsePathsToNodeIdsResponse::getResults, BrowsePathResult[]::new),
+                    diagnosticInfos(chunks, responses, TranslateBrowsePathsToNodeIdsResponse::getDiagnosticInfos)));
         });
     }
 
     @Override
     public CompletableFuture<RegisterNodesResponse> registerNodes(List<NodeId> nodesToRegister) {
-        return getSession().thenCompose(session -> {
-            RegisterNodesRequest request = new RegisterNodesRequest(
-                    newRequestHeader(session.getAuthenticationToken()),
-                    a(nodesToRegister, NodeId.class));
-
-            return sendRequest(request);
+        return withSession(session -> {
+            UInteger limit = session.getOperationLimits().getMaxNodesPerRegisterNodes();
+
+            return sendChunked(nodesToRegister, limit, chunk -> {
+                RegisterNodesRequest request = new RegisterNodesRequest(
+                        newRequestHeader(session.getAuthenticationToken()),
+                        a(chunk, NodeId.class));
+
+                return sendRequest(request);
+            }, (chunks, responses) -> new RegisterNodesResponse(
+                    responses.get(0).getResponseHeader(),
+                    concat(responses, RegisterNodesResponse::getRegisteredNodeIds, NodeId[]::new)));
         });
     }
 
     @Override
     public CompletableFuture<UnregisterNodesResponse> unregisterNodes(List<NodeId> nodesToUnregister) {
-        return getSession().thenCompose(session -> {
-            UnregisterNodesRequest request = new UnregisterNodesRequest(
+        return withSession(session -> {
+            UInteger limit = session.getOperationLimits().getMaxNodesPerRegisterNodes();
+
+            return sendChunked(nodesToUnregister, limit, chunk -> {
+                UnregisterNodesRequest request = new UnregisterNodesRequest(
+                        newRequestHeader(session.getAuthenticationToken()),
+                        a(chunk, NodeId.class));
+
+                return sendRequest(request);
+            }, (chunks, responses) -> new UnregisterNodesResponse(responses.get(0).getResponseHeader()));
+        });
+    }
+
+    @Override
+    public CompletableFuture<AddNodesResponse> addNodes(List<AddNodesItem> nodesToAdd) {
+        return withSession(session -> {
+            UInteger limit = session.getOperationLimits().getMaxNodesPerNodeManagement();
+
+            // One chunk at a time: a later item may depend on an earlier one, e.g. a child on its parent.
+            return sendChunked(nodesToAdd, limit, 1, chunk -> {
+                AddNodesRequest request = new AddNodesRequest(
+                        newRequestHeader(session.getAuthenticationToken()),
+                        a(chunk, AddNodesItem.class));
+
+                return sendRequest(request);
+            }, (chunks, responses) -> new AddNodesResponse(
+                    responses.get(0).getResponseHeader(),
+                    concat(responses, AddNodesResponse::getResults, AddNodesResult[]::new),
+                    diagnosticInfos(chunks, responses, AddNodesResponse::getDiagnosticInfos)));
+        });
+    }
+
+    @Override
+    public CompletableFuture<AddReferencesResponse> addReferences(List<AddReferencesItem> referencesToAdd) {
+        return withSession(session -> {
+            UInteger limit = session.getOperationLimits().getMaxNodesPerNodeManagement();
+
+            // One chunk at a time: a later item may depend on an earlier one, e.g. a child on its parent.
+            return sendChunked(referencesToAdd, limit, 1, chunk -> {
+                AddReferencesRequest request = new AddReferencesRequest(
+                        newRequestHeader(session.getAuthenticationToken()),
+                        a(chunk, AddReferencesItem.class));
+
+                return sendRequest(request);
+            }, (chunks, responses) -> new AddReferencesResponse(
+                    responses.get(0).getResponseHeader(),
+                    concat(responses, AddReferencesResponse::getResults, StatusCode[]::new),
+                    diagnosticInfos(chunks, responses, AddReferencesResponse::getDiagnosticInfos)));
+        });
+    }
+
+    @Override
+    public CompletableFuture<DeleteNodesResponse> deleteNodes(List<DeleteNodesItem> nodesToDelete) {
+        return withSession(session -> {
+            UInteger limit = session.getOperationLimits().getMaxNodesPerNodeManagement();
+
+            // One chunk at a time: a later item may depend on an earlier one, e.g. a child on its parent.
+            return sendChunked(nodesToDelete, limit, 1, chunk -> {
+                DeleteNodesRequest request = new DeleteNodesRequest(
+                        newRequestHeader(session.getAuthenticationToken()),
+                        a(chunk, DeleteNodesItem.class));
+
+                return sendRequest(request);
+            }, (chunks, responses) -> new DeleteNodesResponse(
+                    responses.get(0).getResponseHeader(),
+                    concat(responses, DeleteNodesResponse::getResults, StatusCode[]::new),
+                    diagnosticInfos(chunks, responses, DeleteNodesResponse::getDiagnosticInfos)));
+        });
+    }
+
+    @Override
+    public CompletableFuture<DeleteReferencesResponse> deleteReferences(List<DeleteReferencesItem> referencesToDelete) {
+        return withSession(session -> {
+            UInteger limit = session.getOperationLimits().getMaxNodesPerNodeManagement();
+
+            return sendChunked(referencesToDelete, limit, chunk -> {
+                DeleteReferencesRequest request = new DeleteReferencesRequest(
+                        newRequestHeader(session.getAuthenticationToken()),
+                        a(chunk, DeleteReferencesItem.class));
+
+                return sendRequest(request);
+            }, (chunks, responses) -> new DeleteReferencesResponse(
+                    responses.get(0).getResponseHeader(),
+                    concat(responses, DeleteReferencesResponse::getResults, StatusCode[]::new),
+                    diagnosticInfos(chunks, responses, DeleteReferencesResponse::getDiagnosticInfos)));
+        });
+    }
+
+    @Override
+    public CompletableFuture<QueryFirstResponse> queryFirst(ViewDescription view,
+                                                            List<NodeTypeDescription> nodeTypes,
+                                                            ContentFilter filter,
+                                                            UInteger maxDataSetsToReturn,
+                                                            UInteger maxReferencesToReturn) {
+
+        return withSession(session -> {
+            QueryFirstRequest request = new QueryFirstRequest(
                     newRequestHeader(session.getAuthenticationToken()),
-                    a(nodesToUnregister, NodeId.class));
+                    view,
+                    a(nodeTypes, NodeTypeDescription.class),
+                    filter,
+                    maxDataSetsToReturn,
+                    maxReferencesToReturn);
 
             return sendRequest(request);
         });
     }
 
     @Override
-    public CompletableFuture<CallResponse> call(List<CallMethodRequest> methodsToCall) {
-        return getSession().thenCompose(session -> {
-            CallRequest request = new CallRequest(
+    public CompletableFuture<QueryNextResponse> queryNext(boolean releaseContinuationPoint,
+                                                          ByteString continuationPoint) {
+
+        return withSession(session -> {
+            QueryNextRequest request = new QueryNextRequest(
                     newRequestHeader(session.getAuthenticationToken()),
-                    a(methodsToCall, CallMethodRequest.class));
+                    releaseContinuationPoint,
+                    continuationPoint);
 
             return sendRequest(request);
         });
     }
 
+    @Override
+    public CompletableFuture<CallResponse> call(List<CallMethodRequest> methodsToCall) {
+        return withSession(session -> {
+            UInteger limit = session.getOperationLimits().getMaxNodesPerMethodCall();
+
+            return sendChunked(methodsToCall, limit, chunk -> {
+                CallRequest request = new CallRequest(
+                        newRequestHeader(session.getAuthenticationToken()),
+                        a(chunk, CallMethodRequest.class));
+
+                return sendRequest(request);
+            }, (chunks, responses) -> new CallResponse(
+                    responses.get(0).getResponseHeader(),
+                    concat(responses, CallResponse::getResults, CallMethodResult[]::new),
+                    diagnosticInfos(chunks, responses, CallResponse::getDiagnosticInfos)));
+        });
+    }
+
+    @Override
+    public CompletableFuture<CallMethodResult> call(CallMethodRequest request) {
+        if (callCoalescer != null) {
+            return callCoalescer.call(request);
+        } else {
+            return UaClient.super.call(request);
+        }
+    }
+
     @Override
     public CompletableFuture<CreateSubscriptionResponse> createSubscription(double requestedPublishingInterval,
                                                                             UInteger requestedLifetimeCount,
@@ -357,7 +754,7 @@ public class OpcUaClient implements UaClient {
                                                                             boolean publishingEnabled,
                                                                             UByte priority) {
 
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             CreateSubscriptionRequest request = new CreateSubscriptionRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     requestedPublishingInterval,
@@ -379,7 +776,7 @@ public class OpcUaClient implements UaClient {
                                                                             UInteger maxNotificationsPerPublish,
                                                                             UByte priority) {
 
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             ModifySubscriptionRequest request = new ModifySubscriptionRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     subscriptionId,
@@ -395,7 +792,7 @@ public class OpcUaClient implements UaClient {
 
     @Override
     public CompletableFuture<DeleteSubscriptionsResponse> deleteSubscriptions(List<UInteger> subscriptionIds) {
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             DeleteSubscriptionsRequest request = new DeleteSubscriptionsRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     a(subscriptionIds, UInteger.class));
@@ -408,7 +805,7 @@ public class OpcUaClient implements UaClient {
     public CompletableFuture<TransferSubscriptionsResponse> transferSubscriptions(List<UInteger> subscriptionIds,
                                                                                   boolean sendInitialValues) {
 
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             TransferSubscriptionsRequest request = new TransferSubscriptionsRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     a(subscriptionIds, UInteger.class),
@@ -422,7 +819,7 @@ public class OpcUaClient implements UaClient {
     public CompletableFuture<SetPublishingModeResponse> setPublishingMode(boolean publishingEnabled,
                                                                           List<UInteger> subscriptionIds) {
 
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             SetPublishingModeRequest request = new SetPublishingModeRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     publishingEnabled,
@@ -434,7 +831,7 @@ public class OpcUaClient implements UaClient {
 
     @Override
     public CompletableFuture<PublishResponse> publish(List<SubscriptionAcknowledgement> subscriptionAcknowledgements) {
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             PublishRequest request = new PublishRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     a(subscriptionAcknowledgements, SubscriptionAcknowledgement.class));
@@ -445,7 +842,7 @@ public class OpcUaClient implements UaClient {
 
     @Override
     public CompletableFuture<RepublishResponse> republish(UInteger subscriptionId, UInteger retransmitSequenceNumber) {
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             RepublishRequest request = new RepublishRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     subscriptionId,
@@ -460,7 +857,7 @@ public class OpcUaClient implements UaClient {
                                                                                 TimestampsToReturn timestampsToReturn,
                                                                                 List<MonitoredItemCreateRequest> itemsToCreate) {
 
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             CreateMonitoredItemsRequest request = new CreateMonitoredItemsRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     subscriptionId,
@@ -476,7 +873,7 @@ public class OpcUaClient implements UaClient {
                                                                                 TimestampsToReturn timestampsToReturn,
                                                                                 List<MonitoredItemModifyRequest> itemsToModify) {
 
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             ModifyMonitoredItemsRequest request = new ModifyMonitoredItemsRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     subscriptionId,
@@ -491,7 +888,7 @@ public class OpcUaClient implements UaClient {
     public CompletableFuture<DeleteMonitoredItemsResponse> deleteMonitoredItems(UInteger subscriptionId,
                                                                                 List<UInteger> monitoredItemIds) {
 
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             DeleteMonitoredItemsRequest request = new DeleteMonitoredItemsRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     subscriptionId,
@@ -506,7 +903,7 @@ public class OpcUaClient implements UaClient {
                                                                           MonitoringMode monitoringMode,
                                                                           List<UInteger> monitoredItemIds) {
 
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             SetMonitoringModeRequest request = new SetMonitoringModeRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     subscriptionId,
@@ -523,7 +920,7 @@ public class OpcUaClient implements UaClient {
                                                                   List<UInteger> linksToAdd,
                                                                   List<UInteger> linksToRemove) {
 
-        return getSession().thenCompose(session -> {
+        return withSession(session -> {
             SetTriggeringRequest request = new SetTriggeringRequest(
                     newRequestHeader(session.getAuthenticationToken()),
                     subscriptionId,
@@ -537,12 +934,58 @@ public class OpcUaClient implements UaClient {
 
     @Override
     public final CompletableFuture<UaSession> getSession() {
-        return sessionManager.getSession().thenApply(s -> (UaSession) s);
+        CompletableFuture<UaSession> active = sessionManager.getActiveSessionFuture();
+
+        if (active != null) {
+            return active;
+        } else {
+            return sessionManager.getSession().thenApply(s -> (UaSession) s);
+        }
+    }
+
+    /**
+     * @return the current session if it is active, otherwise {@code null}.
+     */
+    UaSession getActiveSession() {
+        return sessionManager.getActiveSession();
+    }
+
+    /**
+     * Apply {@code request} to the current session.
+     * <p>
+     * When the session is already active the request is built and sent on the calling thread without waiting on a
+     * session future; otherwise it is applied once the session has been created or re-activated.
+     *
+     * @param request builds and sends a request using the session.
+     * @return the {@link CompletableFuture} returned by {@code request}.
+     */
+    private <T> CompletableFuture<T> withSession(Function<UaSession, CompletableFuture<T>> request) {
+        OpcUaSession session = sessionManager.getActiveSession();
+
+        if (session != null) {
+            try {
+                return request.apply(session);
+            } catch (Throwable t) {
+                CompletableFuture<T> f = new CompletableFuture<>();
+                f.completeExceptionally(t);
+                return f;
+            }
+        } else {
+            return sessionManager.getSession().thenCompose(request);
+        }
     }
 
     @Override
     public <T extends UaResponseMessage> CompletableFuture<T> sendRequest(UaRequestMessage request) {
-        CompletableFuture<T> f = stackClient.sendRequest(request);
+        CompletableFuture<T> f;
+
+        if (requestWindow != null && !(request instanceof PublishRequest)) {
+            // PublishRequests are already limited by the subscription manager and must not
+            // queue up behind other requests.
+            f = requestWindow.submit(() -> stackClient.sendRequest(request));
+        } else {
+            f = stackClient.sendRequest(request);
+        }
 
         if (faultListeners.size() > 0) {
             f.whenComplete(this::maybeHandleServiceFault);
@@ -557,7 +1000,132 @@ public class OpcUaClient implements UaClient {
 
         futures.forEach(f -> f.whenComplete(this::maybeHandleServiceFault));
 
-        stackClient.sendRequests(requests, futures);
+        if (requestWindow != null) {
+            for (int i = 0; i < requests.size(); i++) {
+                sendWindowed(requests.get(i), futures.get(i));
+            }
+        } else {
+            stackClient.sendRequests(requests, futures);
+        }
+    }
+
+    private <T extends UaResponseMessage> void sendWindowed(UaRequestMessage request, CompletableFuture<T> future) {
+        CompletableFuture<T> f = request instanceof PublishRequest ?
+                stackClient.sendRequest(request) :
+                requestWindow.submit(() -> stackClient.sendRequest(request));
+
+        f.whenComplete((response, ex) -> {
+            if (response != null) future.complete(response);
+            else future.completeExceptionally(ex);
+        });
+    }
+
+    /**
+     * Send the operations in {@code items} using as many requests as necessary to stay within {@code limit}.
+     * <p>
+     * If {@code items} fits within {@code limit} (or {@code limit} is 0, meaning no limit) a single request is sent.
+     * Otherwise {@code items} is split into chunks that are sent in parallel, no more than
+     * {@link OpcUaClientConfig#getMaxConcurrentChunks()} at a time, and the responses are merged, in the original
+     * order, using {@code merge}.
+     *
+     * @param items the operations to send.
+     * @param limit the maximum number of operations allowed in a single request.
+     * @param send  a function that builds and sends a request for a chunk of {@code items}.
+     * @param merge a function that merges the responses into a single response, given the chunks and their
+     *              responses, both in order.
+     * @return a {@link CompletableFuture} holding the (merged) response.
+     */
+    <T, R extends UaResponseMessage> CompletableFuture<R> sendChunked(
+            List<T> items,
+            UInteger limit,
+            Function<List<T>, CompletableFuture<R>> send,
+            BiFunction<List<List<T>>, List<R>, R> merge) {
+
+        return sendChunked(items, limit, config.getMaxConcurrentChunks().intValue(), send, merge);
+    }
+
+    /**
+     * Send the operations in {@code items} using as many requests as necessary to stay within {@code limit}, with no
+     * more than {@code maxConcurrentChunks} requests outstanding at a time.
+     * <p>
+     * Chunks are sent in order as permits become available, so a {@code maxConcurrentChunks} of 1 sends each chunk
+     * only after the previous one has completed.
+     *
+     * @see #sendChunked(List, UInteger, Function, BiFunction)
+     */
+    <T, R extends UaResponseMessage> CompletableFuture<R> sendChunked(
+            List<T> items,
+            UInteger limit,
+            int maxConcurrentChunks,
+            Function<List<T>, CompletableFuture<R>> send,
+            BiFunction<List<List<T>>, List<R>, R> merge) {
+
+        int chunkSize = limit.intValue();
+
+        if (chunkSize <= 0 || items.size() <= chunkSize) {
+            return send.apply(items);
+        }
+
+        List<List<T>> chunks = Lists.partition(items, chunkSize);
+
+        logger.debug("Splitting {} operations into {} requests (limit={})",
+                items.size(), chunks.size(), chunkSize);
+
+        AsyncSemaphore semaphore = new AsyncSemaphore(Math.max(1, maxConcurrentChunks));
+
+        List<CompletableFuture<R>> futures = chunks.stream()
+                .map(chunk -> semaphore.acquire().thenCompose(permit ->
+                        send.apply(chunk).whenComplete((r, ex) -> permit.release())))
+                .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+                .thenApply(v -> merge.apply(chunks, futures.stream()
+                        .map(CompletableFuture::join)
+                        .collect(Collectors.toList())));
+    }
+
+    /**
+     * Concatenate the arrays obtained from each of {@code responses} by {@code getter}, in order.
+     * <p>
+     * Null arrays are treated as empty. If every array is null then null is returned.
+     */
+    static <R, E> E[] concat(List<R> responses, Function<R, E[]> getter, IntFunction<E[]> generator) {
+        List<E[]> arrays = responses.stream().map(getter).collect(Collectors.toList());
+
+        if (arrays.stream().allMatch(Objects::isNull)) return null;
+
+        return arrays.stream()
+                .filter(Objects::nonNull)
+                .flatMap(Arrays::stream)
+                .toArray(generator);
+    }
+
+    /**
+     * Concatenate the DiagnosticInfos obtained from each of {@code responses} by {@code getter}, keeping index i of
+     * the result aligned with operation i across all {@code chunks}.
+     * <p>
+     * A chunk whose response has no DiagnosticInfos, or fewer than it had operations, is padded with
+     * {@link DiagnosticInfo#NULL_VALUE}. If no response has any then null is returned.
+     */
+    static <T, R> DiagnosticInfo[] diagnosticInfos(List<List<T>> chunks,
+                                                   List<R> responses,
+                                                   Function<R, DiagnosticInfo[]> getter) {
+
+        List<DiagnosticInfo[]> arrays = responses.stream().map(getter).collect(Collectors.toList());
+
+        if (arrays.stream().allMatch(a -> a == null || a.length == 0)) return null;
+
+        List<DiagnosticInfo> diagnosticInfos = newArrayList();
+
+        for (int i = 0; i < chunks.size(); i++) {
+            DiagnosticInfo[] array = arrays.get(i);
+
+            for (int j = 0; j < chunks.get(i).size(); j++) {
+                diagnosticInfos.add(array != null && j < array.length ? array[j] : DiagnosticInfo.NULL_VALUE);
+            }
+        }
+
+        return diagnosticInfos.toArray(new DiagnosticInfo[diagnosticInfos.size()]);
     }
 
     private void maybeHandleServiceFault(UaResponseMessage response, Throwable ex) {
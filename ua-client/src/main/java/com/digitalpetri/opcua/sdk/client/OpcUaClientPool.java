@@ -0,0 +1,423 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.digitalpetri.opcua.sdk.client.api.config.OpcUaClientConfig;
+import com.digitalpetri.opcua.sdk.client.api.services.AttributeServices;
+import com.digitalpetri.opcua.sdk.client.api.services.MethodServices;
+import com.digitalpetri.opcua.sdk.client.api.services.ViewServices;
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaSubscriptionManager;
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.DiagnosticInfo;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowseDescription;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowseNextResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowsePath;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowseResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowseResult;
+import com.digitalpetri.opcua.stack.core.types.structured.CallMethodRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.CallMethodResult;
+import com.digitalpetri.opcua.stack.core.types.structured.CallResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadDetails;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadValueId;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryUpdateDetails;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryUpdateResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
+import com.digitalpetri.opcua.stack.core.types.structured.RegisterNodesResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.TranslateBrowsePathsToNodeIdsResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.UnregisterNodesResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ViewDescription;
+import com.digitalpetri.opcua.stack.core.types.structured.WriteResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.WriteValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * A pool of {@link OpcUaClient}s, each with its own secure channel and session to the same endpoint.
+ * <p>
+ * Read, write, browse, translate and call requests are spread across the members so that encoding, signing and
+ * encrypting is not serialized on a single channel. Everything tied to a particular session - subscriptions,
+ * history continuation points and registered nodes - stays on the primary member.
+ * <p>
+ * Browse continuation points are only valid in the session that returned them, so {@link #browseNext} is routed back
+ * to the member that produced each continuation point. To make that possible the continuation points returned by
+ * {@link #browse} and {@link #browseNext} are prefixed with the index of the member that produced them; they must be
+ * passed back to this pool, not to one of its clients.
+ */
+public class OpcUaClientPool implements AttributeServices, MethodServices, ViewServices {
+
+    public enum Selection {
+
+        /**
+         * Use each member in turn.
+         */
+        ROUND_ROBIN,
+
+        /**
+         * Use the member with the fewest requests outstanding.
+         */
+        LEAST_OUTSTANDING
+
+    }
+
+    private final AtomicInteger nextIndex = new AtomicInteger(0);
+
+    private final ImmutableList<Member> members;
+    private final Selection selection;
+
+    /**
+     * @param config    the {@link OpcUaClientConfig} each member is created with.
+     * @param size      the number of members, and therefore sessions, in the pool.
+     * @param selection the {@link Selection} strategy used to pick a member for each request.
+     */
+    public OpcUaClientPool(OpcUaClientConfig config, int size, Selection selection) {
+        if (size < 1) throw new IllegalArgumentException("size must be at least 1");
+        if (size > 256) throw new IllegalArgumentException("size must be at most 256");
+
+        ImmutableList.Builder<Member> builder = ImmutableList.builder();
+        for (int i = 0; i < size; i++) {
+            builder.add(new Member(i, new OpcUaClient(config)));
+        }
+
+        this.members = builder.build();
+        this.selection = selection;
+    }
+
+    /**
+     * Connect every member of the pool.
+     *
+     * @return a {@link CompletableFuture} holding this pool once all members are connected.
+     */
+    public CompletableFuture<OpcUaClientPool> connect() {
+        CompletableFuture<?>[] futures = members.stream()
+                .map(m -> m.client.connect())
+                .toArray(CompletableFuture<?>[]::new);
+
+        return CompletableFuture.allOf(futures).thenApply(v -> this);
+    }
+
+    /**
+     * Disconnect every member of the pool.
+     *
+     * @return a {@link CompletableFuture} holding this pool once all members are disconnected.
+     */
+    public CompletableFuture<OpcUaClientPool> disconnect() {
+        CompletableFuture<?>[] futures = members.stream()
+                .map(m -> m.client.disconnect())
+                .toArray(CompletableFuture<?>[]::new);
+
+        return CompletableFuture.allOf(futures).thenApply(v -> this);
+    }
+
+    /**
+     * @return the primary member, used for subscriptions and anything else tied to a single session.
+     */
+    public OpcUaClient getPrimary() {
+        return members.get(0).client;
+    }
+
+    /**
+     * @return all of the {@link OpcUaClient}s in this pool; the first is the primary.
+     */
+    public List<OpcUaClient> getClients() {
+        return members.stream().map(m -> m.client).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the {@link UaSubscriptionManager} of the primary member.
+     */
+    public UaSubscriptionManager getSubscriptionManager() {
+        return getPrimary().getSubscriptionManager();
+    }
+
+    @Override
+    public CompletableFuture<ReadResponse> read(double maxAge,
+                                                TimestampsToReturn timestampsToReturn,
+                                                List<ReadValueId> readValueIds) {
+
+        return select().send(c -> c.read(maxAge, timestampsToReturn, readValueIds));
+    }
+
+    @Override
+    public CompletableFuture<DataValue> read(double maxAge,
+                                             TimestampsToReturn timestampsToReturn,
+                                             ReadValueId readValueId) {
+
+        return select().send(c -> c.read(maxAge, timestampsToReturn, readValueId));
+    }
+
+    @Override
+    public CompletableFuture<WriteResponse> write(List<WriteValue> writeValues) {
+        return select().send(c -> c.write(writeValues));
+    }
+
+    @Override
+    public CompletableFuture<HistoryReadResponse> historyRead(HistoryReadDetails historyReadDetails,
+                                                              TimestampsToReturn timestampsToReturn,
+                                                              boolean releaseContinuationPoints,
+                                                              List<HistoryReadValueId> nodesToRead) {
+
+        return members.get(0).send(c -> c.historyRead(
+                historyReadDetails, timestampsToReturn, releaseContinuationPoints, nodesToRead));
+    }
+
+    @Override
+    public CompletableFuture<HistoryUpdateResponse> historyUpdate(List<HistoryUpdateDetails> historyUpdateDetails) {
+        return members.get(0).send(c -> c.historyUpdate(historyUpdateDetails));
+    }
+
+    @Override
+    public CompletableFuture<CallResponse> call(List<CallMethodRequest> methodsToCall) {
+        return select().send(c -> c.call(methodsToCall));
+    }
+
+    @Override
+    public CompletableFuture<CallMethodResult> call(CallMethodRequest request) {
+        return select().send(c -> c.call(request));
+    }
+
+    @Override
+    public CompletableFuture<BrowseResponse> browse(ViewDescription viewDescription,
+                                                    UInteger maxReferencesPerNode,
+                                                    List<BrowseDescription> nodesToBrowse) {
+
+        Member member = select();
+
+        return member.send(c -> c.browse(viewDescription, maxReferencesPerNode, nodesToBrowse))
+                .thenApply(response -> new BrowseResponse(
+                        response.getResponseHeader(),
+                        tag(member.index, response.getResults()),
+                        response.getDiagnosticInfos()));
+    }
+
+    @Override
+    public CompletableFuture<BrowseNextResponse> browseNext(boolean releaseContinuationPoints,
+                                                            List<ByteString> continuationPoints) {
+
+        Map<Member, List<Integer>> indicesByMember = Maps.newLinkedHashMap();
+
+        for (int i = 0; i < continuationPoints.size(); i++) {
+            indicesByMember.computeIfAbsent(memberOf(continuationPoints.get(i)), m -> newArrayList()).add(i);
+        }
+
+        List<CompletableFuture<BrowseNextResponse>> futures = newArrayList();
+
+        indicesByMember.forEach((member, indices) -> {
+            List<ByteString> cps = indices.stream()
+                    .map(i -> untag(continuationPoints.get(i)))
+                    .collect(Collectors.toList());
+
+            futures.add(member.send(c -> c.browseNext(releaseContinuationPoints, cps)).thenApply(response ->
+                    new BrowseNextResponse(
+                            response.getResponseHeader(),
+                            tag(member.index, response.getResults()),
+                            response.getDiagnosticInfos())));
+        });
+
+        if (futures.size() == 1) return futures.get(0);
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(v ->
+                scatter(
+                        continuationPoints.size(),
+                        newArrayList(indicesByMember.values()),
+                        futures.stream().map(CompletableFuture::join).collect(Collectors.toList())));
+    }
+
+    /**
+     * Merge the responses to the continuation points sent to each member, placing each result and DiagnosticInfo at
+     * the index of the continuation point it belongs to.
+     * <p>
+     * DiagnosticInfos missing from a response are filled with {@link DiagnosticInfo#NULL_VALUE}; if no response has
+     * any then the merged response has none either.
+     *
+     * @param count     the number of continuation points.
+     * @param indices   for each response, the indices of the continuation points it answers.
+     * @param responses the responses, in the same order as {@code indices}.
+     */
+    static BrowseNextResponse scatter(int count, List<List<Integer>> indices, List<BrowseNextResponse> responses) {
+        BrowseResult[] results = new BrowseResult[count];
+        DiagnosticInfo[] diagnosticInfos = new DiagnosticInfo[count];
+        boolean anyDiagnostics = false;
+
+        for (int r = 0; r < responses.size(); r++) {
+            BrowseNextResponse response = responses.get(r);
+            List<Integer> is = indices.get(r);
+
+            BrowseResult[] rs = response.getResults();
+            DiagnosticInfo[] ds = response.getDiagnosticInfos();
+
+            for (int i = 0; i < is.size(); i++) {
+                int index = is.get(i);
+
+                results[index] = rs != null && i < rs.length ? rs[i] : null;
+
+                if (ds != null && i < ds.length) {
+                    diagnosticInfos[index] = ds[i];
+                    anyDiagnostics = true;
+                } else {
+                    diagnosticInfos[index] = DiagnosticInfo.NULL_VALUE;
+                }
+            }
+        }
+
+        return new BrowseNextResponse(
+                responses.get(0).getResponseHeader(),
+                results,
+                anyDiagnostics ? diagnosticInfos : null);
+    }
+
+    @Override
+    public CompletableFuture<TranslateBrowsePathsToNodeIdsResponse> translateBrowsePaths(List<BrowsePath> browsePaths) {
+        return select().send(c -> c.translateBrowsePaths(browsePaths));
+    }
+
+    /**
+     * Register nodes with the primary member's session.
+     * <p>
+     * Registered NodeIds are only valid in the session that registered them, so they should only be used with requests
+     * sent through {@link #getPrimary()}.
+     */
+    @Override
+    public CompletableFuture<RegisterNodesResponse> registerNodes(List<NodeId> nodesToRegister) {
+        return members.get(0).send(c -> c.registerNodes(nodesToRegister));
+    }
+
+    @Override
+    public CompletableFuture<UnregisterNodesResponse> unregisterNodes(List<NodeId> nodesToUnregister) {
+        return members.get(0).send(c -> c.unregisterNodes(nodesToUnregister));
+    }
+
+    /**
+     * Prefix each continuation point in {@code results} with {@code memberIndex}.
+     */
+    static BrowseResult[] tag(int memberIndex, BrowseResult[] results) {
+        if (results == null) return null;
+
+        BrowseResult[] tagged = new BrowseResult[results.length];
+
+        for (int i = 0; i < results.length; i++) {
+            BrowseResult result = results[i];
+            ByteString cp = result != null ? result.getContinuationPoint() : null;
+
+            if (cp != null && cp.isNotNull()) {
+                byte[] bs = new byte[cp.length() + 1];
+                bs[0] = (byte) memberIndex;
+                System.arraycopy(cp.bytes(), 0, bs, 1, cp.length());
+
+                tagged[i] = new BrowseResult(result.getStatusCode(), ByteString.of(bs), result.getReferences());
+            } else {
+                tagged[i] = result;
+            }
+        }
+
+        return tagged;
+    }
+
+    /**
+     * @return the member that produced {@code continuationPoint}, or the primary if it wasn't tagged by this pool.
+     */
+    private Member memberOf(ByteString continuationPoint) {
+        int index = memberIndex(continuationPoint);
+
+        return index < members.size() ? members.get(index) : members.get(0);
+    }
+
+    static int memberIndex(ByteString continuationPoint) {
+        if (continuationPoint == null || continuationPoint.length() < 1) return 0;
+
+        return continuationPoint.byteAt(0) & 0xFF;
+    }
+
+    static ByteString untag(ByteString continuationPoint) {
+        if (continuationPoint == null || continuationPoint.length() < 1) return continuationPoint;
+
+        byte[] bs = continuationPoint.bytes();
+
+        return ByteString.of(Arrays.copyOfRange(bs, 1, bs.length));
+    }
+
+    private Member select() {
+        if (members.size() == 1) return members.get(0);
+
+        switch (selection) {
+            case LEAST_OUTSTANDING: {
+                Member least = members.get(0);
+
+                for (Member member : members) {
+                    if (member.outstanding.get() < least.outstanding.get()) {
+                        least = member;
+                    }
+                }
+
+                return least;
+            }
+
+            case ROUND_ROBIN:
+            default:
+                return members.get(Math.floorMod(nextIndex.getAndIncrement(), members.size()));
+        }
+    }
+
+    static class Member {
+        final AtomicInteger outstanding = new AtomicInteger(0);
+
+        final int index;
+        final OpcUaClient client;
+
+        Member(int index, OpcUaClient client) {
+            this.index = index;
+            this.client = client;
+        }
+
+        <T> CompletableFuture<T> send(Function<OpcUaClient, CompletableFuture<T>> request) {
+            outstanding.incrementAndGet();
+
+            CompletableFuture<T> future;
+
+            try {
+                future = request.apply(client);
+            } catch (Throwable t) {
+                outstanding.decrementAndGet();
+
+                future = new CompletableFuture<>();
+                future.completeExceptionally(t);
+
+                return future;
+            }
+
+            future.whenComplete((r, ex) -> outstanding.decrementAndGet());
+
+            return future;
+        }
+    }
+
+}
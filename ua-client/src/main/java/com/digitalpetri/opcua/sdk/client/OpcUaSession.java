@@ -16,6 +16,7 @@
 
 package com.digitalpetri.opcua.sdk.client;
 
+import com.digitalpetri.opcua.sdk.client.api.OperationLimits;
 import com.digitalpetri.opcua.sdk.client.api.UaSession;
 import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
 import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
@@ -25,6 +26,7 @@ import com.digitalpetri.opcua.stack.core.types.structured.SignedSoftwareCertific
 public class OpcUaSession implements UaSession {
 
     private volatile ByteString serverNonce = ByteString.NULL_VALUE;
+    private volatile OperationLimits operationLimits = OperationLimits.NONE;
 
     private final NodeId authToken;
     private final NodeId sessionId;
@@ -95,4 +97,13 @@ public class OpcUaSession implements UaSession {
         this.serverNonce = serverNonce;
     }
 
+    @Override
+    public OperationLimits getOperationLimits() {
+        return operationLimits;
+    }
+
+    public void setOperationLimits(OperationLimits operationLimits) {
+        this.operationLimits = operationLimits;
+    }
+
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import com.digitalpetri.opcua.sdk.client.api.services.AttributeServices;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
+
+/**
+ * Coalesces concurrent single-attribute reads into a single {@link com.digitalpetri.opcua.stack.core.types.structured.ReadRequest}.
+ * <p>
+ * Reads are collected for up to {@code window} milliseconds, or until {@code maxBatchSize} reads have been collected,
+ * and are then sent together. Only reads with the same maxAge and {@link TimestampsToReturn} are combined.
+ * <p>
+ * A window of 0 sends a batch as soon as the executor gets to it, combining only the reads that arrived concurrently.
+ */
+public class ReadCoalescer extends AbstractCoalescer<ReadCoalescer.BatchKey, ReadValueId, DataValue> {
+
+    private final AttributeServices attributeServices;
+
+    /**
+     * @param attributeServices the {@link AttributeServices} used to send the coalesced reads.
+     * @param executor          the {@link ExecutorService} batches are sent from when there is no window.
+     * @param window            the time, in milliseconds, to wait for more reads before sending a batch.
+     * @param maxBatchSize      the number of reads that causes a batch to be sent immediately.
+     */
+    public ReadCoalescer(AttributeServices attributeServices,
+                         ExecutorService executor,
+                         long window,
+                         int maxBatchSize) {
+
+        super(executor, window, maxBatchSize);
+
+        this.attributeServices = attributeServices;
+    }
+
+    /**
+     * Read a single attribute, sharing a {@link com.digitalpetri.opcua.stack.core.types.structured.ReadRequest} with
+     * any other reads submitted during the same window.
+     *
+     * @param maxAge             the requested max age of the value, in milliseconds.
+     * @param timestampsToReturn the requested {@link TimestampsToReturn}.
+     * @param readValueId        the {@link ReadValueId} identifying the node and attribute to read.
+     * @return a {@link CompletableFuture} containing the {@link DataValue}.
+     */
+    public CompletableFuture<DataValue> read(double maxAge,
+                                             TimestampsToReturn timestampsToReturn,
+                                             ReadValueId readValueId) {
+
+        return submit(new BatchKey(maxAge, timestampsToReturn), readValueId);
+    }
+
+    /**
+     * @return the number of reads sent, across all batches.
+     */
+    public long getReadCount() {
+        return getOperationCount();
+    }
+
+    @Override
+    protected CompletableFuture<DataValue[]> send(BatchKey key, List<ReadValueId> readValueIds) {
+        return attributeServices.read(key.maxAge, key.timestampsToReturn, readValueIds)
+                .thenApply(ReadResponse::getResults);
+    }
+
+    static class BatchKey {
+        final double maxAge;
+        final TimestampsToReturn timestampsToReturn;
+
+        BatchKey(double maxAge, TimestampsToReturn timestampsToReturn) {
+            this.maxAge = maxAge;
+            this.timestampsToReturn = timestampsToReturn;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            BatchKey that = (BatchKey) o;
+
+            return Double.compare(that.maxAge, maxAge) == 0 &&
+                    timestampsToReturn == that.timestampsToReturn;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(maxAge, timestampsToReturn);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("maxAge=%s, timestamps=%s", maxAge, timestampsToReturn);
+        }
+    }
+
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.digitalpetri.opcua.sdk.client.api.UaSession;
+import com.digitalpetri.opcua.stack.core.Stack;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
+import com.digitalpetri.opcua.stack.core.types.structured.WriteValue;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
+
+/**
+ * Registers frequently read or written NodeIds with the server and substitutes the registered aliases into outgoing
+ * {@link ReadValueId}s and {@link WriteValue}s.
+ * <p>
+ * Every {@code interval} seconds, any NodeId used at least {@code threshold} times during the previous interval is
+ * registered, up to {@code maxRegistered} NodeIds in total. A registered NodeId that goes unused for
+ * {@link #IDLE_INTERVALS_BEFORE_EVICTION} intervals is unregistered.
+ * <p>
+ * Registered aliases are only valid within the session that registered them. They are only substituted while that
+ * session is active. When a new session is created, everything that was registered is registered again.
+ */
+public class RegisteredNodeCache implements SessionActivityListener {
+
+    /**
+     * The number of consecutive intervals a registered NodeId may go unused before it is unregistered.
+     */
+    public static final int IDLE_INTERVALS_BEFORE_EVICTION = 12;
+
+    /**
+     * The default interval, in seconds, at which usage is evaluated.
+     */
+    public static final long DEFAULT_INTERVAL = 5;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ConcurrentMap<NodeId, AtomicLong> usage = Maps.newConcurrentMap();
+    private final Map<NodeId, Integer> idleIntervals = Maps.newHashMap();
+
+    private final AtomicBoolean maintaining = new AtomicBoolean(false);
+
+    private volatile Registrations registrations = new Registrations(null);
+    private volatile ScheduledFuture<?> maintenanceTask;
+
+    private final OpcUaClient client;
+    private final long threshold;
+    private final int maxRegistered;
+    private final long interval;
+
+    /**
+     * @param client        the {@link OpcUaClient} to register nodes with.
+     * @param threshold     the number of uses during an interval that makes a NodeId eligible for registration.
+     * @param maxRegistered the maximum number of NodeIds registered at once.
+     * @param interval      the interval, in seconds, at which usage is evaluated.
+     */
+    public RegisteredNodeCache(OpcUaClient client, long threshold, int maxRegistered, long interval) {
+        this.client = client;
+        this.threshold = Math.max(1, threshold);
+        this.maxRegistered = maxRegistered;
+        this.interval = interval;
+    }
+
+    /**
+     * Start evaluating usage and registering nodes.
+     */
+    public synchronized void startup() {
+        if (maintenanceTask == null) {
+            maintenanceTask = Stack.sharedScheduledExecutor().scheduleWithFixedDelay(
+                    this::maintain, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stop evaluating usage and forget all registrations. Nodes are not unregistered; the session they were registered
+     * with is expected to be closing.
+     */
+    public synchronized void shutdown() {
+        if (maintenanceTask != null) {
+            maintenanceTask.cancel(false);
+            maintenanceTask = null;
+        }
+
+        registrations = new Registrations(null);
+        usage.clear();
+    }
+
+    /**
+     * Record usage of the {@link ReadValueId}s and substitute registered aliases where available.
+     *
+     * @param session      the session the reads will be sent on.
+     * @param readValueIds the {@link ReadValueId}s to be read.
+     * @return the {@link ReadValueId}s to send.
+     */
+    public List<ReadValueId> substituteReads(UaSession session, List<ReadValueId> readValueIds) {
+        Registrations r = validRegistrations(session);
+
+        List<ReadValueId> substituted = newArrayListWithCapacity(readValueIds.size());
+
+        for (ReadValueId readValueId : readValueIds) {
+            NodeId alias = use(r, readValueId.getNodeId());
+
+            substituted.add(alias == null ? readValueId : new ReadValueId(
+                    alias,
+                    readValueId.getAttributeId(),
+                    readValueId.getIndexRange(),
+                    readValueId.getDataEncoding()));
+        }
+
+        return substituted;
+    }
+
+    /**
+     * Record usage of the {@link WriteValue}s and substitute registered aliases where available.
+     *
+     * @param session     the session the writes will be sent on.
+     * @param writeValues the {@link WriteValue}s to be written.
+     * @return the {@link WriteValue}s to send.
+     */
+    public List<WriteValue> substituteWrites(UaSession session, List<WriteValue> writeValues) {
+        Registrations r = validRegistrations(session);
+
+        List<WriteValue> substituted = newArrayListWithCapacity(writeValues.size());
+
+        for (WriteValue writeValue : writeValues) {
+            NodeId alias = use(r, writeValue.getNodeId());
+
+            substituted.add(alias == null ? writeValue : new WriteValue(
+                    alias,
+                    writeValue.getAttributeId(),
+                    writeValue.getIndexRange(),
+                    writeValue.getValue()));
+        }
+
+        return substituted;
+    }
+
+    /**
+     * @return the number of NodeIds currently registered.
+     */
+    public int getRegisteredCount() {
+        return registrations.aliases.size();
+    }
+
+    @Override
+    public void onSessionActive(UaSession session) {
+        if (!Objects.equals(session.getSessionId(), registrations.sessionId) && maintenanceTask != null) {
+            // Registrations from the previous session are gone; re-register now
+            // rather than waiting for the next interval.
+            client.getConfig().getExecutor().execute(this::maintain);
+        }
+    }
+
+    private Registrations validRegistrations(UaSession session) {
+        Registrations r = registrations;
+
+        return Objects.equals(session.getSessionId(), r.sessionId) ? r : null;
+    }
+
+    private NodeId use(Registrations r, NodeId nodeId) {
+        usage.computeIfAbsent(nodeId, id -> new AtomicLong(0L)).incrementAndGet();
+
+        return r != null ? r.aliases.get(nodeId) : null;
+    }
+
+    private void maintain() {
+        if (!maintaining.compareAndSet(false, true)) return;
+
+        try {
+            UaSession session = client.getActiveSession();
+
+            if (session == null) return;
+
+            Registrations current = registrations;
+            List<NodeId> toRegister = newArrayList();
+
+            if (!Objects.equals(session.getSessionId(), current.sessionId)) {
+                logger.debug("Session changed, re-registering {} nodes.", current.aliases.size());
+
+                toRegister.addAll(current.aliases.keySet());
+                idleIntervals.clear();
+
+                current = new Registrations(session.getSessionId());
+                registrations = current;
+            }
+
+            Map<NodeId, Long> counts = Maps.newHashMap();
+            usage.forEach((nodeId, count) -> {
+                long c = count.getAndSet(0L);
+                if (c == 0L) usage.remove(nodeId, count);
+                else counts.put(nodeId, c);
+            });
+
+            List<NodeId> evicted = newArrayList();
+            List<NodeId> evictedAliases = newArrayList();
+
+            for (Map.Entry<NodeId, NodeId> entry : current.aliases.entrySet()) {
+                NodeId nodeId = entry.getKey();
+
+                if (counts.containsKey(nodeId)) {
+                    idleIntervals.remove(nodeId);
+                } else {
+                    int idle = idleIntervals.merge(nodeId, 1, Integer::sum);
+
+                    if (idle >= IDLE_INTERVALS_BEFORE_EVICTION) {
+                        evicted.add(nodeId);
+                        evictedAliases.add(entry.getValue());
+                    }
+                }
+            }
+
+            evicted.forEach(current::remove);
+            evicted.forEach(idleIntervals::remove);
+
+            if (!evictedAliases.isEmpty()) {
+                logger.debug("Unregistering {} idle nodes.", evictedAliases.size());
+
+                client.unregisterNodes(evictedAliases).whenComplete((r, ex) -> {
+                    if (ex != null) logger.debug("UnregisterNodes failed: {}", ex.getMessage(), ex);
+                });
+            }
+
+            int available = maxRegistered - current.aliases.size() - toRegister.size();
+
+            if (available > 0) {
+                Registrations c = current;
+                Set<NodeId> reRegistering = Sets.newHashSet(toRegister);
+
+                toRegister.addAll(counts.entrySet().stream()
+                        .filter(e -> e.getValue() >= threshold)
+                        .filter(e -> !c.aliases.containsKey(e.getKey()))
+                        .filter(e -> !reRegistering.contains(e.getKey()))
+                        .filter(e -> !c.registered.contains(e.getKey()))
+                        .sorted(Comparator.comparing(Map.Entry<NodeId, Long>::getValue).reversed())
+                        .limit(available)
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toList()));
+            }
+
+            if (!toRegister.isEmpty()) {
+                register(current, toRegister);
+            }
+        } finally {
+            maintaining.set(false);
+        }
+    }
+
+    private void register(Registrations target, List<NodeId> nodeIds) {
+        logger.debug("Registering {} nodes.", nodeIds.size());
+
+        client.registerNodes(nodeIds).whenComplete((response, ex) -> {
+            if (response != null) {
+                NodeId[] aliases = response.getRegisteredNodeIds();
+
+                if (registrations != target || aliases == null) {
+                    // Session changed while registering; these aliases are useless now.
+                    return;
+                }
+
+                for (int i = 0; i < nodeIds.size() && i < aliases.length; i++) {
+                    target.put(nodeIds.get(i), aliases[i]);
+                }
+            } else {
+                logger.debug("RegisterNodes failed: {}", ex.getMessage(), ex);
+            }
+        });
+    }
+
+    private static class Registrations {
+        final ConcurrentMap<NodeId, NodeId> aliases = Maps.newConcurrentMap();
+
+        /**
+         * The values of {@link #aliases}, so an alias can be recognized without scanning them.
+         */
+        final Set<NodeId> registered = Sets.newConcurrentHashSet();
+
+        final NodeId sessionId;
+
+        Registrations(NodeId sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        void put(NodeId nodeId, NodeId alias) {
+            NodeId previous = aliases.put(nodeId, alias);
+
+            if (previous != null) registered.remove(previous);
+            registered.add(alias);
+        }
+
+        void remove(NodeId nodeId) {
+            NodeId alias = aliases.remove(nodeId);
+
+            if (alias != null) registered.remove(alias);
+        }
+    }
+
+}
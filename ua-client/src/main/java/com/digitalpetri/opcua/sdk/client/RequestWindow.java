@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.digitalpetri.opcua.sdk.client.api.config.RequestOverflowPolicy;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+
+/**
+ * Limits the number of requests in flight at any given time.
+ * <p>
+ * Requests submitted while the window is full wait in a bounded queue and are sent, in order, as earlier requests
+ * complete. When the queue is also full the configured {@link RequestOverflowPolicy} applies.
+ */
+public class RequestWindow {
+
+    private final ArrayDeque<PendingRequest<?>> queue = new ArrayDeque<>();
+    private int inFlight = 0;
+    private int releases = 0;
+    private boolean draining = false;
+
+    private final AtomicLong sentCount = new AtomicLong(0L);
+    private final AtomicLong queuedCount = new AtomicLong(0L);
+    private final AtomicLong rejectedCount = new AtomicLong(0L);
+    private final AtomicLong maxQueueDepth = new AtomicLong(0L);
+    private final AtomicLong totalWaitNanos = new AtomicLong(0L);
+
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final RequestOverflowPolicy overflowPolicy;
+
+    /**
+     * @param maxInFlight    the maximum number of requests in flight.
+     * @param maxQueued      the maximum number of requests waiting to be sent.
+     * @param overflowPolicy the {@link RequestOverflowPolicy} applied when the queue is full.
+     */
+    public RequestWindow(int maxInFlight, int maxQueued, RequestOverflowPolicy overflowPolicy) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Send a request now if the window has room, otherwise queue it until it does.
+     * <p>
+     * With {@link RequestOverflowPolicy#BLOCK} this call blocks while the queue is full, so it must not be made from
+     * a thread that completes responses, including any continuation chained on a response future.
+     *
+     * @param send sends the request and returns its response future.
+     * @return a {@link CompletableFuture} completed with the response, or exceptionally if the request was rejected.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> send) {
+        PendingRequest<T> pending = new PendingRequest<>(send);
+        PendingRequest<?> dropped = null;
+        boolean sendNow = false;
+        boolean rejected = false;
+
+        synchronized (queue) {
+            if (overflowPolicy == RequestOverflowPolicy.BLOCK) {
+                while (!hasRoom() && queue.size() >= maxQueued) {
+                    try {
+                        queue.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        pending.future.completeExceptionally(
+                                new UaException(StatusCodes.Bad_RequestCancelledByClient, e));
+                        return pending.future;
+                    }
+                }
+            }
+
+            if (hasRoom()) {
+                inFlight++;
+                sendNow = true;
+            } else if (queue.size() < maxQueued) {
+                enqueue(pending);
+            } else if (overflowPolicy == RequestOverflowPolicy.DROP_OLDEST && maxQueued > 0) {
+                dropped = queue.poll();
+                enqueue(pending);
+            } else {
+                rejected = true;
+            }
+        }
+
+        if (sendNow) {
+            send(pending);
+        } else if (rejected) {
+            rejectedCount.incrementAndGet();
+            pending.future.completeExceptionally(
+                    new UaException(StatusCodes.Bad_ResourceUnavailable, "request queue full"));
+        }
+
+        if (dropped != null) {
+            rejectedCount.incrementAndGet();
+            dropped.future.completeExceptionally(
+                    new UaException(StatusCodes.Bad_ResourceUnavailable, "request dropped from full queue"));
+        }
+
+        return pending.future;
+    }
+
+    /**
+     * @return the number of requests currently in flight.
+     */
+    public int getInFlightCount() {
+        synchronized (queue) {
+            return inFlight;
+        }
+    }
+
+    /**
+     * @return the number of requests currently waiting to be sent.
+     */
+    public int getQueueDepth() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * @return the largest number of requests that have been waiting to be sent at once.
+     */
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return the number of requests sent.
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * @return the number of requests that were rejected or dropped because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @param unit the {@link TimeUnit} of the returned value.
+     * @return the average time a queued request waited before being sent.
+     */
+    public double getAverageWaitTime(TimeUnit unit) {
+        long queued = queuedCount.get();
+
+        return queued == 0 ? 0.0 : (double) unit.convert(totalWaitNanos.get(), TimeUnit.NANOSECONDS) / queued;
+    }
+
+    private boolean hasRoom() {
+        return inFlight < maxInFlight && queue.isEmpty();
+    }
+
+    private void enqueue(PendingRequest<?> pending) {
+        pending.queuedNanos = System.nanoTime();
+        queue.add(pending);
+        maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    private <T> void send(PendingRequest<T> pending) {
+        sentCount.incrementAndGet();
+
+        CompletableFuture<T> f;
+
+        try {
+            f = pending.send.get();
+        } catch (Throwable t) {
+            f = new CompletableFuture<>();
+            f.completeExceptionally(t);
+        }
+
+        f.whenComplete((response, ex) -> {
+            release();
+
+            if (response != null) pending.future.complete(response);
+            else pending.future.completeExceptionally(ex);
+        });
+    }
+
+    private void release() {
+        synchronized (queue) {
+            releases++;
+
+            // A request that fails synchronously releases its slot from inside send(); let the thread already
+            // draining pick that up rather than recursing.
+            if (draining) return;
+
+            draining = true;
+        }
+
+        while (true) {
+            PendingRequest<?> next;
+
+            synchronized (queue) {
+                if (releases == 0) {
+                    draining = false;
+                    return;
+                }
+
+                releases--;
+                next = queue.poll();
+
+                // The slot passes straight to the next queued request, if any.
+                if (next == null) inFlight--;
+
+                queue.notifyAll();
+            }
+
+            if (next != null) {
+                queuedCount.incrementAndGet();
+                totalWaitNanos.addAndGet(System.nanoTime() - next.queuedNanos);
+
+                send(next);
+            }
+        }
+    }
+
+    private static class PendingRequest<T> {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        final Supplier<CompletableFuture<T>> send;
+
+        long queuedNanos;
+
+        PendingRequest(Supplier<CompletableFuture<T>> send) {
+            this.send = send;
+        }
+    }
+
+}
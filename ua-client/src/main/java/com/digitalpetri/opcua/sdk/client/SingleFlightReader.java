@@ -0,0 +1,252 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.QualifiedName;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
+import com.google.common.collect.Maps;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
+
+/**
+ * Shares a single outstanding read between all callers reading the same attribute at the same time.
+ * <p>
+ * Reads are considered identical when they have the same NodeId, AttributeId, IndexRange, DataEncoding, maxAge and
+ * {@link TimestampsToReturn}. Only reads that are in flight are shared; nothing is cached once a read completes.
+ */
+public class SingleFlightReader {
+
+    private final ConcurrentMap<ReadKey, CompletableFuture<DataValue>> inFlight = Maps.newConcurrentMap();
+
+    private final AtomicLong readCount = new AtomicLong(0L);
+    private final AtomicLong sharedCount = new AtomicLong(0L);
+
+    /**
+     * Read a single attribute, joining an identical read already in flight if there is one.
+     *
+     * @param maxAge             the requested max age of the value, in milliseconds.
+     * @param timestampsToReturn the requested {@link TimestampsToReturn}.
+     * @param readValueId        the {@link ReadValueId} identifying the node and attribute to read.
+     * @param reader             sends the read when there is no identical read in flight.
+     * @return a {@link CompletableFuture} containing the {@link DataValue}.
+     */
+    public CompletableFuture<DataValue> read(double maxAge,
+                                             TimestampsToReturn timestampsToReturn,
+                                             ReadValueId readValueId,
+                                             Function<ReadValueId, CompletableFuture<DataValue>> reader) {
+
+        ReadKey key = new ReadKey(maxAge, timestampsToReturn, readValueId);
+
+        CompletableFuture<DataValue> future = new CompletableFuture<>();
+        CompletableFuture<DataValue> existing = inFlight.putIfAbsent(key, future);
+
+        readCount.incrementAndGet();
+
+        if (existing != null) {
+            sharedCount.incrementAndGet();
+
+            return dependent(existing);
+        }
+
+        send(() -> reader.apply(readValueId)).whenComplete((value, ex) -> {
+            try {
+                if (value != null) {
+                    future.complete(value);
+                } else {
+                    future.completeExceptionally(ex != null ? ex :
+                            new UaException(StatusCodes.Bad_UnexpectedError, "null value"));
+                }
+            } finally {
+                inFlight.remove(key, future);
+            }
+        });
+
+        return dependent(future);
+    }
+
+    /**
+     * Read one or more attributes, joining identical reads already in flight and sending only the remainder.
+     *
+     * @param maxAge             the requested max age of the values, in milliseconds.
+     * @param timestampsToReturn the requested {@link TimestampsToReturn}.
+     * @param readValueIds       the {@link ReadValueId}s identifying the nodes and attributes to read.
+     * @param reader             sends the reads that have no identical read in flight, returning results in the same
+     *                           order.
+     * @return a {@link CompletableFuture} containing a list of {@link DataValue}s, the size and order matching the
+     * provided {@link ReadValueId}s.
+     */
+    public CompletableFuture<List<DataValue>> read(double maxAge,
+                                                   TimestampsToReturn timestampsToReturn,
+                                                   List<ReadValueId> readValueIds,
+                                                   Function<List<ReadValueId>, CompletableFuture<List<DataValue>>> reader) {
+
+        List<CompletableFuture<DataValue>> futures = newArrayListWithCapacity(readValueIds.size());
+
+        List<ReadValueId> toSend = newArrayList();
+        List<ReadKey> sentKeys = newArrayList();
+        List<CompletableFuture<DataValue>> sentFutures = newArrayList();
+
+        for (ReadValueId readValueId : readValueIds) {
+            ReadKey key = new ReadKey(maxAge, timestampsToReturn, readValueId);
+
+            CompletableFuture<DataValue> future = new CompletableFuture<>();
+            CompletableFuture<DataValue> existing = inFlight.putIfAbsent(key, future);
+
+            readCount.incrementAndGet();
+
+            if (existing != null) {
+                sharedCount.incrementAndGet();
+                futures.add(existing);
+            } else {
+                futures.add(future);
+                toSend.add(readValueId);
+                sentKeys.add(key);
+                sentFutures.add(future);
+            }
+        }
+
+        if (!toSend.isEmpty()) {
+            send(() -> reader.apply(toSend)).whenComplete((values, ex) -> {
+                try {
+                    if (values != null && values.size() >= sentFutures.size()) {
+                        for (int i = 0; i < sentFutures.size(); i++) {
+                            DataValue value = values.get(i);
+
+                            if (value != null) {
+                                sentFutures.get(i).complete(value);
+                            } else {
+                                sentFutures.get(i).completeExceptionally(
+                                        new UaException(StatusCodes.Bad_UnexpectedError, "null value"));
+                            }
+                        }
+                    } else {
+                        Throwable failure = ex != null ? ex :
+                                new UaException(StatusCodes.Bad_UnexpectedError,
+                                        String.format("expected %d values, received %d",
+                                                sentFutures.size(), values == null ? 0 : values.size()));
+
+                        sentFutures.forEach(f -> f.completeExceptionally(failure));
+                    }
+                } finally {
+                    for (int i = 0; i < sentFutures.size(); i++) {
+                        inFlight.remove(sentKeys.get(i), sentFutures.get(i));
+                    }
+                }
+            });
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+                .thenApply(v -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    /**
+     * @return the total number of reads requested.
+     */
+    public long getReadCount() {
+        return readCount.get();
+    }
+
+    /**
+     * @return the number of reads that joined an identical read already in flight instead of being sent.
+     */
+    public long getSharedCount() {
+        return sharedCount.get();
+    }
+
+    /**
+     * @return the number of distinct reads currently in flight.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * A reader that throws instead of returning a failed future must not leave its keys in flight.
+     */
+    private static <T> CompletableFuture<T> send(Supplier<CompletableFuture<T>> reader) {
+        try {
+            return reader.get();
+        } catch (Throwable t) {
+            CompletableFuture<T> f = new CompletableFuture<>();
+            f.completeExceptionally(t);
+            return f;
+        }
+    }
+
+    /**
+     * Callers each get their own dependent future so that one caller completing or cancelling it can't affect the
+     * others sharing the read.
+     */
+    private static CompletableFuture<DataValue> dependent(CompletableFuture<DataValue> shared) {
+        return shared.thenApply(Function.identity());
+    }
+
+    private static class ReadKey {
+        private final double maxAge;
+        private final TimestampsToReturn timestampsToReturn;
+        private final NodeId nodeId;
+        private final UInteger attributeId;
+        private final String indexRange;
+        private final QualifiedName dataEncoding;
+
+        ReadKey(double maxAge, TimestampsToReturn timestampsToReturn, ReadValueId readValueId) {
+            this.maxAge = maxAge;
+            this.timestampsToReturn = timestampsToReturn;
+            this.nodeId = readValueId.getNodeId();
+            this.attributeId = readValueId.getAttributeId();
+            this.indexRange = readValueId.getIndexRange();
+            this.dataEncoding = readValueId.getDataEncoding();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            ReadKey that = (ReadKey) o;
+
+            return Double.compare(that.maxAge, maxAge) == 0 &&
+                    timestampsToReturn == that.timestampsToReturn &&
+                    Objects.equals(nodeId, that.nodeId) &&
+                    Objects.equals(attributeId, that.attributeId) &&
+                    Objects.equals(indexRange, that.indexRange) &&
+                    Objects.equals(dataEncoding, that.dataEncoding);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(maxAge, timestampsToReturn, nodeId, attributeId, indexRange, dataEncoding);
+        }
+    }
+
+}
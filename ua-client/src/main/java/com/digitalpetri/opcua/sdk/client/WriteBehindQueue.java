@@ -0,0 +1,250 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.digitalpetri.opcua.sdk.client.api.services.AttributeServices;
+import com.digitalpetri.opcua.stack.core.Stack;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.digitalpetri.opcua.stack.core.types.structured.WriteResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.WriteValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Queues writes and sends them together, keeping only the newest value written to each node and attribute.
+ * <p>
+ * Writes are collected for {@code interval} milliseconds after the first write arrives and are then sent in a single
+ * WriteRequest. If a node and attribute is written again before the queue is flushed, the newer value replaces the
+ * older one. Every caller whose value was replaced receives the {@link StatusCode} of the write that was sent.
+ * <p>
+ * Writes queued while a flush is in flight are sent by the next flush, which isn't sent until the one in flight has
+ * completed, so a newer value written to a node can never overtake an older one.
+ */
+public class WriteBehindQueue {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final AtomicLong submittedCount = new AtomicLong(0L);
+    private final AtomicLong writtenCount = new AtomicLong(0L);
+
+    private Map<WriteKey, PendingWrite> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private CompletableFuture<Void> lastFlush = CompletableFuture.completedFuture(null);
+
+    private final AttributeServices attributeServices;
+    private final long interval;
+
+    /**
+     * @param attributeServices the {@link AttributeServices} used to send the queued writes.
+     * @param interval          the time, in milliseconds, writes are queued before being sent.
+     */
+    public WriteBehindQueue(AttributeServices attributeServices, long interval) {
+        this.attributeServices = attributeServices;
+        this.interval = Math.max(1, interval);
+    }
+
+    /**
+     * Queue a write, replacing any queued write to the same node, attribute and index range.
+     *
+     * @param writeValue the {@link WriteValue} to write.
+     * @return a {@link CompletableFuture} containing the {@link StatusCode} of the write that was eventually sent.
+     */
+    public CompletableFuture<StatusCode> write(WriteValue writeValue) {
+        CompletableFuture<StatusCode> future = new CompletableFuture<>();
+        WriteKey key = new WriteKey(writeValue);
+
+        submittedCount.incrementAndGet();
+
+        synchronized (this) {
+            PendingWrite write = pending.get(key);
+
+            if (write == null) {
+                pending.put(key, new PendingWrite(writeValue, future));
+            } else {
+                write.writeValue = writeValue;
+                write.futures.add(future);
+            }
+
+            if (scheduledFlush == null) {
+                scheduledFlush = Stack.sharedScheduledExecutor().schedule(
+                        this::flush, interval, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        return future;
+    }
+
+    /**
+     * Queue several writes.
+     *
+     * @param writeValues the {@link WriteValue}s to write.
+     * @return a {@link CompletableFuture} containing the {@link StatusCode}s of the writes that were eventually sent,
+     * the size and order matching {@code writeValues}.
+     * @see #write(WriteValue)
+     */
+    public CompletableFuture<List<StatusCode>> write(List<WriteValue> writeValues) {
+        List<CompletableFuture<StatusCode>> futures = writeValues.stream()
+                .map(this::write)
+                .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+                .thenApply(v -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    /**
+     * Send everything queued now rather than waiting for the interval to elapse.
+     * <p>
+     * The writes are sent once any flush already in flight has completed.
+     *
+     * @return a {@link CompletableFuture} that completes when the queued writes have been sent.
+     */
+    public CompletableFuture<Void> flush() {
+        synchronized (this) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+
+            if (pending.isEmpty()) return lastFlush;
+
+            List<PendingWrite> toWrite = newArrayList(pending.values());
+            pending = new LinkedHashMap<>();
+
+            lastFlush = lastFlush.thenCompose(v -> send(toWrite));
+
+            return lastFlush;
+        }
+    }
+
+    /**
+     * @return the number of writes submitted.
+     */
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * @return the number of writes sent to the server, after replaced values were dropped.
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * Send {@code toWrite} and complete the callers' futures. The returned future never fails, so one failed flush
+     * doesn't stop the ones after it.
+     */
+    private CompletableFuture<Void> send(List<PendingWrite> toWrite) {
+        writtenCount.addAndGet(toWrite.size());
+
+        logger.trace("Writing {} queued values.", toWrite.size());
+
+        List<WriteValue> writeValues = toWrite.stream()
+                .map(w -> w.writeValue)
+                .collect(Collectors.toList());
+
+        CompletableFuture<WriteResponse> future;
+
+        try {
+            future = attributeServices.write(writeValues);
+        } catch (Throwable t) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(t);
+        }
+
+        return future.handle((response, ex) -> {
+            StatusCode[] results = response != null ? response.getResults() : null;
+
+            if (ex == null && (results == null || results.length < toWrite.size())) {
+                ex = new UaException(StatusCodes.Bad_UnexpectedError,
+                        String.format("expected %d results, received %d",
+                                toWrite.size(), results == null ? 0 : results.length));
+            }
+
+            if (ex == null) {
+                for (int i = 0; i < toWrite.size(); i++) {
+                    StatusCode result = results[i];
+
+                    toWrite.get(i).futures.forEach(f -> f.complete(result));
+                }
+            } else {
+                Throwable failure = ex;
+
+                toWrite.forEach(w -> w.futures.forEach(f -> f.completeExceptionally(failure)));
+            }
+
+            return null;
+        });
+    }
+
+    private static class PendingWrite {
+        final List<CompletableFuture<StatusCode>> futures = newArrayList();
+
+        WriteValue writeValue;
+
+        PendingWrite(WriteValue writeValue, CompletableFuture<StatusCode> future) {
+            this.writeValue = writeValue;
+            this.futures.add(future);
+        }
+    }
+
+    private static class WriteKey {
+        final NodeId nodeId;
+        final UInteger attributeId;
+        final String indexRange;
+
+        WriteKey(WriteValue writeValue) {
+            this.nodeId = writeValue.getNodeId();
+            this.attributeId = writeValue.getAttributeId();
+            this.indexRange = writeValue.getIndexRange();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            WriteKey that = (WriteKey) o;
+
+            return Objects.equals(nodeId, that.nodeId) &&
+                    Objects.equals(attributeId, that.attributeId) &&
+                    Objects.equals(indexRange, that.indexRange);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(nodeId, attributeId, indexRange);
+        }
+    }
+
+}
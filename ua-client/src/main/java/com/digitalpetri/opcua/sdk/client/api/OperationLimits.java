@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.api;
+
+import java.util.List;
+
+import com.digitalpetri.opcua.stack.core.Identifiers;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.google.common.collect.ImmutableList;
+
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * The OperationLimits advertised by a server in its ServerCapabilities.
+ * <p>
+ * A limit of 0 indicates the server imposes no limit.
+ */
+public final class OperationLimits {
+
+    /**
+     * An {@link OperationLimits} with no limits, used when a server does not advertise any.
+     */
+    public static final OperationLimits NONE = new OperationLimits(
+            uint(0), uint(0), uint(0), uint(0), uint(0), uint(0),
+            uint(0), uint(0), uint(0), uint(0), uint(0), uint(0));
+
+    /**
+     * The {@link NodeId}s of the OperationLimits properties, in the order expected by {@link #fromValues(List)}.
+     */
+    public static final ImmutableList<NodeId> NODE_IDS = ImmutableList.of(
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerRead,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerHistoryReadData,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerHistoryReadEvents,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerWrite,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerHistoryUpdateData,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerHistoryUpdateEvents,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerMethodCall,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerBrowse,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerRegisterNodes,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerTranslateBrowsePathsToNodeIds,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerNodeManagement,
+            Identifiers.Server_ServerCapabilities_OperationLimits_MaxMonitoredItemsPerCall);
+
+    private final UInteger maxNodesPerRead;
+    private final UInteger maxNodesPerHistoryReadData;
+    private final UInteger maxNodesPerHistoryReadEvents;
+    private final UInteger maxNodesPerWrite;
+    private final UInteger maxNodesPerHistoryUpdateData;
+    private final UInteger maxNodesPerHistoryUpdateEvents;
+    private final UInteger maxNodesPerMethodCall;
+    private final UInteger maxNodesPerBrowse;
+    private final UInteger maxNodesPerRegisterNodes;
+    private final UInteger maxNodesPerTranslateBrowsePathsToNodeIds;
+    private final UInteger maxNodesPerNodeManagement;
+    private final UInteger maxMonitoredItemsPerCall;
+
+    public OperationLimits(UInteger maxNodesPerRead,
+                           UInteger maxNodesPerHistoryReadData,
+                           UInteger maxNodesPerHistoryReadEvents,
+                           UInteger maxNodesPerWrite,
+                           UInteger maxNodesPerHistoryUpdateData,
+                           UInteger maxNodesPerHistoryUpdateEvents,
+                           UInteger maxNodesPerMethodCall,
+                           UInteger maxNodesPerBrowse,
+                           UInteger maxNodesPerRegisterNodes,
+                           UInteger maxNodesPerTranslateBrowsePathsToNodeIds,
+                           UInteger maxNodesPerNodeManagement,
+                           UInteger maxMonitoredItemsPerCall) {
+
+        this.maxNodesPerRead = maxNodesPerRead;
+        this.maxNodesPerHistoryReadData = maxNodesPerHistoryReadData;
+        this.maxNodesPerHistoryReadEvents = maxNodesPerHistoryReadEvents;
+        this.maxNodesPerWrite = maxNodesPerWrite;
+        this.maxNodesPerHistoryUpdateData = maxNodesPerHistoryUpdateData;
+        this.maxNodesPerHistoryUpdateEvents = maxNodesPerHistoryUpdateEvents;
+        this.maxNodesPerMethodCall = maxNodesPerMethodCall;
+        this.maxNodesPerBrowse = maxNodesPerBrowse;
+        this.maxNodesPerRegisterNodes = maxNodesPerRegisterNodes;
+        this.maxNodesPerTranslateBrowsePathsToNodeIds = maxNodesPerTranslateBrowsePathsToNodeIds;
+        this.maxNodesPerNodeManagement = maxNodesPerNodeManagement;
+        this.maxMonitoredItemsPerCall = maxMonitoredItemsPerCall;
+    }
+
+    public UInteger getMaxNodesPerRead() {
+        return maxNodesPerRead;
+    }
+
+    public UInteger getMaxNodesPerHistoryReadData() {
+        return maxNodesPerHistoryReadData;
+    }
+
+    public UInteger getMaxNodesPerHistoryReadEvents() {
+        return maxNodesPerHistoryReadEvents;
+    }
+
+    public UInteger getMaxNodesPerWrite() {
+        return maxNodesPerWrite;
+    }
+
+    public UInteger getMaxNodesPerHistoryUpdateData() {
+        return maxNodesPerHistoryUpdateData;
+    }
+
+    public UInteger getMaxNodesPerHistoryUpdateEvents() {
+        return maxNodesPerHistoryUpdateEvents;
+    }
+
+    public UInteger getMaxNodesPerMethodCall() {
+        return maxNodesPerMethodCall;
+    }
+
+    public UInteger getMaxNodesPerBrowse() {
+        return maxNodesPerBrowse;
+    }
+
+    public UInteger getMaxNodesPerRegisterNodes() {
+        return maxNodesPerRegisterNodes;
+    }
+
+    public UInteger getMaxNodesPerTranslateBrowsePathsToNodeIds() {
+        return maxNodesPerTranslateBrowsePathsToNodeIds;
+    }
+
+    public UInteger getMaxNodesPerNodeManagement() {
+        return maxNodesPerNodeManagement;
+    }
+
+    public UInteger getMaxMonitoredItemsPerCall() {
+        return maxMonitoredItemsPerCall;
+    }
+
+    /**
+     * Build an {@link OperationLimits} from the values read for each of {@link #NODE_IDS}.
+     * <p>
+     * Any value that could not be read, or is not an unsigned integer, is treated as "no limit".
+     *
+     * @param values the {@link DataValue}s read, the size and order matching {@link #NODE_IDS}.
+     * @return an {@link OperationLimits}.
+     */
+    public static OperationLimits fromValues(List<DataValue> values) {
+        if (values.size() != NODE_IDS.size()) return NONE;
+
+        return new OperationLimits(
+                limit(values.get(0)),
+                limit(values.get(1)),
+                limit(values.get(2)),
+                limit(values.get(3)),
+                limit(values.get(4)),
+                limit(values.get(5)),
+                limit(values.get(6)),
+                limit(values.get(7)),
+                limit(values.get(8)),
+                limit(values.get(9)),
+                limit(values.get(10)),
+                limit(values.get(11)));
+    }
+
+    private static UInteger limit(DataValue value) {
+        if (value == null || !value.getStatusCode().isGood()) return uint(0);
+
+        Object o = value.getValue().getValue();
+
+        return (o instanceof UInteger) ? (UInteger) o : uint(0);
+    }
+
+    @Override
+    public String toString() {
+        return "OperationLimits{" +
+                "maxNodesPerRead=" + maxNodesPerRead +
+                ", maxNodesPerHistoryReadData=" + maxNodesPerHistoryReadData +
+                ", maxNodesPerHistoryReadEvents=" + maxNodesPerHistoryReadEvents +
+                ", maxNodesPerWrite=" + maxNodesPerWrite +
+                ", maxNodesPerHistoryUpdateData=" + maxNodesPerHistoryUpdateData +
+                ", maxNodesPerHistoryUpdateEvents=" + maxNodesPerHistoryUpdateEvents +
+                ", maxNodesPerMethodCall=" + maxNodesPerMethodCall +
+                ", maxNodesPerBrowse=" + maxNodesPerBrowse +
+                ", maxNodesPerRegisterNodes=" + maxNodesPerRegisterNodes +
+                ", maxNodesPerTranslateBrowsePathsToNodeIds=" + maxNodesPerTranslateBrowsePathsToNodeIds +
+                ", maxNodesPerNodeManagement=" + maxNodesPerNodeManagement +
+                ", maxMonitoredItemsPerCall=" + maxMonitoredItemsPerCall +
+                '}';
+    }
+
+}
@@ -25,6 +25,8 @@ import com.digitalpetri.opcua.sdk.client.api.nodes.NodeCache;
 import com.digitalpetri.opcua.sdk.client.api.services.AttributeServices;
 import com.digitalpetri.opcua.sdk.client.api.services.MethodServices;
 import com.digitalpetri.opcua.sdk.client.api.services.MonitoredItemServices;
+import com.digitalpetri.opcua.sdk.client.api.services.NodeManagementServices;
+import com.digitalpetri.opcua.sdk.client.api.services.QueryServices;
 import com.digitalpetri.opcua.sdk.client.api.services.SubscriptionServices;
 import com.digitalpetri.opcua.sdk.client.api.services.ViewServices;
 import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaSubscriptionManager;
@@ -32,7 +34,8 @@ import com.digitalpetri.opcua.sdk.client.subscriptions.OpcUaSubscriptionManager;
 import com.digitalpetri.opcua.stack.core.serialization.UaRequestMessage;
 import com.digitalpetri.opcua.stack.core.serialization.UaResponseMessage;
 
-public interface UaClient extends AttributeServices, MethodServices, MonitoredItemServices, SubscriptionServices, ViewServices {
+public interface UaClient extends AttributeServices, MethodServices, MonitoredItemServices, NodeManagementServices,
+        QueryServices, SubscriptionServices, ViewServices {
 
     /**
      * @return the {@link OpcUaClientConfig} for this client.
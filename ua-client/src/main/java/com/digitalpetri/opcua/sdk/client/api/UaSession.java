@@ -72,4 +72,14 @@ public interface UaSession {
      */
     SignedSoftwareCertificate[] getServerSoftwareCertificates();
 
+    /**
+     * Get the {@link OperationLimits} read from the server when this session was activated.
+     * <p>
+     * If the server does not advertise its limits, or they could not be read, {@link OperationLimits#NONE} is
+     * returned.
+     *
+     * @return the server {@link OperationLimits}.
+     */
+    OperationLimits getOperationLimits();
+
 }
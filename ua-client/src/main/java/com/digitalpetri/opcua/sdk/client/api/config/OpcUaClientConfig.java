@@ -19,6 +19,7 @@ package com.digitalpetri.opcua.sdk.client.api.config;
 import java.util.function.Supplier;
 
 import com.digitalpetri.opcua.sdk.client.api.identity.IdentityProvider;
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.DeliveryOverflowPolicy;
 import com.digitalpetri.opcua.stack.client.config.UaTcpStackClientConfig;
 import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
 import com.digitalpetri.opcua.stack.core.types.structured.PublishRequest;
@@ -50,6 +51,102 @@ public interface OpcUaClientConfig extends UaTcpStackClientConfig {
      */
     UInteger getMaxPendingPublishRequests();
 
+    /**
+     * @return the maximum number of requests sent concurrently when an operation is split into chunks in order to
+     * respect the server's OperationLimits.
+     */
+    UInteger getMaxConcurrentChunks();
+
+    /**
+     * @return the maximum number of single-attribute reads combined into one ReadRequest. A value of 0 disables read
+     * coalescing.
+     */
+    UInteger getMaxCoalescedReads();
+
+    /**
+     * @return the time, in milliseconds, single-attribute reads are collected before being sent together. A value of 0
+     * only combines reads made concurrently.
+     */
+    UInteger getReadCoalescingWindow();
+
+    /**
+     * @return {@code true} if identical reads in flight at the same time should share a single request.
+     */
+    boolean isReadDeduplicationEnabled();
+
+    /**
+     * @return the maximum number of requests, other than PublishRequests, in flight at any given time. A value of 0
+     * means no limit. PublishRequests are limited separately by {@link #getMaxPendingPublishRequests()}.
+     */
+    UInteger getMaxInFlightRequests();
+
+    /**
+     * @return the maximum number of requests waiting to be sent when {@link #getMaxInFlightRequests()} requests are
+     * already in flight.
+     */
+    UInteger getMaxQueuedRequests();
+
+    /**
+     * @return the {@link RequestOverflowPolicy} applied to new requests when the request queue is full.
+     */
+    RequestOverflowPolicy getRequestOverflowPolicy();
+
+    /**
+     * @return the number of times a NodeId must be read or written within an evaluation interval before it is
+     * registered with the server and its registered alias used in its place. A value of 0 disables automatic node
+     * registration.
+     */
+    UInteger getRegisterNodesThreshold();
+
+    /**
+     * @return the maximum number of NodeIds automatically registered with the server at once.
+     */
+    UInteger getMaxRegisteredNodes();
+
+    /**
+     * @return the maximum number of single method calls combined into one CallRequest. A value of 0 disables call
+     * coalescing.
+     */
+    UInteger getMaxCoalescedCalls();
+
+    /**
+     * @return the time, in milliseconds, single method calls are collected before being sent together. A value of 0
+     * only combines calls made concurrently.
+     */
+    UInteger getCallCoalescingWindow();
+
+    /**
+     * @return the time, in milliseconds, writes made through writeValues are queued so that repeated writes to the
+     * same node can be combined. A value of 0 disables write-behind.
+     */
+    UInteger getWriteBehindInterval();
+
+    /**
+     * @return the number of lanes notifications are delivered on, keyed by subscription id. Notifications for a
+     * subscription are always delivered in order, while different lanes are delivered in parallel on the executor. A
+     * value of 0 gives each subscription its own lane.
+     */
+    UInteger getDeliveryLanes();
+
+    /**
+     * @return the number of NotificationMessages that may be queued for delivery on a lane before the lane is full and
+     * {@link #getDeliveryOverflowPolicy()} applies. A value of 0 means no limit.
+     */
+    UInteger getDeliveryQueueCapacity();
+
+    /**
+     * @return the {@link DeliveryOverflowPolicy} applied to NotificationMessages that arrive while their delivery lane
+     * is full.
+     */
+    DeliveryOverflowPolicy getDeliveryOverflowPolicy();
+
+    /**
+     * @return {@code true} if the number of outstanding PublishRequests adapts to the publish round trip time, the
+     * subscriptions' publishing intervals, the server's backlog and Bad_TooManyPublishRequests, rather than being
+     * fixed at two per subscription. {@link #getMaxPendingPublishRequests()} remains the upper limit.
+     */
+    boolean isAdaptivePublishDepth();
+
     /**
      * @return an {@link IdentityProvider} to use when activating a session.
      */
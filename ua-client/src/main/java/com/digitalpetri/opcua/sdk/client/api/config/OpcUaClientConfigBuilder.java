@@ -24,6 +24,7 @@ import java.util.function.Supplier;
 
 import com.digitalpetri.opcua.sdk.client.api.identity.AnonymousProvider;
 import com.digitalpetri.opcua.sdk.client.api.identity.IdentityProvider;
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.DeliveryOverflowPolicy;
 import com.digitalpetri.opcua.stack.client.config.UaTcpStackClientConfig;
 import com.digitalpetri.opcua.stack.client.config.UaTcpStackClientConfigBuilder;
 import com.digitalpetri.opcua.stack.core.channel.ChannelConfig;
@@ -43,6 +44,22 @@ public class OpcUaClientConfigBuilder extends UaTcpStackClientConfigBuilder {
     private UInteger maxResponseMessageSize = uint(0);
     private UInteger requestTimeout = uint(60000);
     private UInteger maxPendingPublishRequests = uint(UInteger.MAX_VALUE);
+    private UInteger maxConcurrentChunks = uint(4);
+    private UInteger maxCoalescedReads = uint(0);
+    private UInteger readCoalescingWindow = uint(0);
+    private boolean readDeduplicationEnabled = false;
+    private UInteger maxInFlightRequests = uint(0);
+    private UInteger maxQueuedRequests = uint(10000);
+    private RequestOverflowPolicy requestOverflowPolicy = RequestOverflowPolicy.FAIL_FAST;
+    private UInteger registerNodesThreshold = uint(0);
+    private UInteger maxRegisteredNodes = uint(10000);
+    private UInteger maxCoalescedCalls = uint(0);
+    private UInteger callCoalescingWindow = uint(0);
+    private UInteger writeBehindInterval = uint(0);
+    private UInteger deliveryLanes = uint(0);
+    private UInteger deliveryQueueCapacity = uint(0);
+    private DeliveryOverflowPolicy deliveryOverflowPolicy = DeliveryOverflowPolicy.BLOCK;
+    private boolean adaptivePublishDepth = false;
     private IdentityProvider identityProvider = new AnonymousProvider();
 
     public OpcUaClientConfigBuilder setSessionName(Supplier<String> sessionName) {
@@ -65,11 +82,91 @@ public class OpcUaClientConfigBuilder extends UaTcpStackClientConfigBuilder {
         return this;
     }
 
+    public OpcUaClientConfigBuilder setMaxConcurrentChunks(UInteger maxConcurrentChunks) {
+        this.maxConcurrentChunks = maxConcurrentChunks;
+        return this;
+    }
+
     public OpcUaClientConfigBuilder setRequestTimeout(UInteger requestTimeout) {
         this.requestTimeout = requestTimeout;
         return this;
     }
 
+    public OpcUaClientConfigBuilder setMaxCoalescedReads(UInteger maxCoalescedReads) {
+        this.maxCoalescedReads = maxCoalescedReads;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setReadCoalescingWindow(UInteger readCoalescingWindow) {
+        this.readCoalescingWindow = readCoalescingWindow;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setReadDeduplicationEnabled(boolean readDeduplicationEnabled) {
+        this.readDeduplicationEnabled = readDeduplicationEnabled;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setMaxInFlightRequests(UInteger maxInFlightRequests) {
+        this.maxInFlightRequests = maxInFlightRequests;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setMaxQueuedRequests(UInteger maxQueuedRequests) {
+        this.maxQueuedRequests = maxQueuedRequests;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setRequestOverflowPolicy(RequestOverflowPolicy requestOverflowPolicy) {
+        this.requestOverflowPolicy = requestOverflowPolicy;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setRegisterNodesThreshold(UInteger registerNodesThreshold) {
+        this.registerNodesThreshold = registerNodesThreshold;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setMaxRegisteredNodes(UInteger maxRegisteredNodes) {
+        this.maxRegisteredNodes = maxRegisteredNodes;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setMaxCoalescedCalls(UInteger maxCoalescedCalls) {
+        this.maxCoalescedCalls = maxCoalescedCalls;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setCallCoalescingWindow(UInteger callCoalescingWindow) {
+        this.callCoalescingWindow = callCoalescingWindow;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setWriteBehindInterval(UInteger writeBehindInterval) {
+        this.writeBehindInterval = writeBehindInterval;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setDeliveryLanes(UInteger deliveryLanes) {
+        this.deliveryLanes = deliveryLanes;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setDeliveryQueueCapacity(UInteger deliveryQueueCapacity) {
+        this.deliveryQueueCapacity = deliveryQueueCapacity;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setDeliveryOverflowPolicy(DeliveryOverflowPolicy deliveryOverflowPolicy) {
+        this.deliveryOverflowPolicy = deliveryOverflowPolicy;
+        return this;
+    }
+
+    public OpcUaClientConfigBuilder setAdaptivePublishDepth(boolean adaptivePublishDepth) {
+        this.adaptivePublishDepth = adaptivePublishDepth;
+        return this;
+    }
+
     public OpcUaClientConfigBuilder setIdentityProvider(IdentityProvider identityProvider) {
         this.identityProvider = identityProvider;
         return this;
@@ -168,7 +265,23 @@ public class OpcUaClientConfigBuilder extends UaTcpStackClientConfigBuilder {
                 sessionTimeout,
                 maxResponseMessageSize,
                 maxPendingPublishRequests,
+                maxConcurrentChunks,
                 requestTimeout,
+                maxCoalescedReads,
+                readCoalescingWindow,
+                readDeduplicationEnabled,
+                maxInFlightRequests,
+                maxQueuedRequests,
+                requestOverflowPolicy,
+                registerNodesThreshold,
+                maxRegisteredNodes,
+                maxCoalescedCalls,
+                callCoalescingWindow,
+                writeBehindInterval,
+                deliveryLanes,
+                deliveryQueueCapacity,
+                deliveryOverflowPolicy,
+                adaptivePublishDepth,
                 identityProvider);
     }
 
@@ -179,7 +292,23 @@ public class OpcUaClientConfigBuilder extends UaTcpStackClientConfigBuilder {
         private final UInteger sessionTimeout;
         private final UInteger maxResponseMessageSize;
         private final UInteger maxPendingPublishRequests;
+        private final UInteger maxConcurrentChunks;
         private final UInteger requestTimeout;
+        private final UInteger maxCoalescedReads;
+        private final UInteger readCoalescingWindow;
+        private final boolean readDeduplicationEnabled;
+        private final UInteger maxInFlightRequests;
+        private final UInteger maxQueuedRequests;
+        private final RequestOverflowPolicy requestOverflowPolicy;
+        private final UInteger registerNodesThreshold;
+        private final UInteger maxRegisteredNodes;
+        private final UInteger maxCoalescedCalls;
+        private final UInteger callCoalescingWindow;
+        private final UInteger writeBehindInterval;
+        private final UInteger deliveryLanes;
+        private final UInteger deliveryQueueCapacity;
+        private final DeliveryOverflowPolicy deliveryOverflowPolicy;
+        private final boolean adaptivePublishDepth;
         private final IdentityProvider identityProvider;
 
         public OpcUaClientConfigImpl(UaTcpStackClientConfig stackClientConfig,
@@ -187,7 +316,23 @@ public class OpcUaClientConfigBuilder extends UaTcpStackClientConfigBuilder {
                                      UInteger sessionTimeout,
                                      UInteger maxResponseMessageSize,
                                      UInteger maxPendingPublishRequests,
+                                     UInteger maxConcurrentChunks,
                                      UInteger requestTimeout,
+                                     UInteger maxCoalescedReads,
+                                     UInteger readCoalescingWindow,
+                                     boolean readDeduplicationEnabled,
+                                     UInteger maxInFlightRequests,
+                                     UInteger maxQueuedRequests,
+                                     RequestOverflowPolicy requestOverflowPolicy,
+                                     UInteger registerNodesThreshold,
+                                     UInteger maxRegisteredNodes,
+                                     UInteger maxCoalescedCalls,
+                                     UInteger callCoalescingWindow,
+                                     UInteger writeBehindInterval,
+                                     UInteger deliveryLanes,
+                                     UInteger deliveryQueueCapacity,
+                                     DeliveryOverflowPolicy deliveryOverflowPolicy,
+                                     boolean adaptivePublishDepth,
                                      IdentityProvider identityProvider) {
 
             this.stackClientConfig = stackClientConfig;
@@ -195,7 +340,23 @@ public class OpcUaClientConfigBuilder extends UaTcpStackClientConfigBuilder {
             this.sessionTimeout = sessionTimeout;
             this.maxResponseMessageSize = maxResponseMessageSize;
             this.maxPendingPublishRequests = maxPendingPublishRequests;
+            this.maxConcurrentChunks = maxConcurrentChunks;
             this.requestTimeout = requestTimeout;
+            this.maxCoalescedReads = maxCoalescedReads;
+            this.readCoalescingWindow = readCoalescingWindow;
+            this.readDeduplicationEnabled = readDeduplicationEnabled;
+            this.maxInFlightRequests = maxInFlightRequests;
+            this.maxQueuedRequests = maxQueuedRequests;
+            this.requestOverflowPolicy = requestOverflowPolicy;
+            this.registerNodesThreshold = registerNodesThreshold;
+            this.maxRegisteredNodes = maxRegisteredNodes;
+            this.maxCoalescedCalls = maxCoalescedCalls;
+            this.callCoalescingWindow = callCoalescingWindow;
+            this.writeBehindInterval = writeBehindInterval;
+            this.deliveryLanes = deliveryLanes;
+            this.deliveryQueueCapacity = deliveryQueueCapacity;
+            this.deliveryOverflowPolicy = deliveryOverflowPolicy;
+            this.adaptivePublishDepth = adaptivePublishDepth;
             this.identityProvider = identityProvider;
         }
 
@@ -219,11 +380,91 @@ public class OpcUaClientConfigBuilder extends UaTcpStackClientConfigBuilder {
             return maxPendingPublishRequests;
         }
 
+        @Override
+        public UInteger getMaxConcurrentChunks() {
+            return maxConcurrentChunks;
+        }
+
         @Override
         public UInteger getRequestTimeout() {
             return requestTimeout;
         }
 
+        @Override
+        public UInteger getMaxCoalescedReads() {
+            return maxCoalescedReads;
+        }
+
+        @Override
+        public UInteger getReadCoalescingWindow() {
+            return readCoalescingWindow;
+        }
+
+        @Override
+        public boolean isReadDeduplicationEnabled() {
+            return readDeduplicationEnabled;
+        }
+
+        @Override
+        public UInteger getMaxInFlightRequests() {
+            return maxInFlightRequests;
+        }
+
+        @Override
+        public UInteger getMaxQueuedRequests() {
+            return maxQueuedRequests;
+        }
+
+        @Override
+        public RequestOverflowPolicy getRequestOverflowPolicy() {
+            return requestOverflowPolicy;
+        }
+
+        @Override
+        public UInteger getRegisterNodesThreshold() {
+            return registerNodesThreshold;
+        }
+
+        @Override
+        public UInteger getMaxRegisteredNodes() {
+            return maxRegisteredNodes;
+        }
+
+        @Override
+        public UInteger getMaxCoalescedCalls() {
+            return maxCoalescedCalls;
+        }
+
+        @Override
+        public UInteger getCallCoalescingWindow() {
+            return callCoalescingWindow;
+        }
+
+        @Override
+        public UInteger getWriteBehindInterval() {
+            return writeBehindInterval;
+        }
+
+        @Override
+        public UInteger getDeliveryLanes() {
+            return deliveryLanes;
+        }
+
+        @Override
+        public UInteger getDeliveryQueueCapacity() {
+            return deliveryQueueCapacity;
+        }
+
+        @Override
+        public DeliveryOverflowPolicy getDeliveryOverflowPolicy() {
+            return deliveryOverflowPolicy;
+        }
+
+        @Override
+        public boolean isAdaptivePublishDepth() {
+            return adaptivePublishDepth;
+        }
+
         @Override
         public IdentityProvider getIdentityProvider() {
             return identityProvider;
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.api.config;
+
+/**
+ * What to do with a new request when the maximum number of requests are in flight and the request queue is full.
+ */
+public enum RequestOverflowPolicy {
+
+    /**
+     * Block the calling thread until there is room in the queue.
+     * <p>
+     * Requests are often sent from callbacks running on the threads that complete responses; blocking one of those
+     * threads can deadlock the client, so only use this when every request is sent from an application thread.
+     */
+    BLOCK,
+
+    /**
+     * Fail the new request immediately with Bad_ResourceUnavailable. This is the default.
+     */
+    FAIL_FAST,
+
+    /**
+     * Fail the oldest queued request with Bad_ResourceUnavailable and queue the new request in its place.
+     */
+    DROP_OLDEST
+
+}
@@ -59,6 +59,25 @@ public interface AttributeServices {
                                          TimestampsToReturn timestampsToReturn,
                                          List<ReadValueId> readValueIds);
 
+    /**
+     * This service is used to read a single attribute of a single node.
+     *
+     * @param maxAge             the requested max age of the value, in milliseconds. If maxAge is set to 0, the Server
+     *                           shall attempt to read a new value from the data source. If maxAge is set to the max
+     *                           Int32 value or greater, the Server shall attempt to get a cached value. Negative values
+     *                           are invalid for maxAge.
+     * @param timestampsToReturn the requested {@link TimestampsToReturn}.
+     * @param readValueId        the {@link ReadValueId} identifying the node and attribute to read.
+     * @return a {@link CompletableFuture} containing the {@link DataValue}.
+     */
+    default CompletableFuture<DataValue> read(double maxAge,
+                                              TimestampsToReturn timestampsToReturn,
+                                              ReadValueId readValueId) {
+
+        return read(maxAge, timestampsToReturn, newArrayList(readValueId))
+                .thenApply(r -> r.getResults()[0]);
+    }
+
     /**
      * This service is used to read one or more attributes of one or more nodes.
      *
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.api.subscriptions;
+
+/**
+ * What happens to a NotificationMessage that arrives while its subscription's delivery queue is full.
+ */
+public enum DeliveryOverflowPolicy {
+
+    /**
+     * Stop sending PublishRequests until the queue has room again. No notifications are lost, but if delivery is
+     * stalled for longer than a subscription's lifetime the server will close the subscription.
+     */
+    BLOCK,
+
+    /**
+     * Discard the message without acknowledging it, leaving it in the server's retransmission queue. It is
+     * republished once the queue has room, for as long as the server retains it. Later messages, including
+     * republished ones, are withheld the same way until then, so the queue never grows past its capacity.
+     */
+    STOP_ACKNOWLEDGING,
+
+    /**
+     * Discard and acknowledge the message, and notify
+     * {@link UaSubscriptionManager.SubscriptionListener#onNotificationDataLost(UaSubscription)}.
+     */
+    DROP
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.api.subscriptions;
+
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+
+/**
+ * A {@link DataValue} and the {@link UaMonitoredItem} it arrived for.
+ */
+public class MonitoredItemValue {
+
+    private final UaMonitoredItem item;
+    private final DataValue value;
+
+    public MonitoredItemValue(UaMonitoredItem item, DataValue value) {
+        this.item = item;
+        this.value = value;
+    }
+
+    public UaMonitoredItem getItem() {
+        return item;
+    }
+
+    public DataValue getValue() {
+        return value;
+    }
+
+}
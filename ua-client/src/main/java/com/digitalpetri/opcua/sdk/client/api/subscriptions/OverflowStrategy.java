@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.api.subscriptions;
+
+/**
+ * What a notification {@link org.reactivestreams.Publisher} does when notifications arrive faster than a subscriber
+ * requests them.
+ */
+public enum OverflowStrategy {
+
+    /**
+     * Buffer up to the buffer size; if the buffer overflows, the subscriber is cancelled and signalled an error.
+     */
+    BUFFER,
+
+    /**
+     * Buffer up to the buffer size; if the buffer is full, the oldest notification is dropped.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Keep only the latest notification, replacing any that has not yet been requested.
+     */
+    LATEST
+
+}
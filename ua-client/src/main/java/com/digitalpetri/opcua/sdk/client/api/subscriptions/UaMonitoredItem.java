@@ -25,6 +25,7 @@ import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
 import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
 import com.digitalpetri.opcua.stack.core.types.enumerated.MonitoringMode;
 import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
+import org.reactivestreams.Publisher;
 
 public interface UaMonitoredItem {
 
@@ -100,4 +101,51 @@ public interface UaMonitoredItem {
      */
     void setEventConsumer(Consumer<Variant[]> eventConsumer);
 
+    /**
+     * Set whether values are conflated before being passed to the value {@link Consumer}.
+     * <p>
+     * When conflating, the value consumer is called asynchronously with only the latest value; values that arrive
+     * while it is busy replace each other rather than queueing, and it is called again once it returns. A slow
+     * consumer therefore never falls behind, at the cost of missing intermediate values.
+     * <p>
+     * Turning conflation off takes effect once a value pending delivery has been delivered; the consumer is never
+     * called concurrently or out of order.
+     * <p>
+     * Values passed to publishers and subscription-level listeners are not affected.
+     *
+     * @param conflating {@code true} to deliver only the latest value.
+     */
+    void setConflating(boolean conflating);
+
+    /**
+     * @return {@code true} if values are conflated before being passed to the value {@link Consumer}.
+     * @see #setConflating(boolean)
+     */
+    boolean isConflating();
+
+    /**
+     * Get a {@link Publisher} of the values that arrive from the server.
+     * <p>
+     * Each {@link org.reactivestreams.Subscriber} has its own demand and receives values that arrive after its first
+     * request; values arriving faster than a subscriber requests them are buffered according to
+     * {@code overflowStrategy}. Subscribers are completed when this item is deleted.
+     *
+     * @param overflowStrategy the {@link OverflowStrategy} applied when a subscriber falls behind.
+     * @param bufferSize       the number of values buffered per subscriber. Ignored for
+     *                         {@link OverflowStrategy#LATEST}.
+     * @return a {@link Publisher} of the values that arrive from the server.
+     */
+    Publisher<DataValue> getValuePublisher(OverflowStrategy overflowStrategy, int bufferSize);
+
+    /**
+     * Get a {@link Publisher} of the events that arrive from the server.
+     *
+     * @param overflowStrategy the {@link OverflowStrategy} applied when a subscriber falls behind.
+     * @param bufferSize       the number of events buffered per subscriber. Ignored for
+     *                         {@link OverflowStrategy#LATEST}.
+     * @return a {@link Publisher} of the events that arrive from the server.
+     * @see #getValuePublisher(OverflowStrategy, int)
+     */
+    Publisher<Variant[]> getEventPublisher(OverflowStrategy overflowStrategy, int bufferSize);
+
 }
@@ -19,7 +19,10 @@ package com.digitalpetri.opcua.sdk.client.api.subscriptions;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
 import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
 import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UByte;
 import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
 import com.digitalpetri.opcua.stack.core.types.enumerated.MonitoringMode;
@@ -27,6 +30,7 @@ import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
 import com.digitalpetri.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
 import com.digitalpetri.opcua.stack.core.types.structured.MonitoredItemModifyRequest;
 import com.google.common.collect.ImmutableList;
+import org.reactivestreams.Publisher;
 
 public interface UaSubscription {
 
@@ -70,6 +74,16 @@ public interface UaSubscription {
      */
     ImmutableList<UaMonitoredItem> getMonitoredItems();
 
+    /**
+     * Allocate a client handle for a new {@link UaMonitoredItem}.
+     * <p>
+     * Handles are allocated densely, starting at 1, and are never reused by this subscription. Items created with
+     * handles from this method are found faster when their notifications arrive than items with arbitrary handles.
+     *
+     * @return the next unused client handle for this subscription.
+     */
+    UInteger nextClientHandle();
+
     /**
      * Create one or more {@link UaMonitoredItem}s.
      * <p>
@@ -122,4 +136,69 @@ public interface UaSubscription {
      */
     CompletableFuture<StatusCode> setPublishingMode(boolean publishingEnabled);
 
+    /**
+     * Add a {@link NotificationListener} that receives every notification for this subscription in bulk.
+     *
+     * @param listener the {@link NotificationListener} to add.
+     */
+    void addNotificationListener(NotificationListener listener);
+
+    /**
+     * Remove a previously added {@link NotificationListener}.
+     *
+     * @param listener the {@link NotificationListener} to remove.
+     */
+    void removeNotificationListener(NotificationListener listener);
+
+    /**
+     * Get a {@link Publisher} of the values that arrive for every {@link UaMonitoredItem} in this subscription.
+     * <p>
+     * Each {@link org.reactivestreams.Subscriber} has its own demand and receives values that arrive after its first
+     * request; values arriving faster than a subscriber requests them are buffered according to
+     * {@code overflowStrategy}. Subscribers are completed when this subscription is deleted.
+     *
+     * @param overflowStrategy the {@link OverflowStrategy} applied when a subscriber falls behind.
+     * @param bufferSize       the number of values buffered per subscriber. Ignored for
+     *                         {@link OverflowStrategy#LATEST}.
+     * @return a {@link Publisher} of the values that arrive for this subscription's items.
+     * @see UaMonitoredItem#getValuePublisher(OverflowStrategy, int)
+     */
+    Publisher<MonitoredItemValue> getValuePublisher(OverflowStrategy overflowStrategy, int bufferSize);
+
+    /**
+     * Receives the contents of each NotificationMessage as a whole, rather than one value or event at a time.
+     * <p>
+     * Callbacks for a subscription are never invoked concurrently, and are invoked in addition to any consumers set on
+     * the individual {@link UaMonitoredItem}s.
+     */
+    interface NotificationListener {
+
+        /**
+         * A DataChangeNotification was received.
+         *
+         * @param subscription the {@link UaSubscription} that received the notification.
+         * @param items        the {@link UaMonitoredItem} each value belongs to.
+         * @param values       the values, the size and order matching {@code items}.
+         * @param publishTime  the time the server published the notification.
+         */
+        default void onDataChanged(UaSubscription subscription,
+                                   List<UaMonitoredItem> items,
+                                   List<DataValue> values,
+                                   DateTime publishTime) {}
+
+        /**
+         * An EventNotificationList was received.
+         *
+         * @param subscription the {@link UaSubscription} that received the notification.
+         * @param items        the {@link UaMonitoredItem} each event belongs to.
+         * @param eventFields  the fields of each event, the size and order matching {@code items}.
+         * @param publishTime  the time the server published the notification.
+         */
+        default void onEvent(UaSubscription subscription,
+                             List<UaMonitoredItem> items,
+                             List<Variant[]> eventFields,
+                             DateTime publishTime) {}
+
+    }
+
 }
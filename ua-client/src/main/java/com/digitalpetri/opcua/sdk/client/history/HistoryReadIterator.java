@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.history;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.digitalpetri.opcua.sdk.client.ContinuationPointIterator;
+import com.digitalpetri.opcua.sdk.client.api.services.AttributeServices;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExtensionObject;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryData;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadDetails;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadResult;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadValueId;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Iterates over the pages of a history read for a single node, following continuation points as it goes.
+ * <p>
+ * The next page is requested while the current one is being consumed, but no more than {@code maxPages} pages are
+ * ever buffered or in flight at once, so memory use is bounded regardless of the size of the time range.
+ * <p>
+ * Closing the iterator before it is exhausted releases the server's continuation point.
+ */
+public class HistoryReadIterator extends ContinuationPointIterator<List<DataValue>> {
+
+    public static final int DEFAULT_MAX_PAGES = 2;
+
+    private final AttributeServices attributeServices;
+    private final HistoryReadDetails historyReadDetails;
+    private final TimestampsToReturn timestampsToReturn;
+    private final HistoryReadValueId nodeToRead;
+
+    public HistoryReadIterator(AttributeServices attributeServices,
+                               HistoryReadDetails historyReadDetails,
+                               TimestampsToReturn timestampsToReturn,
+                               HistoryReadValueId nodeToRead) {
+
+        this(attributeServices, historyReadDetails, timestampsToReturn, nodeToRead, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * @param attributeServices  the {@link AttributeServices} to read history with.
+     * @param historyReadDetails the {@link HistoryReadDetails} describing the read.
+     * @param timestampsToReturn the requested {@link TimestampsToReturn}.
+     * @param nodeToRead         the node to read history for. Its continuation point is ignored.
+     * @param maxPages           the maximum number of pages buffered or in flight at once.
+     */
+    public HistoryReadIterator(AttributeServices attributeServices,
+                               HistoryReadDetails historyReadDetails,
+                               TimestampsToReturn timestampsToReturn,
+                               HistoryReadValueId nodeToRead,
+                               int maxPages) {
+
+        super(maxPages);
+
+        this.attributeServices = attributeServices;
+        this.historyReadDetails = historyReadDetails;
+        this.timestampsToReturn = timestampsToReturn;
+        this.nodeToRead = nodeToRead;
+
+        start();
+    }
+
+    @Override
+    protected CompletableFuture<Page<List<DataValue>>> fetch(ByteString continuationPoint) {
+        return historyRead(false, continuationPoint).thenApply(response -> {
+            HistoryReadResult[] results = response.getResults();
+
+            if (results == null || results.length == 0 || results[0] == null) {
+                throw new CompletionException(
+                        new UaException(StatusCodes.Bad_UnexpectedError, "no HistoryReadResult"));
+            }
+
+            HistoryReadResult result = results[0];
+
+            if (result.getStatusCode().isBad()) {
+                throw new CompletionException(new UaException(result.getStatusCode()));
+            }
+
+            return new Page<>(decode(result.getHistoryData()), result.getContinuationPoint());
+        });
+    }
+
+    @Override
+    protected CompletableFuture<?> release(ByteString continuationPoint) {
+        return historyRead(true, continuationPoint);
+    }
+
+    private CompletableFuture<HistoryReadResponse> historyRead(boolean releaseContinuationPoints,
+                                                               ByteString continuationPoint) {
+
+        HistoryReadValueId id = new HistoryReadValueId(
+                nodeToRead.getNodeId(),
+                nodeToRead.getIndexRange(),
+                nodeToRead.getDataEncoding(),
+                continuationPoint);
+
+        return attributeServices.historyRead(
+                historyReadDetails, timestampsToReturn, releaseContinuationPoints, newArrayList(id));
+    }
+
+    private static List<DataValue> decode(ExtensionObject historyData) {
+        if (historyData == null) return Collections.emptyList();
+
+        Object decoded = historyData.decode();
+
+        if (decoded instanceof HistoryData) {
+            DataValue[] values = ((HistoryData) decoded).getDataValues();
+
+            return values != null ? newArrayList(values) : Collections.emptyList();
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.history;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.digitalpetri.opcua.sdk.client.api.UaClient;
+import com.digitalpetri.opcua.stack.core.Stack;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.enumerated.PerformUpdateType;
+import com.digitalpetri.opcua.stack.core.types.structured.DeleteAtTimeDetails;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryUpdateDetails;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryUpdateResult;
+import com.digitalpetri.opcua.stack.core.types.structured.UpdateDataDetails;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Buffers history inserts, replaces, updates and deletes and writes them in as few HistoryUpdate requests as possible.
+ * <p>
+ * Consecutive operations of the same kind on the same node are merged into a single {@link UpdateDataDetails} or
+ * {@link DeleteAtTimeDetails}. The buffer is flushed when it holds {@code maxBufferedValues} values, when the oldest
+ * buffered value is {@code maxAge} old, or when {@link #flush()} is called.
+ * <p>
+ * Each flush is split into requests of at most MaxNodesPerHistoryUpdateData details, as advertised by the server.
+ * Requests are sent one at a time and flushes are sent in order, so operations on a node are applied in the order
+ * they were submitted.
+ */
+public class HistoryUpdateWriter implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_BUFFERED_VALUES = 10_000;
+    public static final long DEFAULT_MAX_AGE_MILLIS = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private Map<NodeId, List<Operation>> buffer = new LinkedHashMap<>();
+    private int bufferedValues = 0;
+
+    private ScheduledFuture<?> ageFlush;
+    private CompletableFuture<Void> lastFlush = CompletableFuture.completedFuture(null);
+
+    private final UaClient client;
+    private final int maxBufferedValues;
+    private final long maxAgeMillis;
+
+    public HistoryUpdateWriter(UaClient client) {
+        this(client, DEFAULT_MAX_BUFFERED_VALUES, DEFAULT_MAX_AGE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param client            the {@link UaClient} to write history with.
+     * @param maxBufferedValues the number of buffered values that triggers a flush.
+     * @param maxAge            how long a value may stay buffered before triggering a flush.
+     * @param unit              the {@link TimeUnit} of {@code maxAge}.
+     */
+    public HistoryUpdateWriter(UaClient client, int maxBufferedValues, long maxAge, TimeUnit unit) {
+        this.client = client;
+        this.maxBufferedValues = Math.max(1, maxBufferedValues);
+        this.maxAgeMillis = Math.max(1, unit.toMillis(maxAge));
+    }
+
+    /**
+     * Insert a value. The server rejects the insert if a value already exists at its timestamp.
+     *
+     * @param nodeId the node to update history for.
+     * @param value  the {@link DataValue} to insert.
+     * @return a {@link CompletableFuture} containing the {@link StatusCode} of the operation.
+     */
+    public CompletableFuture<StatusCode> insert(NodeId nodeId, DataValue value) {
+        return add(nodeId, PerformUpdateType.Insert, value);
+    }
+
+    /**
+     * Replace a value. The server rejects the replace if no value exists at its timestamp.
+     *
+     * @param nodeId the node to update history for.
+     * @param value  the {@link DataValue} to replace with.
+     * @return a {@link CompletableFuture} containing the {@link StatusCode} of the operation.
+     */
+    public CompletableFuture<StatusCode> replace(NodeId nodeId, DataValue value) {
+        return add(nodeId, PerformUpdateType.Replace, value);
+    }
+
+    /**
+     * Insert a value, or replace it if a value already exists at its timestamp.
+     *
+     * @param nodeId the node to update history for.
+     * @param value  the {@link DataValue} to insert or replace with.
+     * @return a {@link CompletableFuture} containing the {@link StatusCode} of the operation.
+     */
+    public CompletableFuture<StatusCode> update(NodeId nodeId, DataValue value) {
+        return add(nodeId, PerformUpdateType.Update, value);
+    }
+
+    /**
+     * Delete the value at a timestamp.
+     *
+     * @param nodeId the node to update history for.
+     * @param time   the timestamp of the value to delete.
+     * @return a {@link CompletableFuture} containing the {@link StatusCode} of the operation.
+     */
+    public CompletableFuture<StatusCode> delete(NodeId nodeId, DateTime time) {
+        return add(nodeId, null, time);
+    }
+
+    /**
+     * Write everything currently buffered.
+     *
+     * @return a {@link CompletableFuture} that completes once everything buffered so far has been written.
+     */
+    public CompletableFuture<Void> flush() {
+        synchronized (this) {
+            if (ageFlush != null) {
+                ageFlush.cancel(false);
+                ageFlush = null;
+            }
+
+            if (bufferedValues == 0) return lastFlush;
+
+            List<Operation> operations = newArrayList();
+            buffer.values().forEach(operations::addAll);
+
+            buffer = new LinkedHashMap<>();
+            bufferedValues = 0;
+
+            lastFlush = lastFlush.thenCompose(v -> write(operations));
+
+            return lastFlush;
+        }
+    }
+
+    /**
+     * Flush and wait for everything buffered to be written.
+     */
+    @Override
+    public void close() {
+        flush().join();
+    }
+
+    private CompletableFuture<StatusCode> add(NodeId nodeId, PerformUpdateType type, Object value) {
+        CompletableFuture<StatusCode> future = new CompletableFuture<>();
+
+        boolean full;
+
+        synchronized (this) {
+            List<Operation> operations = buffer.computeIfAbsent(nodeId, id -> newArrayList());
+
+            Operation last = operations.isEmpty() ? null : operations.get(operations.size() - 1);
+
+            if (last == null || last.type != type) {
+                last = new Operation(nodeId, type);
+                operations.add(last);
+            }
+
+            last.values.add(value);
+            last.futures.add(future);
+
+            full = ++bufferedValues >= maxBufferedValues;
+
+            if (!full && ageFlush == null) {
+                ageFlush = Stack.sharedScheduledExecutor().schedule(
+                        this::flush, maxAgeMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (full) flush();
+
+        return future;
+    }
+
+    private CompletableFuture<Void> write(List<Operation> operations) {
+        return client.getSession().thenCompose(session -> {
+            int limit = session.getOperationLimits().getMaxNodesPerHistoryUpdateData().intValue();
+
+            List<List<Operation>> chunks = limit > 0 ?
+                    Lists.partition(operations, limit) :
+                    Collections.singletonList(operations);
+
+            CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+
+            for (List<Operation> chunk : chunks) {
+                future = future.thenCompose(v -> writeChunk(chunk));
+            }
+
+            return future;
+        }).handle((v, ex) -> {
+            if (ex != null) {
+                logger.debug("HistoryUpdate failed: {}", ex.getMessage(), ex);
+
+                operations.forEach(o -> o.futures.forEach(f -> f.completeExceptionally(ex)));
+            }
+
+            return null;
+        });
+    }
+
+    private CompletableFuture<Void> writeChunk(List<Operation> chunk) {
+        List<HistoryUpdateDetails> details = newArrayList();
+
+        for (Operation operation : chunk) {
+            details.add(operation.toDetails());
+        }
+
+        return client.historyUpdate(details).thenAccept(response -> {
+            HistoryUpdateResult[] results = response.getResults();
+
+            for (int i = 0; i < chunk.size(); i++) {
+                Operation operation = chunk.get(i);
+                HistoryUpdateResult result = results[i];
+                StatusCode[] operationResults = result.getOperationResults();
+
+                for (int j = 0; j < operation.futures.size(); j++) {
+                    StatusCode statusCode = operationResults != null && j < operationResults.length ?
+                            operationResults[j] : result.getStatusCode();
+
+                    operation.futures.get(j).complete(statusCode);
+                }
+            }
+        });
+    }
+
+    private static class Operation {
+        final List<Object> values = newArrayList();
+        final List<CompletableFuture<StatusCode>> futures = newArrayList();
+
+        final NodeId nodeId;
+        final PerformUpdateType type;
+
+        /**
+         * @param type the {@link PerformUpdateType}, or {@code null} for a delete.
+         */
+        Operation(NodeId nodeId, PerformUpdateType type) {
+            this.nodeId = nodeId;
+            this.type = type;
+        }
+
+        HistoryUpdateDetails toDetails() {
+            if (type == null) {
+                return new DeleteAtTimeDetails(nodeId, values.toArray(new DateTime[values.size()]));
+            } else {
+                return new UpdateDataDetails(nodeId, type, values.toArray(new DataValue[values.size()]));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.history;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+import com.digitalpetri.opcua.sdk.client.api.services.AttributeServices;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExtensionObject;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryData;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadResult;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadValueId;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadRawModifiedDetails;
+import com.digitalpetri.opcua.stack.core.util.AsyncSemaphore;
+
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Reads raw history for a long time range by splitting it into sub-ranges and reading them concurrently.
+ * <p>
+ * Each sub-range is read to completion, following continuation points, and the results are joined in timestamp order.
+ * Values within a sub-range are kept as the server returned them. Only values a sub-range repeats from the end of the
+ * previous one, at the boundary timestamp and with the same value and status, are dropped.
+ * <p>
+ * The number of concurrent reads is limited per reader, so one reader should be shared by everything reading from
+ * the same server.
+ */
+public class PartitionedHistoryReader {
+
+    private final AsyncSemaphore semaphore;
+
+    private final AttributeServices attributeServices;
+
+    /**
+     * @param attributeServices  the {@link AttributeServices} to read history with.
+     * @param maxConcurrentReads the maximum number of history reads in flight at once.
+     */
+    public PartitionedHistoryReader(AttributeServices attributeServices, int maxConcurrentReads) {
+        this.attributeServices = attributeServices;
+        this.semaphore = new AsyncSemaphore(Math.max(1, maxConcurrentReads));
+    }
+
+    /**
+     * Read raw (or modified) history for a node, split into {@code partitions} equal time ranges.
+     * <p>
+     * The time range is only split when it runs forward and the details neither limit the number of values per node
+     * nor ask for bounding values; otherwise it is read as a single range. A server returns bounds for every range it
+     * is asked for, so bounds requested at the ends of the full range would also appear at the interior boundaries.
+     *
+     * @param details            the {@link ReadRawModifiedDetails} describing the full time range.
+     * @param timestampsToReturn the requested {@link TimestampsToReturn}.
+     * @param nodeToRead         the node to read history for.
+     * @param partitions         the number of sub-ranges to split the time range into.
+     * @return a {@link CompletableFuture} containing every value in the time range, in timestamp order.
+     */
+    public CompletableFuture<List<DataValue>> readRaw(ReadRawModifiedDetails details,
+                                                      TimestampsToReturn timestampsToReturn,
+                                                      HistoryReadValueId nodeToRead,
+                                                      int partitions) {
+
+        List<ReadRawModifiedDetails> ranges = partition(details, partitions);
+
+        List<CompletableFuture<List<DataValue>>> futures = newArrayList();
+
+        for (ReadRawModifiedDetails range : ranges) {
+            futures.add(semaphore.acquire().thenCompose(permit ->
+                    readAll(range, timestampsToReturn, nodeToRead, ByteString.NULL_VALUE, newArrayList())
+                            .whenComplete((v, ex) -> permit.release())));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(v -> {
+            List<DataValue> values = newArrayList();
+
+            for (CompletableFuture<List<DataValue>> future : futures) {
+                List<DataValue> partition = future.join();
+
+                values.addAll(partition.subList(overlap(values, partition), partition.size()));
+            }
+
+            return values;
+        });
+    }
+
+    private CompletableFuture<List<DataValue>> readAll(ReadRawModifiedDetails details,
+                                                       TimestampsToReturn timestampsToReturn,
+                                                       HistoryReadValueId nodeToRead,
+                                                       ByteString continuationPoint,
+                                                       List<DataValue> values) {
+
+        HistoryReadValueId id = new HistoryReadValueId(
+                nodeToRead.getNodeId(),
+                nodeToRead.getIndexRange(),
+                nodeToRead.getDataEncoding(),
+                continuationPoint);
+
+        return attributeServices.historyRead(details, timestampsToReturn, false, newArrayList(id))
+                .thenCompose(response -> {
+                    HistoryReadResult[] results = response.getResults();
+
+                    if (results == null || results.length == 0 || results[0] == null) {
+                        CompletableFuture<List<DataValue>> failed = new CompletableFuture<>();
+                        failed.completeExceptionally(
+                                new UaException(StatusCodes.Bad_UnexpectedError, "no HistoryReadResult"));
+                        return failed;
+                    }
+
+                    HistoryReadResult result = results[0];
+
+                    if (result.getStatusCode().isBad()) {
+                        CompletableFuture<List<DataValue>> failed = new CompletableFuture<>();
+                        failed.completeExceptionally(new UaException(result.getStatusCode()));
+                        return failed;
+                    }
+
+                    ExtensionObject historyData = result.getHistoryData();
+
+                    if (historyData != null) {
+                        Object decoded = historyData.decode();
+
+                        if (decoded instanceof HistoryData && ((HistoryData) decoded).getDataValues() != null) {
+                            values.addAll(newArrayList(((HistoryData) decoded).getDataValues()));
+                        }
+                    }
+
+                    ByteString cp = result.getContinuationPoint();
+
+                    if (cp != null && cp.isNotNull()) {
+                        return readAll(details, timestampsToReturn, nodeToRead, cp, values);
+                    } else {
+                        return CompletableFuture.completedFuture(values);
+                    }
+                });
+    }
+
+    private static List<ReadRawModifiedDetails> partition(ReadRawModifiedDetails details, int partitions) {
+        DateTime start = details.getStartTime();
+        DateTime end = details.getEndTime();
+
+        boolean splittable = partitions > 1 &&
+                start != null && !start.isNull() &&
+                end != null && !end.isNull() &&
+                start.getUtcTime() < end.getUtcTime() &&
+                (details.getNumValuesPerNode() == null || details.getNumValuesPerNode().longValue() == 0) &&
+                (details.getReturnBounds() == null || !details.getReturnBounds());
+
+        if (!splittable) return newArrayList(details);
+
+        long startTime = start.getUtcTime();
+        long span = end.getUtcTime() - startTime;
+        int count = (int) Math.min(partitions, span);
+
+        List<ReadRawModifiedDetails> ranges = newArrayList();
+
+        for (int i = 0; i < count; i++) {
+            long s = startTime + span * i / count;
+            long e = startTime + span * (i + 1) / count;
+
+            ranges.add(new ReadRawModifiedDetails(
+                    details.getIsReadModified(),
+                    new DateTime(s),
+                    new DateTime(e),
+                    uint(0),
+                    false));
+        }
+
+        return ranges;
+    }
+
+    /**
+     * @return the number of leading values in {@code next} that repeat the values at the end of {@code previous}, i.e.
+     * the length of the longest run, all at the timestamps of the last value of {@code previous}, that ends
+     * {@code previous} and starts {@code next} with the same timestamps, values and statuses.
+     */
+    static int overlap(List<DataValue> previous, List<DataValue> next) {
+        if (previous.isEmpty()) return 0;
+
+        DataValue last = previous.get(previous.size() - 1);
+
+        int run = 0;
+        while (run < previous.size() && sameTimestamps(previous.get(previous.size() - 1 - run), last)) {
+            run++;
+        }
+
+        for (int k = Math.min(run, next.size()); k > 0; k--) {
+            int offset = previous.size() - k;
+            boolean matches = true;
+
+            for (int i = 0; i < k && matches; i++) {
+                matches = sameValue(previous.get(offset + i), next.get(i));
+            }
+
+            if (matches) return k;
+        }
+
+        return 0;
+    }
+
+    private static boolean sameTimestamps(DataValue a, DataValue b) {
+        return Objects.equals(a.getSourceTime(), b.getSourceTime()) &&
+                Objects.equals(a.getServerTime(), b.getServerTime());
+    }
+
+    private static boolean sameValue(DataValue a, DataValue b) {
+        return sameTimestamps(a, b) &&
+                Objects.equals(a.getValue(), b.getValue()) &&
+                Objects.equals(a.getStatusCode(), b.getStatusCode());
+    }
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.methods;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.digitalpetri.opcua.sdk.client.api.UaClient;
+import com.digitalpetri.opcua.stack.core.BuiltinDataType;
+import com.digitalpetri.opcua.stack.core.Identifiers;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UByte;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.ULong;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UShort;
+import com.digitalpetri.opcua.stack.core.types.structured.Argument;
+import com.google.common.collect.ImmutableMap;
+
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.ulong;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
+
+/**
+ * A method whose input arguments are checked against its {@link MethodArguments} before it is called.
+ * <p>
+ * Plain Java values are converted to the argument's builtin type where that can be done without loss, e.g. an
+ * {@link Integer} to a {@link UInteger} or a {@link Short}. Arguments that are missing, surplus, of the wrong type or
+ * out of range fail the call with a {@link UaMethodException} without a request being sent.
+ * <p>
+ * Arguments of a structured or otherwise non-builtin type are passed through unchecked.
+ *
+ * @see MethodMetadataCache
+ */
+public class CheckedUaMethod extends AbstractUaMethod {
+
+    /**
+     * Commonly used subtypes of builtin types, mapped to the builtin type they are encoded as.
+     */
+    private static final Map<NodeId, BuiltinDataType> SUBTYPES = ImmutableMap.<NodeId, BuiltinDataType>builder()
+            .put(Identifiers.Duration, BuiltinDataType.Double)
+            .put(Identifiers.UtcTime, BuiltinDataType.DateTime)
+            .put(Identifiers.LocaleId, BuiltinDataType.String)
+            .put(Identifiers.NumericRange, BuiltinDataType.String)
+            .put(Identifiers.Counter, BuiltinDataType.UInt32)
+            .put(Identifiers.IntegerId, BuiltinDataType.UInt32)
+            .put(Identifiers.Enumeration, BuiltinDataType.Int32)
+            .build();
+
+    private final MethodArguments arguments;
+
+    public CheckedUaMethod(UaClient client, NodeId objectId, NodeId methodId, MethodArguments arguments) {
+        super(client, objectId, methodId);
+
+        this.arguments = arguments;
+    }
+
+    public MethodArguments getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Check and convert {@code inputArguments} and, if they are valid, call the method.
+     *
+     * @param inputArguments the input argument values, either plain Java values or {@link Variant}s.
+     * @return a {@link CompletableFuture} containing the output argument values.
+     */
+    public CompletableFuture<Object[]> call(Object... inputArguments) {
+        Variant[] checked;
+
+        try {
+            checked = check(inputArguments);
+        } catch (UaMethodException e) {
+            CompletableFuture<Object[]> f = new CompletableFuture<>();
+            f.completeExceptionally(e);
+            return f;
+        }
+
+        return invoke(checked).thenApply(outputArguments -> {
+            // A method with no output arguments may return null rather than an empty array.
+            if (outputArguments == null) return new Object[0];
+
+            Object[] values = new Object[outputArguments.length];
+
+            for (int i = 0; i < outputArguments.length; i++) {
+                values[i] = outputArguments[i] != null ? outputArguments[i].getValue() : null;
+            }
+
+            return values;
+        });
+    }
+
+    /**
+     * Check and convert {@code inputArguments} against the method's input {@link Argument}s.
+     *
+     * @param inputArguments the input argument values, either plain Java values or {@link Variant}s.
+     * @return the converted input arguments.
+     * @throws UaMethodException if the number of arguments is wrong or any argument is invalid, in which case the
+     *                           input argument results identify the invalid arguments.
+     */
+    public Variant[] check(Object... inputArguments) throws UaMethodException {
+        List<Argument> expected = arguments.getInputArguments();
+
+        if (inputArguments.length < expected.size()) {
+            throw new UaMethodException(StatusCodes.Bad_ArgumentsMissing, null, null);
+        } else if (inputArguments.length > expected.size()) {
+            throw new UaMethodException(StatusCodes.Bad_TooManyArguments, null, null);
+        }
+
+        Variant[] converted = new Variant[inputArguments.length];
+        StatusCode[] results = new StatusCode[inputArguments.length];
+        boolean valid = true;
+
+        for (int i = 0; i < inputArguments.length; i++) {
+            Object value = inputArguments[i];
+
+            if (value instanceof Variant) value = ((Variant) value).getValue();
+
+            Argument argument = expected.get(i);
+
+            try {
+                converted[i] = new Variant(convert(value, argument));
+                results[i] = StatusCode.GOOD;
+            } catch (ArgumentException e) {
+                results[i] = new StatusCode(e.statusCode);
+                valid = false;
+            }
+        }
+
+        if (!valid) {
+            throw new UaMethodException(StatusCodes.Bad_InvalidArgument, results, null);
+        }
+
+        return converted;
+    }
+
+    private static Object convert(Object value, Argument argument) throws ArgumentException {
+        Class<?> backingClass = backingClass(argument.getDataType());
+
+        if (backingClass == null || value == null) return value;
+
+        int valueRank = argument.getValueRank() != null ? argument.getValueRank() : -1;
+
+        if (value.getClass().isArray()) {
+            if (valueRank == -1) throw new ArgumentException(StatusCodes.Bad_TypeMismatch);
+
+            Class<?> componentType = value.getClass().getComponentType();
+
+            if (componentType.isArray()) {
+                // Multi-dimensional arrays are passed through.
+                return value;
+            }
+
+            int length = Array.getLength(value);
+            Object array = Array.newInstance(backingClass, length);
+
+            for (int i = 0; i < length; i++) {
+                Array.set(array, i, convertScalar(Array.get(value, i), backingClass));
+            }
+
+            return array;
+        } else {
+            // Any rank of 0 (OneOrMoreDimensions) or more requires an array.
+            if (valueRank >= 0) throw new ArgumentException(StatusCodes.Bad_TypeMismatch);
+
+            return convertScalar(value, backingClass);
+        }
+    }
+
+    private static Class<?> backingClass(NodeId dataType) {
+        if (dataType == null || Identifiers.BaseDataType.equals(dataType)) return null;
+
+        BuiltinDataType subtype = SUBTYPES.get(dataType);
+
+        if (subtype != null) return subtype.getBackingClass();
+
+        if (BuiltinDataType.isBuiltin(dataType)) {
+            Class<?> backingClass = BuiltinDataType.getBackingClass(dataType);
+
+            return backingClass == Variant.class ? null : backingClass;
+        }
+
+        return null;
+    }
+
+    private static Object convertScalar(Object value, Class<?> target) throws ArgumentException {
+        if (value == null || target.isInstance(value)) return value;
+
+        if (value instanceof Number || value instanceof UByte || value instanceof UShort ||
+                value instanceof UInteger || value instanceof ULong) {
+
+            try {
+                Object converted = convertNumber(value, target);
+                if (converted != null) return converted;
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new ArgumentException(StatusCodes.Bad_OutOfRange);
+            }
+        }
+
+        throw new ArgumentException(StatusCodes.Bad_TypeMismatch);
+    }
+
+    private static Object convertNumber(Object value, Class<?> target) {
+        boolean floating = value instanceof Float || value instanceof Double;
+
+        if (target == Double.class || target == Float.class) {
+            // A Float widens to a Double exactly; a Double doesn't narrow to a Float.
+            if (floating) return target == Double.class ? ((Number) value).doubleValue() : null;
+
+            BigInteger big = new BigInteger(value.toString());
+            Number converted = target == Double.class ? (Number) big.doubleValue() : (Number) big.floatValue();
+
+            // Integers beyond the precision of the target would be rounded; infinity fails the conversion too.
+            if (!new BigDecimal(converted.doubleValue()).toBigIntegerExact().equals(big)) {
+                throw new ArithmeticException("not exactly representable: " + value);
+            }
+
+            return converted;
+        } else if (floating) {
+            return null;
+        }
+
+        BigInteger big = new BigInteger(value.toString());
+
+        if (target == Long.class) {
+            return big.longValueExact();
+        } else if (target == Integer.class) {
+            return big.intValueExact();
+        } else if (target == Short.class) {
+            return big.shortValueExact();
+        } else if (target == Byte.class) {
+            return big.byteValueExact();
+        } else if (target == ULong.class) {
+            return ulong(big);
+        } else if (target == UInteger.class) {
+            return uint(big.longValueExact());
+        } else if (target == UShort.class) {
+            return ushort(big.intValueExact());
+        } else if (target == UByte.class) {
+            return ubyte(big.longValueExact());
+        } else {
+            return null;
+        }
+    }
+
+    private static class ArgumentException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final long statusCode;
+
+        ArgumentException(long statusCode) {
+            super(null, null, false, false);
+
+            this.statusCode = statusCode;
+        }
+    }
+
+}
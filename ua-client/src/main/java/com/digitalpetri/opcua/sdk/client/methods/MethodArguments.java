@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.methods;
+
+import java.util.List;
+
+import com.digitalpetri.opcua.stack.core.types.structured.Argument;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The input and output {@link Argument}s of a method, as described by its InputArguments and OutputArguments
+ * properties.
+ */
+public final class MethodArguments {
+
+    private final ImmutableList<Argument> inputArguments;
+    private final ImmutableList<Argument> outputArguments;
+
+    public MethodArguments(List<Argument> inputArguments, List<Argument> outputArguments) {
+        this.inputArguments = ImmutableList.copyOf(inputArguments);
+        this.outputArguments = ImmutableList.copyOf(outputArguments);
+    }
+
+    public ImmutableList<Argument> getInputArguments() {
+        return inputArguments;
+    }
+
+    public ImmutableList<Argument> getOutputArguments() {
+        return outputArguments;
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.methods;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+
+import com.digitalpetri.opcua.sdk.client.OpcUaClient;
+import com.digitalpetri.opcua.sdk.client.nodes.BrowsePathCache;
+import com.digitalpetri.opcua.stack.core.AttributeId;
+import com.digitalpetri.opcua.stack.core.Identifiers;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExtensionObject;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.QualifiedName;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.Argument;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowsePath;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowsePathResult;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
+import com.digitalpetri.opcua.stack.core.types.structured.RelativePath;
+import com.digitalpetri.opcua.stack.core.types.structured.RelativePathElement;
+import com.google.common.collect.Maps;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Reads and caches the InputArguments and OutputArguments of methods, and creates {@link CheckedUaMethod}s from them.
+ * <p>
+ * The metadata for a method is read once, on first use. Concurrent requests for the same method share the read. A
+ * failed read is not cached, and neither is one that failed for a reason that may be transient, such as a timeout;
+ * only a missing InputArguments or OutputArguments property is cached as "no arguments".
+ * <p>
+ * Metadata is kept only as long as the client's {@link BrowsePathCache} would keep the paths it was found by: it is
+ * read again once a model change has invalidated that cache, and on every use while model changes aren't monitored.
+ */
+public class MethodMetadataCache {
+
+    private static final QualifiedName INPUT_ARGUMENTS = new QualifiedName(0, "InputArguments");
+    private static final QualifiedName OUTPUT_ARGUMENTS = new QualifiedName(0, "OutputArguments");
+
+    private final ConcurrentMap<NodeId, Entry> cache = Maps.newConcurrentMap();
+
+    private final OpcUaClient client;
+
+    public MethodMetadataCache(OpcUaClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Get a {@link CheckedUaMethod} for a method, reading its argument metadata if it is not already cached.
+     *
+     * @param objectId the {@link NodeId} of the object the method is called on.
+     * @param methodId the {@link NodeId} of the method.
+     * @return a {@link CompletableFuture} containing the {@link CheckedUaMethod}.
+     */
+    public CompletableFuture<CheckedUaMethod> getMethod(NodeId objectId, NodeId methodId) {
+        return getArguments(methodId).thenApply(arguments ->
+                new CheckedUaMethod(client, objectId, methodId, arguments));
+    }
+
+    /**
+     * Get the {@link MethodArguments} of a method, reading them if they are not already cached.
+     * <p>
+     * A method without an InputArguments or OutputArguments property has no input or output arguments, respectively.
+     *
+     * @param methodId the {@link NodeId} of the method.
+     * @return a {@link CompletableFuture} containing the {@link MethodArguments}.
+     */
+    public CompletableFuture<MethodArguments> getArguments(NodeId methodId) {
+        BrowsePathCache browsePathCache = client.getBrowsePathCache();
+
+        Entry entry = cache.get(methodId);
+
+        if (entry != null && entry.future.isDone() &&
+                (entry.generation != browsePathCache.getGeneration() || !browsePathCache.isMonitoring())) {
+
+            // The model may have changed since the arguments were read.
+            cache.remove(methodId, entry);
+            entry = null;
+        }
+
+        if (entry == null) {
+            CompletableFuture<MethodArguments> f = new CompletableFuture<>();
+            Entry e = new Entry(browsePathCache.getGeneration(), f);
+
+            entry = cache.putIfAbsent(methodId, e);
+
+            if (entry == null) {
+                entry = e;
+
+                CompletableFuture<MethodArguments> read;
+
+                try {
+                    read = readArguments(methodId);
+                } catch (Throwable t) {
+                    read = new CompletableFuture<>();
+                    read.completeExceptionally(t);
+                }
+
+                read.whenComplete((arguments, ex) -> {
+                    if (arguments != null) {
+                        f.complete(arguments);
+                    } else {
+                        cache.remove(methodId, e);
+                        f.completeExceptionally(ex);
+                    }
+                });
+            }
+        }
+
+        return entry.future;
+    }
+
+    public void invalidate(NodeId methodId) {
+        cache.remove(methodId);
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    private CompletableFuture<MethodArguments> readArguments(NodeId methodId) {
+        List<BrowsePath> browsePaths = newArrayList(
+                propertyPath(methodId, INPUT_ARGUMENTS),
+                propertyPath(methodId, OUTPUT_ARGUMENTS));
+
+        return client.getBrowsePathCache().translate(browsePaths).thenCompose(results -> {
+            if (results == null || results.size() < browsePaths.size()) {
+                throw new CompletionException(new UaException(StatusCodes.Bad_UnexpectedError,
+                        String.format("expected %d results, received %d",
+                                browsePaths.size(), results == null ? 0 : results.size())));
+            }
+
+            List<ReadValueId> readValueIds = newArrayList();
+
+            for (BrowsePathResult result : results) {
+                NodeId propertyId = NodeId.NULL_VALUE;
+
+                if (result.getStatusCode().isGood() &&
+                        result.getTargets() != null && result.getTargets().length > 0) {
+
+                    propertyId = result.getTargets()[0].getTargetId().local().orElse(NodeId.NULL_VALUE);
+                } else if (!isMissing(result.getStatusCode())) {
+                    // Anything but a definite "not there" may succeed later; fail rather than cache no arguments.
+                    throw new CompletionException(new UaException(result.getStatusCode(),
+                            "failed to translate argument property of " + methodId));
+                }
+
+                readValueIds.add(new ReadValueId(
+                        propertyId, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE));
+            }
+
+            // A property that was found but no longer exists reads as Bad_NodeIdUnknown, i.e. no arguments.
+            return client.read(0.0, TimestampsToReturn.Neither, readValueIds).thenApply(response -> {
+                DataValue[] values = response.getResults();
+
+                if (values == null || values.length < readValueIds.size()) {
+                    throw new CompletionException(new UaException(StatusCodes.Bad_UnexpectedError,
+                            String.format("expected %d results, received %d",
+                                    readValueIds.size(), values == null ? 0 : values.length)));
+                }
+
+                return new MethodArguments(
+                        toArguments(methodId, readValueIds.get(0), values[0]),
+                        toArguments(methodId, readValueIds.get(1), values[1]));
+            });
+        });
+    }
+
+    /**
+     * @return {@code true} if {@code statusCode} means the property, or the method itself, definitely doesn't exist.
+     */
+    private static boolean isMissing(StatusCode statusCode) {
+        long value = statusCode.getValue();
+
+        return value == StatusCodes.Bad_NoMatch || value == StatusCodes.Bad_NodeIdUnknown;
+    }
+
+    private static BrowsePath propertyPath(NodeId methodId, QualifiedName browseName) {
+        return new BrowsePath(methodId, new RelativePath(new RelativePathElement[]{
+                new RelativePathElement(Identifiers.HasProperty, false, false, browseName)
+        }));
+    }
+
+    private static List<Argument> toArguments(NodeId methodId, ReadValueId readValueId, DataValue value) {
+        // The property wasn't found; whatever the server said about reading the null NodeId doesn't matter.
+        if (readValueId.getNodeId().isNull()) return Collections.emptyList();
+
+        StatusCode statusCode = value.getStatusCode();
+
+        if (statusCode != null && statusCode.isBad()) {
+            if (isMissing(statusCode)) return Collections.emptyList();
+
+            throw new CompletionException(new UaException(statusCode,
+                    "failed to read argument property of " + methodId));
+        }
+
+        Object o = value.getValue() != null ? value.getValue().getValue() : null;
+
+        if (!(o instanceof ExtensionObject[])) return Collections.emptyList();
+
+        List<Argument> arguments = newArrayList();
+
+        for (ExtensionObject xo : (ExtensionObject[]) o) {
+            Object decoded = xo.decode();
+
+            if (decoded instanceof Argument) {
+                arguments.add((Argument) decoded);
+            }
+        }
+
+        return arguments;
+    }
+
+    private static class Entry {
+        /**
+         * The {@link BrowsePathCache} generation before the arguments were read.
+         */
+        final long generation;
+
+        final CompletableFuture<MethodArguments> future;
+
+        Entry(long generation, CompletableFuture<MethodArguments> future) {
+            this.generation = generation;
+            this.future = future;
+        }
+    }
+
+}
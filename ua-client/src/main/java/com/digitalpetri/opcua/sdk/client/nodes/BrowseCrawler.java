@@ -0,0 +1,304 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.nodes;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import com.digitalpetri.opcua.sdk.client.api.services.ViewServices;
+import com.digitalpetri.opcua.stack.core.Identifiers;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.enumerated.BrowseDirection;
+import com.digitalpetri.opcua.stack.core.types.enumerated.BrowseResultMask;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowseDescription;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowseResult;
+import com.digitalpetri.opcua.stack.core.types.structured.ReferenceDescription;
+import com.digitalpetri.opcua.stack.core.types.structured.ViewDescription;
+import com.digitalpetri.opcua.stack.core.util.AsyncSemaphore;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Walks the address space from a starting node, following hierarchical references, one level at a time.
+ * <p>
+ * Each level is browsed in requests of up to {@code maxNodesPerRequest} nodes, with at most
+ * {@code maxConcurrentRequests} requests outstanding. Continuation points are followed with BrowseNext until every
+ * node's references are complete, and each node is browsed at most once.
+ */
+public class BrowseCrawler {
+
+    public static final int DEFAULT_MAX_NODES_PER_REQUEST = 500;
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+    public static final int DEFAULT_MAX_REFERENCES_PER_NODE = 0;
+
+    private static final ViewDescription DEFAULT_VIEW =
+            new ViewDescription(NodeId.NULL_VALUE, DateTime.MIN_VALUE, uint(0));
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ViewServices viewServices;
+    private final NodeId referenceTypeId;
+    private final int maxNodesPerRequest;
+    private final int maxConcurrentRequests;
+    private final int maxReferencesPerNode;
+
+    public BrowseCrawler(ViewServices viewServices) {
+        this(viewServices,
+                Identifiers.HierarchicalReferences,
+                DEFAULT_MAX_NODES_PER_REQUEST,
+                DEFAULT_MAX_CONCURRENT_REQUESTS,
+                DEFAULT_MAX_REFERENCES_PER_NODE);
+    }
+
+    /**
+     * @param viewServices          the {@link ViewServices} to browse with.
+     * @param referenceTypeId       the type of references to follow, including subtypes.
+     * @param maxNodesPerRequest    the maximum number of nodes browsed per request.
+     * @param maxConcurrentRequests the maximum number of browse requests outstanding at once.
+     * @param maxReferencesPerNode  the maximum number of references the server should return per node before
+     *                              returning a continuation point, or 0 to let the server decide.
+     */
+    public BrowseCrawler(ViewServices viewServices,
+                         NodeId referenceTypeId,
+                         int maxNodesPerRequest,
+                         int maxConcurrentRequests,
+                         int maxReferencesPerNode) {
+
+        this.viewServices = viewServices;
+        this.referenceTypeId = referenceTypeId;
+        this.maxNodesPerRequest = Math.max(1, maxNodesPerRequest);
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+        this.maxReferencesPerNode = Math.max(0, maxReferencesPerNode);
+    }
+
+    /**
+     * Crawl the address space starting at {@code root}.
+     * <p>
+     * {@code consumer} receives each browsed node along with all of its references as soon as they are available. It
+     * may be invoked concurrently from multiple threads.
+     *
+     * @param root     the {@link NodeId} to start crawling from.
+     * @param consumer receives each browsed node and its references.
+     * @return a {@link CompletableFuture} containing the number of nodes browsed, completed once the crawl is done.
+     */
+    public CompletableFuture<Long> crawl(NodeId root, BiConsumer<NodeId, List<ReferenceDescription>> consumer) {
+        Crawl crawl = new Crawl(consumer);
+        crawl.visited.add(root);
+
+        crawlLevel(crawl, Collections.singletonList(root));
+
+        return crawl.future;
+    }
+
+    private void crawlLevel(Crawl crawl, List<NodeId> level) {
+        logger.debug("Browsing {} nodes.", level.size());
+
+        Queue<NodeId> nextLevel = new ConcurrentLinkedQueue<>();
+
+        CompletableFuture<?>[] futures = Lists.partition(level, maxNodesPerRequest).stream()
+                .map(chunk -> crawl.semaphore.acquire().thenCompose(permit ->
+                        browseChunk(crawl, chunk, nextLevel).whenComplete((v, ex) -> {
+                            permit.release();
+
+                            // Fail right away so the other chunks stop browsing.
+                            if (ex != null) crawl.future.completeExceptionally(ex);
+                        })))
+                .toArray(CompletableFuture<?>[]::new);
+
+        CompletableFuture.allOf(futures).whenComplete((v, ex) -> {
+            if (ex != null) {
+                crawl.future.completeExceptionally(ex);
+            } else if (nextLevel.isEmpty()) {
+                crawl.future.complete(crawl.browsed.get());
+            } else {
+                crawlLevel(crawl, newArrayList(nextLevel));
+            }
+        });
+    }
+
+    private CompletableFuture<Void> browseChunk(Crawl crawl, List<NodeId> chunk, Queue<NodeId> nextLevel) {
+        if (crawl.future.isDone()) return CompletableFuture.completedFuture(null);
+
+        List<BrowseDescription> nodesToBrowse = chunk.stream()
+                .map(nodeId -> new BrowseDescription(
+                        nodeId,
+                        BrowseDirection.Forward,
+                        referenceTypeId,
+                        true,
+                        uint(0),
+                        uint(BrowseResultMask.All.getValue())))
+                .collect(Collectors.toList());
+
+        List<List<ReferenceDescription>> references = newArrayList();
+        List<Integer> indices = newArrayList();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            references.add(newArrayList());
+            indices.add(i);
+        }
+
+        return viewServices.browse(DEFAULT_VIEW, uint(maxReferencesPerNode), nodesToBrowse)
+                .thenCompose(response -> follow(crawl, chunk, references, indices, response.getResults()))
+                .thenAccept(v -> {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        List<ReferenceDescription> nodeReferences = references.get(i);
+
+                        crawl.browsed.incrementAndGet();
+                        crawl.consumer.accept(chunk.get(i), nodeReferences);
+
+                        for (ReferenceDescription reference : nodeReferences) {
+                            reference.getNodeId().local().ifPresent(nodeId -> {
+                                if (crawl.visited.add(nodeId)) nextLevel.add(nodeId);
+                            });
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Accumulate the references in {@code results} and follow any continuation points until there are none left.
+     * <p>
+     * If {@code results} don't match {@code indices}, BrowseNext fails, or the crawl has already failed elsewhere,
+     * any continuation points still held by the server are released.
+     *
+     * @param indices the index into {@code chunk} that each of {@code results} belongs to.
+     */
+    private CompletableFuture<Void> follow(Crawl crawl,
+                                           List<NodeId> chunk,
+                                           List<List<ReferenceDescription>> references,
+                                           List<Integer> indices,
+                                           BrowseResult[] results) {
+
+        if (results == null || results.length != indices.size()) {
+            release(continuationPoints(results));
+
+            CompletableFuture<Void> f = new CompletableFuture<>();
+            f.completeExceptionally(new UaException(StatusCodes.Bad_UnexpectedError,
+                    String.format("expected %d results, received %d",
+                            indices.size(), results == null ? 0 : results.length)));
+            return f;
+        }
+
+        List<Integer> remaining = newArrayList();
+        List<ByteString> continuationPoints = newArrayList();
+
+        for (int i = 0; i < results.length; i++) {
+            BrowseResult result = results[i];
+            int index = indices.get(i);
+
+            if (result == null || result.getStatusCode().isBad()) {
+                logger.debug("Browsing {} failed: {}",
+                        chunk.get(index), result != null ? result.getStatusCode() : "no result");
+                continue;
+            }
+
+            if (result.getReferences() != null) {
+                Collections.addAll(references.get(index), result.getReferences());
+            }
+
+            ByteString continuationPoint = result.getContinuationPoint();
+
+            if (continuationPoint != null && continuationPoint.isNotNull()) {
+                remaining.add(index);
+                continuationPoints.add(continuationPoint);
+            }
+        }
+
+        if (continuationPoints.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (crawl.future.isDone()) {
+            // Another chunk failed the crawl; nobody will see these references.
+            release(continuationPoints);
+
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        viewServices.browseNext(false, continuationPoints).whenComplete((response, ex) -> {
+            if (response != null) {
+                follow(crawl, chunk, references, remaining, response.getResults()).whenComplete((v, ex2) -> {
+                    if (ex2 != null) future.completeExceptionally(ex2);
+                    else future.complete(null);
+                });
+            } else {
+                release(continuationPoints);
+
+                future.completeExceptionally(ex);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Release {@code continuationPoints} on the server, if there are any. Failures are only logged.
+     */
+    private void release(List<ByteString> continuationPoints) {
+        if (continuationPoints.isEmpty()) return;
+
+        logger.debug("Releasing {} continuation points.", continuationPoints.size());
+
+        viewServices.browseNext(true, continuationPoints).whenComplete((response, ex) -> {
+            if (ex != null) logger.debug("Releasing continuation points failed: {}", ex.getMessage(), ex);
+        });
+    }
+
+    private static List<ByteString> continuationPoints(BrowseResult[] results) {
+        if (results == null) return Collections.emptyList();
+
+        return Arrays.stream(results)
+                .filter(Objects::nonNull)
+                .map(BrowseResult::getContinuationPoint)
+                .filter(cp -> cp != null && cp.isNotNull())
+                .collect(Collectors.toList());
+    }
+
+    private class Crawl {
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+        final Set<NodeId> visited = ConcurrentHashMap.newKeySet();
+        final AtomicLong browsed = new AtomicLong(0L);
+        final AsyncSemaphore semaphore = new AsyncSemaphore(maxConcurrentRequests);
+
+        final BiConsumer<NodeId, List<ReferenceDescription>> consumer;
+
+        Crawl(BiConsumer<NodeId, List<ReferenceDescription>> consumer) {
+            this.consumer = consumer;
+        }
+    }
+
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.nodes;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.digitalpetri.opcua.sdk.client.OpcUaClient;
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaSubscription;
+import com.digitalpetri.opcua.stack.core.AttributeId;
+import com.digitalpetri.opcua.stack.core.Identifiers;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExtensionObject;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.QualifiedName;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.enumerated.FilterOperator;
+import com.digitalpetri.opcua.stack.core.types.enumerated.MonitoringMode;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowsePath;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowsePathResult;
+import com.digitalpetri.opcua.stack.core.types.structured.ContentFilter;
+import com.digitalpetri.opcua.stack.core.types.structured.ContentFilterElement;
+import com.digitalpetri.opcua.stack.core.types.structured.EventFilter;
+import com.digitalpetri.opcua.stack.core.types.structured.LiteralOperand;
+import com.digitalpetri.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.MonitoringParameters;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
+import com.digitalpetri.opcua.stack.core.types.structured.RelativePath;
+import com.digitalpetri.opcua.stack.core.types.structured.RelativePathElement;
+import com.digitalpetri.opcua.stack.core.types.structured.SimpleAttributeOperand;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Caches the results of TranslateBrowsePathsToNodeIds, keyed by starting node and relative path.
+ * <p>
+ * Paths not in the cache are resolved together in a single request. Only Good results are cached.
+ * <p>
+ * On first use the cache monitors the Server object for GeneralModelChangeEvents and empties itself whenever one
+ * arrives. If that monitoring is lost, e.g. because the subscription could not be transferred to a new session, the
+ * cache is emptied and monitoring is re-established on next use, since model changes may have been missed.
+ * <p>
+ * Results are only cached while monitoring is established. If monitoring can't be established, paths are translated
+ * without caching and monitoring is retried no sooner than {@link #MONITORING_RETRY_INTERVAL} later.
+ */
+public class BrowsePathCache {
+
+    /**
+     * The minimum time between attempts to establish monitoring after an attempt fails.
+     */
+    public static final Duration MONITORING_RETRY_INTERVAL = Duration.ofSeconds(30);
+
+    private static final double PUBLISHING_INTERVAL = 1000.0;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final AtomicReference<CompletableFuture<UaSubscription>> subscription = new AtomicReference<>();
+
+    private volatile long retryAfterNanos = 0L;
+
+    /**
+     * Incremented on every invalidation, so a translation that was in flight across one doesn't cache its result.
+     */
+    private final AtomicLong generation = new AtomicLong(0L);
+
+    private final Cache<PathKey, BrowsePathResult> cache;
+
+    private final OpcUaClient client;
+
+    public BrowsePathCache(OpcUaClient client) {
+        this(client, 100_000, Duration.ofHours(1));
+    }
+
+    /**
+     * @param client      the {@link OpcUaClient} to translate paths with.
+     * @param maximumSize the maximum number of results to cache.
+     * @param expireAfter how long a result may be cached, guarding against model changes the server does not report.
+     */
+    public BrowsePathCache(OpcUaClient client, long maximumSize, Duration expireAfter) {
+        this.client = client;
+
+        cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(expireAfter.toNanos(), TimeUnit.NANOSECONDS)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Translate a {@link BrowsePath}, using a cached result if one is available.
+     *
+     * @param browsePath the {@link BrowsePath} to translate.
+     * @return a {@link CompletableFuture} containing the {@link BrowsePathResult}.
+     */
+    public CompletableFuture<BrowsePathResult> translate(BrowsePath browsePath) {
+        return translate(newArrayList(browsePath)).thenApply(results -> results.get(0));
+    }
+
+    /**
+     * Translate one or more {@link BrowsePath}s, using cached results where available and translating the remainder
+     * in a single request.
+     *
+     * @param browsePaths the {@link BrowsePath}s to translate.
+     * @return a {@link CompletableFuture} containing a list of {@link BrowsePathResult}s, the size and order matching
+     * the provided {@link BrowsePath}s.
+     */
+    public CompletableFuture<List<BrowsePathResult>> translate(List<BrowsePath> browsePaths) {
+        if (isMonitoringLost()) {
+            // Model changes may have been missed since monitoring was lost.
+            invalidate();
+        }
+
+        BrowsePathResult[] results = new BrowsePathResult[browsePaths.size()];
+
+        List<Integer> missIndices = newArrayList();
+        List<PathKey> missKeys = newArrayList();
+        List<BrowsePath> misses = newArrayList();
+
+        for (int i = 0; i < browsePaths.size(); i++) {
+            BrowsePath browsePath = browsePaths.get(i);
+            PathKey key = new PathKey(browsePath);
+            BrowsePathResult result = cache.getIfPresent(key);
+
+            if (result != null) {
+                results[i] = result;
+            } else {
+                missIndices.add(i);
+                missKeys.add(key);
+                misses.add(browsePath);
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return CompletableFuture.completedFuture(newArrayList(results));
+        }
+
+        return monitorModelChanges().thenCompose(v -> {
+            long sent = generation.get();
+
+            return client.translateBrowsePaths(misses).thenApply(response -> {
+                BrowsePathResult[] translated = response.getResults();
+
+                if (translated == null || translated.length < misses.size()) {
+                    throw new CompletionException(new UaException(StatusCodes.Bad_UnexpectedError,
+                            String.format("expected %d results, received %d",
+                                    misses.size(), translated == null ? 0 : translated.length)));
+                }
+
+                boolean monitoring = getMonitoringSubscription() != null;
+
+                for (int i = 0; i < misses.size(); i++) {
+                    BrowsePathResult result = translated[i];
+
+                    results[missIndices.get(i)] = result;
+
+                    if (monitoring && result.getStatusCode().isGood() && generation.get() == sent) {
+                        PathKey key = missKeys.get(i);
+
+                        cache.put(key, result);
+
+                        // An invalidation that raced with the put didn't see it.
+                        if (generation.get() != sent) cache.invalidate(key);
+                    }
+                }
+
+                return newArrayList(results);
+            });
+        });
+    }
+
+    public void invalidateAll() {
+        invalidate();
+    }
+
+    /**
+     * @return {@code true} if model changes are being monitored, i.e. if results are being cached.
+     */
+    public boolean isMonitoring() {
+        return getMonitoringSubscription() != null;
+    }
+
+    /**
+     * @return a counter that is incremented every time the cache is invalidated. Anything derived from the address
+     * space at one generation may be stale once the generation has changed.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return the subscription monitoring for model changes, or {@code null} if monitoring is not established.
+     */
+    private UaSubscription getMonitoringSubscription() {
+        CompletableFuture<UaSubscription> current = subscription.get();
+
+        if (current == null || !current.isDone() || current.isCompletedExceptionally()) return null;
+
+        UaSubscription s = current.join();
+
+        return client.getSubscriptionManager().getSubscriptions().contains(s) ? s : null;
+    }
+
+    /**
+     * @return {@code true} if monitoring was established and has since been lost.
+     */
+    private boolean isMonitoringLost() {
+        CompletableFuture<UaSubscription> current = subscription.get();
+
+        return current != null && current.isDone() && !current.isCompletedExceptionally() &&
+                getMonitoringSubscription() == null;
+    }
+
+    /**
+     * Make sure a monitored item for GeneralModelChangeEvents exists. Completes normally even if it could not be
+     * created, in which case results are not cached.
+     */
+    private CompletableFuture<Void> monitorModelChanges() {
+        CompletableFuture<UaSubscription> current = subscription.get();
+
+        if (current != null) {
+            if (!current.isDone()) return current.handle((s, ex) -> null);
+
+            if (current.isCompletedExceptionally()) {
+                if (System.nanoTime() - retryAfterNanos < 0) {
+                    return CompletableFuture.completedFuture(null);
+                }
+            } else if (getMonitoringSubscription() != null) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+
+        CompletableFuture<UaSubscription> next = new CompletableFuture<>();
+
+        if (!subscription.compareAndSet(current, next)) {
+            return monitorModelChanges();
+        }
+
+        if (current != null) {
+            // Either monitoring was never established or it has been lost;
+            // anything cached since may be stale.
+            invalidate();
+        }
+
+        client.getSubscriptionManager().createSubscription(PUBLISHING_INTERVAL).thenCompose(s -> {
+            MonitoredItemCreateRequest request = new MonitoredItemCreateRequest(
+                    new ReadValueId(Identifiers.Server, AttributeId.EventNotifier.uid(), null, QualifiedName.NULL_VALUE),
+                    MonitoringMode.Reporting,
+                    new MonitoringParameters(
+                            uint(0),
+                            0.0,
+                            ExtensionObject.encode(modelChangeFilter()),
+                            uint(0),
+                            true));
+
+            return s.createMonitoredItems(TimestampsToReturn.Neither, newArrayList(request)).thenApply(items -> {
+                UaMonitoredItem item = items.get(0);
+
+                if (item.getStatusCode().isBad()) {
+                    throw new CompletionException(new UaException(item.getStatusCode(),
+                            "GeneralModelChangeEvent monitored item: " + item.getStatusCode()));
+                }
+
+                item.setEventConsumer(fields -> {
+                    logger.debug("Model changed, invalidating {} browse paths.", cache.size());
+                    invalidate();
+                });
+
+                return s;
+            }).handle((monitored, ex) -> {
+                if (ex == null) return CompletableFuture.completedFuture(s);
+
+                // Without the item nothing would invalidate the cache; don't leave the subscription behind.
+                return client.getSubscriptionManager().deleteSubscription(s.getSubscriptionId())
+                        .<UaSubscription>handle((deleted, ex2) -> {
+                            throw ex instanceof CompletionException ?
+                                    (CompletionException) ex : new CompletionException(ex);
+                        });
+            }).thenCompose(f -> f);
+        }).whenComplete((s, ex) -> {
+            if (s != null) {
+                next.complete(s);
+            } else {
+                logger.debug("Monitoring GeneralModelChangeEvents failed: {}", ex.getMessage(), ex);
+                retryAfterNanos = System.nanoTime() + MONITORING_RETRY_INTERVAL.toNanos();
+                next.completeExceptionally(ex);
+            }
+        });
+
+        return next.handle((s, ex) -> null);
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private static EventFilter modelChangeFilter() {
+        SimpleAttributeOperand eventType = new SimpleAttributeOperand(
+                Identifiers.BaseEventType,
+                new QualifiedName[]{new QualifiedName(0, "EventType")},
+                AttributeId.Value.uid(),
+                null);
+
+        ContentFilterElement ofType = new ContentFilterElement(
+                FilterOperator.OfType,
+                new ExtensionObject[]{
+                        ExtensionObject.encode(new LiteralOperand(new Variant(Identifiers.GeneralModelChangeEventType)))
+                });
+
+        return new EventFilter(
+                new SimpleAttributeOperand[]{eventType},
+                new ContentFilter(new ContentFilterElement[]{ofType}));
+    }
+
+    /**
+     * A structural key for a {@link BrowsePath}, which does not implement equals or hashCode itself.
+     */
+    private static class PathKey {
+        private final NodeId startingNode;
+        private final ImmutableList<ElementKey> elements;
+
+        PathKey(BrowsePath browsePath) {
+            this.startingNode = browsePath.getStartingNode();
+
+            ImmutableList.Builder<ElementKey> builder = ImmutableList.builder();
+
+            RelativePath relativePath = browsePath.getRelativePath();
+
+            if (relativePath != null && relativePath.getElements() != null) {
+                for (RelativePathElement element : relativePath.getElements()) {
+                    builder.add(new ElementKey(element));
+                }
+            }
+
+            this.elements = builder.build();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            PathKey that = (PathKey) o;
+
+            return Objects.equals(startingNode, that.startingNode) &&
+                    Objects.equals(elements, that.elements);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(startingNode, elements);
+        }
+    }
+
+    private static class ElementKey {
+        private final NodeId referenceTypeId;
+        private final Boolean isInverse;
+        private final Boolean includeSubtypes;
+        private final QualifiedName targetName;
+
+        ElementKey(RelativePathElement element) {
+            this.referenceTypeId = element.getReferenceTypeId();
+            this.isInverse = element.getIsInverse();
+            this.includeSubtypes = element.getIncludeSubtypes();
+            this.targetName = element.getTargetName();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            ElementKey that = (ElementKey) o;
+
+            return Objects.equals(referenceTypeId, that.referenceTypeId) &&
+                    Objects.equals(isInverse, that.isInverse) &&
+                    Objects.equals(includeSubtypes, that.includeSubtypes) &&
+                    Objects.equals(targetName, that.targetName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(referenceTypeId, isInverse, includeSubtypes, targetName);
+        }
+    }
+
+}
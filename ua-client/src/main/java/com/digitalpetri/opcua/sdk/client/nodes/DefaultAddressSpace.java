@@ -45,11 +45,8 @@ import com.digitalpetri.opcua.stack.core.types.builtin.QualifiedName;
 import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
 import com.digitalpetri.opcua.stack.core.types.enumerated.NodeClass;
 import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
-import com.digitalpetri.opcua.stack.core.types.structured.ReadResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
 
-import static com.google.common.collect.Lists.newArrayList;
-
 public class DefaultAddressSpace implements AddressSpace {
 
     private final OpcUaClient client;
@@ -63,11 +60,10 @@ public class DefaultAddressSpace implements AddressSpace {
         ReadValueId readValueId = new ReadValueId(
                 nodeId, AttributeId.NodeClass.uid(), null, QualifiedName.NULL_VALUE);
 
-        CompletableFuture<ReadResponse> future =
-                client.read(0.0, TimestampsToReturn.Neither, newArrayList(readValueId));
+        CompletableFuture<DataValue> future =
+                client.read(0.0, TimestampsToReturn.Neither, readValueId);
 
-        return future.thenCompose(response -> {
-            DataValue value = response.getResults()[0];
+        return future.thenCompose(value -> {
             NodeClass nodeClass = (NodeClass) value.getValue().getValue();
 
             if (nodeClass != null) {
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.nodes;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.digitalpetri.opcua.sdk.client.api.UaClient;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExpandedNodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.structured.AddNodesItem;
+import com.digitalpetri.opcua.stack.core.types.structured.AddNodesResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.AddNodesResult;
+import com.digitalpetri.opcua.stack.core.types.structured.AddReferencesItem;
+import com.digitalpetri.opcua.stack.core.types.structured.AddReferencesResponse;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Adds a set of nodes and references to a server, adding each node only after its parent.
+ * <p>
+ * A node whose parent or type definition is also being added waits until that node has been added. Nodes whose
+ * dependencies are satisfied are sent in batches of up to {@code maxBatchSize}, with up to {@code maxConcurrentBatches}
+ * batches in flight, so independent subtrees progress in parallel rather than level by level.
+ * <p>
+ * If a node can't be added, every node depending on it fails with Bad_ParentNodeIdInvalid, and every reference to or
+ * from it fails with Bad_SourceNodeIdInvalid or Bad_TargetNodeIdInvalid, without being sent. References are added
+ * once all nodes have been processed.
+ * <p>
+ * When the server assigns a NodeId other than the one requested, that NodeId is used in place of the requested one
+ * for dependent nodes and references.
+ */
+public class NodeProvisioner {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    public static final int DEFAULT_MAX_CONCURRENT_BATCHES = 4;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final UaClient client;
+    private final int maxBatchSize;
+    private final int maxConcurrentBatches;
+
+    public NodeProvisioner(UaClient client) {
+        this(client, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_CONCURRENT_BATCHES);
+    }
+
+    /**
+     * @param client               the {@link UaClient} to add nodes and references with.
+     * @param maxBatchSize         the maximum number of nodes per AddNodes request. The server's
+     *                             MaxNodesPerNodeManagement limit is also respected.
+     * @param maxConcurrentBatches the maximum number of AddNodes requests in flight at once.
+     */
+    public NodeProvisioner(UaClient client, int maxBatchSize, int maxConcurrentBatches) {
+        this.client = client;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxConcurrentBatches = Math.max(1, maxConcurrentBatches);
+    }
+
+    /**
+     * Add {@code nodes}, in dependency order, and then {@code references}.
+     *
+     * @param nodes      the {@link AddNodesItem}s describing the nodes to add.
+     * @param references the {@link AddReferencesItem}s describing the references to add.
+     * @return a {@link CompletableFuture} containing the {@link Result}s of every node and reference.
+     */
+    public CompletableFuture<Result> provision(List<AddNodesItem> nodes, List<AddReferencesItem> references) {
+        return client.getSession().thenCompose(session -> {
+            int limit = session.getOperationLimits().getMaxNodesPerNodeManagement().intValue();
+            int batchSize = limit > 0 ? Math.min(limit, maxBatchSize) : maxBatchSize;
+
+            Provisioning provisioning = new Provisioning(nodes, batchSize);
+
+            provisioning.start();
+
+            return provisioning.nodesFuture
+                    .thenCompose(v -> addReferences(provisioning, references))
+                    .thenApply(referenceResults -> new Result(
+                            Arrays.asList(provisioning.nodeResults),
+                            referenceResults));
+        });
+    }
+
+    private CompletableFuture<List<StatusCode>> addReferences(Provisioning provisioning,
+                                                              List<AddReferencesItem> references) {
+
+        StatusCode[] results = new StatusCode[references.size()];
+
+        List<Integer> indices = newArrayList();
+        List<AddReferencesItem> toAdd = newArrayList();
+
+        for (int i = 0; i < references.size(); i++) {
+            AddReferencesItem item = references.get(i);
+
+            ExpandedNodeId source = item.getSourceNodeId().expanded();
+            ExpandedNodeId target = item.getTargetNodeId();
+
+            if (provisioning.failed(source)) {
+                results[i] = new StatusCode(StatusCodes.Bad_SourceNodeIdInvalid);
+            } else if (provisioning.failed(target)) {
+                results[i] = new StatusCode(StatusCodes.Bad_TargetNodeIdInvalid);
+            } else {
+                indices.add(i);
+                toAdd.add(new AddReferencesItem(
+                        provisioning.resolve(source).local().orElse(item.getSourceNodeId()),
+                        item.getReferenceTypeId(),
+                        item.getIsForward(),
+                        item.getTargetServerUri(),
+                        provisioning.resolve(target),
+                        item.getTargetNodeClass()));
+            }
+        }
+
+        if (toAdd.isEmpty()) {
+            return CompletableFuture.completedFuture(Arrays.asList(results));
+        }
+
+        CompletableFuture<AddReferencesResponse> future;
+
+        try {
+            future = client.addReferences(toAdd);
+        } catch (Throwable t) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(t);
+        }
+
+        // A failed request fails its references, not the nodes that were already added.
+        return future.handle((response, ex) -> {
+            StatusCode[] added = response != null ? response.getResults() : null;
+
+            for (int i = 0; i < indices.size(); i++) {
+                StatusCode result = added != null && i < added.length ? added[i] : null;
+
+                if (result == null) {
+                    result = ex != null ? failure(ex) : new StatusCode(StatusCodes.Bad_UnexpectedError);
+                }
+
+                results[indices.get(i)] = result;
+            }
+
+            return Arrays.asList(results);
+        });
+    }
+
+    private class Provisioning {
+        final CompletableFuture<Void> nodesFuture = new CompletableFuture<>();
+
+        final AddNodesResult[] nodeResults;
+
+        /**
+         * Index of each requested NodeId among the nodes being added.
+         */
+        final Map<ExpandedNodeId, Integer> indexOf = Maps.newHashMap();
+
+        /**
+         * The nodes waiting on each node, by index.
+         */
+        final Map<Integer, List<Integer>> dependents = Maps.newHashMap();
+
+        /**
+         * NodeIds assigned by the server, keyed by the NodeId requested.
+         */
+        final Map<ExpandedNodeId, NodeId> assigned = Maps.newConcurrentMap();
+
+        final int[] waitingOn;
+        final ArrayDeque<Integer> ready = new ArrayDeque<>();
+
+        final List<AddNodesItem> nodes;
+        final int batchSize;
+
+        int inFlight = 0;
+        int remaining;
+
+        Provisioning(List<AddNodesItem> nodes, int batchSize) {
+            this.nodes = nodes;
+            this.batchSize = batchSize;
+            this.nodeResults = new AddNodesResult[nodes.size()];
+            this.waitingOn = new int[nodes.size()];
+            this.remaining = nodes.size();
+
+            for (int i = 0; i < nodes.size(); i++) {
+                ExpandedNodeId requested = nodes.get(i).getRequestedNewNodeId();
+
+                if (requested != null && requested.isNotNull()) {
+                    indexOf.put(requested, i);
+                }
+            }
+
+            for (int i = 0; i < nodes.size(); i++) {
+                AddNodesItem item = nodes.get(i);
+
+                for (ExpandedNodeId dependency : newArrayList(item.getParentNodeId(), item.getTypeDefinition())) {
+                    Integer d = dependency != null ? indexOf.get(dependency) : null;
+
+                    if (d != null && d != i) {
+                        waitingOn[i]++;
+                        dependents.computeIfAbsent(d, k -> newArrayList()).add(i);
+                    }
+                }
+
+                if (waitingOn[i] == 0) ready.add(i);
+            }
+        }
+
+        void start() {
+            if (nodes.isEmpty()) {
+                nodesFuture.complete(null);
+                return;
+            }
+
+            if (ready.isEmpty()) {
+                // Every node is part of a dependency cycle.
+                synchronized (this) {
+                    failRemaining();
+                }
+                nodesFuture.complete(null);
+                return;
+            }
+
+            dispatch();
+        }
+
+        boolean failed(ExpandedNodeId nodeId) {
+            Integer index = nodeId != null ? indexOf.get(nodeId) : null;
+
+            return index != null && (nodeResults[index] == null || nodeResults[index].getStatusCode().isBad());
+        }
+
+        ExpandedNodeId resolve(ExpandedNodeId nodeId) {
+            NodeId added = nodeId != null ? assigned.get(nodeId) : null;
+
+            return added != null ? added.expanded() : nodeId;
+        }
+
+        private void dispatch() {
+            List<List<Integer>> batches = newArrayList();
+
+            synchronized (this) {
+                while (inFlight < maxConcurrentBatches && !ready.isEmpty() &&
+                        (ready.size() >= batchSize || inFlight == 0)) {
+
+                    List<Integer> batch = newArrayList();
+
+                    while (batch.size() < batchSize && !ready.isEmpty()) {
+                        batch.add(ready.poll());
+                    }
+
+                    inFlight++;
+                    batches.add(batch);
+                }
+            }
+
+            batches.forEach(this::send);
+        }
+
+        private void send(List<Integer> batch) {
+            List<AddNodesItem> items = newArrayList();
+
+            for (int index : batch) {
+                AddNodesItem item = nodes.get(index);
+
+                items.add(new AddNodesItem(
+                        resolve(item.getParentNodeId()),
+                        item.getReferenceTypeId(),
+                        item.getRequestedNewNodeId(),
+                        item.getBrowseName(),
+                        item.getNodeClass(),
+                        item.getNodeAttributes(),
+                        resolve(item.getTypeDefinition())));
+            }
+
+            logger.debug("Adding {} nodes.", items.size());
+
+            CompletableFuture<AddNodesResponse> future;
+
+            try {
+                future = client.addNodes(items);
+            } catch (Throwable t) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(t);
+            }
+
+            future.whenComplete((response, ex) -> {
+                boolean done;
+
+                synchronized (this) {
+                    inFlight--;
+
+                    AddNodesResult[] results = response != null ? response.getResults() : null;
+
+                    for (int i = 0; i < batch.size(); i++) {
+                        AddNodesResult result = results != null && i < results.length ? results[i] : null;
+
+                        if (result == null || result.getStatusCode() == null) {
+                            StatusCode statusCode = ex != null ?
+                                    failure(ex) : new StatusCode(StatusCodes.Bad_UnexpectedError);
+
+                            result = new AddNodesResult(statusCode, NodeId.NULL_VALUE);
+                        }
+
+                        complete(batch.get(i), result);
+                    }
+
+                    if (remaining == 0) {
+                        done = true;
+                    } else if (inFlight == 0 && ready.isEmpty()) {
+                        // Whatever remains is waiting on a dependency cycle.
+                        failRemaining();
+                        done = true;
+                    } else {
+                        done = false;
+                    }
+                }
+
+                // Completed outside the lock; dependent stages run on this thread.
+                if (done) nodesFuture.complete(null);
+                else dispatch();
+            });
+        }
+
+        private void complete(int index, AddNodesResult result) {
+            nodeResults[index] = result;
+            remaining--;
+
+            ExpandedNodeId requested = nodes.get(index).getRequestedNewNodeId();
+            boolean good = result.getStatusCode().isGood();
+
+            if (good && requested != null && requested.isNotNull() &&
+                    result.getAddedNodeId() != null && result.getAddedNodeId().isNotNull()) {
+
+                assigned.put(requested, result.getAddedNodeId());
+            }
+
+            for (int dependent : Optional.ofNullable(dependents.get(index)).orElse(ImmutableList.of())) {
+                if (nodeResults[dependent] != null) continue;
+
+                if (good) {
+                    if (--waitingOn[dependent] == 0) ready.add(dependent);
+                } else {
+                    complete(dependent, new AddNodesResult(
+                            new StatusCode(StatusCodes.Bad_ParentNodeIdInvalid), NodeId.NULL_VALUE));
+                }
+            }
+        }
+
+        private void failRemaining() {
+            for (int i = 0; i < nodeResults.length; i++) {
+                if (nodeResults[i] == null) {
+                    nodeResults[i] = new AddNodesResult(
+                            new StatusCode(StatusCodes.Bad_ParentNodeIdInvalid), NodeId.NULL_VALUE);
+                }
+            }
+
+            remaining = 0;
+        }
+    }
+
+    private static StatusCode failure(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ?
+                ex.getCause() : ex;
+
+        if (cause instanceof UaException) {
+            return ((UaException) cause).getStatusCode();
+        } else {
+            return new StatusCode(StatusCodes.Bad_UnexpectedError);
+        }
+    }
+
+    public static class Result {
+        private final List<AddNodesResult> nodeResults;
+        private final List<StatusCode> referenceResults;
+
+        public Result(List<AddNodesResult> nodeResults, List<StatusCode> referenceResults) {
+            this.nodeResults = nodeResults;
+            this.referenceResults = referenceResults;
+        }
+
+        /**
+         * @return the result of each node, the size and order matching the nodes provisioned.
+         */
+        public List<AddNodesResult> getNodeResults() {
+            return nodeResults;
+        }
+
+        /**
+         * @return the result of each reference, the size and order matching the references provisioned.
+         */
+        public List<StatusCode> getReferenceResults() {
+            return referenceResults;
+        }
+    }
+
+}
@@ -28,7 +28,6 @@ import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
 import com.digitalpetri.opcua.stack.core.types.builtin.QualifiedName;
 import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
 import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
-import com.digitalpetri.opcua.stack.core.types.structured.ReadResponse;
 import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
 import com.digitalpetri.opcua.stack.core.types.structured.WriteValue;
 
@@ -93,12 +92,10 @@ public class AttachedNode implements UaNode {
             ReadValueId readValueId = new ReadValueId(
                     nodeId, attributeId.uid(), null, QualifiedName.NULL_VALUE);
 
-            CompletableFuture<ReadResponse> future =
-                    client.read(0.0, TimestampsToReturn.Neither, newArrayList(readValueId));
-
-            return future.thenApply(response -> {
-                DataValue value = response.getResults()[0];
+            CompletableFuture<DataValue> future =
+                    client.read(0.0, TimestampsToReturn.Neither, readValueId);
 
+            return future.thenApply(value -> {
                 if (attributeId != AttributeId.Value) {
                     nodeCache.putAttribute(nodeId, attributeId, value);
                 }
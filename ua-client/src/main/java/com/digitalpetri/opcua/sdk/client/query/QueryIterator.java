@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.query;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.digitalpetri.opcua.sdk.client.ContinuationPointIterator;
+import com.digitalpetri.opcua.sdk.client.api.services.QueryServices;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.digitalpetri.opcua.stack.core.types.structured.ContentFilter;
+import com.digitalpetri.opcua.stack.core.types.structured.ContentFilterElementResult;
+import com.digitalpetri.opcua.stack.core.types.structured.ContentFilterResult;
+import com.digitalpetri.opcua.stack.core.types.structured.NodeTypeDescription;
+import com.digitalpetri.opcua.stack.core.types.structured.ParsingResult;
+import com.digitalpetri.opcua.stack.core.types.structured.QueryDataSet;
+import com.digitalpetri.opcua.stack.core.types.structured.QueryFirstResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ViewDescription;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Iterates over the {@link QueryDataSet}s returned by a query, calling QueryNext with each continuation point until
+ * the query is complete.
+ * <p>
+ * The next batch is requested while the current one is being consumed, but no more than {@code maxBatches} batches
+ * are ever buffered or in flight at once.
+ * <p>
+ * If the server rejects any of the {@link NodeTypeDescription}s or any element of the {@link ContentFilter} the
+ * iterator fails with the status it reported rather than returning a partial result.
+ * <p>
+ * Closing the iterator before it is exhausted releases the server's continuation point.
+ */
+public class QueryIterator extends ContinuationPointIterator<List<QueryDataSet>> {
+
+    public static final int DEFAULT_MAX_BATCHES = 2;
+
+    private final QueryServices queryServices;
+    private final ViewDescription view;
+    private final List<NodeTypeDescription> nodeTypes;
+    private final ContentFilter filter;
+    private final UInteger maxDataSetsToReturn;
+    private final UInteger maxReferencesToReturn;
+
+    public QueryIterator(QueryServices queryServices,
+                         ViewDescription view,
+                         List<NodeTypeDescription> nodeTypes,
+                         ContentFilter filter,
+                         UInteger maxDataSetsToReturn,
+                         UInteger maxReferencesToReturn) {
+
+        this(queryServices, view, nodeTypes, filter, maxDataSetsToReturn, maxReferencesToReturn, DEFAULT_MAX_BATCHES);
+    }
+
+    /**
+     * @param queryServices         the {@link QueryServices} to query with.
+     * @param view                  the {@link ViewDescription} to query.
+     * @param nodeTypes             the {@link NodeTypeDescription}s to query for.
+     * @param filter                the {@link ContentFilter} matching nodes must satisfy.
+     * @param maxDataSetsToReturn   the maximum number of {@link QueryDataSet}s per batch, or 0 for no limit.
+     * @param maxReferencesToReturn the maximum number of references per {@link QueryDataSet}, or 0 for no limit.
+     * @param maxBatches            the maximum number of batches buffered or in flight at once.
+     */
+    public QueryIterator(QueryServices queryServices,
+                         ViewDescription view,
+                         List<NodeTypeDescription> nodeTypes,
+                         ContentFilter filter,
+                         UInteger maxDataSetsToReturn,
+                         UInteger maxReferencesToReturn,
+                         int maxBatches) {
+
+        super(maxBatches);
+
+        this.queryServices = queryServices;
+        this.view = view;
+        this.nodeTypes = nodeTypes;
+        this.filter = filter;
+        this.maxDataSetsToReturn = maxDataSetsToReturn;
+        this.maxReferencesToReturn = maxReferencesToReturn;
+
+        start();
+    }
+
+    @Override
+    protected CompletableFuture<Page<List<QueryDataSet>>> fetch(ByteString continuationPoint) {
+        if (continuationPoint.isNull()) {
+            return queryServices.queryFirst(view, nodeTypes, filter, maxDataSetsToReturn, maxReferencesToReturn)
+                    .thenApply(response -> {
+                        checkQueryFirst(response);
+
+                        return new Page<>(toList(response.getQueryDataSets()), response.getContinuationPoint());
+                    });
+        } else {
+            return queryServices.queryNext(false, continuationPoint).thenApply(response ->
+                    new Page<>(toList(response.getQueryDataSets()), response.getRevisedContinuationPoint()));
+        }
+    }
+
+    @Override
+    protected CompletableFuture<?> release(ByteString continuationPoint) {
+        return queryServices.queryNext(true, continuationPoint);
+    }
+
+    /**
+     * Fail if the server reported a Bad status for any {@link NodeTypeDescription} or {@link ContentFilter} element.
+     */
+    private static void checkQueryFirst(QueryFirstResponse response) {
+        ParsingResult[] parsingResults = response.getParsingResults();
+
+        if (parsingResults != null) {
+            for (ParsingResult result : parsingResults) {
+                if (result != null && result.getStatusCode().isBad()) {
+                    throw new CompletionException(new UaException(
+                            result.getStatusCode(), "NodeTypeDescription rejected"));
+                }
+            }
+        }
+
+        ContentFilterResult filterResult = response.getFilterResult();
+
+        if (filterResult != null && filterResult.getElementResults() != null) {
+            for (ContentFilterElementResult result : filterResult.getElementResults()) {
+                if (result != null && result.getStatusCode().isBad()) {
+                    throw new CompletionException(new UaException(
+                            result.getStatusCode(), "ContentFilter element rejected"));
+                }
+            }
+        }
+    }
+
+    private static List<QueryDataSet> toList(QueryDataSet[] dataSets) {
+        return dataSets != null ? newArrayList(dataSets) : Collections.emptyList();
+    }
+
+}
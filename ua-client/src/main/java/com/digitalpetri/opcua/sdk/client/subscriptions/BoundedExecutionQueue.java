@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.digitalpetri.opcua.stack.core.util.ExecutionQueue;
+
+/**
+ * An {@link ExecutionQueue} that tracks its depth against a capacity.
+ * <p>
+ * The queue itself never refuses a task; callers check {@link #isFull()} and decide what to do with work that doesn't
+ * fit, recording it with {@link #reject()}.
+ */
+public class BoundedExecutionQueue {
+
+    private final AtomicInteger depth = new AtomicInteger(0);
+    private final AtomicInteger highWaterMark = new AtomicInteger(0);
+    private final AtomicLong rejectedCount = new AtomicLong(0L);
+
+    private final ExecutionQueue queue;
+    private final int capacity;
+    private final Runnable onAvailable;
+
+    /**
+     * @param executor    the {@link ExecutorService} tasks run on.
+     * @param capacity    the number of queued tasks at which the queue is full, or 0 for no limit.
+     * @param onAvailable called when a task completes and the queue goes from full to not full.
+     */
+    public BoundedExecutionQueue(ExecutorService executor, int capacity, Runnable onAvailable) {
+        this.queue = new ExecutionQueue(executor);
+        this.capacity = Math.max(0, capacity);
+        this.onAvailable = onAvailable;
+    }
+
+    /**
+     * Submit a task, whether or not the queue is full.
+     *
+     * @param task the task to run.
+     */
+    public void submit(Runnable task) {
+        int d = depth.incrementAndGet();
+        highWaterMark.accumulateAndGet(d, Math::max);
+
+        queue.submit(() -> {
+            try {
+                task.run();
+            } finally {
+                if (depth.getAndDecrement() == capacity && capacity > 0) {
+                    onAvailable.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Record that a task was not submitted because the queue was full.
+     */
+    public void reject() {
+        rejectedCount.incrementAndGet();
+    }
+
+    /**
+     * @return {@code true} if the queue has a capacity and is at or above it.
+     */
+    public boolean isFull() {
+        return capacity > 0 && depth.get() >= capacity;
+    }
+
+    /**
+     * @return the capacity, or 0 if there is no limit.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of tasks queued or running.
+     */
+    public int getDepth() {
+        return depth.get();
+    }
+
+    /**
+     * @return the greatest depth the queue has reached.
+     */
+    public int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    /**
+     * @return the number of tasks recorded as rejected.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Monitored items indexed by client handle.
+ * <p>
+ * Small client handles, such as those allocated by {@link OpcUaSubscription#nextClientHandle()}, index directly into
+ * an array, so a lookup is a single array read. The array is replaced, never modified, on every update, so lookups
+ * never lock. Handles too large for the array fall back to a map.
+ * <p>
+ * Updates are expected to come in batches, e.g. one per CreateMonitoredItems or DeleteMonitoredItems call, and are
+ * serialized.
+ */
+final class MonitoredItemTable {
+
+    private static final int MIN_DENSE_CAPACITY = 1024;
+
+    private volatile OpcUaMonitoredItem[] dense = new OpcUaMonitoredItem[0];
+    private final Map<Long, OpcUaMonitoredItem> sparse = Maps.newConcurrentMap();
+
+    private int size = 0;
+
+    OpcUaMonitoredItem get(long clientHandle) {
+        OpcUaMonitoredItem[] items = dense;
+
+        if (clientHandle >= 0 && clientHandle < items.length) {
+            return items[(int) clientHandle];
+        } else {
+            return sparse.isEmpty() ? null : sparse.get(clientHandle);
+        }
+    }
+
+    synchronized void putAll(List<OpcUaMonitoredItem> toAdd) {
+        if (toAdd.isEmpty()) return;
+
+        long maxHandle = toAdd.stream().mapToLong(i -> i.getClientHandle().longValue()).max().orElse(0L);
+
+        // Only grow the array for handles that would leave it reasonably dense.
+        int limit = Math.max(MIN_DENSE_CAPACITY, (size + toAdd.size()) * 2);
+
+        OpcUaMonitoredItem[] current = dense;
+        int length = current.length;
+
+        if (maxHandle >= length && length < limit) {
+            length = (int) Math.min(limit, Math.max(maxHandle + 1, length * 2L));
+        }
+
+        OpcUaMonitoredItem[] next = Arrays.copyOf(current, length);
+
+        // Sparse handles the array has grown to cover move into it; they're removed from the map only once the new
+        // array is visible, so lookups find them one way or the other.
+        List<Long> moved = newArrayList();
+
+        if (length > current.length) {
+            sparse.forEach((handle, item) -> {
+                if (handle < next.length) {
+                    next[handle.intValue()] = item;
+                    moved.add(handle);
+                }
+            });
+        }
+
+        for (OpcUaMonitoredItem item : toAdd) {
+            long handle = item.getClientHandle().longValue();
+
+            if (handle < next.length) {
+                if (next[(int) handle] == null) size++;
+                next[(int) handle] = item;
+            } else {
+                if (sparse.put(handle, item) == null) size++;
+            }
+        }
+
+        dense = next;
+
+        moved.forEach(sparse::remove);
+    }
+
+    synchronized void removeAll(List<Long> clientHandles) {
+        if (clientHandles.isEmpty()) return;
+
+        OpcUaMonitoredItem[] next = dense.clone();
+
+        for (long handle : clientHandles) {
+            if (handle >= 0 && handle < next.length) {
+                if (next[(int) handle] != null) size--;
+                next[(int) handle] = null;
+            } else {
+                if (sparse.remove(handle) != null) size--;
+            }
+        }
+
+        dense = next;
+    }
+
+    ImmutableList<OpcUaMonitoredItem> values() {
+        ImmutableList.Builder<OpcUaMonitoredItem> builder = ImmutableList.builder();
+
+        for (OpcUaMonitoredItem item : dense) {
+            if (item != null) builder.add(item);
+        }
+
+        builder.addAll(sparse.values());
+
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.OverflowStrategy;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.google.common.collect.Lists;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Multicasts notifications to Reactive Streams {@link Subscriber}s, each with its own demand and buffer.
+ * <p>
+ * {@link #publish(Object)} never blocks. A subscriber receives notifications published after its first request;
+ * those it has not yet requested are buffered according to the {@link OverflowStrategy} it subscribed with. Signals
+ * to a subscriber are serialized and are delivered on either the thread publishing or the thread requesting.
+ */
+final class NotificationSource<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationSource.class);
+
+    private final List<Sink> sinks = Lists.newCopyOnWriteArrayList();
+
+    private volatile int activeCount = 0;
+    private volatile boolean completed = false;
+
+    private final Runnable onSubscribersChanged;
+
+    /**
+     * @param onSubscribersChanged called whenever {@link #hasSubscribers()} may have changed.
+     */
+    NotificationSource(Runnable onSubscribersChanged) {
+        this.onSubscribersChanged = onSubscribersChanged;
+    }
+
+    /**
+     * @return {@code true} if any subscriber has requested notifications and not since cancelled or been completed.
+     */
+    boolean hasSubscribers() {
+        return activeCount > 0;
+    }
+
+    void publish(T notification) {
+        for (Sink sink : sinks) {
+            if (sink.active) sink.offer(notification);
+        }
+    }
+
+    /**
+     * Complete every current subscriber, after its buffered notifications, and any that subscribe later.
+     */
+    void complete() {
+        completed = true;
+
+        for (Sink sink : sinks) {
+            sink.complete();
+        }
+    }
+
+    Publisher<T> publisher(OverflowStrategy overflowStrategy, int bufferSize) {
+        if (overflowStrategy == null) throw new NullPointerException("overflowStrategy");
+        if (bufferSize < 1) throw new IllegalArgumentException("bufferSize must be > 0");
+
+        return subscriber -> {
+            if (subscriber == null) throw new NullPointerException("subscriber");
+
+            Sink sink = new Sink(subscriber, overflowStrategy, bufferSize);
+
+            // Rule 1.9: onSubscribe comes before anything else, so the sink can't be offered anything until after.
+            subscriber.onSubscribe(sink);
+
+            synchronized (sinks) {
+                if (sink.cancelled) return;
+
+                sinks.add(sink);
+            }
+
+            if (sink.demanded) activate(sink);
+
+            if (completed) sink.complete();
+        };
+    }
+
+    private void activate(Sink sink) {
+        synchronized (sinks) {
+            if (sink.active || !sinks.contains(sink)) return;
+
+            sink.active = true;
+            activeCount++;
+        }
+
+        onSubscribersChanged.run();
+    }
+
+    private void remove(Sink sink) {
+        boolean wasActive;
+
+        synchronized (sinks) {
+            if (!sinks.remove(sink)) return;
+
+            wasActive = sink.active;
+            if (wasActive) activeCount--;
+        }
+
+        if (wasActive) onSubscribersChanged.run();
+    }
+
+    private class Sink implements Subscription {
+
+        private final ArrayDeque<T> queue = new ArrayDeque<>();
+
+        private final AtomicLong requested = new AtomicLong(0L);
+        private final AtomicInteger wip = new AtomicInteger(0);
+
+        private volatile boolean demanded = false;
+        private volatile boolean active = false;
+        private volatile boolean cancelled = false;
+        private volatile boolean done = false;
+        private volatile Throwable error;
+
+        private final Subscriber<? super T> subscriber;
+        private final OverflowStrategy overflowStrategy;
+        private final int bufferSize;
+
+        Sink(Subscriber<? super T> subscriber, OverflowStrategy overflowStrategy, int bufferSize) {
+            this.subscriber = subscriber;
+            this.overflowStrategy = overflowStrategy;
+            this.bufferSize = overflowStrategy == OverflowStrategy.LATEST ? 1 : bufferSize;
+        }
+
+        void offer(T notification) {
+            if (cancelled || done) return;
+
+            synchronized (queue) {
+                if (queue.size() >= bufferSize) {
+                    if (overflowStrategy == OverflowStrategy.BUFFER) {
+                        queue.clear();
+                        error = new UaException(StatusCodes.Bad_ResourceUnavailable,
+                                "subscriber buffer overflow, bufferSize=" + bufferSize);
+                        done = true;
+                    } else {
+                        queue.poll();
+                        queue.add(notification);
+                    }
+                } else {
+                    queue.add(notification);
+                }
+            }
+
+            drain();
+        }
+
+        void complete() {
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Rule 3.9: request must be > 0, was " + n);
+                done = true;
+            } else {
+                long current;
+                long next;
+
+                do {
+                    current = requested.get();
+                    if (current == Long.MAX_VALUE) break;
+                    next = current + n;
+                    if (next < 0) next = Long.MAX_VALUE;
+                } while (!requested.compareAndSet(current, next));
+
+                if (!demanded) {
+                    demanded = true;
+                    activate(this);
+                }
+            }
+
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            remove(this);
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) return;
+
+            int missed = 1;
+
+            do {
+                long r = requested.get();
+                long emitted = 0L;
+
+                while (emitted != r && !cancelled && error == null) {
+                    T notification;
+
+                    synchronized (queue) {
+                        notification = queue.poll();
+                    }
+
+                    if (notification == null) break;
+
+                    try {
+                        subscriber.onNext(notification);
+                    } catch (Throwable t) {
+                        LOGGER.warn("Subscriber threw from onNext; cancelling.", t);
+                        cancel();
+                        return;
+                    }
+
+                    emitted++;
+                }
+
+                if (emitted > 0 && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+
+                if (!cancelled && done) {
+                    boolean empty;
+
+                    synchronized (queue) {
+                        empty = queue.isEmpty();
+                    }
+
+                    Throwable e = error;
+
+                    if (e != null || empty) {
+                        cancelled = true;
+                        remove(this);
+
+                        if (e != null) {
+                            subscriber.onError(e);
+                        } else {
+                            subscriber.onComplete();
+                        }
+
+                        return;
+                    }
+                }
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+    }
+
+}
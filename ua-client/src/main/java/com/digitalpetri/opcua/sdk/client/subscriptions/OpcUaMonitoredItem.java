@@ -16,8 +16,11 @@
 
 package com.digitalpetri.opcua.sdk.client.subscriptions;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.OverflowStrategy;
 import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
 import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
 import com.digitalpetri.opcua.stack.core.types.builtin.ExtensionObject;
@@ -26,6 +29,7 @@ import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
 import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
 import com.digitalpetri.opcua.stack.core.types.enumerated.MonitoringMode;
 import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
+import org.reactivestreams.Publisher;
 
 import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
 
@@ -40,6 +44,16 @@ public class OpcUaMonitoredItem implements UaMonitoredItem {
     private volatile ExtensionObject filterResult;
     private volatile MonitoringMode monitoringMode = MonitoringMode.Disabled;
 
+    private final NotificationSource<DataValue> valueSource = new NotificationSource<>(this::consumersChanged);
+    private final NotificationSource<Variant[]> eventSource = new NotificationSource<>(this::consumersChanged);
+
+    private final AtomicReference<DataValue> pendingValue = new AtomicReference<>();
+    private volatile boolean conflating = false;
+    private volatile Executor executor;
+
+    private OpcUaSubscription subscription;
+    private boolean reportedConsumer = false;
+
     private final UInteger clientHandle;
     private final ReadValueId readValueId;
     private final UInteger monitoredItemId;
@@ -106,11 +120,68 @@ public class OpcUaMonitoredItem implements UaMonitoredItem {
     @Override
     public void setValueConsumer(Consumer<DataValue> valueConsumer) {
         this.valueConsumer = valueConsumer;
+        consumersChanged();
     }
 
     @Override
     public void setEventConsumer(Consumer<Variant[]> eventConsumer) {
         this.eventConsumer = eventConsumer;
+        consumersChanged();
+    }
+
+    @Override
+    public void setConflating(boolean conflating) {
+        this.conflating = conflating;
+    }
+
+    @Override
+    public boolean isConflating() {
+        return conflating;
+    }
+
+    @Override
+    public Publisher<DataValue> getValuePublisher(OverflowStrategy overflowStrategy, int bufferSize) {
+        return valueSource.publisher(overflowStrategy, bufferSize);
+    }
+
+    @Override
+    public Publisher<Variant[]> getEventPublisher(OverflowStrategy overflowStrategy, int bufferSize) {
+        return eventSource.publisher(overflowStrategy, bufferSize);
+    }
+
+    boolean hasConsumer() {
+        return valueConsumer != null || eventConsumer != null ||
+                valueSource.hasSubscribers() || eventSource.hasSubscribers();
+    }
+
+    /**
+     * Attach this item to, or with {@code null} detach it from, the subscription counting items with consumers.
+     */
+    synchronized void setSubscription(OpcUaSubscription subscription) {
+        if (this.subscription != null && reportedConsumer) this.subscription.onConsumerChanged(false);
+
+        this.subscription = subscription;
+        this.executor = subscription != null ? subscription.getExecutor() : null;
+        this.reportedConsumer = subscription != null && hasConsumer();
+
+        if (reportedConsumer) subscription.onConsumerChanged(true);
+    }
+
+    /**
+     * Complete this item's publishers; called when the item is deleted.
+     */
+    void complete() {
+        valueSource.complete();
+        eventSource.complete();
+    }
+
+    private synchronized void consumersChanged() {
+        boolean hasConsumer = hasConsumer();
+
+        if (subscription != null && hasConsumer != reportedConsumer) {
+            reportedConsumer = hasConsumer;
+            subscription.onConsumerChanged(hasConsumer);
+        }
     }
 
     void setStatusCode(StatusCode statusCode) {
@@ -135,12 +206,50 @@ public class OpcUaMonitoredItem implements UaMonitoredItem {
 
     void onValueArrived(DataValue value) {
         Consumer<DataValue> c = valueConsumer;
-        if (c != null) c.accept(value);
+
+        if (c != null) {
+            Executor e = executor;
+
+            // Values keep going through the pending slot until it drains, even once conflation is turned off, so the
+            // consumer is never called concurrently or out of order.
+            if ((conflating || pendingValue.get() != null) && e != null) {
+                // Only schedule delivery if one isn't already pending; otherwise just replace the pending value.
+                if (pendingValue.getAndSet(value) == null) {
+                    e.execute(this::deliverPendingValue);
+                }
+            } else {
+                c.accept(value);
+            }
+        }
+
+        if (valueSource.hasSubscribers()) valueSource.publish(value);
+    }
+
+    private void deliverPendingValue() {
+        DataValue value = pendingValue.get();
+        Consumer<DataValue> c = valueConsumer;
+
+        try {
+            if (c != null) c.accept(value);
+        } finally {
+            // A newer value arrived while the consumer was busy; deliver it next.
+            if (!pendingValue.compareAndSet(value, null)) {
+                Executor e = executor;
+
+                if (e != null) {
+                    e.execute(this::deliverPendingValue);
+                } else {
+                    pendingValue.set(null);
+                }
+            }
+        }
     }
 
     void onEventArrived(Variant[] values) {
         Consumer<Variant[]> c = eventConsumer;
         if (c != null) c.accept(values);
+
+        if (eventSource.hasSubscribers()) eventSource.publish(values);
     }
 
 }
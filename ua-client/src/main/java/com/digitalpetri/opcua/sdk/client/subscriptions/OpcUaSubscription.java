@@ -20,11 +20,17 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import com.digitalpetri.opcua.sdk.client.OpcUaClient;
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.MonitoredItemValue;
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.OverflowStrategy;
 import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
 import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaSubscription;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
 import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
 import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UByte;
 import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
@@ -37,16 +43,25 @@ import com.digitalpetri.opcua.stack.core.types.structured.MonitoredItemModifyReq
 import com.digitalpetri.opcua.stack.core.types.structured.MonitoredItemModifyResult;
 import com.digitalpetri.opcua.stack.core.types.structured.SetMonitoringModeResponse;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.reactivestreams.Publisher;
 
 import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
 import static com.google.common.collect.Lists.newArrayList;
 
 public class OpcUaSubscription implements UaSubscription {
 
-    private final Map<UInteger, OpcUaMonitoredItem> itemsByClientHandle = Maps.newConcurrentMap();
+    private final MonitoredItemTable itemsByClientHandle = new MonitoredItemTable();
     private final Map<UInteger, OpcUaMonitoredItem> itemsByServerHandle = Maps.newConcurrentMap();
 
+    private final List<NotificationListener> notificationListeners = Lists.newCopyOnWriteArrayList();
+
+    private final NotificationSource<MonitoredItemValue> valueSource = new NotificationSource<>(() -> {});
+
+    private final AtomicLong clientHandles = new AtomicLong(0L);
+    private final AtomicInteger itemsWithConsumers = new AtomicInteger(0);
+
     private volatile long lastSequenceNumber = 0L;
     private volatile double revisedPublishingInterval = 0.0;
 
@@ -88,6 +103,7 @@ public class OpcUaSubscription implements UaSubscription {
                 itemsToCreate).thenApply(response -> {
 
             List<UaMonitoredItem> createdItems = newArrayList();
+            List<OpcUaMonitoredItem> goodItems = newArrayList();
 
             MonitoredItemCreateResult[] results = response.getResults();
 
@@ -106,13 +122,16 @@ public class OpcUaSubscription implements UaSubscription {
                         request.getMonitoringMode());
 
                 if (item.getStatusCode().isGood()) {
-                    itemsByClientHandle.put(item.getClientHandle(), item);
+                    item.setSubscription(this);
+                    goodItems.add(item);
                     itemsByServerHandle.put(item.getMonitoredItemId(), item);
                 }
 
                 createdItems.add(item);
             }
 
+            itemsByClientHandle.putAll(goodItems);
+
             return createdItems;
         });
     }
@@ -160,11 +179,21 @@ public class OpcUaSubscription implements UaSubscription {
         return client.deleteMonitoredItems(subscriptionId, monitoredItemIds).thenApply(response -> {
             StatusCode[] results = response.getResults();
 
+            List<Long> clientHandles = newArrayList();
+
             for (UaMonitoredItem item : itemsToDelete) {
-                itemsByClientHandle.remove(item.getClientHandle());
-                itemsByServerHandle.remove(item.getMonitoredItemId());
+                clientHandles.add(item.getClientHandle().longValue());
+
+                OpcUaMonitoredItem removed = itemsByServerHandle.remove(item.getMonitoredItemId());
+
+                if (removed != null) {
+                    removed.setSubscription(null);
+                    removed.complete();
+                }
             }
 
+            itemsByClientHandle.removeAll(clientHandles);
+
             return Arrays.asList(results);
         });
     }
@@ -212,6 +241,26 @@ public class OpcUaSubscription implements UaSubscription {
                 });
     }
 
+    @Override
+    public UInteger nextClientHandle() {
+        return uint(clientHandles.incrementAndGet());
+    }
+
+    @Override
+    public void addNotificationListener(NotificationListener listener) {
+        notificationListeners.add(listener);
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener) {
+        notificationListeners.remove(listener);
+    }
+
+    @Override
+    public Publisher<MonitoredItemValue> getValuePublisher(OverflowStrategy overflowStrategy, int bufferSize) {
+        return valueSource.publisher(overflowStrategy, bufferSize);
+    }
+
     @Override
     public UInteger getSubscriptionId() {
         return subscriptionId;
@@ -252,8 +301,45 @@ public class OpcUaSubscription implements UaSubscription {
         return ImmutableList.copyOf(itemsByClientHandle.values());
     }
 
-    Map<UInteger, OpcUaMonitoredItem> getItemsByClientHandle() {
-        return itemsByClientHandle;
+    OpcUaMonitoredItem getItemByClientHandle(UInteger clientHandle) {
+        return itemsByClientHandle.get(clientHandle.longValue());
+    }
+
+    /**
+     * @return {@code true} if a {@link NotificationListener} is registered or any item has a value or event consumer.
+     */
+    boolean hasConsumers() {
+        return itemsWithConsumers.get() > 0 || !notificationListeners.isEmpty() || valueSource.hasSubscribers();
+    }
+
+    void onValueArrived(OpcUaMonitoredItem item, DataValue value) {
+        item.onValueArrived(value);
+
+        if (valueSource.hasSubscribers()) valueSource.publish(new MonitoredItemValue(item, value));
+    }
+
+    /**
+     * Complete this subscription's publishers, and those of its items; called when the subscription is gone.
+     */
+    void complete() {
+        valueSource.complete();
+        itemsByServerHandle.values().forEach(OpcUaMonitoredItem::complete);
+    }
+
+    void onConsumerChanged(boolean added) {
+        if (added) {
+            itemsWithConsumers.incrementAndGet();
+        } else {
+            itemsWithConsumers.decrementAndGet();
+        }
+    }
+
+    Executor getExecutor() {
+        return client.getConfig().getExecutor();
+    }
+
+    List<NotificationListener> getNotificationListeners() {
+        return notificationListeners;
     }
 
     Map<UInteger, OpcUaMonitoredItem> getItemsByServerHandle() {
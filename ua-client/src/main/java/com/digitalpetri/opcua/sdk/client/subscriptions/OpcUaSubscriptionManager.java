@@ -28,14 +28,21 @@ import java.util.concurrent.atomic.AtomicLong;
 import com.digitalpetri.opcua.sdk.client.OpcUaClient;
 import com.digitalpetri.opcua.sdk.client.SessionActivityListener;
 import com.digitalpetri.opcua.sdk.client.api.UaSession;
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.DeliveryOverflowPolicy;
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
 import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaSubscription;
 import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaSubscriptionManager;
+import com.digitalpetri.opcua.stack.core.Identifiers;
 import com.digitalpetri.opcua.stack.core.StatusCodes;
 import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.UaSerializationException;
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
 import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
 import com.digitalpetri.opcua.stack.core.types.builtin.ExtensionObject;
 import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
 import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
 import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UByte;
 import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
 import com.digitalpetri.opcua.stack.core.types.structured.CreateSubscriptionResponse;
@@ -76,17 +83,34 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
 
     private final List<SubscriptionAcknowledgement> acknowledgements = newArrayList();
 
-    private final ExecutionQueue deliveryQueue;
+    private final ConcurrentMap<UInteger, BoundedExecutionQueue> deliveryQueues = Maps.newConcurrentMap();
+    private final ConcurrentMap<UInteger, PublishResponse> deferredResponses = Maps.newConcurrentMap();
+    private final BoundedExecutionQueue[] deliveryLanes;
     private final ExecutionQueue processingQueue;
 
+    private final PublishDepthController publishDepthController;
+
+    private final AtomicLong droppedCount = new AtomicLong(0L);
+    private final AtomicLong withheldCount = new AtomicLong(0L);
+    private final AtomicLong skippedCount = new AtomicLong(0L);
+
     private final OpcUaClient client;
 
     public OpcUaSubscriptionManager(OpcUaClient client) {
         this.client = client;
 
-        deliveryQueue = new ExecutionQueue(client.getConfig().getExecutor());
+        int lanes = client.getConfig().getDeliveryLanes().intValue();
+
+        deliveryLanes = new BoundedExecutionQueue[Math.max(0, lanes)];
+        for (int i = 0; i < deliveryLanes.length; i++) {
+            deliveryLanes[i] = newDeliveryQueue();
+        }
+
         processingQueue = new ExecutionQueue(client.getConfig().getExecutor());
 
+        publishDepthController = client.getConfig().isAdaptivePublishDepth() ?
+                new PublishDepthController(client.getConfig().getMaxPendingPublishRequests().longValue()) : null;
+
         client.addSessionActivityListener(new SessionActivityListener() {
             @Override
             public void onSessionInactive(UaSession session) {
@@ -228,6 +252,10 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
 
         return client.deleteSubscriptions(subscriptionIds).thenApply(r -> {
             OpcUaSubscription subscription = subscriptions.remove(subscriptionId);
+            deliveryQueues.remove(subscriptionId);
+            deferredResponses.remove(subscriptionId);
+
+            if (subscription != null) subscription.complete();
 
             maybeSendPublishRequests();
 
@@ -237,8 +265,11 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
 
     public void transferFailed(UInteger subscriptionId, StatusCode statusCode) {
         OpcUaSubscription subscription = subscriptions.remove(subscriptionId);
+        deliveryQueues.remove(subscriptionId);
+        deferredResponses.remove(subscriptionId);
 
         if (subscription != null) {
+            subscription.complete();
             subscriptionListeners.forEach(l -> l.onSubscriptionTransferFailed(subscription, statusCode));
         }
     }
@@ -259,11 +290,28 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
     }
 
     private long getMaxPendingPublishes() {
+        if (publishDepthController != null) {
+            double notificationsPerSecond = subscriptions.values().stream()
+                    .filter(OpcUaSubscription::isPublishingEnabled)
+                    .mapToDouble(s -> 1000.0 / Math.max(1.0, s.getRevisedPublishingInterval()))
+                    .sum();
+
+            return publishDepthController.getDepth(subscriptions.size(), notificationsPerSecond);
+        }
+
         long maxPendingPublishRequests = client.getConfig().getMaxPendingPublishRequests().longValue();
 
         return Math.min(subscriptions.size() * 2, maxPendingPublishRequests);
     }
 
+    /**
+     * @return the number of PublishRequests currently kept outstanding.
+     * @see com.digitalpetri.opcua.sdk.client.api.config.OpcUaClientConfig#isAdaptivePublishDepth()
+     */
+    public long getPublishDepth() {
+        return getMaxPendingPublishes();
+    }
+
     private UInteger getTimeoutHint() {
         double minKeepAlive = subscriptions.values().stream()
                 .map(s -> s.getRevisedPublishingInterval() * s.getRevisedMaxKeepAliveCount().doubleValue())
@@ -280,6 +328,11 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
 
         if (maxPendingPublishes == 0) return;
 
+        if (client.getConfig().getDeliveryOverflowPolicy() == DeliveryOverflowPolicy.BLOCK && isDeliveryFull()) {
+            logger.debug("Delivery queue full; not sending PublishRequests.");
+            return;
+        }
+
         client.getSession().thenAccept(session -> {
             AtomicLong pendingCount = pendingCountMap.computeIfAbsent(
                     session.getSessionId(), id -> new AtomicLong(0L));
@@ -338,6 +391,9 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
                 requestHandle, Arrays.toString(ackStrings));
         }
 
+        long outstanding = pendingCount.get();
+        long sentNanos = System.nanoTime();
+
         client.<PublishResponse>sendRequest(request).whenCompleteAsync((response, ex) -> {
 
             pendingCount.getAndUpdate(p -> (p > 0) ? p - 1 : 0);
@@ -346,6 +402,15 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
                 logger.debug("Received PublishResponse, sequenceNumber={}",
                         response.getNotificationMessage().getSequenceNumber());
 
+                if (publishDepthController != null) {
+                    UInteger[] available = response.getAvailableSequenceNumbers();
+
+                    publishDepthController.onPublishResponse(
+                            System.nanoTime() - sentNanos,
+                            Boolean.TRUE.equals(response.getMoreNotifications()),
+                            available != null ? available.length : 0);
+                }
+
                 processingQueue.submit(() -> onPublishComplete(response));
 
                 maybeSendPublishRequests();
@@ -358,6 +423,8 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
 
                 if (statusCode.getValue() != StatusCodes.Bad_TooManyPublishRequests) {
                     maybeSendPublishRequests();
+                } else if (publishDepthController != null) {
+                    publishDepthController.onTooManyPublishRequests(outstanding);
                 }
 
                 synchronized (this.acknowledgements) {
@@ -370,7 +437,7 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
         }, client.getConfig().getExecutor());
     }
 
-    private void onPublishComplete(PublishResponse response) {
+    void onPublishComplete(PublishResponse response) {
         logger.debug("onPublishComplete() response for subscriptionId={}", response.getSubscriptionId());
 
         UInteger subscriptionId = response.getSubscriptionId();
@@ -379,21 +446,44 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
         if (subscription == null) return;
 
         NotificationMessage notificationMessage = response.getNotificationMessage();
+        boolean hasData = notificationMessage.getNotificationData().length > 0;
 
         long sequenceNumber = notificationMessage.getSequenceNumber().longValue();
         long expectedSequenceNumber = subscription.getLastSequenceNumber() + 1;
 
+        BoundedExecutionQueue deliveryQueue = deliveryQueue(subscriptionId);
+        DeliveryOverflowPolicy policy = client.getConfig().getDeliveryOverflowPolicy();
+
         if (sequenceNumber > expectedSequenceNumber) {
+            if (policy == DeliveryOverflowPolicy.STOP_ACKNOWLEDGING && deliveryQueue.isFull()) {
+                // Republishing the gap now would only overfill the queue; it's republished from a later response
+                // once there's room, and nothing after it can be delivered before then.
+                logger.debug("[id={}] delivery queue full, deferring republish of sequence={}..{}",
+                        subscriptionId, expectedSequenceNumber, sequenceNumber);
+
+                if (hasData) {
+                    deliveryQueue.reject();
+                    withheldCount.incrementAndGet();
+                }
+
+                defer(subscriptionId, response);
+                acknowledge(subscription, response);
+
+                return;
+            }
+
             logger.warn("[id={}] expected sequence={}, received sequence={}. Calling Republish service...",
                     subscriptionId, expectedSequenceNumber, sequenceNumber);
 
             processingQueue.pause();
             processingQueue.submitToHead(() -> onPublishComplete(response));
 
-            republish(subscriptionId, expectedSequenceNumber, sequenceNumber).whenComplete((dataLost, ex) -> {
+            republish(subscription, expectedSequenceNumber, sequenceNumber).whenComplete((dataLost, ex) -> {
                 if (ex != null) {
                     logger.debug("Republish failed: {}", ex.getMessage(), ex);
 
+                    // Give up on the rest of the gap.
+                    subscription.setLastSequenceNumber(sequenceNumber - 1);
                     subscriptionListeners.forEach(l -> l.onNotificationDataLost(subscription));
                 } else {
                     // Republish succeeded, possibly with some data loss, resume processing.
@@ -402,18 +492,61 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
                     }
                 }
 
-                subscription.setLastSequenceNumber(sequenceNumber - 1);
                 processingQueue.resume();
             });
 
             return;
         }
 
-        subscription.setLastSequenceNumber(sequenceNumber);
+        boolean rejected = false;
+
+        if (deliveryQueue.isFull() && hasData) {
+            if (policy == DeliveryOverflowPolicy.STOP_ACKNOWLEDGING) {
+                // Leave the last sequence number as it is so the gap is republished once there's room.
+                logger.debug("[id={}] delivery queue full, withholding sequence={}", subscriptionId, sequenceNumber);
+
+                deliveryQueue.reject();
+                withheldCount.incrementAndGet();
+                rejected = true;
+
+                defer(subscriptionId, response);
+            } else if (policy == DeliveryOverflowPolicy.DROP) {
+                logger.debug("[id={}] delivery queue full, dropping sequence={}", subscriptionId, sequenceNumber);
+
+                deliveryQueue.reject();
+                droppedCount.incrementAndGet();
+                rejected = true;
+
+                subscription.setLastSequenceNumber(sequenceNumber);
+                subscriptionListeners.forEach(l -> l.onNotificationDataLost(subscription));
+            }
+        }
+
+        if (!rejected) {
+            subscription.setLastSequenceNumber(sequenceNumber);
+        }
+
+        acknowledge(subscription, response);
+
+        if (!rejected) {
+            deliveryQueue.submit(() -> onNotificationMessage(subscriptionId, notificationMessage));
+        }
+    }
+
+    /**
+     * Acknowledge the sequence numbers available in {@code response} up to the subscription's last sequence number.
+     */
+    private void acknowledge(OpcUaSubscription subscription, PublishResponse response) {
+        UInteger subscriptionId = subscription.getSubscriptionId();
 
         synchronized (acknowledgements) {
+            long lastSequenceNumber = subscription.getLastSequenceNumber();
+
             for (UInteger available : response.getAvailableSequenceNumbers()) {
-                acknowledgements.add(new SubscriptionAcknowledgement(subscriptionId, available));
+                // Anything past the last sequence number processed is being withheld for republishing.
+                if (available.longValue() <= lastSequenceNumber) {
+                    acknowledgements.add(new SubscriptionAcknowledgement(subscriptionId, available));
+                }
             }
 
             if (logger.isDebugEnabled()) {
@@ -423,38 +556,59 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
 
                 logger.debug(
                     "[id={}] PublishResponse sequence={}, available sequences={}",
-                    subscriptionId, sequenceNumber, Arrays.toString(seqStrings));
+                    subscriptionId, response.getNotificationMessage().getSequenceNumber(),
+                    Arrays.toString(seqStrings));
             }
         }
-
-        deliveryQueue.submit(() -> onNotificationMessage(subscriptionId, notificationMessage));
     }
 
-    private CompletableFuture<Boolean> republish(UInteger subscriptionId, long fromSequence, long toSequence) {
+    /**
+     * Republish {@code fromSequence} up to, but not including, {@code toSequence}, advancing the subscription's last
+     * sequence number past each message delivered or lost.
+     * <p>
+     * Under {@link DeliveryOverflowPolicy#STOP_ACKNOWLEDGING} republishing stops at the first message that doesn't fit
+     * in the delivery queue, leaving the rest of the gap for later.
+     *
+     * @return a {@link CompletableFuture} containing {@code true} if any message was lost.
+     */
+    private CompletableFuture<Boolean> republish(OpcUaSubscription subscription, long fromSequence, long toSequence) {
         CompletableFuture<Boolean> future = new CompletableFuture<>();
 
-        republish(subscriptionId, fromSequence, toSequence, false, future);
+        republish(subscription, fromSequence, toSequence, false, future);
 
         return future;
     }
 
-    private void republish(UInteger subscriptionId,
+    private void republish(OpcUaSubscription subscription,
                            long fromSequence,
                            long toSequence,
                            boolean dataLost,
                            CompletableFuture<Boolean> future) {
 
+        UInteger subscriptionId = subscription.getSubscriptionId();
+
         if (fromSequence == toSequence) {
             future.complete(dataLost);
         } else {
             client.republish(subscriptionId, uint(fromSequence)).whenComplete((response, ex) -> {
                 if (response != null) {
-                    try {
-                        onRepublishComplete(subscriptionId, response, uint(fromSequence));
-
-                        republish(subscriptionId, fromSequence + 1, toSequence, dataLost, future);
-                    } catch (UaException e) {
-                        republish(subscriptionId, fromSequence + 1, toSequence, true, future);
+                    NotificationMessage notificationMessage = response.getNotificationMessage();
+                    UInteger sequenceNumber = notificationMessage.getSequenceNumber();
+
+                    if (sequenceNumber.longValue() != fromSequence) {
+                        logger.debug("[id={}] expected republished sequence={}, received sequence={}",
+                                subscriptionId, fromSequence, sequenceNumber);
+
+                        subscription.setLastSequenceNumber(fromSequence);
+                        republish(subscription, fromSequence + 1, toSequence, true, future);
+                    } else if (onRepublishComplete(subscription, notificationMessage)) {
+                        subscription.setLastSequenceNumber(fromSequence);
+                        republish(subscription, fromSequence + 1, toSequence, dataLost, future);
+                    } else if (client.getConfig().getDeliveryOverflowPolicy() == DeliveryOverflowPolicy.DROP) {
+                        subscription.setLastSequenceNumber(fromSequence);
+                        republish(subscription, fromSequence + 1, toSequence, true, future);
+                    } else {
+                        future.complete(dataLost);
                     }
                 } else {
                     StatusCode statusCode = UaException.extract(ex)
@@ -462,7 +616,8 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
                             .orElse(StatusCode.BAD);
 
                     if (statusCode.getValue() == StatusCodes.Bad_MessageNotAvailable) {
-                        republish(subscriptionId, fromSequence + 1, toSequence, true, future);
+                        subscription.setLastSequenceNumber(fromSequence);
+                        republish(subscription, fromSequence + 1, toSequence, true, future);
                     } else {
                         future.completeExceptionally(ex);
                     }
@@ -471,19 +626,164 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
         }
     }
 
-    private void onRepublishComplete(UInteger subscriptionId,
-                                     RepublishResponse response,
-                                     UInteger expectedSequenceNumber) throws UaException {
+    /**
+     * Queue a republished message for delivery, applying the {@link DeliveryOverflowPolicy} if its queue is full.
+     *
+     * @return {@code false} if the message was withheld or dropped rather than queued.
+     */
+    private boolean onRepublishComplete(OpcUaSubscription subscription, NotificationMessage notificationMessage) {
+        UInteger subscriptionId = subscription.getSubscriptionId();
+        BoundedExecutionQueue deliveryQueue = deliveryQueue(subscriptionId);
 
-        NotificationMessage notificationMessage = response.getNotificationMessage();
-        UInteger sequenceNumber = notificationMessage.getSequenceNumber();
+        if (deliveryQueue.isFull() && notificationMessage.getNotificationData().length > 0) {
+            DeliveryOverflowPolicy policy = client.getConfig().getDeliveryOverflowPolicy();
+
+            if (policy == DeliveryOverflowPolicy.STOP_ACKNOWLEDGING) {
+                logger.debug("[id={}] delivery queue full, withholding republished sequence={}",
+                        subscriptionId, notificationMessage.getSequenceNumber());
 
-        if (!sequenceNumber.equals(expectedSequenceNumber)) {
-            throw new UaException(StatusCodes.Bad_SequenceNumberInvalid,
-                    "expected sequence=" + expectedSequenceNumber + ", received sequence=" + sequenceNumber);
+                deliveryQueue.reject();
+                withheldCount.incrementAndGet();
+
+                return false;
+            } else if (policy == DeliveryOverflowPolicy.DROP) {
+                logger.debug("[id={}] delivery queue full, dropping republished sequence={}",
+                        subscriptionId, notificationMessage.getSequenceNumber());
+
+                deliveryQueue.reject();
+                droppedCount.incrementAndGet();
+
+                return false;
+            }
         }
 
         deliveryQueue.submit(() -> onNotificationMessage(subscriptionId, notificationMessage));
+
+        return true;
+    }
+
+    /**
+     * Get the {@link BoundedExecutionQueue} notifications for a subscription are delivered on. Delivery for a
+     * subscription is always serialized; delivery for subscriptions on different queues runs in parallel.
+     */
+    private BoundedExecutionQueue deliveryQueue(UInteger subscriptionId) {
+        if (deliveryLanes.length > 0) {
+            return deliveryLanes[(int) (subscriptionId.longValue() % deliveryLanes.length)];
+        } else {
+            return deliveryQueues.computeIfAbsent(subscriptionId, id -> newDeliveryQueue());
+        }
+    }
+
+    private BoundedExecutionQueue newDeliveryQueue() {
+        return new BoundedExecutionQueue(
+                client.getConfig().getExecutor(),
+                client.getConfig().getDeliveryQueueCapacity().intValue(),
+                this::onDeliveryAvailable);
+    }
+
+    /**
+     * Hold on to a response withheld under {@link DeliveryOverflowPolicy#STOP_ACKNOWLEDGING} until its delivery queue
+     * has room again.
+     */
+    void defer(UInteger subscriptionId, PublishResponse response) {
+        deferredResponses.put(subscriptionId, response);
+
+        // The queue may have drained since it was found full, in which case onDeliveryAvailable has already run and
+        // found nothing to process again.
+        if (!deliveryQueue(subscriptionId).isFull()) {
+            onDeliveryAvailable();
+        }
+    }
+
+    /**
+     * Called when a delivery queue goes from full to not full. Responses withheld under
+     * {@link DeliveryOverflowPolicy#STOP_ACKNOWLEDGING} are processed again, republishing what was withheld now rather
+     * than when the next PublishResponse arrives.
+     */
+    private void onDeliveryAvailable() {
+        for (UInteger subscriptionId : deferredResponses.keySet()) {
+            PublishResponse response = deferredResponses.remove(subscriptionId);
+
+            if (response != null) {
+                long sequenceNumber = response.getNotificationMessage().getSequenceNumber().longValue();
+
+                processingQueue.submit(() -> {
+                    OpcUaSubscription subscription = subscriptions.get(subscriptionId);
+
+                    // Unless a later response has already caught up past it.
+                    if (subscription != null && sequenceNumber > subscription.getLastSequenceNumber()) {
+                        onPublishComplete(response);
+                    }
+                });
+            }
+        }
+
+        maybeSendPublishRequests();
+    }
+
+    private boolean isDeliveryFull() {
+        for (BoundedExecutionQueue queue : deliveryLanes) {
+            if (queue.isFull()) return true;
+        }
+
+        for (BoundedExecutionQueue queue : deliveryQueues.values()) {
+            if (queue.isFull()) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the number of NotificationMessages queued for, or in, delivery across all lanes.
+     */
+    public int getDeliveryQueueDepth() {
+        int depth = 0;
+
+        for (BoundedExecutionQueue queue : deliveryLanes) depth += queue.getDepth();
+        for (BoundedExecutionQueue queue : deliveryQueues.values()) depth += queue.getDepth();
+
+        return depth;
+    }
+
+    /**
+     * @return the greatest depth reached by any current delivery lane.
+     */
+    public int getDeliveryQueueHighWaterMark() {
+        int highWaterMark = 0;
+
+        for (BoundedExecutionQueue queue : deliveryLanes) {
+            highWaterMark = Math.max(highWaterMark, queue.getHighWaterMark());
+        }
+
+        for (BoundedExecutionQueue queue : deliveryQueues.values()) {
+            highWaterMark = Math.max(highWaterMark, queue.getHighWaterMark());
+        }
+
+        return highWaterMark;
+    }
+
+    /**
+     * @return the number of NotificationMessages dropped because their delivery lane was full.
+     * @see DeliveryOverflowPolicy#DROP
+     */
+    public long getDroppedNotificationCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the number of NotificationMessages left unacknowledged because their delivery lane was full.
+     * @see DeliveryOverflowPolicy#STOP_ACKNOWLEDGING
+     */
+    public long getWithheldNotificationCount() {
+        return withheldCount.get();
+    }
+
+    /**
+     * @return the number of DataChangeNotifications and EventNotificationLists discarded without being decoded because
+     * nothing consumed their subscription's values or events.
+     */
+    public long getSkippedNotificationCount() {
+        return skippedCount.get();
     }
 
     private void onNotificationMessage(UInteger subscriptionId, NotificationMessage notificationMessage) {
@@ -495,10 +795,24 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
         OpcUaSubscription subscription = subscriptions.get(subscriptionId);
         if (subscription == null) return;
 
-        Map<UInteger, OpcUaMonitoredItem> items = subscription.getItemsByClientHandle();
+        boolean consumed = subscription.hasConsumers();
 
         for (ExtensionObject xo : notificationMessage.getNotificationData()) {
-            Object o = xo.decode();
+            if (!consumed && isDataNotification(xo) && !isKeepAlive(xo)) {
+                // Nothing would receive these values; don't pay to decode them.
+                logger.trace("[id={}] no consumers, skipping {}", subscriptionId, xo.getEncodingTypeId());
+                skippedCount.incrementAndGet();
+                continue;
+            }
+
+            Object o;
+
+            try {
+                o = xo.decode();
+            } catch (UaSerializationException e) {
+                logger.warn("[id={}] failed to decode notification data: {}", subscriptionId, e.getMessage(), e);
+                continue;
+            }
 
             if (o instanceof DataChangeNotification) {
                 DataChangeNotification dcn = (DataChangeNotification) o;
@@ -506,13 +820,30 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
 
                 logger.debug("Received {} MonitoredItemNotifications", notificationCount);
 
+                List<UaSubscription.NotificationListener> listeners = subscription.getNotificationListeners();
+                List<UaMonitoredItem> batchItems = listeners.isEmpty() ? null : newArrayList();
+                List<DataValue> batchValues = listeners.isEmpty() ? null : newArrayList();
+
                 for (MonitoredItemNotification min : dcn.getMonitoredItems()) {
                     logger.trace("MonitoredItemNotification: clientHandle={}, value={}",
                             min.getClientHandle(), min.getValue());
 
-                    OpcUaMonitoredItem item = items.get(min.getClientHandle());
-                    if (item != null) item.onValueArrived(min.getValue());
-                    else logger.warn("no item for clientHandle=" + min.getClientHandle());
+                    OpcUaMonitoredItem item = subscription.getItemByClientHandle(min.getClientHandle());
+
+                    if (item != null) {
+                        subscription.onValueArrived(item, min.getValue());
+
+                        if (batchItems != null) {
+                            batchItems.add(item);
+                            batchValues.add(min.getValue());
+                        }
+                    } else {
+                        logger.warn("no item for clientHandle=" + min.getClientHandle());
+                    }
+                }
+
+                if (batchItems != null && !batchItems.isEmpty()) {
+                    listeners.forEach(l -> l.onDataChanged(subscription, batchItems, batchValues, publishTime));
                 }
 
                 if (notificationCount == 0) {
@@ -521,12 +852,28 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
             } else if (o instanceof EventNotificationList) {
                 EventNotificationList enl = (EventNotificationList) o;
 
+                List<UaSubscription.NotificationListener> listeners = subscription.getNotificationListeners();
+                List<UaMonitoredItem> batchItems = listeners.isEmpty() ? null : newArrayList();
+                List<Variant[]> batchFields = listeners.isEmpty() ? null : newArrayList();
+
                 for (EventFieldList efl : enl.getEvents()) {
                     logger.trace("EventFieldList: clientHandle={}, values={}",
                             efl.getClientHandle(), Arrays.toString(efl.getEventFields()));
 
-                    OpcUaMonitoredItem item = items.get(efl.getClientHandle());
-                    if (item != null) item.onEventArrived(efl.getEventFields());
+                    OpcUaMonitoredItem item = subscription.getItemByClientHandle(efl.getClientHandle());
+
+                    if (item != null) {
+                        item.onEventArrived(efl.getEventFields());
+
+                        if (batchItems != null) {
+                            batchItems.add(item);
+                            batchFields.add(efl.getEventFields());
+                        }
+                    }
+                }
+
+                if (batchItems != null && !batchItems.isEmpty()) {
+                    listeners.forEach(l -> l.onEvent(subscription, batchItems, batchFields, publishTime));
                 }
             } else if (o instanceof StatusChangeNotification) {
                 StatusChangeNotification scn = (StatusChangeNotification) o;
@@ -537,18 +884,55 @@ public class OpcUaSubscriptionManager implements UaSubscriptionManager {
 
                 if (scn.getStatus().getValue() == StatusCodes.Bad_Timeout) {
                     subscriptions.remove(subscriptionId);
+                    deliveryQueues.remove(subscriptionId);
+                    deferredResponses.remove(subscriptionId);
+                    subscription.complete();
                     maybeSendPublishRequests();
                 }
             }
         }
     }
 
+    private static boolean isDataNotification(ExtensionObject xo) {
+        NodeId encodingTypeId = xo.getEncodingTypeId();
+
+        return Identifiers.DataChangeNotification_Encoding_DefaultBinary.equals(encodingTypeId) ||
+                Identifiers.EventNotificationList_Encoding_DefaultBinary.equals(encodingTypeId) ||
+                Identifiers.DataChangeNotification_Encoding_DefaultXml.equals(encodingTypeId) ||
+                Identifiers.EventNotificationList_Encoding_DefaultXml.equals(encodingTypeId);
+    }
+
+    /**
+     * An empty DataChangeNotification is reported as a keep-alive whether or not anything consumes values. Its item
+     * count is the first field of the binary encoding, so it can be checked without decoding.
+     */
+    private static boolean isKeepAlive(ExtensionObject xo) {
+        if (!Identifiers.DataChangeNotification_Encoding_DefaultBinary.equals(xo.getEncodingTypeId())) return false;
+
+        Object encoded = xo.getEncoded();
+
+        if (encoded instanceof ByteString) {
+            byte[] bytes = ((ByteString) encoded).bytes();
+
+            if (bytes == null || bytes.length < 4) return false;
+
+            int count = (bytes[0] & 0xFF) | (bytes[1] & 0xFF) << 8 | (bytes[2] & 0xFF) << 16 | (bytes[3] & 0xFF) << 24;
+
+            return count <= 0;
+        } else {
+            return false;
+        }
+    }
+
     public void startPublishing() {
         maybeSendPublishRequests();
     }
 
     public void clearSubscriptions() {
+        subscriptions.values().forEach(OpcUaSubscription::complete);
         subscriptions.clear();
+        deliveryQueues.clear();
+        deferredResponses.clear();
     }
 
 }
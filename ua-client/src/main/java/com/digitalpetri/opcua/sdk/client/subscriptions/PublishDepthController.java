@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+/**
+ * Decides how many PublishRequests to keep outstanding.
+ * <p>
+ * The baseline is one request parked at the server per subscription, plus enough to cover the notifications that
+ * become ready while a response is on its way back: the shortest observed publish round trip multiplied by the rate
+ * the subscriptions publish at.
+ * <p>
+ * On top of that, headroom grows by one each time a response shows the server holding a backlog (more notifications,
+ * or several unacknowledged sequence numbers), and decays slowly while it doesn't. Bad_TooManyPublishRequests halves
+ * the headroom and caps the depth just below the number that were outstanding; the cap is relaxed again by one
+ * every {@value #CEILING_PROBE_INTERVAL} successful responses.
+ */
+class PublishDepthController {
+
+    static final int CEILING_PROBE_INTERVAL = 256;
+
+    private static final int RTT_WINDOW = 64;
+    private static final double HEADROOM_DECAY = 0.1;
+
+    private long minRttNanos = -1L;
+    private long windowMinRttNanos = Long.MAX_VALUE;
+    private int windowSamples = 0;
+
+    private double headroom = 0.0;
+
+    private long ceiling = Long.MAX_VALUE;
+    private int responsesSinceThrottled = 0;
+
+    private final long maxDepth;
+
+    /**
+     * @param maxDepth the most PublishRequests ever kept outstanding.
+     */
+    PublishDepthController(long maxDepth) {
+        this.maxDepth = Math.max(1, maxDepth);
+    }
+
+    /**
+     * A PublishResponse arrived.
+     *
+     * @param rttNanos          the time the request was outstanding.
+     * @param moreNotifications the response's moreNotifications flag.
+     * @param available         the number of available sequence numbers in the response.
+     */
+    synchronized void onPublishResponse(long rttNanos, boolean moreNotifications, int available) {
+        // The shortest round trips are the requests the server answered immediately, i.e. the network latency;
+        // take the minimum per window so it can still follow the link getting slower.
+        windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+
+        if (minRttNanos < 0 || ++windowSamples >= RTT_WINDOW) {
+            minRttNanos = windowMinRttNanos;
+            windowMinRttNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+
+        if (moreNotifications || available > 1) {
+            headroom = Math.min(maxDepth, headroom + 1.0);
+        } else {
+            headroom = Math.max(0.0, headroom - HEADROOM_DECAY);
+        }
+
+        if (ceiling < maxDepth && ++responsesSinceThrottled >= CEILING_PROBE_INTERVAL) {
+            ceiling++;
+            responsesSinceThrottled = 0;
+        }
+    }
+
+    /**
+     * The server rejected a PublishRequest with Bad_TooManyPublishRequests.
+     *
+     * @param outstanding the number of PublishRequests outstanding when the request was sent.
+     */
+    synchronized void onTooManyPublishRequests(long outstanding) {
+        headroom /= 2.0;
+        ceiling = Math.max(1, Math.min(ceiling, outstanding - 1));
+        responsesSinceThrottled = 0;
+    }
+
+    /**
+     * @param subscriptionCount      the number of subscriptions.
+     * @param notificationsPerSecond the rate, summed across subscriptions, at which the server may publish.
+     * @return the number of PublishRequests to keep outstanding.
+     */
+    synchronized long getDepth(int subscriptionCount, double notificationsPerSecond) {
+        if (subscriptionCount == 0) return 0;
+
+        double rttSeconds = Math.max(0L, minRttNanos) / 1e9;
+        long inFlight = (long) Math.ceil(rttSeconds * notificationsPerSecond);
+        long depth = subscriptionCount + inFlight + (long) Math.ceil(headroom);
+
+        return Math.max(1, Math.min(depth, Math.min(ceiling, maxDepth)));
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.structured.CallMethodRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.CallMethodResult;
+import com.digitalpetri.opcua.stack.core.types.structured.CallResponse;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.assertFailsWith;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.await;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.header;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+public class CallCoalescerTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testCallsInWindowShareOneRequest() throws Exception {
+        FakeCalls calls = new FakeCalls();
+        CallCoalescer coalescer = new CallCoalescer(calls::call, executor, 50, 100);
+
+        CompletableFuture<CallMethodResult> f0 = coalescer.call(request(0));
+        CompletableFuture<CallMethodResult> f1 = coalescer.call(request(1));
+
+        calls.completeNext();
+
+        assertEquals(await(f0).getOutputArguments()[0].getValue(), 0);
+        assertEquals(await(f1).getOutputArguments()[0].getValue(), 1);
+
+        assertEquals(calls.requests.size(), 1);
+        assertEquals(coalescer.getCallCount(), 2L);
+    }
+
+    @Test
+    public void testBatchesAreSentWithoutWaitingForEarlierBatches() throws Exception {
+        FakeCalls calls = new FakeCalls();
+        CallCoalescer coalescer = new CallCoalescer(calls::call, executor, 60_000, 1);
+
+        CompletableFuture<CallMethodResult> f0 = coalescer.call(request(0));
+        CompletableFuture<CallMethodResult> f1 = coalescer.call(request(1));
+        CompletableFuture<CallMethodResult> f2 = coalescer.call(request(2));
+
+        // Each call fills a batch, and every batch is sent while the first is still outstanding.
+        assertEquals(calls.requests.size(), 3);
+        assertFalse(f0.isDone());
+
+        calls.completeNext();
+        calls.completeNext();
+        calls.completeNext();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(calls.requests.get(i).get(0).getMethodId(), new NodeId(2, i));
+        }
+
+        assertEquals(await(f0).getOutputArguments()[0].getValue(), 0);
+        assertEquals(await(f1).getOutputArguments()[0].getValue(), 1);
+        assertEquals(await(f2).getOutputArguments()[0].getValue(), 2);
+    }
+
+    @Test
+    public void testFailedBatchDoesNotStopLaterBatches() throws Exception {
+        FakeCalls calls = new FakeCalls();
+        CallCoalescer coalescer = new CallCoalescer(calls::call, executor, 60_000, 1);
+
+        CompletableFuture<CallMethodResult> f0 = coalescer.call(request(0));
+        CompletableFuture<CallMethodResult> f1 = coalescer.call(request(1));
+
+        calls.failNext(new UaException(StatusCodes.Bad_Timeout, "timeout"));
+        assertFailsWith(f0, StatusCodes.Bad_Timeout);
+
+        calls.completeNext();
+        assertEquals(await(f1).getOutputArguments()[0].getValue(), 1);
+    }
+
+    @Test
+    public void testShortResultsFailEveryCall() throws Exception {
+        CallCoalescer coalescer = new CallCoalescer(
+                requests -> CompletableFuture.completedFuture(
+                        new CallResponse(header(), new CallMethodResult[0], null)),
+                executor, 50, 100);
+
+        CompletableFuture<CallMethodResult> f0 = coalescer.call(request(0));
+        CompletableFuture<CallMethodResult> f1 = coalescer.call(request(1));
+
+        assertFailsWith(f0, StatusCodes.Bad_UnexpectedError);
+        assertFailsWith(f1, StatusCodes.Bad_UnexpectedError);
+    }
+
+    @Test
+    public void testSynchronousFailureFailsEveryCall() throws Exception {
+        CallCoalescer coalescer = new CallCoalescer(
+                requests -> {
+                    throw new IllegalStateException("not connected");
+                },
+                executor, 0, 100);
+
+        CompletableFuture<CallMethodResult> f0 = coalescer.call(request(0));
+
+        try {
+            await(f0);
+        } catch (IllegalStateException expected) {
+            return;
+        }
+
+        throw new AssertionError("expected IllegalStateException");
+    }
+
+    static CallMethodRequest request(int i) {
+        return new CallMethodRequest(new NodeId(2, "object"), new NodeId(2, i), new Variant[]{new Variant(i)});
+    }
+
+    /**
+     * Records each request and leaves its response pending until {@link #completeNext()} echoes the input arguments
+     * back as output arguments.
+     */
+    static class FakeCalls {
+        final List<List<CallMethodRequest>> requests = new CopyOnWriteArrayList<>();
+        final List<CompletableFuture<CallResponse>> pending = new CopyOnWriteArrayList<>();
+
+        private int completed = 0;
+
+        CompletableFuture<CallResponse> call(List<CallMethodRequest> methodsToCall) {
+            CompletableFuture<CallResponse> future = new CompletableFuture<>();
+
+            requests.add(methodsToCall);
+            pending.add(future);
+
+            return future;
+        }
+
+        void completeNext() throws Exception {
+            awaitNext();
+
+            List<CallMethodRequest> methods = requests.get(completed);
+
+            CallMethodResult[] results = methods.stream()
+                    .map(m -> new CallMethodResult(StatusCode.GOOD, null, null, m.getInputArguments()))
+                    .toArray(CallMethodResult[]::new);
+
+            pending.get(completed++).complete(new CallResponse(header(), results, null));
+        }
+
+        void failNext(Throwable ex) throws Exception {
+            awaitNext();
+
+            pending.get(completed++).completeExceptionally(ex);
+        }
+
+        private void awaitNext() throws Exception {
+            long deadline = System.currentTimeMillis() + 5000;
+
+            while (pending.size() <= completed) {
+                if (System.currentTimeMillis() > deadline) throw new AssertionError("no request was sent");
+                Thread.sleep(5);
+            }
+        }
+    }
+
+}
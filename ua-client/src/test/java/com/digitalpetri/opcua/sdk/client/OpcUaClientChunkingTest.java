@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.digitalpetri.opcua.sdk.client.api.config.OpcUaClientConfig;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.DiagnosticInfo;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadResponse;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.assertFailsWith;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.await;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.header;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class OpcUaClientChunkingTest {
+
+    private final OpcUaClient client = new OpcUaClient(OpcUaClientConfig.builder()
+            .setMaxConcurrentChunks(uint(2))
+            .build());
+
+    @Test
+    public void testWithinLimitIsSentAsOneRequest() throws Exception {
+        FakeReads reads = new FakeReads();
+
+        CompletableFuture<ReadResponse> future = send(reads, items(10), uint(10));
+        reads.complete(0);
+
+        assertEquals(reads.chunks.size(), 1);
+        assertEquals(values(await(future)), items(10));
+
+        // A limit of 0 means no limit.
+        future = send(reads, items(10), uint(0));
+        reads.complete(1);
+
+        assertEquals(reads.chunks.size(), 2);
+        assertEquals(values(await(future)), items(10));
+    }
+
+    @Test
+    public void testSplitsIntoChunksAndMergesInOrder() throws Exception {
+        FakeReads reads = new FakeReads();
+
+        CompletableFuture<ReadResponse> future = send(reads, items(25), uint(10));
+
+        // No more than maxConcurrentChunks outstanding at a time.
+        reads.awaitChunks(2);
+        assertEquals(reads.chunks.size(), 2);
+
+        // Completing out of order doesn't change the merged order.
+        reads.complete(1);
+        reads.complete(0);
+
+        reads.awaitChunks(3);
+        reads.complete(2);
+
+        ReadResponse response = await(future);
+
+        assertEquals(
+                reads.chunks.stream().map(List::size).collect(Collectors.toList()),
+                Arrays.asList(10, 10, 5));
+
+        assertEquals(values(response), items(25));
+        assertNull(response.getDiagnosticInfos());
+    }
+
+    @Test
+    public void testConcurrencyOfOneSendsChunksInSequence() throws Exception {
+        FakeReads reads = new FakeReads();
+
+        CompletableFuture<ReadResponse> future = client.sendChunked(items(5), uint(2), 1, reads::read,
+                (chunks, responses) -> new ReadResponse(
+                        responses.get(0).getResponseHeader(),
+                        OpcUaClient.concat(responses, ReadResponse::getResults, DataValue[]::new),
+                        null));
+
+        for (int i = 0; i < 3; i++) {
+            reads.awaitChunks(i + 1);
+            Thread.sleep(50);
+
+            // The next chunk isn't sent until this one completes.
+            assertEquals(reads.chunks.size(), i + 1);
+            reads.complete(i);
+        }
+
+        assertEquals(values(await(future)), items(5));
+    }
+
+    @Test
+    public void testDiagnosticInfosStayAlignedWhenAChunkHasNone() throws Exception {
+        DiagnosticInfo info = new DiagnosticInfo(-1, -1, -1, -1, "second", StatusCode.GOOD, null);
+
+        FakeReads reads = new FakeReads();
+        reads.diagnostics = chunk -> chunk == 1 ? info : null;
+
+        CompletableFuture<ReadResponse> future = send(reads, items(5), uint(2));
+
+        for (int i = 0; i < 3; i++) {
+            reads.awaitChunks(i + 1);
+            reads.complete(i);
+        }
+
+        ReadResponse response = await(future);
+        DiagnosticInfo[] diagnosticInfos = response.getDiagnosticInfos();
+
+        assertEquals(diagnosticInfos.length, response.getResults().length);
+
+        for (int i = 0; i < diagnosticInfos.length; i++) {
+            if (i == 2 || i == 3) {
+                assertSame(diagnosticInfos[i], info);
+            } else {
+                assertSame(diagnosticInfos[i], DiagnosticInfo.NULL_VALUE);
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyDiagnosticInfosEverywhereIsNull() {
+        List<List<Integer>> chunks = Arrays.asList(items(2), items(1));
+        List<DiagnosticInfo[]> responses = Arrays.asList(new DiagnosticInfo[0], null);
+
+        assertNull(OpcUaClient.diagnosticInfos(chunks, responses, d -> d));
+    }
+
+    @Test
+    public void testShortDiagnosticInfosArePadded() {
+        DiagnosticInfo info = new DiagnosticInfo(-1, -1, -1, -1, "first", StatusCode.GOOD, null);
+
+        List<List<Integer>> chunks = Arrays.asList(items(3), items(2));
+        List<DiagnosticInfo[]> responses = Arrays.asList(new DiagnosticInfo[]{info}, new DiagnosticInfo[0]);
+
+        DiagnosticInfo[] merged = OpcUaClient.diagnosticInfos(chunks, responses, d -> d);
+
+        assertEquals(merged.length, 5);
+        assertSame(merged[0], info);
+
+        for (int i = 1; i < 5; i++) {
+            assertSame(merged[i], DiagnosticInfo.NULL_VALUE);
+        }
+    }
+
+    @Test
+    public void testFailedChunkFailsTheMergedResponse() throws Exception {
+        FakeReads reads = new FakeReads();
+
+        CompletableFuture<ReadResponse> future = send(reads, items(4), uint(2));
+
+        reads.fail(0, new UaException(StatusCodes.Bad_TooManyOperations, "too many"));
+        reads.complete(1);
+
+        assertFailsWith(future, StatusCodes.Bad_TooManyOperations);
+    }
+
+    private CompletableFuture<ReadResponse> send(FakeReads reads, List<Integer> items, UInteger limit) {
+        return client.sendChunked(items, limit, reads::read, (chunks, responses) -> new ReadResponse(
+                responses.get(0).getResponseHeader(),
+                OpcUaClient.concat(responses, ReadResponse::getResults, DataValue[]::new),
+                OpcUaClient.diagnosticInfos(chunks, responses, ReadResponse::getDiagnosticInfos)));
+    }
+
+    private static List<Integer> items(int count) {
+        return IntStream.range(0, count).boxed().collect(Collectors.toList());
+    }
+
+    private static List<Object> values(ReadResponse response) {
+        return Arrays.stream(response.getResults())
+                .map(v -> v.getValue().getValue())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Records each chunk and leaves its response pending until {@link #complete(int)} echoes the chunk back as
+     * values.
+     */
+    private static class FakeReads {
+        final List<List<Integer>> chunks = new CopyOnWriteArrayList<>();
+        final List<CompletableFuture<ReadResponse>> pending = new CopyOnWriteArrayList<>();
+
+        /**
+         * The DiagnosticInfo every operation in the nth chunk is given; null gives the chunk no DiagnosticInfos.
+         */
+        volatile IntFunction<DiagnosticInfo> diagnostics = chunk -> null;
+
+        CompletableFuture<ReadResponse> read(List<Integer> chunk) {
+            CompletableFuture<ReadResponse> future = new CompletableFuture<>();
+
+            chunks.add(chunk);
+            pending.add(future);
+
+            return future;
+        }
+
+        void complete(int index) {
+            List<Integer> chunk = chunks.get(index);
+
+            DataValue[] values = chunk.stream()
+                    .map(i -> new DataValue(new Variant(i)))
+                    .toArray(DataValue[]::new);
+
+            DiagnosticInfo info = diagnostics.apply(index);
+            DiagnosticInfo[] diagnosticInfos = info == null ? null :
+                    chunk.stream().map(i -> info).toArray(DiagnosticInfo[]::new);
+
+            pending.get(index).complete(new ReadResponse(header(), values, diagnosticInfos));
+        }
+
+        void fail(int index, Throwable ex) {
+            pending.get(index).completeExceptionally(ex);
+        }
+
+        void awaitChunks(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+
+            while (chunks.size() < count) {
+                if (System.currentTimeMillis() > deadline) throw new AssertionError("chunk " + count + " not sent");
+                Thread.sleep(5);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.DiagnosticInfo;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowseNextResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowseResult;
+import com.digitalpetri.opcua.stack.core.types.structured.ReferenceDescription;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.await;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.header;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class OpcUaClientPoolTest {
+
+    private static final ByteString CP = ByteString.of(new byte[]{1, 2, 3});
+
+    @Test
+    public void testSameContinuationPointFromDifferentMembersIsDistinct() {
+        ByteString fromFirst = OpcUaClientPool.tag(0, results(CP))[0].getContinuationPoint();
+        ByteString fromSecond = OpcUaClientPool.tag(1, results(CP))[0].getContinuationPoint();
+
+        assertNotEquals(fromFirst, fromSecond);
+        assertEquals(OpcUaClientPool.memberIndex(fromFirst), 0);
+        assertEquals(OpcUaClientPool.memberIndex(fromSecond), 1);
+        assertEquals(OpcUaClientPool.untag(fromFirst), CP);
+        assertEquals(OpcUaClientPool.untag(fromSecond), CP);
+    }
+
+    @Test
+    public void testHighMemberIndexRoundTrips() {
+        ByteString tagged = OpcUaClientPool.tag(255, results(CP))[0].getContinuationPoint();
+
+        assertEquals(OpcUaClientPool.memberIndex(tagged), 255);
+        assertEquals(OpcUaClientPool.untag(tagged), CP);
+    }
+
+    @Test
+    public void testResultsWithoutContinuationPointAreUnchanged() {
+        BrowseResult[] results = results(ByteString.NULL_VALUE);
+
+        assertSame(OpcUaClientPool.tag(1, results)[0], results[0]);
+        assertNull(OpcUaClientPool.tag(1, null));
+    }
+
+    @Test
+    public void testScatterPlacesResultsAndDiagnosticsByIndex() {
+        BrowseResult a = result(ByteString.of(new byte[]{0xA}));
+        BrowseResult b = result(ByteString.of(new byte[]{0xB}));
+        BrowseResult c = result(ByteString.of(new byte[]{0xC}));
+        DiagnosticInfo da = diagnosticInfo("a");
+        DiagnosticInfo dc = diagnosticInfo("c");
+
+        // Continuation points 0 and 2 went to one member, 1 to another that returned no DiagnosticInfos.
+        BrowseNextResponse merged = OpcUaClientPool.scatter(
+                3,
+                Arrays.asList(Arrays.asList(0, 2), Arrays.asList(1)),
+                Arrays.asList(
+                        new BrowseNextResponse(header(), new BrowseResult[]{a, c}, new DiagnosticInfo[]{da, dc}),
+                        new BrowseNextResponse(header(), new BrowseResult[]{b}, null)));
+
+        assertSame(merged.getResults()[0], a);
+        assertSame(merged.getResults()[1], b);
+        assertSame(merged.getResults()[2], c);
+
+        assertSame(merged.getDiagnosticInfos()[0], da);
+        assertSame(merged.getDiagnosticInfos()[1], DiagnosticInfo.NULL_VALUE);
+        assertSame(merged.getDiagnosticInfos()[2], dc);
+    }
+
+    @Test
+    public void testScatterWithoutDiagnosticsHasNone() {
+        BrowseNextResponse merged = OpcUaClientPool.scatter(
+                2,
+                Arrays.asList(Arrays.asList(1), Arrays.asList(0)),
+                Arrays.asList(
+                        new BrowseNextResponse(header(), results(CP), null),
+                        new BrowseNextResponse(header(), results(CP), new DiagnosticInfo[0])));
+
+        assertNull(merged.getDiagnosticInfos());
+    }
+
+    @Test
+    public void testSynchronousFailureIsNotCountedAsOutstanding() throws Exception {
+        OpcUaClientPool.Member member = new OpcUaClientPool.Member(0, null);
+
+        CompletableFuture<Object> future = member.send(c -> {
+            throw new IllegalStateException("not connected");
+        });
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(member.outstanding.get(), 0);
+
+        try {
+            await(future);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    private static BrowseResult result(ByteString continuationPoint) {
+        return new BrowseResult(StatusCode.GOOD, continuationPoint, new ReferenceDescription[0]);
+    }
+
+    private static DiagnosticInfo diagnosticInfo(String additionalInfo) {
+        return new DiagnosticInfo(-1, -1, -1, -1, additionalInfo, StatusCode.GOOD, null);
+    }
+
+    private static BrowseResult[] results(ByteString continuationPoint) {
+        return new BrowseResult[]{
+                new BrowseResult(StatusCode.GOOD, continuationPoint, new ReferenceDescription[0])
+        };
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import com.digitalpetri.opcua.sdk.client.api.services.AttributeServices;
+import com.digitalpetri.opcua.stack.core.AttributeId;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.QualifiedName;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.assertFailsWith;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.await;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.header;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.stub;
+import static org.testng.Assert.assertEquals;
+
+public class ReadCoalescerTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testReadsInWindowShareOneRequest() throws Exception {
+        FakeReads reads = new FakeReads(ids -> values(ids.size()));
+        ReadCoalescer coalescer = new ReadCoalescer(reads.services(), executor, 50, 100);
+
+        CompletableFuture<DataValue> f0 = coalescer.read(0.0, TimestampsToReturn.Both, readValueId(0));
+        CompletableFuture<DataValue> f1 = coalescer.read(0.0, TimestampsToReturn.Both, readValueId(1));
+        CompletableFuture<DataValue> f2 = coalescer.read(0.0, TimestampsToReturn.Both, readValueId(2));
+
+        assertEquals(await(f0).getValue().getValue(), 0);
+        assertEquals(await(f1).getValue().getValue(), 1);
+        assertEquals(await(f2).getValue().getValue(), 2);
+
+        assertEquals(reads.requests.size(), 1);
+        assertEquals(reads.requests.get(0).size(), 3);
+        assertEquals(coalescer.getBatchCount(), 1L);
+        assertEquals(coalescer.getReadCount(), 3L);
+    }
+
+    @Test
+    public void testDifferentTimestampsAreNotCombined() throws Exception {
+        FakeReads reads = new FakeReads(ids -> values(ids.size()));
+        ReadCoalescer coalescer = new ReadCoalescer(reads.services(), executor, 50, 100);
+
+        CompletableFuture<DataValue> f0 = coalescer.read(0.0, TimestampsToReturn.Both, readValueId(0));
+        CompletableFuture<DataValue> f1 = coalescer.read(0.0, TimestampsToReturn.Source, readValueId(1));
+
+        await(f0);
+        await(f1);
+
+        assertEquals(reads.requests.size(), 2);
+    }
+
+    @Test
+    public void testFullBatchIsSentImmediately() throws Exception {
+        FakeReads reads = new FakeReads(ids -> values(ids.size()));
+        ReadCoalescer coalescer = new ReadCoalescer(reads.services(), executor, 60_000, 2);
+
+        CompletableFuture<DataValue> f0 = coalescer.read(0.0, TimestampsToReturn.Both, readValueId(0));
+        CompletableFuture<DataValue> f1 = coalescer.read(0.0, TimestampsToReturn.Both, readValueId(1));
+
+        // The window is a minute; only the size limit can have sent this.
+        await(f0);
+        await(f1);
+
+        assertEquals(reads.requests.size(), 1);
+    }
+
+    @Test
+    public void testShortResultsFailEveryRead() throws Exception {
+        FakeReads reads = new FakeReads(ids -> values(ids.size() - 1));
+        ReadCoalescer coalescer = new ReadCoalescer(reads.services(), executor, 50, 100);
+
+        CompletableFuture<DataValue> f0 = coalescer.read(0.0, TimestampsToReturn.Both, readValueId(0));
+        CompletableFuture<DataValue> f1 = coalescer.read(0.0, TimestampsToReturn.Both, readValueId(1));
+
+        assertFailsWith(f0, StatusCodes.Bad_UnexpectedError);
+        assertFailsWith(f1, StatusCodes.Bad_UnexpectedError);
+    }
+
+    @Test
+    public void testNullResultsFailEveryRead() throws Exception {
+        FakeReads reads = new FakeReads(ids -> null);
+        ReadCoalescer coalescer = new ReadCoalescer(reads.services(), executor, 0, 100);
+
+        assertFailsWith(
+                coalescer.read(0.0, TimestampsToReturn.Both, readValueId(0)),
+                StatusCodes.Bad_UnexpectedError);
+    }
+
+    static ReadValueId readValueId(int i) {
+        return new ReadValueId(new NodeId(2, i), AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE);
+    }
+
+    static DataValue[] values(int count) {
+        DataValue[] values = new DataValue[count];
+
+        for (int i = 0; i < count; i++) {
+            values[i] = new DataValue(new Variant(i));
+        }
+
+        return values;
+    }
+
+    static class FakeReads {
+        final List<List<ReadValueId>> requests = new CopyOnWriteArrayList<>();
+
+        final Function<List<ReadValueId>, DataValue[]> results;
+
+        FakeReads(Function<List<ReadValueId>, DataValue[]> results) {
+            this.results = results;
+        }
+
+        public CompletableFuture<ReadResponse> read(double maxAge,
+                                                    TimestampsToReturn timestampsToReturn,
+                                                    List<ReadValueId> readValueIds) {
+
+            requests.add(readValueIds);
+
+            return CompletableFuture.completedFuture(
+                    new ReadResponse(header(), results.apply(readValueIds), null));
+        }
+
+        AttributeServices services() {
+            return stub(AttributeServices.class, this);
+        }
+    }
+
+}
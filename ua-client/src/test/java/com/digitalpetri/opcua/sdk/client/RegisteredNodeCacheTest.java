@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import com.digitalpetri.opcua.sdk.client.api.UaSession;
+import com.digitalpetri.opcua.sdk.client.api.config.OpcUaClientConfig;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
+import com.digitalpetri.opcua.stack.core.types.structured.RegisterNodesResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.UnregisterNodesResponse;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ReadCoalescerTest.readValueId;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.header;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.stub;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class RegisteredNodeCacheTest {
+
+    @Test
+    public void testFrequentlyReadNodeIsRegisteredAndSubstituted() throws Exception {
+        FakeClient client = new FakeClient();
+        RegisteredNodeCache cache = new RegisteredNodeCache(client, 3, 10, 3600);
+        UaSession session = session(1);
+
+        try {
+            cache.startup();
+
+            List<ReadValueId> reads = Collections.nCopies(3, readValueId(0));
+            assertEquals(cache.substituteReads(session, reads).get(0).getNodeId(), new NodeId(2, 0));
+
+            client.activate(session, cache);
+            waitFor(() -> cache.getRegisteredCount() == 1);
+
+            assertEquals(client.registered, Collections.singletonList(Collections.singletonList(new NodeId(2, 0))));
+            assertEquals(cache.substituteReads(session, reads).get(0).getNodeId(), alias(new NodeId(2, 0)));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testNodeBelowThresholdIsNotRegistered() throws Exception {
+        FakeClient client = new FakeClient();
+        RegisteredNodeCache cache = new RegisteredNodeCache(client, 3, 10, 3600);
+        UaSession session = session(1);
+
+        try {
+            cache.startup();
+            cache.substituteReads(session, Collections.nCopies(2, readValueId(0)));
+            cache.substituteReads(session, Collections.nCopies(3, readValueId(1)));
+
+            client.activate(session, cache);
+            waitFor(() -> cache.getRegisteredCount() == 1);
+
+            assertEquals(client.registered.get(0), Collections.singletonList(new NodeId(2, 1)));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testAliasesAreNotUsedInANewSessionUntilReRegistered() throws Exception {
+        FakeClient client = new FakeClient();
+        RegisteredNodeCache cache = new RegisteredNodeCache(client, 1, 10, 3600);
+        UaSession first = session(1);
+        UaSession second = session(2);
+
+        try {
+            cache.startup();
+            cache.substituteReads(first, Collections.singletonList(readValueId(0)));
+            client.activate(first, cache);
+            waitFor(() -> cache.getRegisteredCount() == 1);
+
+            // The aliases belong to the first session.
+            assertEquals(
+                    cache.substituteReads(second, Collections.singletonList(readValueId(0))).get(0).getNodeId(),
+                    new NodeId(2, 0));
+
+            client.activate(second, cache);
+            waitFor(() -> client.registered.size() == 2);
+            waitFor(() -> cache.getRegisteredCount() == 1);
+
+            assertEquals(client.registered.get(1), Collections.singletonList(new NodeId(2, 0)));
+            assertEquals(
+                    cache.substituteReads(second, Collections.singletonList(readValueId(0))).get(0).getNodeId(),
+                    alias(new NodeId(2, 0)));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testNullRegisteredNodeIdsRegistersNothing() throws Exception {
+        FakeClient client = new FakeClient();
+        client.respondWithNull = true;
+        RegisteredNodeCache cache = new RegisteredNodeCache(client, 1, 10, 3600);
+        UaSession session = session(1);
+
+        try {
+            cache.startup();
+            cache.substituteReads(session, Collections.singletonList(readValueId(0)));
+            client.activate(session, cache);
+            waitFor(() -> client.registered.size() == 1);
+
+            assertEquals(cache.getRegisteredCount(), 0);
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    private static NodeId alias(NodeId nodeId) {
+        return new NodeId(99, nodeId.getIdentifier().toString());
+    }
+
+    private static UaSession session(int id) {
+        NodeId sessionId = new NodeId(0, id);
+
+        return stub(UaSession.class, new Object() {
+            public NodeId getSessionId() {
+                return sessionId;
+            }
+        });
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private static class FakeClient extends OpcUaClient {
+        final List<List<NodeId>> registered = new CopyOnWriteArrayList<>();
+
+        volatile UaSession session;
+        volatile boolean respondWithNull = false;
+
+        FakeClient() {
+            super(OpcUaClientConfig.builder().build());
+        }
+
+        void activate(UaSession session, RegisteredNodeCache cache) {
+            this.session = session;
+            cache.onSessionActive(session);
+        }
+
+        @Override
+        UaSession getActiveSession() {
+            return session;
+        }
+
+        @Override
+        public CompletableFuture<RegisterNodesResponse> registerNodes(List<NodeId> nodesToRegister) {
+            registered.add(nodesToRegister);
+
+            NodeId[] aliases = respondWithNull ? null : nodesToRegister.stream()
+                    .map(RegisteredNodeCacheTest::alias)
+                    .toArray(NodeId[]::new);
+
+            return CompletableFuture.completedFuture(new RegisterNodesResponse(header(), aliases));
+        }
+
+        @Override
+        public CompletableFuture<UnregisterNodesResponse> unregisterNodes(List<NodeId> nodesToUnregister) {
+            return CompletableFuture.completedFuture(new UnregisterNodesResponse(header()));
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.digitalpetri.opcua.sdk.client.api.config.OpcUaClientConfig;
+import com.digitalpetri.opcua.sdk.client.api.config.RequestOverflowPolicy;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.assertFailsWith;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.await;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.failed;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+public class RequestWindowTest {
+
+    @Test
+    public void testDefaultPolicyIsFailFast() {
+        assertEquals(OpcUaClientConfig.builder().build().getRequestOverflowPolicy(), RequestOverflowPolicy.FAIL_FAST);
+    }
+
+    @Test
+    public void testQueuedRequestsAreSentInOrderAsSlotsFree() throws Exception {
+        RequestWindow window = new RequestWindow(2, 10, RequestOverflowPolicy.FAIL_FAST);
+        List<Integer> sent = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Integer>> responses = newArrayList();
+        List<CompletableFuture<Integer>> futures = newArrayList();
+
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            CompletableFuture<Integer> response = new CompletableFuture<>();
+            responses.add(response);
+            futures.add(window.submit(() -> {
+                sent.add(n);
+                return response;
+            }));
+        }
+
+        assertEquals(sent, newArrayList(0, 1));
+        assertEquals(window.getInFlightCount(), 2);
+        assertEquals(window.getQueueDepth(), 3);
+
+        responses.get(0).complete(0);
+        assertEquals(sent, newArrayList(0, 1, 2));
+
+        responses.get(1).complete(1);
+        responses.get(2).complete(2);
+        assertEquals(sent, newArrayList(0, 1, 2, 3, 4));
+
+        responses.get(3).complete(3);
+        responses.get(4).complete(4);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(await(futures.get(i)).intValue(), i);
+        }
+
+        assertEquals(window.getInFlightCount(), 0);
+        assertEquals(window.getQueueDepth(), 0);
+        assertEquals(window.getSentCount(), 5L);
+    }
+
+    @Test
+    public void testFailFastRejectsWhenQueueFull() throws Exception {
+        RequestWindow window = new RequestWindow(1, 1, RequestOverflowPolicy.FAIL_FAST);
+
+        window.submit(CompletableFuture::new);
+        CompletableFuture<Object> queued = window.submit(CompletableFuture::new);
+        CompletableFuture<Object> rejected = window.submit(CompletableFuture::new);
+
+        assertFailsWith(rejected, StatusCodes.Bad_ResourceUnavailable);
+        assertFalse(queued.isDone());
+        assertEquals(window.getRejectedCount(), 1L);
+    }
+
+    @Test
+    public void testDropOldestFailsOldestQueuedRequest() throws Exception {
+        RequestWindow window = new RequestWindow(1, 1, RequestOverflowPolicy.DROP_OLDEST);
+
+        window.submit(CompletableFuture::new);
+        CompletableFuture<Object> oldest = window.submit(CompletableFuture::new);
+        CompletableFuture<Object> newest = window.submit(CompletableFuture::new);
+
+        assertFailsWith(oldest, StatusCodes.Bad_ResourceUnavailable);
+        assertFalse(newest.isDone());
+    }
+
+    @Test
+    public void testSynchronousFailuresDrainWithoutRecursion() throws Exception {
+        int count = 50_000;
+        RequestWindow window = new RequestWindow(1, count, RequestOverflowPolicy.FAIL_FAST);
+        CompletableFuture<Object> first = new CompletableFuture<>();
+        List<CompletableFuture<Object>> futures = newArrayList();
+
+        window.submit(() -> first);
+
+        for (int i = 0; i < count; i++) {
+            futures.add(window.submit(() -> failed(new IllegalStateException())));
+        }
+
+        // Every queued request fails as soon as it's sent; this used to recurse once per request.
+        first.complete(new Object());
+
+        for (CompletableFuture<Object> f : futures) {
+            assertEquals(f.isCompletedExceptionally(), true);
+        }
+
+        assertEquals(window.getInFlightCount(), 0);
+        assertEquals(window.getQueueDepth(), 0);
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.structured.ResponseHeader;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+/**
+ * Helpers for testing against service interfaces without a server.
+ */
+public final class ServiceStubs {
+
+    private ServiceStubs() {}
+
+    /**
+     * Implement {@code type} by delegating to the public method of {@code delegate} with the same name and parameter
+     * types. Any other method throws {@link UnsupportedOperationException}.
+     */
+    public static <T> T stub(Class<T> type, Object delegate) {
+        Object proxy = Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class<?>[]{type},
+                (p, method, args) -> {
+                    Method target;
+
+                    try {
+                        target = delegate.getClass().getMethod(method.getName(), method.getParameterTypes());
+                    } catch (NoSuchMethodException e) {
+                        if (method.getName().equals("toString")) return "stub(" + type.getSimpleName() + ")";
+                        if (method.getName().equals("hashCode")) return System.identityHashCode(p);
+                        if (method.getName().equals("equals")) return p == args[0];
+
+                        throw new UnsupportedOperationException(method.toString());
+                    }
+
+                    target.setAccessible(true);
+
+                    try {
+                        return target.invoke(delegate, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+
+        return type.cast(proxy);
+    }
+
+    public static ResponseHeader header() {
+        return new ResponseHeader();
+    }
+
+    public static <T> CompletableFuture<T> failed(Throwable ex) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        f.completeExceptionally(ex);
+        return f;
+    }
+
+    public static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Assert {@code future} fails, within a few seconds, with a {@link UaException} carrying {@code statusCode}.
+     */
+    public static void assertFailsWith(CompletableFuture<?> future, long statusCode) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expected failure with " + statusCode);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (!(cause instanceof UaException)) {
+                throw new AssertionError("expected UaException, was " + cause, cause);
+            }
+
+            assertEquals(((UaException) cause).getStatusCode().getValue(), statusCode);
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ReadCoalescerTest.readValueId;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.assertFailsWith;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.await;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class SingleFlightReaderTest {
+
+    @Test
+    public void testIdenticalReadsShareOneRead() throws Exception {
+        SingleFlightReader reader = new SingleFlightReader();
+        CompletableFuture<DataValue> response = new CompletableFuture<>();
+        AtomicInteger sent = new AtomicInteger(0);
+
+        CompletableFuture<DataValue> f0 = reader.read(0.0, TimestampsToReturn.Both, readValueId(0), id -> {
+            sent.incrementAndGet();
+            return response;
+        });
+        CompletableFuture<DataValue> f1 = reader.read(0.0, TimestampsToReturn.Both, readValueId(0), id -> {
+            sent.incrementAndGet();
+            return response;
+        });
+
+        assertEquals(reader.getInFlightCount(), 1);
+
+        response.complete(new DataValue(new Variant(42)));
+
+        assertEquals(await(f0).getValue().getValue(), 42);
+        assertEquals(await(f1).getValue().getValue(), 42);
+        assertEquals(sent.get(), 1);
+        assertEquals(reader.getSharedCount(), 1L);
+        assertEquals(reader.getInFlightCount(), 0);
+    }
+
+    @Test
+    public void testNullValueFails() throws Exception {
+        SingleFlightReader reader = new SingleFlightReader();
+
+        CompletableFuture<DataValue> f = reader.read(0.0, TimestampsToReturn.Both, readValueId(0),
+                id -> CompletableFuture.completedFuture(null));
+
+        assertFailsWith(f, StatusCodes.Bad_UnexpectedError);
+        assertEquals(reader.getInFlightCount(), 0);
+    }
+
+    @Test
+    public void testReaderThrowingReleasesKey() throws Exception {
+        SingleFlightReader reader = new SingleFlightReader();
+
+        CompletableFuture<DataValue> f = reader.read(0.0, TimestampsToReturn.Both, readValueId(0), id -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertTrue(f.isCompletedExceptionally());
+        assertEquals(reader.getInFlightCount(), 0);
+    }
+
+    @Test
+    public void testBatchSendsOnlyReadsNotInFlight() throws Exception {
+        SingleFlightReader reader = new SingleFlightReader();
+        CompletableFuture<DataValue> pending = new CompletableFuture<>();
+
+        reader.read(0.0, TimestampsToReturn.Both, readValueId(1), id -> pending);
+
+        CompletableFuture<List<DataValue>> batch = reader.read(
+                0.0, TimestampsToReturn.Both,
+                Arrays.asList(readValueId(0), readValueId(1), readValueId(2)),
+                ids -> {
+                    assertEquals(ids.size(), 2);
+                    assertEquals(ids.get(0).getNodeId(), readValueId(0).getNodeId());
+                    assertEquals(ids.get(1).getNodeId(), readValueId(2).getNodeId());
+                    return CompletableFuture.completedFuture(Arrays.asList(
+                            new DataValue(new Variant(0)), new DataValue(new Variant(2))));
+                });
+
+        pending.complete(new DataValue(new Variant(1)));
+
+        List<DataValue> values = await(batch);
+        assertEquals(values.get(0).getValue().getValue(), 0);
+        assertEquals(values.get(1).getValue().getValue(), 1);
+        assertEquals(values.get(2).getValue().getValue(), 2);
+        assertEquals(reader.getInFlightCount(), 0);
+    }
+
+    @Test
+    public void testShortBatchFailsEveryReadAndReleasesKeys() throws Exception {
+        SingleFlightReader reader = new SingleFlightReader();
+
+        CompletableFuture<List<DataValue>> batch = reader.read(
+                0.0, TimestampsToReturn.Both,
+                Arrays.asList(readValueId(0), readValueId(1)),
+                ids -> CompletableFuture.completedFuture(Arrays.asList(new DataValue(new Variant(0)))));
+
+        assertFailsWith(batch, StatusCodes.Bad_UnexpectedError);
+        assertEquals(reader.getInFlightCount(), 0);
+    }
+
+    @Test
+    public void testNullValueInBatchFailsThatRead() throws Exception {
+        SingleFlightReader reader = new SingleFlightReader();
+
+        CompletableFuture<List<DataValue>> batch = reader.read(
+                0.0, TimestampsToReturn.Both,
+                Arrays.asList(readValueId(0), readValueId(1)),
+                ids -> CompletableFuture.completedFuture(Arrays.asList(new DataValue(new Variant(0)), null)));
+
+        assertFailsWith(batch, StatusCodes.Bad_UnexpectedError);
+        assertEquals(reader.getInFlightCount(), 0);
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.digitalpetri.opcua.sdk.client.api.services.AttributeServices;
+import com.digitalpetri.opcua.stack.core.AttributeId;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.structured.WriteResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.WriteValue;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.assertFailsWith;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.await;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.header;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.stub;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+public class WriteBehindQueueTest {
+
+    private static final NodeId NODE_A = new NodeId(2, "A");
+    private static final NodeId NODE_B = new NodeId(2, "B");
+
+    @Test
+    public void testNewestValueReplacesQueuedValue() throws Exception {
+        FakeWrites writes = new FakeWrites();
+        WriteBehindQueue queue = new WriteBehindQueue(writes.services(), 60_000);
+
+        CompletableFuture<StatusCode> f0 = queue.write(writeValue(NODE_A, 0));
+        CompletableFuture<StatusCode> f1 = queue.write(writeValue(NODE_A, 1));
+        CompletableFuture<StatusCode> f2 = queue.write(writeValue(NODE_B, 2));
+
+        CompletableFuture<Void> flush = queue.flush();
+        writes.completeNext(StatusCode.GOOD);
+        await(flush);
+
+        assertEquals(writes.requests.size(), 1);
+        assertEquals(writes.requests.get(0).size(), 2);
+        assertEquals(value(writes.requests.get(0).get(0)), 1);
+        assertEquals(value(writes.requests.get(0).get(1)), 2);
+
+        assertEquals(await(f0), StatusCode.GOOD);
+        assertEquals(await(f1), StatusCode.GOOD);
+        assertEquals(await(f2), StatusCode.GOOD);
+
+        assertEquals(queue.getSubmittedCount(), 3L);
+        assertEquals(queue.getWrittenCount(), 2L);
+    }
+
+    @Test
+    public void testFlushWaitsForFlushInFlight() throws Exception {
+        FakeWrites writes = new FakeWrites();
+        WriteBehindQueue queue = new WriteBehindQueue(writes.services(), 60_000);
+
+        CompletableFuture<StatusCode> f0 = queue.write(writeValue(NODE_A, 0));
+        CompletableFuture<Void> flush0 = queue.flush();
+
+        CompletableFuture<StatusCode> f1 = queue.write(writeValue(NODE_A, 1));
+        CompletableFuture<Void> flush1 = queue.flush();
+
+        // The newer value must not be sent while the older one is still in flight.
+        assertEquals(writes.requests.size(), 1);
+        assertFalse(flush1.isDone());
+
+        writes.completeNext(StatusCode.GOOD);
+        await(flush0);
+        await(f0);
+
+        assertEquals(writes.requests.size(), 2);
+        assertEquals(value(writes.requests.get(1).get(0)), 1);
+
+        writes.completeNext(StatusCode.GOOD);
+        await(flush1);
+        await(f1);
+    }
+
+    @Test
+    public void testFailedFlushDoesNotStopNextFlush() throws Exception {
+        FakeWrites writes = new FakeWrites();
+        WriteBehindQueue queue = new WriteBehindQueue(writes.services(), 60_000);
+
+        CompletableFuture<StatusCode> f0 = queue.write(writeValue(NODE_A, 0));
+        queue.flush();
+        CompletableFuture<StatusCode> f1 = queue.write(writeValue(NODE_A, 1));
+        CompletableFuture<Void> flush1 = queue.flush();
+
+        writes.pending.get(0).completeExceptionally(new UaException(StatusCodes.Bad_Timeout, "timeout"));
+        assertFailsWith(f0, StatusCodes.Bad_Timeout);
+
+        writes.pending.get(1).complete(new WriteResponse(header(), new StatusCode[]{StatusCode.GOOD}, null));
+        await(flush1);
+        assertEquals(await(f1), StatusCode.GOOD);
+    }
+
+    @Test
+    public void testShortResultsFailEveryWrite() throws Exception {
+        FakeWrites writes = new FakeWrites();
+        WriteBehindQueue queue = new WriteBehindQueue(writes.services(), 60_000);
+
+        CompletableFuture<StatusCode> f0 = queue.write(writeValue(NODE_A, 0));
+        CompletableFuture<StatusCode> f1 = queue.write(writeValue(NODE_B, 1));
+        CompletableFuture<Void> flush = queue.flush();
+
+        writes.pending.get(0).complete(new WriteResponse(header(), new StatusCode[]{StatusCode.GOOD}, null));
+        await(flush);
+
+        assertFailsWith(f0, StatusCodes.Bad_UnexpectedError);
+        assertFailsWith(f1, StatusCodes.Bad_UnexpectedError);
+    }
+
+    @Test
+    public void testIntervalFlushesQueuedWrites() throws Exception {
+        FakeWrites writes = new FakeWrites();
+        WriteBehindQueue queue = new WriteBehindQueue(writes.services(), 10);
+
+        CompletableFuture<StatusCode> f0 = queue.write(writeValue(NODE_A, 0));
+
+        writes.completeNext(StatusCode.GOOD);
+
+        assertEquals(await(f0), StatusCode.GOOD);
+    }
+
+    private static WriteValue writeValue(NodeId nodeId, int value) {
+        return new WriteValue(nodeId, AttributeId.Value.uid(), null, new DataValue(new Variant(value)));
+    }
+
+    private static Object value(WriteValue writeValue) {
+        return writeValue.getValue().getValue().getValue();
+    }
+
+    static class FakeWrites {
+        final List<List<WriteValue>> requests = new CopyOnWriteArrayList<>();
+        final List<CompletableFuture<WriteResponse>> pending = new CopyOnWriteArrayList<>();
+
+        private int completed = 0;
+
+        public CompletableFuture<WriteResponse> write(List<WriteValue> writeValues) {
+            CompletableFuture<WriteResponse> future = new CompletableFuture<>();
+
+            requests.add(writeValues);
+            pending.add(future);
+
+            return future;
+        }
+
+        void completeNext(StatusCode result) throws Exception {
+            long deadline = System.currentTimeMillis() + 5000;
+
+            while (pending.size() <= completed) {
+                if (System.currentTimeMillis() > deadline) throw new AssertionError("no request was sent");
+                Thread.sleep(5);
+            }
+
+            StatusCode[] results = new StatusCode[requests.get(completed).size()];
+            Arrays.fill(results, result);
+
+            pending.get(completed++).complete(new WriteResponse(header(), results, null));
+        }
+
+        AttributeServices services() {
+            return stub(AttributeServices.class, this);
+        }
+    }
+
+}
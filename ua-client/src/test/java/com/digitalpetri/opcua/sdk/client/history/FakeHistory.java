@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.history;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+
+import com.digitalpetri.opcua.sdk.client.api.services.AttributeServices;
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExtensionObject;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryData;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadDetails;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadResult;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadValueId;
+import com.digitalpetri.opcua.stack.core.types.structured.ResponseHeader;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.stub;
+
+/**
+ * A history server answering each HistoryRead with whatever {@code pages} returns for the details and continuation
+ * point.
+ */
+class FakeHistory {
+
+    final List<ByteString> reads = new CopyOnWriteArrayList<>();
+    final List<ByteString> released = new CopyOnWriteArrayList<>();
+    final List<HistoryReadDetails> details = new CopyOnWriteArrayList<>();
+
+    private final BiFunction<HistoryReadDetails, ByteString, HistoryReadResponse> pages;
+
+    FakeHistory(BiFunction<HistoryReadDetails, ByteString, HistoryReadResponse> pages) {
+        this.pages = pages;
+    }
+
+    public CompletableFuture<HistoryReadResponse> historyRead(HistoryReadDetails historyReadDetails,
+                                                              TimestampsToReturn timestampsToReturn,
+                                                              boolean releaseContinuationPoints,
+                                                              List<HistoryReadValueId> nodesToRead) {
+
+        ByteString cp = nodesToRead.get(0).getContinuationPoint();
+
+        if (releaseContinuationPoints) {
+            released.add(cp);
+
+            return CompletableFuture.completedFuture(new HistoryReadResponse(
+                    new ResponseHeader(),
+                    new HistoryReadResult[]{new HistoryReadResult(StatusCode.GOOD, ByteString.NULL_VALUE, null)},
+                    null));
+        }
+
+        reads.add(cp);
+        details.add(historyReadDetails);
+
+        return CompletableFuture.completedFuture(pages.apply(historyReadDetails, cp));
+    }
+
+    AttributeServices services() {
+        return stub(AttributeServices.class, this);
+    }
+
+    static HistoryReadResponse page(ByteString next, DataValue... values) {
+        return response(new HistoryReadResult(
+                StatusCode.GOOD,
+                next,
+                ExtensionObject.encode(new HistoryData(values))));
+    }
+
+    static HistoryReadResponse response(HistoryReadResult... results) {
+        return new HistoryReadResponse(new ResponseHeader(), results, null);
+    }
+
+    static ByteString cp(int i) {
+        return ByteString.of(new byte[]{(byte) i});
+    }
+
+    static DataValue value(long time, Object value) {
+        return new DataValue(new Variant(value), StatusCode.GOOD, new DateTime(time), new DateTime(time));
+    }
+
+}
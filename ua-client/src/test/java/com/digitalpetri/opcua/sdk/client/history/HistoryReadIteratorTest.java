@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.history;
+
+import java.util.List;
+
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaRuntimeException;
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.QualifiedName;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadResult;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadValueId;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadRawModifiedDetails;
+import com.digitalpetri.opcua.stack.core.types.structured.ResponseHeader;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.history.FakeHistory.cp;
+import static com.digitalpetri.opcua.sdk.client.history.FakeHistory.page;
+import static com.digitalpetri.opcua.sdk.client.history.FakeHistory.value;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class HistoryReadIteratorTest {
+
+    static final HistoryReadValueId NODE = new HistoryReadValueId(
+            new NodeId(2, "Node"), null, QualifiedName.NULL_VALUE, ByteString.NULL_VALUE);
+
+    static final ReadRawModifiedDetails DETAILS = new ReadRawModifiedDetails(
+            false, new DateTime(0L), new DateTime(1000L), uint(0), false);
+
+    @Test
+    public void testPagesAreFollowedInOrder() {
+        FakeHistory history = new FakeHistory((details, cp) -> {
+            if (cp.isNull()) return page(cp(1), value(1, 1));
+            else if (cp.equals(cp(1))) return page(cp(2), value(2, 2));
+            else return page(ByteString.NULL_VALUE, value(3, 3));
+        });
+
+        List<Object> values = newArrayList();
+
+        try (HistoryReadIterator iterator = iterator(history)) {
+            while (iterator.hasNext()) {
+                for (DataValue value : iterator.next()) {
+                    values.add(value.getValue().getValue());
+                }
+            }
+        }
+
+        assertEquals(values, newArrayList(1, 2, 3));
+        assertTrue(history.released.isEmpty());
+    }
+
+    @Test
+    public void testNullResultsFailInsteadOfBlocking() {
+        FakeHistory history = new FakeHistory((details, cp) ->
+                new HistoryReadResponse(new ResponseHeader(), null, null));
+
+        assertFailsWith(iterator(history), StatusCodes.Bad_UnexpectedError);
+    }
+
+    @Test
+    public void testEmptyResultsFailInsteadOfBlocking() {
+        FakeHistory history = new FakeHistory((details, cp) -> FakeHistory.response());
+
+        assertFailsWith(iterator(history), StatusCodes.Bad_UnexpectedError);
+    }
+
+    @Test
+    public void testBadStatusFails() {
+        FakeHistory history = new FakeHistory((details, cp) -> FakeHistory.response(
+                new HistoryReadResult(new StatusCode(StatusCodes.Bad_HistoryOperationUnsupported), null, null)));
+
+        assertFailsWith(iterator(history), StatusCodes.Bad_HistoryOperationUnsupported);
+    }
+
+    @Test
+    public void testCloseReleasesContinuationPoint() {
+        FakeHistory history = new FakeHistory((details, cp) -> page(cp(cp.isNull() ? 1 : 2), value(1, 1)));
+
+        HistoryReadIterator iterator = new HistoryReadIterator(
+                history.services(), DETAILS, TimestampsToReturn.Both, NODE, 1);
+
+        assertTrue(iterator.hasNext());
+        iterator.close();
+
+        assertEquals(history.released, newArrayList(cp(1)));
+        assertFalse(iterator.hasNext());
+    }
+
+    private static HistoryReadIterator iterator(FakeHistory history) {
+        return new HistoryReadIterator(history.services(), DETAILS, TimestampsToReturn.Both, NODE);
+    }
+
+    private static void assertFailsWith(HistoryReadIterator iterator, long statusCode) {
+        try {
+            iterator.hasNext();
+            fail("expected failure");
+        } catch (UaRuntimeException e) {
+            assertEquals(e.getStatusCode(), statusCode);
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.history;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.digitalpetri.opcua.sdk.client.api.OperationLimits;
+import com.digitalpetri.opcua.sdk.client.api.UaClient;
+import com.digitalpetri.opcua.sdk.client.api.UaSession;
+import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.enumerated.PerformUpdateType;
+import com.digitalpetri.opcua.stack.core.types.structured.DeleteAtTimeDetails;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryUpdateDetails;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryUpdateResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryUpdateResult;
+import com.digitalpetri.opcua.stack.core.types.structured.ResponseHeader;
+import com.digitalpetri.opcua.stack.core.types.structured.UpdateDataDetails;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.await;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.stub;
+import static com.digitalpetri.opcua.sdk.client.history.FakeHistory.value;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class HistoryUpdateWriterTest {
+
+    private static final NodeId A = new NodeId(2, "A");
+    private static final NodeId B = new NodeId(2, "B");
+
+    @Test
+    public void testConsecutiveOperationsAreMerged() throws Exception {
+        FakeUpdates updates = new FakeUpdates(0);
+        HistoryUpdateWriter writer = new HistoryUpdateWriter(updates.client(), 100, 1, TimeUnit.HOURS);
+
+        CompletableFuture<StatusCode> f0 = writer.insert(A, value(1, 1));
+        CompletableFuture<StatusCode> f1 = writer.insert(A, value(2, 2));
+        CompletableFuture<StatusCode> f2 = writer.delete(A, new DateTime(3L));
+        CompletableFuture<StatusCode> f3 = writer.replace(B, value(1, 1));
+
+        await(writer.flush());
+
+        assertEquals(updates.requests.size(), 1);
+
+        List<HistoryUpdateDetails> details = updates.requests.get(0);
+        assertEquals(details.size(), 3);
+        assertEquals(((UpdateDataDetails) details.get(0)).getPerformInsertReplace(), PerformUpdateType.Insert);
+        assertEquals(((UpdateDataDetails) details.get(0)).getUpdateValues().length, 2);
+        assertEquals(((DeleteAtTimeDetails) details.get(1)).getReqTimes().length, 1);
+        assertEquals(((UpdateDataDetails) details.get(2)).getPerformInsertReplace(), PerformUpdateType.Replace);
+
+        for (CompletableFuture<StatusCode> f : Arrays.asList(f0, f1, f2, f3)) {
+            assertTrue(f.get().isGood());
+        }
+    }
+
+    @Test
+    public void testFlushIsSplitByOperationLimit() throws Exception {
+        FakeUpdates updates = new FakeUpdates(2);
+        HistoryUpdateWriter writer = new HistoryUpdateWriter(updates.client(), 100, 1, TimeUnit.HOURS);
+
+        for (int i = 0; i < 5; i++) {
+            writer.insert(new NodeId(2, i), value(1, i));
+        }
+
+        await(writer.flush());
+
+        assertEquals(updates.requests.size(), 3);
+        assertEquals(updates.requests.get(0).size(), 2);
+        assertEquals(updates.requests.get(2).size(), 1);
+    }
+
+    @Test
+    public void testFullBufferFlushes() throws Exception {
+        FakeUpdates updates = new FakeUpdates(0);
+        HistoryUpdateWriter writer = new HistoryUpdateWriter(updates.client(), 2, 1, TimeUnit.HOURS);
+
+        writer.insert(A, value(1, 1));
+        CompletableFuture<StatusCode> f = writer.insert(A, value(2, 2));
+
+        assertTrue(await(f).isGood());
+        assertEquals(updates.requests.size(), 1);
+    }
+
+    @Test
+    public void testShortResultsFailTheOperations() throws Exception {
+        FakeUpdates updates = new FakeUpdates(0);
+        updates.shortResults = true;
+        HistoryUpdateWriter writer = new HistoryUpdateWriter(updates.client(), 100, 1, TimeUnit.HOURS);
+
+        writer.insert(A, value(1, 1));
+        CompletableFuture<StatusCode> f = writer.insert(B, value(1, 1));
+
+        await(writer.flush());
+
+        try {
+            f.get(5, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (Exception expected) {
+            // The missing result fails the operation rather than leaving it incomplete.
+        }
+    }
+
+    static class FakeUpdates {
+        final List<List<HistoryUpdateDetails>> requests = new CopyOnWriteArrayList<>();
+
+        final UaSession session;
+
+        volatile boolean shortResults = false;
+
+        FakeUpdates(int maxNodesPerHistoryUpdateData) {
+            OperationLimits limits = new OperationLimits(
+                    uint(0), uint(0), uint(0), uint(0), uint(maxNodesPerHistoryUpdateData), uint(0),
+                    uint(0), uint(0), uint(0), uint(0), uint(0), uint(0));
+
+            session = stub(UaSession.class, new Object() {
+                public OperationLimits getOperationLimits() {
+                    return limits;
+                }
+            });
+        }
+
+        public CompletableFuture<UaSession> getSession() {
+            return CompletableFuture.completedFuture(session);
+        }
+
+        public CompletableFuture<HistoryUpdateResponse> historyUpdate(List<HistoryUpdateDetails> details) {
+            requests.add(details);
+
+            HistoryUpdateResult[] results = details.stream()
+                    .limit(shortResults ? details.size() - 1 : details.size())
+                    .map(d -> new HistoryUpdateResult(StatusCode.GOOD, null, null))
+                    .toArray(HistoryUpdateResult[]::new);
+
+            return CompletableFuture.completedFuture(new HistoryUpdateResponse(new ResponseHeader(), results, null));
+        }
+
+        UaClient client() {
+            return stub(UaClient.class, this);
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.history;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.HistoryReadResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadRawModifiedDetails;
+import com.digitalpetri.opcua.stack.core.types.structured.ResponseHeader;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.assertFailsWith;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.await;
+import static com.digitalpetri.opcua.sdk.client.history.FakeHistory.page;
+import static com.digitalpetri.opcua.sdk.client.history.HistoryReadIteratorTest.NODE;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.testng.Assert.assertEquals;
+
+public class PartitionedHistoryReaderTest {
+
+    @Test
+    public void testRangeIsSplitAndJoinedInOrder() throws Exception {
+        List<DataValue> data = newArrayList(at(0, 0), at(300, 1), at(600, 2), at(900, 3));
+        FakeHistory history = inclusive(data);
+
+        List<DataValue> values = await(new PartitionedHistoryReader(history.services(), 2)
+                .readRaw(details(false), TimestampsToReturn.Both, NODE, 4));
+
+        assertEquals(history.details.size(), 4);
+        assertEquals(values(values), newArrayList(0, 1, 2, 3));
+    }
+
+    @Test
+    public void testReturnBoundsIsReadAsOneRange() throws Exception {
+        List<DataValue> data = newArrayList(at(0, 0), at(300, 1), at(600, 2), at(900, 3));
+        FakeHistory history = inclusive(data);
+
+        ReadRawModifiedDetails details =
+                new ReadRawModifiedDetails(false, new DateTime(1000L), new DateTime(2000L), uint(0), true);
+
+        List<DataValue> values = await(new PartitionedHistoryReader(history.services(), 2)
+                .readRaw(details, TimestampsToReturn.Both, NODE, 4));
+
+        // Split ranges would each get bounds from the server, including at the interior boundaries.
+        assertEquals(history.details.size(), 1);
+        assertEquals(history.details.get(0), details);
+        assertEquals(values(values), newArrayList(0, 1, 2, 3));
+    }
+
+    @Test
+    public void testEqualTimestampsWithinAPartitionAreKept() throws Exception {
+        List<DataValue> data = newArrayList(at(100, "a"), at(100, "b"), at(100, "c"), at(600, "d"));
+
+        List<DataValue> values = await(new PartitionedHistoryReader(inclusive(data).services(), 2)
+                .readRaw(details(false), TimestampsToReturn.Both, NODE, 2));
+
+        assertEquals(values(values), newArrayList("a", "b", "c", "d"));
+    }
+
+    @Test
+    public void testValuesRepeatedAtABoundaryAreDroppedOnce() throws Exception {
+        // A server that includes the end time returns the values at 500 in both partitions.
+        List<DataValue> data = newArrayList(at(0, "a"), at(500, "b"), at(500, "c"), at(900, "d"));
+
+        List<DataValue> values = await(new PartitionedHistoryReader(inclusive(data).services(), 2)
+                .readRaw(details(false), TimestampsToReturn.Both, NODE, 2));
+
+        assertEquals(values(values), newArrayList("a", "b", "c", "d"));
+    }
+
+    @Test
+    public void testModifiedValuesAtTheSameTimestampAreKept() throws Exception {
+        List<DataValue> data = newArrayList(
+                at(100, 1),
+                new DataValue(new Variant(2), new StatusCode(StatusCodes.Uncertain_DataSubNormal),
+                        new DateTime(1100L), new DateTime(1100L)),
+                at(100, 3));
+
+        List<DataValue> values = await(new PartitionedHistoryReader(inclusive(data).services(), 2)
+                .readRaw(details(true), TimestampsToReturn.Both, NODE, 2));
+
+        assertEquals(values(values), newArrayList(1, 2, 3));
+    }
+
+    @Test
+    public void testValuesWithoutTimestampsAreKept() throws Exception {
+        // With TimestampsToReturn.Neither every value used to compare equal, keeping only the first.
+        FakeHistory history = new FakeHistory((details, cp) -> page(ByteString.NULL_VALUE,
+                new DataValue(new Variant(1)), new DataValue(new Variant(2)), new DataValue(new Variant(3))));
+
+        List<DataValue> values = await(new PartitionedHistoryReader(history.services(), 2)
+                .readRaw(details(false), TimestampsToReturn.Neither, NODE, 1));
+
+        assertEquals(values(values), newArrayList(1, 2, 3));
+    }
+
+    @Test
+    public void testNullResultsFail() throws Exception {
+        FakeHistory history = new FakeHistory((details, cp) ->
+                new HistoryReadResponse(new ResponseHeader(), null, null));
+
+        assertFailsWith(
+                new PartitionedHistoryReader(history.services(), 2)
+                        .readRaw(details(false), TimestampsToReturn.Both, NODE, 2),
+                StatusCodes.Bad_UnexpectedError);
+    }
+
+    @Test
+    public void testOverlap() {
+        List<DataValue> previous = newArrayList(at(1, "a"), at(2, "b"), at(2, "c"));
+
+        assertEquals(PartitionedHistoryReader.overlap(previous, newArrayList(at(2, "b"), at(2, "c"))), 2);
+        assertEquals(PartitionedHistoryReader.overlap(previous, newArrayList(at(2, "c"), at(3, "d"))), 1);
+        assertEquals(PartitionedHistoryReader.overlap(previous, newArrayList(at(2, "d"))), 0);
+        assertEquals(PartitionedHistoryReader.overlap(previous, newArrayList(at(3, "c"))), 0);
+        assertEquals(PartitionedHistoryReader.overlap(newArrayList(), newArrayList(at(1, "a"))), 0);
+    }
+
+    /**
+     * A server returning every value with a timestamp between the start and end times, inclusive of both.
+     */
+    private static FakeHistory inclusive(List<DataValue> data) {
+        return new FakeHistory((details, cp) -> {
+            ReadRawModifiedDetails d = (ReadRawModifiedDetails) details;
+            long start = d.getStartTime().getUtcTime();
+            long end = d.getEndTime().getUtcTime();
+
+            return page(ByteString.NULL_VALUE, data.stream()
+                    .filter(v -> v.getSourceTime().getUtcTime() >= start && v.getSourceTime().getUtcTime() <= end)
+                    .toArray(DataValue[]::new));
+        });
+    }
+
+    private static ReadRawModifiedDetails details(boolean modified) {
+        return new ReadRawModifiedDetails(modified, new DateTime(1000L), new DateTime(2000L), uint(0), false);
+    }
+
+    /**
+     * A value {@code t} after the start of the range; a DateTime of 0 is null, so the range can't start there.
+     */
+    private static DataValue at(long t, Object value) {
+        return FakeHistory.value(1000L + t, value);
+    }
+
+    private static List<Object> values(List<DataValue> values) {
+        return values.stream().map(v -> v.getValue().getValue()).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.methods;
+
+import java.util.Collections;
+
+import com.digitalpetri.opcua.stack.core.Identifiers;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.types.builtin.LocalizedText;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.digitalpetri.opcua.stack.core.types.structured.Argument;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class CheckedUaMethodTest {
+
+    @Test
+    public void testScalarIsRejectedForOneOrMoreDimensions() throws Exception {
+        CheckedUaMethod method = method(Identifiers.Int32, 0);
+
+        assertRejected(method, 1, StatusCodes.Bad_TypeMismatch);
+
+        Variant[] checked = method.check((Object) new int[]{1, 2});
+
+        assertEquals(checked[0].getValue(), new Integer[]{1, 2});
+    }
+
+    @Test
+    public void testArrayIsRejectedForScalar() throws Exception {
+        assertRejected(method(Identifiers.Int32, -1), new int[]{1}, StatusCodes.Bad_TypeMismatch);
+    }
+
+    @Test
+    public void testEitherIsAcceptedForAny() throws Exception {
+        CheckedUaMethod method = method(Identifiers.Int32, -2);
+
+        assertEquals(method.check(1)[0].getValue(), 1);
+        assertEquals(method.check((Object) new int[]{1})[0].getValue(), new Integer[]{1});
+    }
+
+    @Test
+    public void testIntegersAreConvertedToDoubleOnlyWithoutLoss() throws Exception {
+        CheckedUaMethod method = method(Identifiers.Double, -1);
+
+        assertEquals(method.check(1L << 53)[0].getValue(), (double) (1L << 53));
+        assertEquals(method.check(1.5f)[0].getValue(), 1.5);
+
+        assertRejected(method, (1L << 53) + 1, StatusCodes.Bad_OutOfRange);
+        assertRejected(method, Long.MAX_VALUE, StatusCodes.Bad_OutOfRange);
+    }
+
+    @Test
+    public void testIntegersAreConvertedToFloatOnlyWithoutLoss() throws Exception {
+        CheckedUaMethod method = method(Identifiers.Float, -1);
+
+        assertEquals(method.check(1 << 24)[0].getValue(), (float) (1 << 24));
+
+        assertRejected(method, (1 << 24) + 1, StatusCodes.Bad_OutOfRange);
+        assertRejected(method, (1L << 24) + 1, StatusCodes.Bad_OutOfRange);
+        assertRejected(method, 1.5, StatusCodes.Bad_TypeMismatch);
+    }
+
+    private static CheckedUaMethod method(NodeId dataType, int valueRank) {
+        Argument argument = new Argument("arg", dataType, valueRank, new UInteger[0], LocalizedText.NULL_VALUE);
+
+        return new CheckedUaMethod(null, new NodeId(2, "Object"), new NodeId(2, "Method"),
+                new MethodArguments(Collections.singletonList(argument), Collections.emptyList()));
+    }
+
+    private static void assertRejected(CheckedUaMethod method, Object value, long statusCode) {
+        try {
+            method.check(value);
+            fail("expected UaMethodException");
+        } catch (UaMethodException e) {
+            assertEquals(e.getInputArgumentResults()[0].getValue(), statusCode);
+        }
+    }
+
+}
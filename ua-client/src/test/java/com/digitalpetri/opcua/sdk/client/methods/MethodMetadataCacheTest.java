@@ -0,0 +1,268 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.methods;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.digitalpetri.opcua.sdk.client.OpcUaClient;
+import com.digitalpetri.opcua.sdk.client.api.config.OpcUaClientConfig;
+import com.digitalpetri.opcua.sdk.client.nodes.BrowsePathCache;
+import com.digitalpetri.opcua.stack.core.Identifiers;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExpandedNodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExtensionObject;
+import com.digitalpetri.opcua.stack.core.types.builtin.LocalizedText;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.Argument;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowsePath;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowsePathResult;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowsePathTarget;
+import com.digitalpetri.opcua.stack.core.types.structured.CallMethodRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.CallMethodResult;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
+import com.digitalpetri.opcua.stack.core.types.structured.ResponseHeader;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.assertFailsWith;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.await;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.testng.Assert.assertEquals;
+
+public class MethodMetadataCacheTest {
+
+    private static final NodeId OBJECT_ID = new NodeId(2, "Object");
+    private static final NodeId METHOD_ID = new NodeId(2, "Method");
+
+    @Test
+    public void testArgumentsAreReadOnce() throws Exception {
+        FakeClient client = new FakeClient();
+        MethodMetadataCache cache = new MethodMetadataCache(client);
+
+        MethodArguments arguments = await(cache.getArguments(METHOD_ID));
+
+        assertEquals(arguments.getInputArguments().size(), 1);
+        assertEquals(arguments.getInputArguments().get(0).getName(), "InputArguments");
+        assertEquals(arguments.getOutputArguments().size(), 1);
+        assertEquals(arguments.getOutputArguments().get(0).getName(), "OutputArguments");
+
+        await(cache.getArguments(METHOD_ID));
+
+        assertEquals(client.translations.get(), 1);
+        assertEquals(client.reads.get(), 1);
+    }
+
+    @Test
+    public void testArgumentsAreReadAgainAfterAModelChange() throws Exception {
+        FakeClient client = new FakeClient();
+        MethodMetadataCache cache = new MethodMetadataCache(client);
+
+        await(cache.getArguments(METHOD_ID));
+        client.getBrowsePathCache().invalidateAll();
+        await(cache.getArguments(METHOD_ID));
+        await(cache.getArguments(METHOD_ID));
+
+        assertEquals(client.translations.get(), 2);
+        assertEquals(client.reads.get(), 2);
+    }
+
+    @Test
+    public void testArgumentsReadAcrossAModelChangeAreNotKept() throws Exception {
+        FakeClient client = new FakeClient();
+        client.modelChangeDuringTranslate = true;
+        MethodMetadataCache cache = new MethodMetadataCache(client);
+
+        await(cache.getArguments(METHOD_ID));
+
+        client.modelChangeDuringTranslate = false;
+        await(cache.getArguments(METHOD_ID));
+        await(cache.getArguments(METHOD_ID));
+
+        assertEquals(client.translations.get(), 2);
+    }
+
+    @Test
+    public void testArgumentsAreNotKeptWithoutMonitoring() throws Exception {
+        FakeClient client = new FakeClient();
+        client.monitoring = false;
+        MethodMetadataCache cache = new MethodMetadataCache(client);
+
+        await(cache.getArguments(METHOD_ID));
+        await(cache.getArguments(METHOD_ID));
+
+        assertEquals(client.translations.get(), 2);
+    }
+
+    @Test
+    public void testMissingPropertiesAreCachedAsNoArguments() throws Exception {
+        FakeClient client = new FakeClient();
+        client.translateStatus = new StatusCode(StatusCodes.Bad_NoMatch);
+        MethodMetadataCache cache = new MethodMetadataCache(client);
+
+        MethodArguments arguments = await(cache.getArguments(METHOD_ID));
+
+        assertEquals(arguments.getInputArguments().size(), 0);
+        assertEquals(arguments.getOutputArguments().size(), 0);
+
+        await(cache.getArguments(METHOD_ID));
+
+        assertEquals(client.translations.get(), 1);
+    }
+
+    @Test
+    public void testTransientTranslateFailureIsNotCached() throws Exception {
+        FakeClient client = new FakeClient();
+        client.translateStatus = new StatusCode(StatusCodes.Bad_Timeout);
+        MethodMetadataCache cache = new MethodMetadataCache(client);
+
+        assertFailsWith(cache.getArguments(METHOD_ID), StatusCodes.Bad_Timeout);
+
+        client.translateStatus = StatusCode.GOOD;
+
+        assertEquals(await(cache.getArguments(METHOD_ID)).getInputArguments().size(), 1);
+        assertEquals(client.translations.get(), 2);
+    }
+
+    @Test
+    public void testTransientReadFailureIsNotCached() throws Exception {
+        FakeClient client = new FakeClient();
+        client.readStatus = new StatusCode(StatusCodes.Bad_TooManyOperations);
+        MethodMetadataCache cache = new MethodMetadataCache(client);
+
+        assertFailsWith(cache.getArguments(METHOD_ID), StatusCodes.Bad_TooManyOperations);
+
+        client.readStatus = StatusCode.GOOD;
+
+        assertEquals(await(cache.getArguments(METHOD_ID)).getInputArguments().size(), 1);
+        assertEquals(client.reads.get(), 2);
+    }
+
+    @Test
+    public void testSynchronousFailureIsNotCached() throws Exception {
+        FakeClient client = new FakeClient();
+        client.throwOnTranslate = true;
+        MethodMetadataCache cache = new MethodMetadataCache(client);
+
+        CompletableFuture<MethodArguments> failed = cache.getArguments(METHOD_ID);
+
+        // Used to leave an uncompleted future in the cache.
+        assertEquals(failed.isCompletedExceptionally(), true);
+
+        client.throwOnTranslate = false;
+
+        assertEquals(await(cache.getArguments(METHOD_ID)).getInputArguments().size(), 1);
+    }
+
+    @Test
+    public void testNullOutputArgumentsAreEmpty() throws Exception {
+        FakeClient client = new FakeClient();
+        client.translateStatus = new StatusCode(StatusCodes.Bad_NoMatch);
+        MethodMetadataCache cache = new MethodMetadataCache(client);
+
+        CheckedUaMethod method = await(cache.getMethod(OBJECT_ID, METHOD_ID));
+
+        assertEquals(await(method.call()).length, 0);
+    }
+
+    private static class FakeClient extends OpcUaClient {
+        final AtomicInteger translations = new AtomicInteger(0);
+        final AtomicInteger reads = new AtomicInteger(0);
+
+        volatile StatusCode translateStatus = StatusCode.GOOD;
+        volatile StatusCode readStatus = StatusCode.GOOD;
+        volatile boolean throwOnTranslate = false;
+        volatile boolean monitoring = true;
+        volatile boolean modelChangeDuringTranslate = false;
+
+        private final BrowsePathCache browsePathCache = new BrowsePathCache(this) {
+            @Override
+            public CompletableFuture<List<BrowsePathResult>> translate(List<BrowsePath> browsePaths) {
+                if (throwOnTranslate) throw new IllegalStateException("not connected");
+
+                translations.incrementAndGet();
+
+                if (modelChangeDuringTranslate) invalidateAll();
+
+                return CompletableFuture.completedFuture(browsePaths.stream()
+                        .map(FakeClient.this::translate)
+                        .collect(Collectors.toList()));
+            }
+
+            @Override
+            public boolean isMonitoring() {
+                return monitoring;
+            }
+        };
+
+        FakeClient() {
+            super(OpcUaClientConfig.builder().build());
+        }
+
+        @Override
+        public BrowsePathCache getBrowsePathCache() {
+            return browsePathCache;
+        }
+
+        @Override
+        public CompletableFuture<ReadResponse> read(double maxAge,
+                                                    TimestampsToReturn timestampsToReturn,
+                                                    List<ReadValueId> readValueIds) {
+
+            reads.incrementAndGet();
+
+            Function<ReadValueId, DataValue> read = id -> {
+                if (readStatus.isBad()) return new DataValue(readStatus);
+                if (id.getNodeId().isNull()) return new DataValue(new StatusCode(StatusCodes.Bad_NodeIdUnknown));
+
+                // The property NodeId is named after the property it was translated from.
+                Argument argument = new Argument(
+                        (String) id.getNodeId().getIdentifier(), Identifiers.Int32,
+                        -1, new UInteger[0], LocalizedText.NULL_VALUE);
+
+                return new DataValue(new Variant(new ExtensionObject[]{ExtensionObject.encode(argument)}));
+            };
+
+            DataValue[] values = readValueIds.stream().map(read).toArray(DataValue[]::new);
+
+            return CompletableFuture.completedFuture(new ReadResponse(new ResponseHeader(), values, null));
+        }
+
+        @Override
+        public CompletableFuture<CallMethodResult> call(CallMethodRequest request) {
+            return CompletableFuture.completedFuture(new CallMethodResult(StatusCode.GOOD, null, null, null));
+        }
+
+        private BrowsePathResult translate(BrowsePath browsePath) {
+            if (translateStatus.isBad()) return new BrowsePathResult(translateStatus, null);
+
+            String name = browsePath.getRelativePath().getElements()[0].getTargetName().getName();
+
+            return new BrowsePathResult(StatusCode.GOOD, new BrowsePathTarget[]{
+                    new BrowsePathTarget(new ExpandedNodeId(new NodeId(2, name)), uint(UInteger.MAX_VALUE))});
+        }
+    }
+
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.nodes;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import com.digitalpetri.opcua.sdk.client.api.services.ViewServices;
+import com.digitalpetri.opcua.stack.core.Identifiers;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExpandedNodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.LocalizedText;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.QualifiedName;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.digitalpetri.opcua.stack.core.types.enumerated.NodeClass;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowseDescription;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowseNextResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowseResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowseResult;
+import com.digitalpetri.opcua.stack.core.types.structured.ReferenceDescription;
+import com.digitalpetri.opcua.stack.core.types.structured.ViewDescription;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.assertFailsWith;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.await;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.header;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.stub;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class BrowseCrawlerTest {
+
+    private static final NodeId ROOT = new NodeId(2, "root");
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testEveryNodeIsBrowsedOnce() throws Exception {
+        FakeView view = new FakeView();
+
+        // 20 children of the root, each referring back to the root and to 2 of 5 shared grandchildren.
+        for (int i = 0; i < 20; i++) {
+            NodeId child = new NodeId(2, "c" + i);
+
+            view.add(ROOT, child);
+            view.add(child, ROOT);
+            view.add(child, new NodeId(2, "g" + (i % 5)));
+            view.add(child, new NodeId(2, "g" + ((i + 1) % 5)));
+        }
+
+        Map<NodeId, List<ReferenceDescription>> crawled = new ConcurrentHashMap<>();
+
+        long count = await(crawler(view, 4, 2).crawl(ROOT, crawled::put));
+
+        assertEquals(count, 26L);
+        assertEquals(crawled.size(), 26);
+        assertEquals(crawled.get(ROOT).size(), 20);
+        assertEquals(crawled.get(new NodeId(2, "c0")).size(), 3);
+
+        assertEquals(view.browsed.size(), 26);
+        assertEquals(Sets.newHashSet(view.browsed).size(), 26);
+        assertTrue(view.browseSizes.stream().allMatch(size -> size <= 4));
+    }
+
+    @Test
+    public void testContinuationPointsAreFollowed() throws Exception {
+        FakeView view = new FakeView();
+        view.pageSize = 2;
+
+        for (int i = 0; i < 5; i++) {
+            view.add(ROOT, new NodeId(2, "c" + i));
+        }
+
+        Map<NodeId, List<ReferenceDescription>> crawled = new ConcurrentHashMap<>();
+
+        assertEquals(await(crawler(view, 10, 1).crawl(ROOT, crawled::put)).longValue(), 6L);
+
+        List<Object> children = crawled.get(ROOT).stream()
+                .map(r -> r.getNodeId().getIdentifier())
+                .collect(Collectors.toList());
+
+        assertEquals(children, Lists.newArrayList("c0", "c1", "c2", "c3", "c4"));
+
+        // Pages of 2, 2 and 1.
+        assertEquals(view.browseNextCount.get(), 2);
+        assertTrue(view.released.isEmpty());
+        assertTrue(view.continuationPoints.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentRequestsAreBounded() throws Exception {
+        FakeView view = new FakeView();
+
+        for (int i = 0; i < 40; i++) {
+            view.add(ROOT, new NodeId(2, "c" + i));
+        }
+
+        assertEquals(await(crawler(view, 1, 3).crawl(ROOT, (n, r) -> {})).longValue(), 41L);
+
+        assertTrue(view.maxOutstanding.get() <= 3, "maxOutstanding=" + view.maxOutstanding.get());
+        assertTrue(view.maxOutstanding.get() > 1, "maxOutstanding=" + view.maxOutstanding.get());
+    }
+
+    @Test
+    public void testShortResultsFailAndReleaseContinuationPoints() throws Exception {
+        FakeView view = new FakeView();
+        view.pageSize = 1;
+
+        for (int i = 0; i < 3; i++) {
+            NodeId child = new NodeId(2, "c" + i);
+
+            view.add(ROOT, child);
+            view.add(child, new NodeId(2, "g" + i));
+            view.add(child, new NodeId(2, "h" + i));
+        }
+
+        // The second level is browsed in one request; drop the last result from its response.
+        view.dropLastResult = nodes -> nodes.size() == 3;
+
+        assertFailsWith(crawler(view, 10, 1).crawl(ROOT, (n, r) -> {}), StatusCodes.Bad_UnexpectedError);
+
+        view.awaitReleased(2);
+        assertTrue(view.continuationPoints.isEmpty());
+    }
+
+    @Test
+    public void testFailedBrowseNextReleasesContinuationPoints() throws Exception {
+        FakeView view = new FakeView();
+        view.pageSize = 1;
+        view.browseNextFailure = new UaException(StatusCodes.Bad_Timeout, "timeout");
+
+        view.add(ROOT, new NodeId(2, "c0"));
+        view.add(ROOT, new NodeId(2, "c1"));
+
+        assertFailsWith(crawler(view, 10, 1).crawl(ROOT, (n, r) -> {}), StatusCodes.Bad_Timeout);
+
+        view.awaitReleased(1);
+        assertTrue(view.continuationPoints.isEmpty());
+    }
+
+    private BrowseCrawler crawler(FakeView view, int maxNodesPerRequest, int maxConcurrentRequests) {
+        return new BrowseCrawler(
+                stub(ViewServices.class, view),
+                Identifiers.HierarchicalReferences,
+                maxNodesPerRequest,
+                maxConcurrentRequests,
+                0);
+    }
+
+    /**
+     * An address space answering Browse and BrowseNext asynchronously, returning at most {@link #pageSize}
+     * references per result and recording what it was asked to do.
+     */
+    private class FakeView {
+        final Map<NodeId, List<NodeId>> references = new ConcurrentHashMap<>();
+        final Map<ByteString, Page> continuationPoints = new ConcurrentHashMap<>();
+
+        final List<NodeId> browsed = new CopyOnWriteArrayList<>();
+        final List<Integer> browseSizes = new CopyOnWriteArrayList<>();
+        final List<ByteString> released = new CopyOnWriteArrayList<>();
+
+        final AtomicInteger browseNextCount = new AtomicInteger(0);
+        final AtomicInteger outstanding = new AtomicInteger(0);
+        final AtomicInteger maxOutstanding = new AtomicInteger(0);
+
+        private final AtomicInteger nextContinuationPoint = new AtomicInteger(0);
+
+        volatile int pageSize = 0;
+        volatile Predicate<List<NodeId>> dropLastResult = nodes -> false;
+        volatile Exception browseNextFailure;
+
+        void add(NodeId source, NodeId target) {
+            references.computeIfAbsent(source, n -> new CopyOnWriteArrayList<>()).add(target);
+        }
+
+        public CompletableFuture<BrowseResponse> browse(ViewDescription view,
+                                                        UInteger maxReferencesPerNode,
+                                                        List<BrowseDescription> nodesToBrowse) {
+
+            List<NodeId> nodeIds = nodesToBrowse.stream()
+                    .map(BrowseDescription::getNodeId)
+                    .collect(Collectors.toList());
+
+            browsed.addAll(nodeIds);
+            browseSizes.add(nodeIds.size());
+
+            return async(() -> {
+                List<NodeId> answered = dropLastResult.test(nodeIds) ?
+                        nodeIds.subList(0, nodeIds.size() - 1) : nodeIds;
+
+                BrowseResult[] results = answered.stream()
+                        .map(nodeId -> page(new Page(nodeId, 0)))
+                        .toArray(BrowseResult[]::new);
+
+                return new BrowseResponse(header(), results, null);
+            });
+        }
+
+        public CompletableFuture<BrowseNextResponse> browseNext(boolean releaseContinuationPoints,
+                                                                List<ByteString> cps) {
+
+            if (releaseContinuationPoints) {
+                released.addAll(cps);
+                cps.forEach(continuationPoints::remove);
+
+                return CompletableFuture.completedFuture(new BrowseNextResponse(header(), null, null));
+            }
+
+            browseNextCount.incrementAndGet();
+
+            return async(() -> {
+                if (browseNextFailure != null) throw browseNextFailure;
+
+                BrowseResult[] results = cps.stream()
+                        .map(cp -> page(continuationPoints.remove(cp)))
+                        .toArray(BrowseResult[]::new);
+
+                return new BrowseNextResponse(header(), results, null);
+            });
+        }
+
+        void awaitReleased(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+
+            while (released.size() < count) {
+                if (System.currentTimeMillis() > deadline) throw new AssertionError("released " + released);
+                Thread.sleep(5);
+            }
+        }
+
+        private BrowseResult page(Page page) {
+            List<NodeId> targets = references.getOrDefault(page.nodeId, Collections.emptyList());
+            int end = pageSize > 0 ? Math.min(targets.size(), page.offset + pageSize) : targets.size();
+
+            ReferenceDescription[] descriptions = targets.subList(page.offset, end).stream()
+                    .map(BrowseCrawlerTest::reference)
+                    .toArray(ReferenceDescription[]::new);
+
+            ByteString continuationPoint = ByteString.NULL_VALUE;
+
+            if (end < targets.size()) {
+                continuationPoint = ByteString.of(
+                        ByteBuffer.allocate(4).putInt(nextContinuationPoint.incrementAndGet()).array());
+
+                continuationPoints.put(continuationPoint, new Page(page.nodeId, end));
+            }
+
+            return new BrowseResult(StatusCode.GOOD, continuationPoint, descriptions);
+        }
+
+        private <T> CompletableFuture<T> async(Callable<T> response) {
+            maxOutstanding.accumulateAndGet(outstanding.incrementAndGet(), Math::max);
+
+            CompletableFuture<T> future = new CompletableFuture<>();
+
+            executor.execute(() -> {
+                T result = null;
+                Throwable failure = null;
+
+                try {
+                    Thread.sleep(2);
+                    result = response.call();
+                } catch (Throwable t) {
+                    failure = t;
+                }
+
+                // No longer outstanding before the crawler gets to send its next request.
+                outstanding.decrementAndGet();
+
+                if (failure != null) future.completeExceptionally(failure);
+                else future.complete(result);
+            });
+
+            return future;
+        }
+    }
+
+    private static ReferenceDescription reference(NodeId target) {
+        return new ReferenceDescription(
+                Identifiers.Organizes,
+                true,
+                new ExpandedNodeId(target),
+                new QualifiedName(2, target.getIdentifier().toString()),
+                LocalizedText.english(target.getIdentifier().toString()),
+                NodeClass.Object,
+                ExpandedNodeId.NULL_VALUE);
+    }
+
+    private static class Page {
+        final NodeId nodeId;
+        final int offset;
+
+        Page(NodeId nodeId, int offset) {
+            this.nodeId = nodeId;
+            this.offset = offset;
+        }
+    }
+
+}
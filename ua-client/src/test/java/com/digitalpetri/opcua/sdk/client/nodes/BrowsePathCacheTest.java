@@ -0,0 +1,235 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.nodes;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.digitalpetri.opcua.sdk.client.OpcUaClient;
+import com.digitalpetri.opcua.sdk.client.api.config.OpcUaClientConfig;
+import com.digitalpetri.opcua.stack.core.Identifiers;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExpandedNodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.QualifiedName;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UByte;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowsePath;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowsePathResult;
+import com.digitalpetri.opcua.stack.core.types.structured.BrowsePathTarget;
+import com.digitalpetri.opcua.stack.core.types.structured.CreateMonitoredItemsResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.CreateSubscriptionResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.DeleteSubscriptionsResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.MonitoredItemCreateResult;
+import com.digitalpetri.opcua.stack.core.types.structured.RelativePath;
+import com.digitalpetri.opcua.stack.core.types.structured.RelativePathElement;
+import com.digitalpetri.opcua.stack.core.types.structured.ResponseHeader;
+import com.digitalpetri.opcua.stack.core.types.structured.TranslateBrowsePathsToNodeIdsResponse;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class BrowsePathCacheTest {
+
+    @Test
+    public void testResultsAreCachedWhileMonitoring() throws Exception {
+        FakeClient client = new FakeClient(false);
+        BrowsePathCache cache = new BrowsePathCache(client);
+
+        assertEquals(target(cache.translate(path("A")).get()), new NodeId(2, "A"));
+        assertEquals(target(cache.translate(path("A")).get()), new NodeId(2, "A"));
+
+        assertEquals(client.translations.get(), 1);
+        assertEquals(client.subscriptionAttempts.get(), 1);
+    }
+
+    @Test
+    public void testFailedSubscriptionFallsBackToUncached() throws Exception {
+        FakeClient client = new FakeClient(true);
+        BrowsePathCache cache = new BrowsePathCache(client);
+
+        // Used to throw CompletionException from translate() once the subscription had failed.
+        assertEquals(target(cache.translate(path("A")).get()), new NodeId(2, "A"));
+        assertEquals(target(cache.translate(path("A")).get()), new NodeId(2, "A"));
+
+        assertEquals(client.translations.get(), 2);
+        // Monitoring isn't retried on every translation.
+        assertEquals(client.subscriptionAttempts.get(), 1);
+    }
+
+    @Test
+    public void testLosingMonitoringInvalidatesCache() throws Exception {
+        FakeClient client = new FakeClient(false);
+        BrowsePathCache cache = new BrowsePathCache(client);
+
+        cache.translate(path("A")).get();
+        assertEquals(client.translations.get(), 1);
+
+        client.getSubscriptionManager().clearSubscriptions();
+
+        cache.translate(path("A")).get();
+        assertEquals(client.translations.get(), 2);
+        assertEquals(client.subscriptionAttempts.get(), 2);
+    }
+
+    @Test
+    public void testBadMonitoredItemFallsBackToUncached() throws Exception {
+        FakeClient client = new FakeClient(false);
+        client.itemStatus = new StatusCode(StatusCodes.Bad_NodeIdUnknown);
+        BrowsePathCache cache = new BrowsePathCache(client);
+
+        assertEquals(target(cache.translate(path("A")).get()), new NodeId(2, "A"));
+        assertEquals(target(cache.translate(path("A")).get()), new NodeId(2, "A"));
+
+        assertEquals(client.translations.get(), 2);
+        // The subscription without an item is deleted, and monitoring isn't retried on every translation.
+        assertTrue(client.getSubscriptionManager().getSubscriptions().isEmpty());
+        assertEquals(client.subscriptionAttempts.get(), 1);
+    }
+
+    @Test
+    public void testResultInFlightAcrossInvalidationIsNotCached() throws Exception {
+        FakeClient client = new FakeClient(false);
+        BrowsePathCache cache = new BrowsePathCache(client);
+
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        client.translationGate = gate;
+
+        CompletableFuture<BrowsePathResult> inFlight = cache.translate(path("A"));
+
+        // A model change is reported before the response to the translation sent before it arrives.
+        cache.invalidateAll();
+        gate.complete(null);
+
+        assertEquals(target(inFlight.get()), new NodeId(2, "A"));
+
+        client.translationGate = null;
+        cache.translate(path("A")).get();
+
+        assertEquals(client.translations.get(), 2);
+    }
+
+    @Test(expectedExceptions = Exception.class)
+    public void testShortResultsFail() throws Exception {
+        FakeClient client = new FakeClient(false);
+        client.shortResults = true;
+
+        new BrowsePathCache(client).translate(path("A")).get();
+    }
+
+    private static BrowsePath path(String name) {
+        RelativePathElement element = new RelativePathElement(
+                Identifiers.HierarchicalReferences, false, true, new QualifiedName(2, name));
+
+        return new BrowsePath(Identifiers.ObjectsFolder, new RelativePath(new RelativePathElement[]{element}));
+    }
+
+    private static NodeId target(BrowsePathResult result) {
+        return result.getTargets()[0].getTargetId().local().get();
+    }
+
+    private static class FakeClient extends OpcUaClient {
+        final AtomicInteger translations = new AtomicInteger(0);
+        final AtomicInteger subscriptionAttempts = new AtomicInteger(0);
+
+        final boolean failSubscriptions;
+
+        volatile boolean shortResults = false;
+        volatile StatusCode itemStatus = StatusCode.GOOD;
+        volatile CompletableFuture<Void> translationGate;
+
+        FakeClient(boolean failSubscriptions) {
+            super(OpcUaClientConfig.builder().setMaxPendingPublishRequests(uint(0)).build());
+
+            this.failSubscriptions = failSubscriptions;
+        }
+
+        @Override
+        public CompletableFuture<TranslateBrowsePathsToNodeIdsResponse> translateBrowsePaths(
+                List<BrowsePath> browsePaths) {
+
+            translations.incrementAndGet();
+
+            BrowsePathResult[] results = browsePaths.stream()
+                    .map(p -> new BrowsePathResult(StatusCode.GOOD, new BrowsePathTarget[]{
+                            new BrowsePathTarget(
+                                    new ExpandedNodeId(new NodeId(2, p.getRelativePath().getElements()[0]
+                                            .getTargetName().getName())),
+                                    uint(UInteger.MAX_VALUE))}))
+                    .limit(shortResults ? browsePaths.size() - 1 : browsePaths.size())
+                    .toArray(BrowsePathResult[]::new);
+
+            TranslateBrowsePathsToNodeIdsResponse response =
+                    new TranslateBrowsePathsToNodeIdsResponse(new ResponseHeader(), results, null);
+
+            CompletableFuture<Void> gate = translationGate;
+
+            return gate != null ?
+                    gate.thenApply(v -> response) :
+                    CompletableFuture.completedFuture(response);
+        }
+
+        @Override
+        public CompletableFuture<CreateSubscriptionResponse> createSubscription(double requestedPublishingInterval,
+                                                                                UInteger requestedLifetimeCount,
+                                                                                UInteger requestedMaxKeepAliveCount,
+                                                                                UInteger maxNotificationsPerPublish,
+                                                                                boolean publishingEnabled,
+                                                                                UByte priority) {
+
+            int attempt = subscriptionAttempts.incrementAndGet();
+
+            if (failSubscriptions) {
+                CompletableFuture<CreateSubscriptionResponse> f = new CompletableFuture<>();
+                f.completeExceptionally(new UaException(StatusCodes.Bad_TooManySubscriptions));
+                return f;
+            }
+
+            return CompletableFuture.completedFuture(new CreateSubscriptionResponse(
+                    new ResponseHeader(), uint(attempt), requestedPublishingInterval,
+                    requestedLifetimeCount, requestedMaxKeepAliveCount));
+        }
+
+        @Override
+        public CompletableFuture<CreateMonitoredItemsResponse> createMonitoredItems(
+                UInteger subscriptionId,
+                TimestampsToReturn timestampsToReturn,
+                List<MonitoredItemCreateRequest> itemsToCreate) {
+
+            MonitoredItemCreateResult[] results = itemsToCreate.stream()
+                    .map(r -> new MonitoredItemCreateResult(itemStatus, uint(1), 0.0, uint(1), null))
+                    .toArray(MonitoredItemCreateResult[]::new);
+
+            return CompletableFuture.completedFuture(
+                    new CreateMonitoredItemsResponse(new ResponseHeader(), results, null));
+        }
+
+        @Override
+        public CompletableFuture<DeleteSubscriptionsResponse> deleteSubscriptions(List<UInteger> subscriptionIds) {
+            return CompletableFuture.completedFuture(new DeleteSubscriptionsResponse(
+                    new ResponseHeader(), new StatusCode[subscriptionIds.size()], null));
+        }
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.nodes;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.digitalpetri.opcua.sdk.client.api.OperationLimits;
+import com.digitalpetri.opcua.sdk.client.api.UaClient;
+import com.digitalpetri.opcua.sdk.client.api.UaSession;
+import com.digitalpetri.opcua.stack.core.Identifiers;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExpandedNodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.QualifiedName;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.enumerated.NodeClass;
+import com.digitalpetri.opcua.stack.core.types.structured.AddNodesItem;
+import com.digitalpetri.opcua.stack.core.types.structured.AddNodesResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.AddNodesResult;
+import com.digitalpetri.opcua.stack.core.types.structured.AddReferencesItem;
+import com.digitalpetri.opcua.stack.core.types.structured.AddReferencesResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ResponseHeader;
+import com.google.common.collect.Sets;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.await;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.stub;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class NodeProvisionerTest {
+
+    @Test
+    public void testParentIsAddedBeforeChild() throws Exception {
+        FakeNodes server = new FakeNodes();
+
+        NodeProvisioner.Result result = await(new NodeProvisioner(server.client()).provision(
+                newArrayList(node("Child", id("Parent")), node("Parent", Identifiers.ObjectsFolder.expanded())),
+                Collections.emptyList()));
+
+        assertEquals(server.batches.size(), 2);
+        assertEquals(server.batches.get(0).get(0).getBrowseName().getName(), "Parent");
+        assertEquals(server.batches.get(1).get(0).getBrowseName().getName(), "Child");
+
+        assertTrue(result.getNodeResults().stream().allMatch(r -> r.getStatusCode().isGood()));
+    }
+
+    @Test
+    public void testFailedParentFailsDependents() throws Exception {
+        FakeNodes server = new FakeNodes();
+        server.rejected.add("Parent");
+
+        NodeProvisioner.Result result = await(new NodeProvisioner(server.client()).provision(
+                newArrayList(node("Parent", Identifiers.ObjectsFolder.expanded()), node("Child", id("Parent"))),
+                newArrayList(reference(id("Child").local().get(), Identifiers.ObjectsFolder.expanded()))));
+
+        assertEquals(server.batches.size(), 1);
+        assertEquals(status(result.getNodeResults().get(0)), StatusCodes.Bad_BrowseNameDuplicated);
+        assertEquals(status(result.getNodeResults().get(1)), StatusCodes.Bad_ParentNodeIdInvalid);
+
+        assertEquals(result.getReferenceResults().get(0).getValue(), StatusCodes.Bad_SourceNodeIdInvalid);
+        assertTrue(server.references.isEmpty());
+    }
+
+    @Test
+    public void testAssignedNodeIdIsUsedByDependents() throws Exception {
+        FakeNodes server = new FakeNodes();
+        server.reassign = true;
+
+        NodeProvisioner.Result result = await(new NodeProvisioner(server.client()).provision(
+                newArrayList(node("Parent", Identifiers.ObjectsFolder.expanded()), node("Child", id("Parent"))),
+                newArrayList(reference(id("Child").local().get(), Identifiers.ObjectsFolder.expanded()))));
+
+        assertEquals(server.batches.get(1).get(0).getParentNodeId(), new NodeId(3, "Parent").expanded());
+        assertEquals(server.references.get(0).getSourceNodeId(), new NodeId(3, "Child"));
+        assertTrue(result.getReferenceResults().get(0).isGood());
+    }
+
+    @Test
+    public void testNullResultsFailNodes() throws Exception {
+        FakeNodes server = new FakeNodes();
+        server.nullResults = true;
+
+        // Used to throw inside the completion callback and never complete.
+        NodeProvisioner.Result result = await(new NodeProvisioner(server.client()).provision(
+                newArrayList(node("Parent", Identifiers.ObjectsFolder.expanded()), node("Child", id("Parent"))),
+                Collections.emptyList()));
+
+        assertEquals(status(result.getNodeResults().get(0)), StatusCodes.Bad_UnexpectedError);
+        assertEquals(status(result.getNodeResults().get(1)), StatusCodes.Bad_ParentNodeIdInvalid);
+    }
+
+    @Test
+    public void testSynchronousFailureFailsNodes() throws Exception {
+        FakeNodes server = new FakeNodes();
+        server.throwOnAdd = true;
+
+        NodeProvisioner.Result result = await(new NodeProvisioner(server.client()).provision(
+                newArrayList(node("Parent", Identifiers.ObjectsFolder.expanded())),
+                Collections.emptyList()));
+
+        assertEquals(status(result.getNodeResults().get(0)), StatusCodes.Bad_UnexpectedError);
+    }
+
+    @Test
+    public void testFailedReferencesRequestFailsOnlyReferences() throws Exception {
+        FakeNodes server = new FakeNodes();
+        server.referencesFailure = new UaException(StatusCodes.Bad_TooManyOperations, "too many");
+
+        NodeProvisioner.Result result = await(new NodeProvisioner(server.client()).provision(
+                newArrayList(node("Parent", Identifiers.ObjectsFolder.expanded())),
+                newArrayList(
+                        reference(id("Parent").local().get(), Identifiers.ObjectsFolder.expanded()),
+                        reference(id("Parent").local().get(), Identifiers.Server.expanded()))));
+
+        assertTrue(result.getNodeResults().get(0).getStatusCode().isGood());
+        assertEquals(result.getReferenceResults().get(0).getValue(), StatusCodes.Bad_TooManyOperations);
+        assertEquals(result.getReferenceResults().get(1).getValue(), StatusCodes.Bad_TooManyOperations);
+    }
+
+    @Test
+    public void testDependencyCycleFailsWithoutSending() throws Exception {
+        FakeNodes server = new FakeNodes();
+
+        NodeProvisioner.Result result = await(new NodeProvisioner(server.client()).provision(
+                newArrayList(node("A", id("B")), node("B", id("A"))),
+                Collections.emptyList()));
+
+        assertTrue(server.batches.isEmpty());
+        assertEquals(status(result.getNodeResults().get(0)), StatusCodes.Bad_ParentNodeIdInvalid);
+        assertEquals(status(result.getNodeResults().get(1)), StatusCodes.Bad_ParentNodeIdInvalid);
+    }
+
+    private static ExpandedNodeId id(String name) {
+        return new NodeId(2, name).expanded();
+    }
+
+    private static AddNodesItem node(String name, ExpandedNodeId parent) {
+        return new AddNodesItem(
+                parent,
+                Identifiers.HasComponent,
+                id(name),
+                new QualifiedName(2, name),
+                NodeClass.Object,
+                null,
+                Identifiers.BaseObjectType.expanded());
+    }
+
+    private static AddReferencesItem reference(NodeId source, ExpandedNodeId target) {
+        return new AddReferencesItem(source, Identifiers.Organizes, true, null, target, NodeClass.Object);
+    }
+
+    private static long status(AddNodesResult result) {
+        return result.getStatusCode().getValue();
+    }
+
+    static class FakeNodes {
+        final List<List<AddNodesItem>> batches = new CopyOnWriteArrayList<>();
+        final List<AddReferencesItem> references = new CopyOnWriteArrayList<>();
+        final Set<String> rejected = Sets.newConcurrentHashSet();
+
+        final UaSession session;
+
+        volatile boolean reassign = false;
+        volatile boolean nullResults = false;
+        volatile boolean throwOnAdd = false;
+        volatile UaException referencesFailure = null;
+
+        FakeNodes() {
+            OperationLimits limits = new OperationLimits(
+                    uint(0), uint(0), uint(0), uint(0), uint(0), uint(0),
+                    uint(0), uint(0), uint(0), uint(0), uint(0), uint(0));
+
+            session = stub(UaSession.class, new Object() {
+                public OperationLimits getOperationLimits() {
+                    return limits;
+                }
+            });
+        }
+
+        public CompletableFuture<UaSession> getSession() {
+            return CompletableFuture.completedFuture(session);
+        }
+
+        public CompletableFuture<AddNodesResponse> addNodes(List<AddNodesItem> nodesToAdd) {
+            if (throwOnAdd) throw new IllegalStateException("not connected");
+
+            batches.add(nodesToAdd);
+
+            AddNodesResult[] results = nodesToAdd.stream().map(item -> {
+                String name = item.getBrowseName().getName();
+
+                if (rejected.contains(name)) {
+                    return new AddNodesResult(new StatusCode(StatusCodes.Bad_BrowseNameDuplicated), NodeId.NULL_VALUE);
+                } else {
+                    return new AddNodesResult(StatusCode.GOOD, new NodeId(reassign ? 3 : 2, name));
+                }
+            }).toArray(AddNodesResult[]::new);
+
+            return CompletableFuture.completedFuture(
+                    new AddNodesResponse(new ResponseHeader(), nullResults ? null : results, null));
+        }
+
+        public CompletableFuture<AddReferencesResponse> addReferences(List<AddReferencesItem> referencesToAdd) {
+            if (referencesFailure != null) {
+                CompletableFuture<AddReferencesResponse> failed = new CompletableFuture<>();
+                failed.completeExceptionally(referencesFailure);
+                return failed;
+            }
+
+            references.addAll(referencesToAdd);
+
+            StatusCode[] results = new StatusCode[referencesToAdd.size()];
+            Arrays.fill(results, StatusCode.GOOD);
+
+            return CompletableFuture.completedFuture(new AddReferencesResponse(new ResponseHeader(), results, null));
+        }
+
+        UaClient client() {
+            return stub(UaClient.class, this);
+        }
+    }
+
+}
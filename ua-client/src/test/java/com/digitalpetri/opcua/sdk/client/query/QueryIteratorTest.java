@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.query;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.digitalpetri.opcua.sdk.client.api.services.QueryServices;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.UaRuntimeException;
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExpandedNodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.digitalpetri.opcua.stack.core.types.structured.ContentFilter;
+import com.digitalpetri.opcua.stack.core.types.structured.ContentFilterElementResult;
+import com.digitalpetri.opcua.stack.core.types.structured.ContentFilterResult;
+import com.digitalpetri.opcua.stack.core.types.structured.NodeTypeDescription;
+import com.digitalpetri.opcua.stack.core.types.structured.ParsingResult;
+import com.digitalpetri.opcua.stack.core.types.structured.QueryDataSet;
+import com.digitalpetri.opcua.stack.core.types.structured.QueryFirstResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.QueryNextResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ResponseHeader;
+import com.digitalpetri.opcua.stack.core.types.structured.ViewDescription;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.failed;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.stub;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class QueryIteratorTest {
+
+    @Test
+    public void testBatchesAreFollowedInOrder() {
+        FakeQueries queries = new FakeQueries(3);
+
+        List<Object> values = newArrayList();
+
+        try (QueryIterator iterator = iterator(queries, QueryIterator.DEFAULT_MAX_BATCHES)) {
+            while (iterator.hasNext()) {
+                for (QueryDataSet dataSet : iterator.next()) {
+                    values.add(dataSet.getValues()[0].getValue());
+                }
+            }
+        }
+
+        assertEquals(values, newArrayList(0, 1, 2));
+        assertEquals(queries.nexts.size(), 2);
+        assertTrue(queries.released.isEmpty());
+    }
+
+    @Test
+    public void testBadParsingResultFails() {
+        FakeQueries queries = new FakeQueries(1);
+        queries.parsingResults = new ParsingResult[]{
+                new ParsingResult(new StatusCode(StatusCodes.Bad_NodeIdUnknown), null, null)};
+
+        assertFails(iterator(queries, 1), StatusCodes.Bad_NodeIdUnknown);
+    }
+
+    @Test
+    public void testBadFilterResultFails() {
+        FakeQueries queries = new FakeQueries(1);
+        queries.filterResult = new ContentFilterResult(new ContentFilterElementResult[]{
+                new ContentFilterElementResult(StatusCode.GOOD, null, null),
+                new ContentFilterElementResult(new StatusCode(StatusCodes.Bad_FilterOperatorInvalid), null, null)
+        }, null);
+
+        assertFails(iterator(queries, 1), StatusCodes.Bad_FilterOperatorInvalid);
+    }
+
+    @Test
+    public void testGoodResultsDoNotFail() {
+        FakeQueries queries = new FakeQueries(1);
+        queries.parsingResults = new ParsingResult[]{new ParsingResult(StatusCode.GOOD, null, null)};
+        queries.filterResult = new ContentFilterResult(new ContentFilterElementResult[]{
+                new ContentFilterElementResult(StatusCode.GOOD, null, null)}, null);
+
+        QueryIterator iterator = iterator(queries, 1);
+
+        assertTrue(iterator.hasNext());
+        assertEquals(iterator.next().size(), 1);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testFailedQueryNextFails() {
+        FakeQueries queries = new FakeQueries(3);
+        queries.failNext = true;
+
+        QueryIterator iterator = iterator(queries, 1);
+
+        assertTrue(iterator.hasNext());
+        iterator.next();
+
+        assertFails(iterator, StatusCodes.Bad_ContinuationPointInvalid);
+    }
+
+    @Test
+    public void testCloseReleasesContinuationPoint() {
+        FakeQueries queries = new FakeQueries(3);
+
+        QueryIterator iterator = iterator(queries, 1);
+
+        assertTrue(iterator.hasNext());
+
+        // One batch is buffered, so nothing more was requested.
+        assertTrue(queries.nexts.isEmpty());
+
+        iterator.close();
+
+        assertEquals(queries.released, newArrayList(cp(1)));
+        assertFalse(iterator.hasNext());
+    }
+
+    private static QueryIterator iterator(FakeQueries queries, int maxBatches) {
+        return new QueryIterator(
+                stub(QueryServices.class, queries),
+                new ViewDescription(NodeId.NULL_VALUE, null, uint(0)),
+                newArrayList(),
+                new ContentFilter(null),
+                uint(0),
+                uint(0),
+                maxBatches);
+    }
+
+    private static void assertFails(QueryIterator iterator, long statusCode) {
+        try {
+            iterator.hasNext();
+            fail("expected UaRuntimeException");
+        } catch (UaRuntimeException e) {
+            assertEquals(e.getStatusCode(), statusCode);
+        }
+    }
+
+    private static ByteString cp(int i) {
+        return ByteString.of(new byte[]{(byte) i});
+    }
+
+    /**
+     * A query with {@code batches} batches of one {@link QueryDataSet} each, batch {@code i} holding the value
+     * {@code i} and continued with {@code cp(i + 1)}.
+     */
+    static class FakeQueries {
+        final List<ByteString> nexts = new CopyOnWriteArrayList<>();
+        final List<ByteString> released = new CopyOnWriteArrayList<>();
+
+        final int batches;
+
+        volatile ParsingResult[] parsingResults;
+        volatile ContentFilterResult filterResult;
+        volatile boolean failNext = false;
+
+        FakeQueries(int batches) {
+            this.batches = batches;
+        }
+
+        public CompletableFuture<QueryFirstResponse> queryFirst(ViewDescription view,
+                                                                List<NodeTypeDescription> nodeTypes,
+                                                                ContentFilter filter,
+                                                                UInteger maxDataSetsToReturn,
+                                                                UInteger maxReferencesToReturn) {
+
+            return CompletableFuture.completedFuture(new QueryFirstResponse(
+                    new ResponseHeader(), batch(0), next(0), parsingResults, null, filterResult));
+        }
+
+        public CompletableFuture<QueryNextResponse> queryNext(boolean releaseContinuationPoint,
+                                                              ByteString continuationPoint) {
+
+            if (releaseContinuationPoint) {
+                released.add(continuationPoint);
+
+                return CompletableFuture.completedFuture(
+                        new QueryNextResponse(new ResponseHeader(), null, ByteString.NULL_VALUE));
+            }
+
+            nexts.add(continuationPoint);
+
+            if (failNext) return failed(new UaException(StatusCodes.Bad_ContinuationPointInvalid));
+
+            int i = continuationPoint.byteAt(0);
+
+            return CompletableFuture.completedFuture(
+                    new QueryNextResponse(new ResponseHeader(), batch(i), next(i)));
+        }
+
+        private QueryDataSet[] batch(int i) {
+            return new QueryDataSet[]{new QueryDataSet(
+                    new ExpandedNodeId(new NodeId(2, i)), ExpandedNodeId.NULL_VALUE, new Variant[]{new Variant(i)})};
+        }
+
+        private ByteString next(int i) {
+            return i + 1 < batches ? cp(i + 1) : ByteString.NULL_VALUE;
+        }
+    }
+
+}
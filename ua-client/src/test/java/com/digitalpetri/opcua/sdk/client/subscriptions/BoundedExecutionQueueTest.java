@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.subscriptions.OpcUaSubscriptionManagerTest.awaitQuietly;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class BoundedExecutionQueueTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testTasksRunInOrder() throws Exception {
+        BoundedExecutionQueue queue = new BoundedExecutionQueue(executor, 0, () -> {});
+
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            queue.submit(() -> {
+                ran.add(n);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(ran.get(i).intValue(), i);
+        }
+    }
+
+    @Test
+    public void testDepthAndCapacity() throws Exception {
+        BoundedExecutionQueue queue = new BoundedExecutionQueue(executor, 2, () -> {});
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertEquals(queue.getCapacity(), 2);
+        assertFalse(queue.isFull());
+
+        queue.submit(() -> awaitQuietly(release));
+        assertEquals(queue.getDepth(), 1);
+        assertFalse(queue.isFull());
+
+        queue.submit(() -> {});
+        assertEquals(queue.getDepth(), 2);
+        assertTrue(queue.isFull());
+
+        // Submitting never refuses; it's up to the caller to check first.
+        queue.submit(() -> {});
+        assertEquals(queue.getDepth(), 3);
+
+        release.countDown();
+        awaitDepth(queue, 0);
+
+        assertFalse(queue.isFull());
+        assertEquals(queue.getHighWaterMark(), 3);
+    }
+
+    @Test
+    public void testNoCapacityIsNeverFull() {
+        BoundedExecutionQueue queue = new BoundedExecutionQueue(executor, 0, () -> {});
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            for (int i = 0; i < 10; i++) {
+                queue.submit(() -> awaitQuietly(release));
+            }
+
+            assertFalse(queue.isFull());
+            assertEquals(queue.getCapacity(), 0);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testOnAvailableRunsWhenQueueStopsBeingFull() throws Exception {
+        AtomicInteger available = new AtomicInteger(0);
+        BoundedExecutionQueue queue = new BoundedExecutionQueue(executor, 2, available::incrementAndGet);
+        CountDownLatch release = new CountDownLatch(1);
+
+        queue.submit(() -> awaitQuietly(release));
+        queue.submit(() -> {});
+        queue.submit(() -> {});
+
+        assertEquals(available.get(), 0);
+
+        release.countDown();
+        awaitDepth(queue, 0);
+
+        assertEquals(available.get(), 1);
+
+        // Never full, so never becomes available.
+        queue.submit(() -> {});
+        awaitDepth(queue, 0);
+
+        assertEquals(available.get(), 1);
+    }
+
+    @Test
+    public void testThrowingTaskStillLeavesQueue() throws Exception {
+        BoundedExecutionQueue queue = new BoundedExecutionQueue(executor, 1, () -> {});
+        CountDownLatch ran = new CountDownLatch(1);
+
+        queue.submit(() -> {
+            throw new RuntimeException("boom");
+        });
+        queue.submit(ran::countDown);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        awaitDepth(queue, 0);
+    }
+
+    @Test
+    public void testRejectIsCounted() {
+        BoundedExecutionQueue queue = new BoundedExecutionQueue(executor, 1, () -> {});
+
+        queue.reject();
+        queue.reject();
+
+        assertEquals(queue.getRejectedCount(), 2L);
+        assertEquals(queue.getDepth(), 0);
+    }
+
+    static void awaitDepth(BoundedExecutionQueue queue, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (queue.getDepth() != depth) {
+            if (System.nanoTime() > deadline) throw new AssertionError("depth " + queue.getDepth() + " != " + depth);
+
+            Thread.sleep(1);
+        }
+    }
+
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.DeliveryOverflowPolicy;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.subscriptions.FakeSubscriptionClient.dataChange;
+import static com.digitalpetri.opcua.sdk.client.subscriptions.FakeSubscriptionClient.message;
+import static com.digitalpetri.opcua.sdk.client.subscriptions.OpcUaSubscriptionManagerTest.awaitQuietly;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+public class DeliveryOverflowPolicyTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testStopAcknowledgingWithholdsAndDefersRepublish() throws Exception {
+        Harness h = new Harness(DeliveryOverflowPolicy.STOP_ACKNOWLEDGING);
+
+        h.client.publish(h.subscription, 1, dataChange(h.item, 1));
+        assertTrue(h.entered.await(5, TimeUnit.SECONDS));
+
+        // Lane is full: 2 is withheld, and the gap 3 then finds isn't republished while the lane is still full.
+        h.client.publish(h.subscription, 2, dataChange(h.item, 2));
+        h.client.publish(h.subscription, 3, dataChange(h.item, 3));
+
+        assertEquals(h.subscription.getLastSequenceNumber(), 1L);
+        assertEquals(h.manager().getWithheldNotificationCount(), 2L);
+        assertEquals(h.manager().getDeliveryQueueDepth(), 1);
+        assertTrue(h.client.republished.isEmpty());
+
+        // With room again, the withheld response is processed again and republishes the gap without waiting for
+        // the next response to arrive.
+        h.release.countDown();
+
+        eventually(() -> h.values.size() == 3);
+
+        assertEquals(h.values, Arrays.asList(1, 2, 3));
+        assertTrue(h.client.republished.contains(2L));
+        assertEquals(h.subscription.getLastSequenceNumber(), 3L);
+
+        h.client.publish(h.subscription, 4, dataChange(h.item, 4));
+
+        eventually(() -> h.values.size() == 4);
+
+        assertEquals(h.values, Arrays.asList(1, 2, 3, 4));
+        assertEquals(h.subscription.getLastSequenceNumber(), 4L);
+        assertEquals(h.manager().getDeliveryQueueHighWaterMark(), 1);
+    }
+
+    @Test
+    public void testResponseDeferredAfterTheLaneDrainedIsProcessed() throws Exception {
+        Harness h = new Harness(DeliveryOverflowPolicy.STOP_ACKNOWLEDGING);
+
+        h.client.publish(h.subscription, 1, dataChange(h.item, 1));
+        assertTrue(h.entered.await(5, TimeUnit.SECONDS));
+
+        h.release.countDown();
+        h.client.awaitDelivery();
+
+        // As if the lane drained between finding it full and deferring the response: nothing else will resubmit it.
+        h.manager().defer(h.subscription.getSubscriptionId(),
+                FakeSubscriptionClient.response(h.subscription, message(2, dataChange(h.item, 2))));
+
+        eventually(() -> h.values.size() == 2);
+
+        assertEquals(h.values, Arrays.asList(1, 2));
+        assertEquals(h.subscription.getLastSequenceNumber(), 2L);
+    }
+
+    @Test
+    public void testStopAcknowledgingAppliesCapacityToRepublishedMessages() throws Exception {
+        Harness h = new Harness(DeliveryOverflowPolicy.STOP_ACKNOWLEDGING);
+
+        // Republishing 1 fills the lane; 2 is withheld and republishing stops there.
+        h.client.publish(h.subscription, 3, dataChange(h.item, 3));
+        assertTrue(h.entered.await(5, TimeUnit.SECONDS));
+
+        eventually(() -> h.manager().getWithheldNotificationCount() == 2L);
+
+        assertEquals(h.client.republished, Arrays.asList(1L, 2L));
+        assertEquals(h.subscription.getLastSequenceNumber(), 1L);
+        assertEquals(h.manager().getDeliveryQueueDepth(), 1);
+        assertEquals(h.values, Arrays.asList(1));
+
+        h.release.countDown();
+
+        eventually(() -> h.values.size() == 3);
+
+        assertEquals(h.values, Arrays.asList(1, 2, 3));
+        assertEquals(h.subscription.getLastSequenceNumber(), 3L);
+        assertEquals(h.manager().getDeliveryQueueHighWaterMark(), 1);
+        assertTrue(h.listener.dataLost.isEmpty());
+    }
+
+    @Test
+    public void testDropDiscardsAndReportsDataLost() throws Exception {
+        Harness h = new Harness(DeliveryOverflowPolicy.DROP);
+
+        h.client.publish(h.subscription, 1, dataChange(h.item, 1));
+        assertTrue(h.entered.await(5, TimeUnit.SECONDS));
+
+        h.client.publish(h.subscription, 2, dataChange(h.item, 2));
+
+        assertEquals(h.subscription.getLastSequenceNumber(), 2L);
+        assertEquals(h.manager().getDroppedNotificationCount(), 1L);
+        assertNotNull(h.listener.dataLost.poll(5, TimeUnit.SECONDS));
+
+        h.release.countDown();
+        h.client.awaitDelivery();
+
+        h.client.publish(h.subscription, 3, dataChange(h.item, 3));
+
+        eventually(() -> h.values.size() == 2);
+
+        assertEquals(h.values, Arrays.asList(1, 3));
+        assertTrue(h.client.republished.isEmpty());
+    }
+
+    @Test
+    public void testDropAppliesToRepublishedMessages() throws Exception {
+        Harness h = new Harness(DeliveryOverflowPolicy.DROP);
+
+        // Republishing 1 fills the lane, so 2 is dropped and 3 is left to the normal policy.
+        h.client.publish(h.subscription, 3, dataChange(h.item, 3));
+        assertTrue(h.entered.await(5, TimeUnit.SECONDS));
+
+        eventually(() -> h.manager().getDroppedNotificationCount() == 2L);
+
+        assertEquals(h.client.republished, Arrays.asList(1L, 2L));
+        assertEquals(h.subscription.getLastSequenceNumber(), 3L);
+        assertNotNull(h.listener.dataLost.poll(5, TimeUnit.SECONDS));
+
+        h.release.countDown();
+        h.client.awaitDelivery();
+
+        assertEquals(h.values, Arrays.asList(1));
+    }
+
+    @Test
+    public void testBlockNeverDiscards() throws Exception {
+        Harness h = new Harness(DeliveryOverflowPolicy.BLOCK);
+
+        h.client.publish(h.subscription, 1, dataChange(h.item, 1));
+        assertTrue(h.entered.await(5, TimeUnit.SECONDS));
+
+        h.client.publish(h.subscription, 2, dataChange(h.item, 2));
+
+        assertEquals(h.subscription.getLastSequenceNumber(), 2L);
+        assertEquals(h.manager().getDeliveryQueueDepth(), 2);
+
+        h.release.countDown();
+
+        eventually(() -> h.values.size() == 2);
+
+        assertEquals(h.values, Arrays.asList(1, 2));
+        assertEquals(h.manager().getDroppedNotificationCount(), 0L);
+        assertEquals(h.manager().getWithheldNotificationCount(), 0L);
+    }
+
+    private static void eventually(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("condition not met");
+
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * A subscription delivering on a lane of capacity 1, whose item's consumer blocks on the first value until
+     * released. The server can retransmit any sequence number.
+     */
+    private class Harness {
+        final List<Object> values = new CopyOnWriteArrayList<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final RecordingSubscriptionListener listener = new RecordingSubscriptionListener();
+
+        final FakeSubscriptionClient client;
+        final OpcUaSubscription subscription;
+        final OpcUaMonitoredItem item;
+
+        Harness(DeliveryOverflowPolicy policy) throws Exception {
+            client = new FakeSubscriptionClient(b -> b
+                    .setExecutor(executor)
+                    .setDeliveryQueueCapacity(uint(1))
+                    .setDeliveryOverflowPolicy(policy));
+
+            client.getSubscriptionManager().addSubscriptionListener(listener);
+
+            subscription = client.subscribe();
+            item = client.monitor(subscription);
+
+            client.retransmissions = sequence -> message(sequence, dataChange(item, sequence.intValue()));
+
+            item.setValueConsumer(v -> {
+                values.add(v.getValue().getValue());
+
+                if (values.size() == 1) {
+                    entered.countDown();
+                    awaitQuietly(release);
+                }
+            });
+        }
+
+        OpcUaSubscriptionManager manager() {
+            return client.getSubscriptionManager();
+        }
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.digitalpetri.opcua.sdk.client.OpcUaClient;
+import com.digitalpetri.opcua.sdk.client.api.config.OpcUaClientConfig;
+import com.digitalpetri.opcua.sdk.client.api.config.OpcUaClientConfigBuilder;
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import com.digitalpetri.opcua.stack.core.AttributeId;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExtensionObject;
+import com.digitalpetri.opcua.stack.core.types.builtin.NodeId;
+import com.digitalpetri.opcua.stack.core.types.builtin.QualifiedName;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UByte;
+import com.digitalpetri.opcua.stack.core.types.builtin.unsigned.UInteger;
+import com.digitalpetri.opcua.stack.core.types.enumerated.MonitoringMode;
+import com.digitalpetri.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import com.digitalpetri.opcua.stack.core.types.structured.CreateMonitoredItemsResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.CreateSubscriptionResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.DataChangeNotification;
+import com.digitalpetri.opcua.stack.core.types.structured.DeleteSubscriptionsResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.EventFieldList;
+import com.digitalpetri.opcua.stack.core.types.structured.EventNotificationList;
+import com.digitalpetri.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import com.digitalpetri.opcua.stack.core.types.structured.MonitoredItemCreateResult;
+import com.digitalpetri.opcua.stack.core.types.structured.MonitoredItemNotification;
+import com.digitalpetri.opcua.stack.core.types.structured.MonitoringParameters;
+import com.digitalpetri.opcua.stack.core.types.structured.NotificationMessage;
+import com.digitalpetri.opcua.stack.core.types.structured.PublishResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ReadValueId;
+import com.digitalpetri.opcua.stack.core.types.structured.RepublishResponse;
+import com.digitalpetri.opcua.stack.core.types.structured.ResponseHeader;
+import com.digitalpetri.opcua.stack.core.types.structured.StatusChangeNotification;
+
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.await;
+import static com.digitalpetri.opcua.sdk.client.ServiceStubs.failed;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * A client whose subscription services are answered locally, so PublishResponses can be fed straight to its
+ * {@link OpcUaSubscriptionManager}.
+ * <p>
+ * No PublishRequests are ever sent; {@code maxPendingPublishRequests} is always 0.
+ */
+class FakeSubscriptionClient extends OpcUaClient {
+
+    final List<Long> republished = new CopyOnWriteArrayList<>();
+
+    /**
+     * Answers Republish for a sequence number; {@code null} answers Bad_MessageNotAvailable.
+     */
+    volatile Function<Long, NotificationMessage> retransmissions = sequence -> null;
+
+    private final AtomicLong subscriptionIds = new AtomicLong(0L);
+
+    FakeSubscriptionClient() {
+        this(builder -> {});
+    }
+
+    FakeSubscriptionClient(Consumer<OpcUaClientConfigBuilder> configure) {
+        super(config(configure));
+    }
+
+    private static OpcUaClientConfig config(Consumer<OpcUaClientConfigBuilder> configure) {
+        OpcUaClientConfigBuilder builder = OpcUaClientConfig.builder();
+
+        configure.accept(builder);
+
+        return builder.setMaxPendingPublishRequests(uint(0)).build();
+    }
+
+    @Override
+    public CompletableFuture<CreateSubscriptionResponse> createSubscription(double requestedPublishingInterval,
+                                                                            UInteger requestedLifetimeCount,
+                                                                            UInteger requestedMaxKeepAliveCount,
+                                                                            UInteger maxNotificationsPerPublish,
+                                                                            boolean publishingEnabled,
+                                                                            UByte priority) {
+
+        return CompletableFuture.completedFuture(new CreateSubscriptionResponse(
+                new ResponseHeader(),
+                uint(subscriptionIds.incrementAndGet()),
+                requestedPublishingInterval,
+                requestedLifetimeCount,
+                requestedMaxKeepAliveCount));
+    }
+
+    @Override
+    public CompletableFuture<CreateMonitoredItemsResponse> createMonitoredItems(
+            UInteger subscriptionId,
+            TimestampsToReturn timestampsToReturn,
+            List<MonitoredItemCreateRequest> itemsToCreate) {
+
+        MonitoredItemCreateResult[] results = itemsToCreate.stream()
+                .map(request -> new MonitoredItemCreateResult(
+                        StatusCode.GOOD,
+                        request.getRequestedParameters().getClientHandle(),
+                        request.getRequestedParameters().getSamplingInterval(),
+                        request.getRequestedParameters().getQueueSize(),
+                        null))
+                .toArray(MonitoredItemCreateResult[]::new);
+
+        return CompletableFuture.completedFuture(
+                new CreateMonitoredItemsResponse(new ResponseHeader(), results, null));
+    }
+
+    @Override
+    public CompletableFuture<DeleteSubscriptionsResponse> deleteSubscriptions(List<UInteger> subscriptionIds) {
+        StatusCode[] results = subscriptionIds.stream()
+                .map(id -> StatusCode.GOOD)
+                .toArray(StatusCode[]::new);
+
+        return CompletableFuture.completedFuture(new DeleteSubscriptionsResponse(new ResponseHeader(), results, null));
+    }
+
+    @Override
+    public CompletableFuture<RepublishResponse> republish(UInteger subscriptionId, UInteger retransmitSequenceNumber) {
+        long sequence = retransmitSequenceNumber.longValue();
+
+        republished.add(sequence);
+
+        NotificationMessage message = retransmissions.apply(sequence);
+
+        if (message == null) {
+            return failed(new UaException(StatusCodes.Bad_MessageNotAvailable));
+        } else {
+            return CompletableFuture.completedFuture(new RepublishResponse(new ResponseHeader(), message));
+        }
+    }
+
+    OpcUaSubscription subscribe() throws Exception {
+        return (OpcUaSubscription) await(getSubscriptionManager().createSubscription(100.0));
+    }
+
+    OpcUaMonitoredItem monitor(OpcUaSubscription subscription) throws Exception {
+        UInteger clientHandle = subscription.nextClientHandle();
+
+        ReadValueId readValueId = new ReadValueId(
+                new NodeId(2, clientHandle.intValue()), AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE);
+
+        MonitoredItemCreateRequest request = new MonitoredItemCreateRequest(
+                readValueId,
+                MonitoringMode.Reporting,
+                new MonitoringParameters(clientHandle, 100.0, null, uint(1), true));
+
+        List<UaMonitoredItem> items = await(
+                subscription.createMonitoredItems(TimestampsToReturn.Both, Collections.singletonList(request)));
+
+        return (OpcUaMonitoredItem) items.get(0);
+    }
+
+    /**
+     * Feed the manager a PublishResponse for {@code subscription} carrying {@code data}.
+     */
+    void publish(OpcUaSubscription subscription, long sequence, ExtensionObject... data) {
+        publish(subscription, message(sequence, data));
+    }
+
+    void publish(OpcUaSubscription subscription, NotificationMessage message) {
+        getSubscriptionManager().onPublishComplete(response(subscription, message));
+    }
+
+    static PublishResponse response(OpcUaSubscription subscription, NotificationMessage message) {
+        return new PublishResponse(
+                new ResponseHeader(),
+                subscription.getSubscriptionId(),
+                new UInteger[]{message.getSequenceNumber()},
+                false,
+                message,
+                null,
+                null);
+    }
+
+    /**
+     * Wait for every delivery lane to drain.
+     */
+    void awaitDelivery() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (getSubscriptionManager().getDeliveryQueueDepth() > 0) {
+            if (System.nanoTime() > deadline) throw new AssertionError("delivery did not finish");
+
+            Thread.sleep(1);
+        }
+    }
+
+    static NotificationMessage message(long sequence, ExtensionObject... data) {
+        return new NotificationMessage(uint(sequence), DateTime.now(), data);
+    }
+
+    static ExtensionObject dataChange(OpcUaMonitoredItem item, Object value) {
+        return dataChange(notification(item.getClientHandle(), value));
+    }
+
+    static ExtensionObject dataChange(MonitoredItemNotification... notifications) {
+        return ExtensionObject.encode(new DataChangeNotification(notifications, null));
+    }
+
+    static MonitoredItemNotification notification(UInteger clientHandle, Object value) {
+        return new MonitoredItemNotification(clientHandle, new DataValue(new Variant(value)));
+    }
+
+    static ExtensionObject event(OpcUaMonitoredItem item, Object... fields) {
+        Variant[] variants = new Variant[fields.length];
+
+        for (int i = 0; i < fields.length; i++) {
+            variants[i] = new Variant(fields[i]);
+        }
+
+        return ExtensionObject.encode(
+                new EventNotificationList(new EventFieldList[]{new EventFieldList(item.getClientHandle(), variants)}));
+    }
+
+    static ExtensionObject statusChange(long statusCode) {
+        return ExtensionObject.encode(new StatusChangeNotification(new StatusCode(statusCode), null));
+    }
+
+}
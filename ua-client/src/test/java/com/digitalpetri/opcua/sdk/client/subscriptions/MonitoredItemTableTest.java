@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.enumerated.MonitoringMode;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static com.google.common.collect.Lists.newArrayList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class MonitoredItemTableTest {
+
+    @Test
+    public void testEmptyTableFindsNothing() {
+        MonitoredItemTable table = new MonitoredItemTable();
+
+        assertNull(table.get(0));
+        assertNull(table.get(1));
+        assertNull(table.get(0xFFFFFFFFL));
+        assertTrue(table.values().isEmpty());
+    }
+
+    @Test
+    public void testSmallHandlesAreFound() {
+        MonitoredItemTable table = new MonitoredItemTable();
+        OpcUaMonitoredItem a = item(1);
+        OpcUaMonitoredItem b = item(2);
+        OpcUaMonitoredItem c = item(3);
+
+        table.putAll(Arrays.asList(a, b, c));
+
+        assertNull(table.get(0));
+        assertSame(table.get(1), a);
+        assertSame(table.get(2), b);
+        assertSame(table.get(3), c);
+        assertNull(table.get(4));
+        assertEquals(table.values(), Arrays.asList(a, b, c));
+    }
+
+    @Test
+    public void testLargeHandlesFallBackToMap() {
+        MonitoredItemTable table = new MonitoredItemTable();
+        OpcUaMonitoredItem small = item(1);
+        OpcUaMonitoredItem large = item(0xFFFFFFFFL);
+
+        table.putAll(Arrays.asList(small, large));
+
+        assertSame(table.get(1), small);
+        assertSame(table.get(0xFFFFFFFFL), large);
+        assertNull(table.get(0xFFFFFFFEL));
+        assertEquals(table.values(), Arrays.asList(small, large));
+    }
+
+    @Test
+    public void testPutReplacesExistingHandle() {
+        MonitoredItemTable table = new MonitoredItemTable();
+        OpcUaMonitoredItem first = item(1);
+        OpcUaMonitoredItem second = item(1);
+
+        table.putAll(Collections.singletonList(first));
+        table.putAll(Collections.singletonList(second));
+
+        assertSame(table.get(1), second);
+        assertEquals(table.values().size(), 1);
+    }
+
+    @Test
+    public void testRemoveAll() {
+        MonitoredItemTable table = new MonitoredItemTable();
+        OpcUaMonitoredItem a = item(1);
+        OpcUaMonitoredItem b = item(2);
+        OpcUaMonitoredItem large = item(1_000_000L);
+
+        table.putAll(Arrays.asList(a, b, large));
+        table.removeAll(Arrays.asList(1L, 1_000_000L, 42L));
+
+        assertNull(table.get(1));
+        assertSame(table.get(2), b);
+        assertNull(table.get(1_000_000L));
+        assertEquals(table.values(), Collections.singletonList(b));
+    }
+
+    @Test
+    public void testGrowingArrayKeepsMappedHandles() {
+        MonitoredItemTable table = new MonitoredItemTable();
+        OpcUaMonitoredItem mapped = item(2000);
+
+        // Too sparse for the array at first...
+        table.putAll(Collections.singletonList(mapped));
+        assertSame(table.get(2000), mapped);
+
+        // ...until enough items are added that the array grows past it.
+        List<OpcUaMonitoredItem> items = newArrayList();
+        for (int i = 1; i <= 1100; i++) {
+            items.add(item(i));
+        }
+        table.putAll(items);
+
+        assertSame(table.get(2000), mapped);
+        assertSame(table.get(1100), items.get(1099));
+        assertEquals(table.values().size(), 1101);
+
+        table.removeAll(Collections.singletonList(2000L));
+
+        assertNull(table.get(2000));
+        assertEquals(table.values().size(), 1100);
+    }
+
+    private static OpcUaMonitoredItem item(long clientHandle) {
+        return new OpcUaMonitoredItem(
+                uint(clientHandle), null, uint(clientHandle), StatusCode.GOOD,
+                0.0, uint(0), null, MonitoringMode.Reporting);
+    }
+
+}
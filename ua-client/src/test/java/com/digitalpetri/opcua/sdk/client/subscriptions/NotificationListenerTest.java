@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaSubscription;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExtensionObject;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import com.digitalpetri.opcua.stack.core.types.structured.NotificationMessage;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.subscriptions.FakeSubscriptionClient.dataChange;
+import static com.digitalpetri.opcua.sdk.client.subscriptions.FakeSubscriptionClient.event;
+import static com.digitalpetri.opcua.sdk.client.subscriptions.FakeSubscriptionClient.notification;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class NotificationListenerTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testDataChangesAreDeliveredAsOneBatch() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+        OpcUaSubscription subscription = client.subscribe();
+        OpcUaMonitoredItem a = client.monitor(subscription);
+        OpcUaMonitoredItem b = client.monitor(subscription);
+
+        RecordingListener listener = new RecordingListener();
+        subscription.addNotificationListener(listener);
+
+        BlockingQueue<DataValue> consumed = new LinkedBlockingQueue<>();
+        a.setValueConsumer(consumed::add);
+
+        NotificationMessage message = new NotificationMessage(
+                uint(1),
+                new DateTime(DateTime.now().getUtcTime() - 10_000_000L),
+                new ExtensionObject[]{
+                        dataChange(
+                                notification(a.getClientHandle(), 1),
+                                notification(b.getClientHandle(), 2))});
+
+        client.publish(subscription, message);
+
+        Batch<DataValue> batch = listener.dataChanges.poll(5, TimeUnit.SECONDS);
+
+        assertNotNull(batch);
+        assertSame(batch.subscription, subscription);
+        assertEquals(batch.items.size(), 2);
+        assertSame(batch.items.get(0), a);
+        assertSame(batch.items.get(1), b);
+        assertEquals(batch.values.get(0).getValue().getValue(), 1);
+        assertEquals(batch.values.get(1).getValue().getValue(), 2);
+        assertEquals(batch.publishTime.getUtcTime(), message.getPublishTime().getUtcTime());
+
+        // Per-item consumers still see their own values.
+        assertEquals(consumed.poll(5, TimeUnit.SECONDS).getValue().getValue(), 1);
+    }
+
+    @Test
+    public void testEventsAreDeliveredAsOneBatch() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+        OpcUaSubscription subscription = client.subscribe();
+        OpcUaMonitoredItem item = client.monitor(subscription);
+
+        RecordingListener listener = new RecordingListener();
+        subscription.addNotificationListener(listener);
+
+        client.publish(subscription, 1, event(item, "message", 500));
+
+        Batch<Variant[]> batch = listener.events.poll(5, TimeUnit.SECONDS);
+
+        assertNotNull(batch);
+        assertEquals(batch.items.size(), 1);
+        assertSame(batch.items.get(0), item);
+        assertEquals(batch.values.get(0)[0].getValue(), "message");
+        assertEquals(batch.values.get(0)[1].getValue(), 500);
+    }
+
+    @Test
+    public void testUnknownHandlesAreLeftOutOfBatch() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+        OpcUaSubscription subscription = client.subscribe();
+        OpcUaMonitoredItem item = client.monitor(subscription);
+
+        RecordingListener listener = new RecordingListener();
+        subscription.addNotificationListener(listener);
+
+        client.publish(subscription, 1, dataChange(notification(uint(999), 0)));
+        client.publish(subscription, 2, dataChange(
+                notification(uint(999), 0),
+                notification(item.getClientHandle(), 1)));
+
+        // The first message matched nothing and wasn't delivered at all.
+        Batch<DataValue> batch = listener.dataChanges.poll(5, TimeUnit.SECONDS);
+
+        assertNotNull(batch);
+        assertEquals(batch.items.size(), 1);
+        assertSame(batch.items.get(0), item);
+        assertEquals(batch.values.get(0).getValue().getValue(), 1);
+        assertNull(listener.dataChanges.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testKeepAliveIsNotDeliveredAsDataChange() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+        OpcUaSubscription subscription = client.subscribe();
+        OpcUaMonitoredItem item = client.monitor(subscription);
+
+        RecordingListener listener = new RecordingListener();
+        subscription.addNotificationListener(listener);
+
+        client.publish(subscription, 1, dataChange());
+        client.publish(subscription, 2, dataChange(item, 2));
+
+        Batch<DataValue> batch = listener.dataChanges.poll(5, TimeUnit.SECONDS);
+
+        assertNotNull(batch);
+        assertEquals(batch.values.get(0).getValue().getValue(), 2);
+        assertNull(listener.dataChanges.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testRemovedListenerIsNotCalled() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+        OpcUaSubscription subscription = client.subscribe();
+        OpcUaMonitoredItem item = client.monitor(subscription);
+
+        RecordingListener removed = new RecordingListener();
+        RecordingListener kept = new RecordingListener();
+        subscription.addNotificationListener(removed);
+        subscription.addNotificationListener(kept);
+        subscription.removeNotificationListener(removed);
+
+        client.publish(subscription, 1, dataChange(item, 1));
+
+        assertNotNull(kept.dataChanges.poll(5, TimeUnit.SECONDS));
+        assertNull(removed.dataChanges.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    private static class Batch<T> {
+        final UaSubscription subscription;
+        final List<UaMonitoredItem> items;
+        final List<T> values;
+        final DateTime publishTime;
+
+        Batch(UaSubscription subscription, List<UaMonitoredItem> items, List<T> values, DateTime publishTime) {
+            this.subscription = subscription;
+            this.items = items;
+            this.values = values;
+            this.publishTime = publishTime;
+        }
+    }
+
+    private static class RecordingListener implements UaSubscription.NotificationListener {
+        final BlockingQueue<Batch<DataValue>> dataChanges = new LinkedBlockingQueue<>();
+        final BlockingQueue<Batch<Variant[]>> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onDataChanged(UaSubscription subscription,
+                                  List<UaMonitoredItem> items,
+                                  List<DataValue> values,
+                                  DateTime publishTime) {
+
+            dataChanges.add(new Batch<>(subscription, items, values, publishTime));
+        }
+
+        @Override
+        public void onEvent(UaSubscription subscription,
+                            List<UaMonitoredItem> items,
+                            List<Variant[]> eventFields,
+                            DateTime publishTime) {
+
+            events.add(new Batch<>(subscription, items, eventFields, publishTime));
+        }
+    }
+
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.OverflowStrategy;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.UaException;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class NotificationSourceTest {
+
+    @Test
+    public void testOnSubscribeComesBeforeSubscriberIsCounted() {
+        AtomicInteger changes = new AtomicInteger(0);
+        NotificationSource<Integer> source = new NotificationSource<>(changes::incrementAndGet);
+
+        List<String> seenInOnSubscribe = new CopyOnWriteArrayList<>();
+
+        source.publisher(OverflowStrategy.BUFFER, 10).subscribe(new RecordingSubscriber<Integer>(0) {
+            @Override
+            public void onSubscribe(Subscription s) {
+                seenInOnSubscribe.add("hasSubscribers=" + source.hasSubscribers() + ", changes=" + changes.get());
+
+                // Nothing may be signalled before onSubscribe returns.
+                source.publish(0);
+
+                super.onSubscribe(s);
+            }
+        });
+
+        assertEquals(seenInOnSubscribe, Arrays.asList("hasSubscribers=false, changes=0"));
+    }
+
+    @Test
+    public void testOnlySubscribersWithDemandAreCounted() {
+        AtomicInteger changes = new AtomicInteger(0);
+        NotificationSource<Integer> source = new NotificationSource<>(changes::incrementAndGet);
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(0);
+        source.publisher(OverflowStrategy.BUFFER, 10).subscribe(subscriber);
+
+        assertFalse(source.hasSubscribers());
+        assertEquals(changes.get(), 0);
+
+        // Published before the first request; not buffered.
+        source.publish(1);
+
+        subscriber.subscription.request(1);
+
+        assertTrue(source.hasSubscribers());
+        assertEquals(changes.get(), 1);
+
+        source.publish(2);
+        subscriber.subscription.request(1);
+
+        assertEquals(subscriber.values, Arrays.asList(2));
+        assertTrue(source.hasSubscribers());
+        assertEquals(changes.get(), 1);
+
+        subscriber.subscription.cancel();
+
+        assertFalse(source.hasSubscribers());
+        assertEquals(changes.get(), 2);
+    }
+
+    @Test
+    public void testRequestInOnSubscribeCountsSubscriber() {
+        AtomicInteger changes = new AtomicInteger(0);
+        NotificationSource<Integer> source = new NotificationSource<>(changes::incrementAndGet);
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+        source.publisher(OverflowStrategy.BUFFER, 10).subscribe(subscriber);
+
+        assertTrue(source.hasSubscribers());
+        assertEquals(changes.get(), 1);
+
+        source.publish(1);
+        source.publish(2);
+
+        assertEquals(subscriber.values, Arrays.asList(1, 2));
+    }
+
+    @Test
+    public void testCancelInOnSubscribeIsNotCounted() {
+        AtomicInteger changes = new AtomicInteger(0);
+        NotificationSource<Integer> source = new NotificationSource<>(changes::incrementAndGet);
+
+        source.publisher(OverflowStrategy.BUFFER, 10).subscribe(new RecordingSubscriber<Integer>(1) {
+            @Override
+            public void onSubscribe(Subscription s) {
+                super.onSubscribe(s);
+                s.cancel();
+            }
+        });
+
+        assertFalse(source.hasSubscribers());
+        assertEquals(changes.get(), 0);
+    }
+
+    @Test
+    public void testDemandIsHonoredAndBufferDrainsOnRequest() {
+        NotificationSource<Integer> source = new NotificationSource<>(() -> {});
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(2);
+        source.publisher(OverflowStrategy.BUFFER, 10).subscribe(subscriber);
+
+        for (int i = 1; i <= 5; i++) source.publish(i);
+
+        assertEquals(subscriber.values, Arrays.asList(1, 2));
+
+        subscriber.subscription.request(10);
+
+        assertEquals(subscriber.values, Arrays.asList(1, 2, 3, 4, 5));
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void testBufferOverflowFailsSubscriber() {
+        NotificationSource<Integer> source = new NotificationSource<>(() -> {});
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(1);
+        source.publisher(OverflowStrategy.BUFFER, 1).subscribe(subscriber);
+
+        source.publish(1);
+        source.publish(2);
+        source.publish(3);
+
+        assertEquals(subscriber.values, Arrays.asList(1));
+        assertTrue(subscriber.error instanceof UaException);
+        assertEquals(((UaException) subscriber.error).getStatusCode().getValue(), StatusCodes.Bad_ResourceUnavailable);
+        assertFalse(source.hasSubscribers());
+    }
+
+    @Test
+    public void testDropOldestKeepsNewest() {
+        NotificationSource<Integer> source = new NotificationSource<>(() -> {});
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(1);
+        source.publisher(OverflowStrategy.DROP_OLDEST, 2).subscribe(subscriber);
+
+        for (int i = 1; i <= 5; i++) source.publish(i);
+
+        subscriber.subscription.request(10);
+
+        assertEquals(subscriber.values, Arrays.asList(1, 4, 5));
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void testLatestKeepsOnlyLatest() {
+        NotificationSource<Integer> source = new NotificationSource<>(() -> {});
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(1);
+        source.publisher(OverflowStrategy.LATEST, 100).subscribe(subscriber);
+
+        for (int i = 1; i <= 5; i++) source.publish(i);
+
+        subscriber.subscription.request(10);
+
+        assertEquals(subscriber.values, Arrays.asList(1, 5));
+    }
+
+    @Test
+    public void testNonPositiveRequestFailsSubscriber() {
+        NotificationSource<Integer> source = new NotificationSource<>(() -> {});
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(0);
+        source.publisher(OverflowStrategy.BUFFER, 10).subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertFalse(source.hasSubscribers());
+    }
+
+    @Test
+    public void testCompleteDeliversBufferedNotificationsFirst() {
+        NotificationSource<Integer> source = new NotificationSource<>(() -> {});
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(1);
+        source.publisher(OverflowStrategy.BUFFER, 10).subscribe(subscriber);
+
+        source.publish(1);
+        source.publish(2);
+        source.complete();
+
+        assertEquals(subscriber.values, Arrays.asList(1));
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(1);
+
+        assertEquals(subscriber.values, Arrays.asList(1, 2));
+        assertTrue(subscriber.completed);
+        assertFalse(source.hasSubscribers());
+
+        // Late subscribers are completed straight away.
+        RecordingSubscriber<Integer> late = new RecordingSubscriber<>(1);
+        source.publisher(OverflowStrategy.BUFFER, 10).subscribe(late);
+
+        assertTrue(late.completed);
+    }
+
+    @Test
+    public void testThrowingSubscriberIsCancelled() {
+        NotificationSource<Integer> source = new NotificationSource<>(() -> {});
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<Integer>(Long.MAX_VALUE) {
+            @Override
+            public void onNext(Integer value) {
+                super.onNext(value);
+                throw new RuntimeException("boom");
+            }
+        };
+        source.publisher(OverflowStrategy.BUFFER, 10).subscribe(subscriber);
+
+        source.publish(1);
+        source.publish(2);
+
+        assertEquals(subscriber.values, Arrays.asList(1));
+        assertFalse(source.hasSubscribers());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBufferSizeMustBePositive() {
+        new NotificationSource<Integer>(() -> {}).publisher(OverflowStrategy.BUFFER, 0);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void testSubscriberMustNotBeNull() {
+        new NotificationSource<Integer>(() -> {}).publisher(OverflowStrategy.BUFFER, 1).subscribe(null);
+    }
+
+    private static class RecordingSubscriber<T> implements Subscriber<T> {
+        final List<T> values = new CopyOnWriteArrayList<>();
+
+        volatile Subscription subscription;
+        volatile Throwable error;
+        volatile boolean completed = false;
+
+        private final long initialRequest;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            if (initialRequest > 0) s.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(T value) {
+            values.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+}
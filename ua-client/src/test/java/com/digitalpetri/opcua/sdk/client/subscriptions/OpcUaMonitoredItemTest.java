@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.subscriptions.OpcUaSubscriptionManagerTest.awaitQuietly;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class OpcUaMonitoredItemTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testValuesAreDeliveredInlineWithoutConflation() throws Exception {
+        OpcUaMonitoredItem item = newItem();
+
+        List<Object> values = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+
+        item.setValueConsumer(v -> {
+            values.add(v.getValue().getValue());
+            threads.add(Thread.currentThread());
+        });
+
+        for (int i = 1; i <= 3; i++) item.onValueArrived(value(i));
+
+        assertEquals(values, Arrays.asList(1, 2, 3));
+        assertEquals(threads, Arrays.asList(Thread.currentThread(), Thread.currentThread(), Thread.currentThread()));
+    }
+
+    @Test
+    public void testConflationDeliversLatestValue() throws Exception {
+        OpcUaMonitoredItem item = newItem();
+        item.setConflating(true);
+
+        BlockingConsumer consumer = new BlockingConsumer(1);
+        item.setValueConsumer(consumer);
+
+        item.onValueArrived(value(1));
+        assertTrue(consumer.entered.await(5, TimeUnit.SECONDS));
+
+        for (int i = 2; i <= 5; i++) item.onValueArrived(value(i));
+
+        consumer.release.countDown();
+        consumer.awaitValue(5);
+
+        assertEquals(consumer.values, Arrays.asList(1, 5));
+        assertEquals(consumer.maxConcurrency.get(), 1);
+    }
+
+    @Test
+    public void testTurningConflationOffWaitsForPendingValue() throws Exception {
+        OpcUaMonitoredItem item = newItem();
+        item.setConflating(true);
+
+        BlockingConsumer consumer = new BlockingConsumer(1);
+        item.setValueConsumer(consumer);
+
+        item.onValueArrived(value(1));
+        assertTrue(consumer.entered.await(5, TimeUnit.SECONDS));
+
+        item.setConflating(false);
+
+        // The consumer is still busy with 1; 2 must wait its turn rather than run alongside it.
+        item.onValueArrived(value(2));
+
+        assertEquals(consumer.values, Arrays.asList(1));
+
+        consumer.release.countDown();
+        consumer.awaitValue(2);
+
+        item.onValueArrived(value(3));
+        consumer.awaitValue(3);
+
+        assertEquals(consumer.values, Arrays.asList(1, 2, 3));
+        assertEquals(consumer.maxConcurrency.get(), 1);
+    }
+
+    @Test
+    public void testThrowingConsumerDoesNotStallConflation() throws Exception {
+        OpcUaMonitoredItem item = newItem();
+        item.setConflating(true);
+
+        List<Object> values = new CopyOnWriteArrayList<>();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        item.setValueConsumer(v -> {
+            values.add(v.getValue().getValue());
+
+            if (values.size() == 1) {
+                entered.countDown();
+                awaitQuietly(release);
+                throw new RuntimeException("boom");
+            }
+        });
+
+        item.onValueArrived(value(1));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // Arrives while the consumer is busy with the value it's about to throw from.
+        item.onValueArrived(value(2));
+        release.countDown();
+
+        awaitSize(values, 2);
+
+        // And the slot is free again afterwards.
+        item.onValueArrived(value(3));
+
+        awaitSize(values, 3);
+        assertEquals(values, Arrays.asList(1, 2, 3));
+    }
+
+    private OpcUaMonitoredItem newItem() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+
+        return client.monitor(client.subscribe());
+    }
+
+    private static void awaitSize(List<?> values, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (values.size() < size) {
+            if (System.nanoTime() > deadline) throw new AssertionError("expected " + size + " values, was " + values);
+
+            Thread.sleep(1);
+        }
+    }
+
+    private static DataValue value(int i) {
+        return new DataValue(new Variant(i));
+    }
+
+    /**
+     * Blocks on the {@code blockOn}th value until released, recording values and how many calls overlap.
+     */
+    private static class BlockingConsumer implements Consumer<DataValue> {
+        final List<Object> values = new CopyOnWriteArrayList<>();
+        final AtomicInteger concurrency = new AtomicInteger(0);
+        final AtomicInteger maxConcurrency = new AtomicInteger(0);
+
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        private final int blockOn;
+
+        BlockingConsumer(int blockOn) {
+            this.blockOn = blockOn;
+        }
+
+        @Override
+        public void accept(DataValue value) {
+            maxConcurrency.accumulateAndGet(concurrency.incrementAndGet(), Math::max);
+
+            try {
+                values.add(value.getValue().getValue());
+
+                if (values.size() == blockOn) {
+                    entered.countDown();
+                    awaitQuietly(release);
+                }
+            } finally {
+                concurrency.decrementAndGet();
+            }
+        }
+
+        void awaitValue(Object value) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+            while (!values.contains(value)) {
+                if (System.nanoTime() > deadline) throw new AssertionError("value " + value + " not delivered");
+
+                Thread.sleep(1);
+            }
+
+            // Let the delivery finish returning before the caller goes on.
+            while (concurrency.get() > 0) Thread.sleep(1);
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.subscriptions.FakeSubscriptionClient.dataChange;
+import static com.digitalpetri.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class OpcUaSubscriptionManagerTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testDeliveryIsOrderedWithinSubscription() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+        OpcUaSubscription subscription = client.subscribe();
+        OpcUaMonitoredItem item = client.monitor(subscription);
+
+        List<Object> values = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(100);
+
+        item.setValueConsumer(v -> {
+            values.add(v.getValue().getValue());
+            delivered.countDown();
+        });
+
+        for (int i = 1; i <= 100; i++) {
+            client.publish(subscription, i, dataChange(item, i));
+        }
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(values.get(i), i + 1);
+        }
+
+        assertEquals(subscription.getLastSequenceNumber(), 100L);
+    }
+
+    @Test
+    public void testBlockedSubscriptionDoesNotDelayAnother() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+
+        OpcUaSubscription slow = client.subscribe();
+        OpcUaSubscription fast = client.subscribe();
+        OpcUaMonitoredItem slowItem = client.monitor(slow);
+        OpcUaMonitoredItem fastItem = client.monitor(fast);
+
+        CountDownLatch slowEntered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastDelivered = new CountDownLatch(1);
+
+        slowItem.setValueConsumer(v -> {
+            slowEntered.countDown();
+            awaitQuietly(release);
+        });
+        fastItem.setValueConsumer(v -> fastDelivered.countDown());
+
+        try {
+            client.publish(slow, 1, dataChange(slowItem, 1));
+            assertTrue(slowEntered.await(5, TimeUnit.SECONDS));
+
+            client.publish(fast, 1, dataChange(fastItem, 1));
+            assertTrue(fastDelivered.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testSubscriptionsShareConfiguredLanes() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(
+                b -> b.setExecutor(executor).setDeliveryLanes(uint(1)));
+
+        OpcUaSubscription first = client.subscribe();
+        OpcUaSubscription second = client.subscribe();
+        OpcUaMonitoredItem firstItem = client.monitor(first);
+        OpcUaMonitoredItem secondItem = client.monitor(second);
+
+        CountDownLatch firstEntered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch secondDelivered = new CountDownLatch(1);
+
+        firstItem.setValueConsumer(v -> {
+            firstEntered.countDown();
+            awaitQuietly(release);
+        });
+        secondItem.setValueConsumer(v -> secondDelivered.countDown());
+
+        try {
+            client.publish(first, 1, dataChange(firstItem, 1));
+            assertTrue(firstEntered.await(5, TimeUnit.SECONDS));
+
+            client.publish(second, 1, dataChange(secondItem, 1));
+
+            // One lane: the second subscription waits behind the first.
+            assertFalse(secondDelivered.await(200, TimeUnit.MILLISECONDS));
+            assertEquals(client.getSubscriptionManager().getDeliveryQueueDepth(), 2);
+        } finally {
+            release.countDown();
+        }
+
+        assertTrue(secondDelivered.await(5, TimeUnit.SECONDS));
+        assertEquals(client.getSubscriptionManager().getDeliveryQueueHighWaterMark(), 2);
+    }
+
+    @Test
+    public void testResponseForUnknownSubscriptionIsIgnored() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+        OpcUaSubscription subscription = client.subscribe();
+        OpcUaMonitoredItem item = client.monitor(subscription);
+
+        client.getSubscriptionManager().deleteSubscription(subscription.getSubscriptionId()).get(5, TimeUnit.SECONDS);
+
+        client.publish(subscription, 1, dataChange(item, 1));
+
+        assertEquals(client.getSubscriptionManager().getDeliveryQueueDepth(), 0);
+        assertEquals(subscription.getLastSequenceNumber(), 0L);
+    }
+
+    static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import org.testng.annotations.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+
+public class PublishDepthControllerTest {
+
+    @Test
+    public void testNoSubscriptionsNeedNoRequests() {
+        PublishDepthController controller = new PublishDepthController(100);
+        controller.onPublishResponse(MILLISECONDS.toNanos(100), true, 5);
+
+        assertEquals(controller.getDepth(0, 1000.0), 0L);
+    }
+
+    @Test
+    public void testBaselineIsSubscriptionsPlusInFlight() {
+        PublishDepthController controller = new PublishDepthController(100);
+
+        // No round trip observed yet: one request per subscription.
+        assertEquals(controller.getDepth(3, 20.0), 3L);
+
+        controller.onPublishResponse(MILLISECONDS.toNanos(100), false, 1);
+
+        // 100ms at 20/s is 2 notifications in flight.
+        assertEquals(controller.getDepth(3, 20.0), 5L);
+        assertEquals(controller.getDepth(3, 25.0), 6L);
+        assertEquals(controller.getDepth(3, 0.0), 3L);
+    }
+
+    @Test
+    public void testMinRttFollowsSlowerLinkPerWindow() {
+        PublishDepthController controller = new PublishDepthController(100);
+        controller.onPublishResponse(MILLISECONDS.toNanos(100), false, 1);
+
+        for (int i = 0; i < 63; i++) {
+            controller.onPublishResponse(MILLISECONDS.toNanos(200), false, 1);
+        }
+
+        // The window isn't over yet, so the earlier minimum still holds.
+        assertEquals(controller.getDepth(1, 10.0), 2L);
+
+        controller.onPublishResponse(MILLISECONDS.toNanos(200), false, 1);
+
+        assertEquals(controller.getDepth(1, 10.0), 3L);
+    }
+
+    @Test
+    public void testHeadroomGrowsOnBacklogAndDecays() {
+        PublishDepthController controller = new PublishDepthController(100);
+
+        controller.onPublishResponse(0L, true, 1);
+        controller.onPublishResponse(0L, false, 2);
+        controller.onPublishResponse(0L, true, 3);
+
+        assertEquals(controller.getDepth(1, 0.0), 4L);
+
+        // Decays by a tenth per quiet response.
+        for (int i = 0; i < 11; i++) {
+            controller.onPublishResponse(0L, false, 1);
+        }
+
+        assertEquals(controller.getDepth(1, 0.0), 3L);
+
+        for (int i = 0; i < 30; i++) {
+            controller.onPublishResponse(0L, false, 1);
+        }
+
+        assertEquals(controller.getDepth(1, 0.0), 1L);
+    }
+
+    @Test
+    public void testDepthIsClampedToMaxDepth() {
+        PublishDepthController controller = new PublishDepthController(5);
+        controller.onPublishResponse(MILLISECONDS.toNanos(1000), false, 1);
+
+        assertEquals(controller.getDepth(2, 100.0), 5L);
+        assertEquals(controller.getDepth(10, 0.0), 5L);
+
+        // Headroom is capped too, so it decays back quickly once the backlog clears.
+        for (int i = 0; i < 100; i++) {
+            controller.onPublishResponse(MILLISECONDS.toNanos(1000), true, 1);
+        }
+
+        for (int i = 0; i < 60; i++) {
+            controller.onPublishResponse(MILLISECONDS.toNanos(1000), false, 1);
+        }
+
+        assertEquals(controller.getDepth(1, 0.0), 1L);
+    }
+
+    @Test
+    public void testMaxDepthIsAtLeastOne() {
+        PublishDepthController controller = new PublishDepthController(0);
+
+        assertEquals(controller.getDepth(3, 0.0), 1L);
+    }
+
+    @Test
+    public void testTooManyPublishRequestsHalvesHeadroom() {
+        PublishDepthController controller = new PublishDepthController(100);
+
+        for (int i = 0; i < 8; i++) {
+            controller.onPublishResponse(0L, true, 1);
+        }
+
+        assertEquals(controller.getDepth(1, 0.0), 9L);
+
+        // Well below the outstanding count, so only the halved headroom matters.
+        controller.onTooManyPublishRequests(20);
+
+        assertEquals(controller.getDepth(1, 0.0), 5L);
+    }
+
+    @Test
+    public void testTooManyPublishRequestsCapsDepthBelowOutstanding() {
+        PublishDepthController controller = new PublishDepthController(100);
+
+        for (int i = 0; i < 10; i++) {
+            controller.onPublishResponse(0L, true, 1);
+        }
+
+        controller.onTooManyPublishRequests(6);
+
+        assertEquals(controller.getDepth(1, 0.0), 5L);
+        assertEquals(controller.getDepth(10, 0.0), 5L);
+
+        // A lower outstanding count lowers the cap further; a higher one doesn't raise it.
+        controller.onTooManyPublishRequests(4);
+        assertEquals(controller.getDepth(10, 0.0), 3L);
+
+        controller.onTooManyPublishRequests(50);
+        assertEquals(controller.getDepth(10, 0.0), 3L);
+
+        controller.onTooManyPublishRequests(1);
+        assertEquals(controller.getDepth(10, 0.0), 1L);
+    }
+
+    @Test
+    public void testCeilingRelaxesEveryProbeInterval() {
+        PublishDepthController controller = new PublishDepthController(100);
+        controller.onTooManyPublishRequests(6);
+
+        for (int i = 0; i < PublishDepthController.CEILING_PROBE_INTERVAL - 1; i++) {
+            controller.onPublishResponse(0L, true, 1);
+        }
+
+        assertEquals(controller.getDepth(10, 0.0), 5L);
+
+        controller.onPublishResponse(0L, true, 1);
+        assertEquals(controller.getDepth(10, 0.0), 6L);
+
+        // Being throttled again restarts the count.
+        for (int i = 0; i < PublishDepthController.CEILING_PROBE_INTERVAL - 1; i++) {
+            controller.onPublishResponse(0L, true, 1);
+        }
+
+        controller.onTooManyPublishRequests(7);
+
+        for (int i = 0; i < PublishDepthController.CEILING_PROBE_INTERVAL - 1; i++) {
+            controller.onPublishResponse(0L, true, 1);
+        }
+
+        assertEquals(controller.getDepth(10, 0.0), 6L);
+
+        controller.onPublishResponse(0L, true, 1);
+        assertEquals(controller.getDepth(10, 0.0), 7L);
+    }
+
+}
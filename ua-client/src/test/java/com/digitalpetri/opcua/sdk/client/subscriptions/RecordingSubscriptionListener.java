@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaSubscription;
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaSubscriptionManager;
+import com.digitalpetri.opcua.stack.core.UaException;
+import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+
+/**
+ * Records the callbacks a {@link UaSubscriptionManager.SubscriptionListener} receives.
+ */
+class RecordingSubscriptionListener implements UaSubscriptionManager.SubscriptionListener {
+
+    final BlockingQueue<DateTime> keepAlives = new LinkedBlockingQueue<>();
+    final BlockingQueue<StatusCode> statusChanges = new LinkedBlockingQueue<>();
+    final BlockingQueue<UaSubscription> dataLost = new LinkedBlockingQueue<>();
+
+    @Override
+    public void onKeepAlive(UaSubscription subscription, DateTime publishTime) {
+        keepAlives.add(publishTime);
+    }
+
+    @Override
+    public void onStatusChanged(UaSubscription subscription, StatusCode status) {
+        statusChanges.add(status);
+    }
+
+    @Override
+    public void onPublishFailure(UaException exception) {}
+
+    @Override
+    public void onNotificationDataLost(UaSubscription subscription) {
+        dataLost.add(subscription);
+    }
+
+    @Override
+    public void onSubscriptionTransferFailed(UaSubscription subscription, StatusCode statusCode) {}
+
+}
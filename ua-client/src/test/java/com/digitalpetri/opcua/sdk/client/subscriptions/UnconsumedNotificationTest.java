@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 Kevin Herron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.sdk.client.subscriptions;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import com.digitalpetri.opcua.sdk.client.api.subscriptions.UaSubscription;
+import com.digitalpetri.opcua.stack.core.Identifiers;
+import com.digitalpetri.opcua.stack.core.StatusCodes;
+import com.digitalpetri.opcua.stack.core.types.builtin.ByteString;
+import com.digitalpetri.opcua.stack.core.types.builtin.DataValue;
+import com.digitalpetri.opcua.stack.core.types.builtin.DateTime;
+import com.digitalpetri.opcua.stack.core.types.builtin.ExtensionObject;
+import com.digitalpetri.opcua.stack.core.types.builtin.StatusCode;
+import com.digitalpetri.opcua.stack.core.types.builtin.Variant;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static com.digitalpetri.opcua.sdk.client.subscriptions.FakeSubscriptionClient.dataChange;
+import static com.digitalpetri.opcua.sdk.client.subscriptions.FakeSubscriptionClient.event;
+import static com.digitalpetri.opcua.sdk.client.subscriptions.FakeSubscriptionClient.statusChange;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+public class UnconsumedNotificationTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testUnconsumedNotificationsAreSkipped() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+        OpcUaSubscription subscription = client.subscribe();
+        OpcUaMonitoredItem item = client.monitor(subscription);
+
+        // Bytes that don't decode; reaching the decoder would only log a warning, so count what was skipped.
+        ExtensionObject undecodable = new ExtensionObject(
+                ByteString.of(new byte[]{1, 0, 0, 0, (byte) 0xFF}),
+                Identifiers.DataChangeNotification_Encoding_DefaultBinary);
+
+        client.publish(subscription, 1, dataChange(item, 1));
+        client.publish(subscription, 2, event(item, "message"));
+        client.publish(subscription, 3, undecodable);
+        client.awaitDelivery();
+
+        assertEquals(client.getSubscriptionManager().getSkippedNotificationCount(), 3L);
+        assertEquals(subscription.getLastSequenceNumber(), 3L);
+    }
+
+    @Test
+    public void testStatusChangeIsProcessedWithoutConsumers() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+        OpcUaSubscription subscription = client.subscribe();
+
+        RecordingSubscriptionListener listener = new RecordingSubscriptionListener();
+        client.getSubscriptionManager().addSubscriptionListener(listener);
+
+        client.publish(subscription, 1, statusChange(StatusCodes.Bad_Timeout));
+        client.awaitDelivery();
+
+        StatusCode status = listener.statusChanges.poll(5, TimeUnit.SECONDS);
+
+        assertNotNull(status);
+        assertEquals(status.getValue(), StatusCodes.Bad_Timeout);
+        assertFalse(client.getSubscriptionManager().getSubscriptions().contains(subscription));
+        assertEquals(client.getSubscriptionManager().getSkippedNotificationCount(), 0L);
+    }
+
+    @Test
+    public void testKeepAliveIsReportedWithoutConsumers() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+        OpcUaSubscription subscription = client.subscribe();
+
+        RecordingSubscriptionListener listener = new RecordingSubscriptionListener();
+        client.getSubscriptionManager().addSubscriptionListener(listener);
+
+        client.publish(subscription, 1, dataChange());
+
+        assertNotNull(listener.keepAlives.poll(5, TimeUnit.SECONDS));
+        assertEquals(client.getSubscriptionManager().getSkippedNotificationCount(), 0L);
+    }
+
+    @Test
+    public void testValuesFlowOnceConsumerIsSet() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+        OpcUaSubscription subscription = client.subscribe();
+        OpcUaMonitoredItem item = client.monitor(subscription);
+
+        client.publish(subscription, 1, dataChange(item, 1));
+        client.awaitDelivery();
+
+        BlockingQueue<DataValue> values = new LinkedBlockingQueue<>();
+        item.setValueConsumer(values::add);
+
+        client.publish(subscription, 2, dataChange(item, 2));
+
+        assertEquals(values.poll(5, TimeUnit.SECONDS).getValue().getValue(), 2);
+        assertEquals(client.getSubscriptionManager().getSkippedNotificationCount(), 1L);
+
+        // Removing the only consumer goes back to skipping.
+        item.setValueConsumer(null);
+
+        client.publish(subscription, 3, dataChange(item, 3));
+        client.awaitDelivery();
+
+        assertTrue(values.isEmpty());
+        assertEquals(client.getSubscriptionManager().getSkippedNotificationCount(), 2L);
+    }
+
+    @Test
+    public void testEventConsumerCountsAsConsumer() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+        OpcUaSubscription subscription = client.subscribe();
+        OpcUaMonitoredItem item = client.monitor(subscription);
+
+        BlockingQueue<Variant[]> events = new LinkedBlockingQueue<>();
+        item.setEventConsumer(events::add);
+
+        client.publish(subscription, 1, event(item, "message"));
+
+        assertEquals(events.poll(5, TimeUnit.SECONDS)[0].getValue(), "message");
+        assertEquals(client.getSubscriptionManager().getSkippedNotificationCount(), 0L);
+    }
+
+    @Test
+    public void testNotificationListenerCountsAsConsumer() throws Exception {
+        FakeSubscriptionClient client = new FakeSubscriptionClient(b -> b.setExecutor(executor));
+        OpcUaSubscription subscription = client.subscribe();
+        OpcUaMonitoredItem item = client.monitor(subscription);
+
+        BlockingQueue<DataValue> values = new LinkedBlockingQueue<>();
+
+        subscription.addNotificationListener(new UaSubscription.NotificationListener() {
+            @Override
+            public void onDataChanged(UaSubscription subscription,
+                                      List<UaMonitoredItem> items,
+                                      List<DataValue> dataValues,
+                                      DateTime publishTime) {
+
+                values.addAll(dataValues);
+            }
+        });
+
+        client.publish(subscription, 1, dataChange(item, 1));
+
+        assertEquals(values.poll(5, TimeUnit.SECONDS).getValue().getValue(), 1);
+        assertEquals(client.getSubscriptionManager().getSkippedNotificationCount(), 0L);
+    }
+
+}